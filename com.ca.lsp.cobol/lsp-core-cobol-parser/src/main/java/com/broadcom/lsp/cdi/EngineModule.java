@@ -25,12 +25,17 @@ import com.ca.lsp.core.cobol.preprocessor.sub.copybook.CopybookParallelAnalysis;
 import com.ca.lsp.core.cobol.preprocessor.sub.document.CobolSemanticParser;
 import com.ca.lsp.core.cobol.preprocessor.sub.document.impl.CobolSemanticParserImpl;
 import com.google.inject.assistedinject.FactoryModuleBuilder;
+import com.google.inject.name.Names;
 
 /** This module provides DI bindings for COBOL language engine part. */
 public class EngineModule extends DefaultModule {
   @Override
   protected void configure() {
     bind(CobolLanguageEngine.class);
+    bindConstant().annotatedWith(Names.named("DFA-CACHE-MAX-STATES")).to(500000);
+    bindConstant().annotatedWith(Names.named("COPYBOOK-CACHE-MAX-SIZE")).to(500);
+    bindConstant().annotatedWith(Names.named("COPYBOOK-RESOLUTION-TIMEOUT")).to(30000);
+    bindConstant().annotatedWith(Names.named("DOCUMENT-RESOLUTION-TIMEOUT")).to(60000);
     bind(CobolPreprocessor.class).to(CobolPreprocessorImpl.class);
     bind(CopybookAnalysis.class).to(CopybookParallelAnalysis.class);
     install(new FactoryModuleBuilder().build(AnalyseCopybookTaskFactory.class));
@@ -0,0 +1,29 @@
+/*
+ * Copyright (c) 2020 Broadcom.
+ * The term "Broadcom" refers to Broadcom Inc. and/or its subsidiaries.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *   Broadcom, Inc. - initial API and implementation
+ */
+package com.ca.lsp.core.cobol.engine;
+
+import java.util.concurrent.CancellationException;
+
+/**
+ * This exception is thrown by any stage of the analysis if its {@link CancellationToken} was
+ * cancelled. It is not a {@link org.antlr.v4.runtime.misc.ParseCancellationException}, so the
+ * parsers don't treat it as a syntax error and it is not caught by the two-stage parsing.
+ */
+public class AnalysisCancelledException extends CancellationException {
+  private static final long serialVersionUID = 4254218763472307428L;
+
+  public AnalysisCancelledException() {
+    super("The analysis was cancelled");
+  }
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2020 Broadcom.
+ * The term "Broadcom" refers to Broadcom Inc. and/or its subsidiaries.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *   Broadcom, Inc. - initial API and implementation
+ */
+package com.ca.lsp.core.cobol.engine;
+
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.TokenSource;
+
+/**
+ * This token stream checks the {@link CancellationToken} every time the parser consumes a token and
+ * every time the lexer is asked for new tokens, e.g. during the lookahead of the prediction, so a
+ * cancelled analysis aborts after at most one token. The check is a volatile read, so it doesn't
+ * slow down the parsing noticeably.
+ */
+public class CancellableTokenStream extends CommonTokenStream {
+  private final CancellationToken token;
+
+  public CancellableTokenStream(TokenSource tokenSource, CancellationToken token) {
+    super(tokenSource);
+    this.token = token;
+  }
+
+  @Override
+  public void consume() {
+    token.checkCancelled();
+    super.consume();
+  }
+
+  @Override
+  protected int fetch(int n) {
+    token.checkCancelled();
+    return super.fetch(n);
+  }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2020 Broadcom.
+ * The term "Broadcom" refers to Broadcom Inc. and/or its subsidiaries.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *   Broadcom, Inc. - initial API and implementation
+ */
+package com.ca.lsp.core.cobol.engine;
+
+/**
+ * This class allows to abort an analysis that is not needed anymore, e.g. because the document was
+ * changed again before the analysis finished. The token is cancelled by the caller, and all the
+ * stages of the analysis check it cooperatively, including the parsers, which check it on every
+ * consumed token using {@link CancellableTokenStream}.
+ */
+public class CancellationToken {
+  /**
+   * The token that is never cancelled, used when the analysis cannot be superseded. Cancelling it
+   * does nothing, since it is shared by all such analyses.
+   */
+  public static final CancellationToken NONE =
+      new CancellationToken() {
+        @Override
+        public void cancel() {
+          // this token is never cancelled
+        }
+      };
+
+  private final CancellationToken parent;
+  private volatile boolean cancelled;
+
+  public CancellationToken() {
+    this(null);
+  }
+
+  /**
+   * Create a token for a part of the analysis, e.g. the copybooks of a document, that may be
+   * stopped without stopping the whole analysis. The token is cancelled also if the given token of
+   * the whole analysis is cancelled.
+   *
+   * @param parent the token of the whole analysis or null if there is none
+   */
+  public CancellationToken(CancellationToken parent) {
+    this.parent = parent;
+  }
+
+  /** Request the analysis that uses this token to stop as soon as possible */
+  public void cancel() {
+    cancelled = true;
+  }
+
+  /** @return true if the analysis that uses this token should stop */
+  public boolean isCancelled() {
+    return cancelled || (parent != null && parent.isCancelled());
+  }
+
+  /**
+   * Abort the current analysis if the token was cancelled
+   *
+   * @throws AnalysisCancelledException if the token was cancelled
+   */
+  public void checkCancelled() {
+    if (isCancelled()) {
+      throw new AnalysisCancelledException();
+    }
+  }
+}
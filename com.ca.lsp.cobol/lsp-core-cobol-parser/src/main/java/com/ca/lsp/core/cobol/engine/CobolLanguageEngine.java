@@ -13,38 +13,67 @@
  */
 package com.ca.lsp.core.cobol.engine;
 
+import com.broadcom.lsp.domain.common.model.Position;
+import com.ca.lsp.core.cobol.engine.IncrementalAnalysis.RegionChange;
 import com.ca.lsp.core.cobol.model.PreprocessedInput;
 import com.ca.lsp.core.cobol.model.ResultWithErrors;
 import com.ca.lsp.core.cobol.model.SyntaxError;
 import com.ca.lsp.core.cobol.parser.CobolLexer;
 import com.ca.lsp.core.cobol.parser.CobolParser;
+import com.ca.lsp.core.cobol.parser.CobolParser.ProcedureDivisionBodyContext;
+import com.ca.lsp.core.cobol.parser.CobolParser.ProcedureDivisionContext;
+import com.ca.lsp.core.cobol.parser.CobolParser.ProgramUnitContext;
 import com.ca.lsp.core.cobol.parser.listener.VerboseListener;
 import com.ca.lsp.core.cobol.preprocessor.CobolPreprocessor;
 import com.ca.lsp.core.cobol.semantics.SemanticContext;
 import com.ca.lsp.core.cobol.strategy.CobolErrorStrategy;
 import com.ca.lsp.core.cobol.visitor.CobolVisitor;
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Multimap;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import lombok.extern.slf4j.Slf4j;
+import org.antlr.v4.runtime.BailErrorStrategy;
 import org.antlr.v4.runtime.CharStreams;
-import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.TokenStream;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
 
 /**
  * This class is responsible for run the syntax and semantic analysis of an input cobol document.
  * Its run method used by the service facade layer CobolLanguageEngineFacade.
+ *
+ * <p>When a document changes, only the units of its procedure division touched by the change are
+ * parsed again if possible, see {@link IncrementalAnalysis}.
  */
 @Slf4j
 @Singleton
 public class CobolLanguageEngine {
+  private static final String DID_CHANGE = "DID_CHANGE";
 
   private CobolPreprocessor preprocessor;
+  private ParsingStatistics statistics;
+  private DFACacheManager cacheManager;
+  private IncrementalAnalysis incrementalAnalysis;
 
   @Inject
-  public CobolLanguageEngine(CobolPreprocessor preprocessor) {
+  public CobolLanguageEngine(
+      CobolPreprocessor preprocessor,
+      ParsingStatistics statistics,
+      DFACacheManager cacheManager,
+      IncrementalAnalysis incrementalAnalysis) {
     this.preprocessor = preprocessor;
+    this.statistics = statistics;
+    this.cacheManager = cacheManager;
+    this.incrementalAnalysis = incrementalAnalysis;
   }
 
   /**
@@ -58,33 +87,203 @@ public class CobolLanguageEngine {
    */
   public ResultWithErrors<SemanticContext> run(
       String documentUri, String text, String textDocumentSyncType) {
+    return run(documentUri, text, textDocumentSyncType, CancellationToken.NONE);
+  }
 
-    ResultWithErrors<PreprocessedInput> preProcessedInput =
-        preprocessor.process(documentUri, text, textDocumentSyncType);
+  /**
+   * Perform syntax and semantic analysisi for the given text document that can be aborted using
+   * the given token, e.g. if the document changed again while it is being analyzed
+   *
+   * @param documentUri unique resource identifier of the processed document
+   * @param text the content of the document that should be processed
+   * @param textDocumentSyncType the document sync type that can be (DID_OPEN|DID_CHANGE)
+   * @param token the token to check if the analysis should stop
+   * @return Semantic information wrapper object and list of syntax error that might send back to
+   *     the client
+   * @throws AnalysisCancelledException if the token was cancelled before the analysis finished
+   */
+  public ResultWithErrors<SemanticContext> run(
+      String documentUri, String text, String textDocumentSyncType, CancellationToken token) {
+    token.checkCancelled();
+    cacheManager.checkCeiling();
 
-    CobolLexer lexer =
-        new CobolLexer(CharStreams.fromString(preProcessedInput.getResult().getInput()));
+    ResultWithErrors<PreprocessedInput> preProcessedInput =
+        preprocessor.process(documentUri, text, textDocumentSyncType, token);
+    String input = preProcessedInput.getResult().getInput();
+    SemanticContext semanticContext = preProcessedInput.getResult().getSemanticContext();
 
     List<SyntaxError> errors = new ArrayList<>(preProcessedInput.getErrors());
+    errors.addAll(
+        analyzeIncrementally(documentUri, input, semanticContext, textDocumentSyncType, token)
+            .orElseGet(() -> analyzeCompletely(documentUri, input, semanticContext, token)));
+
+    errors.forEach(err -> LOG.debug(err.toString()));
+    return new ResultWithErrors<>(semanticContext, errors);
+  }
 
+  private List<SyntaxError> analyzeCompletely(
+      String documentUri, String input, SemanticContext semanticContext, CancellationToken token) {
+    List<SyntaxError> errors = new ArrayList<>();
+    CobolLexer lexer = cacheManager.manage(new CobolLexer(CharStreams.fromString(input)));
     lexer.removeErrorListeners();
     lexer.addErrorListener(new VerboseListener(errors, documentUri));
 
-    CommonTokenStream tokens = new CommonTokenStream(lexer);
-    CobolParser parser = new CobolParser(tokens);
+    TokenStream tokens = new CompactTokenStream(lexer, token);
+    List<SyntaxError> parserErrors = new ArrayList<>();
+    CobolParser.StartRuleContext tree =
+        parse(documentUri, tokens, parserErrors, CobolParser::startRule);
 
-    parser.removeErrorListeners();
-    parser.addErrorListener(new VerboseListener(errors, documentUri));
-    parser.setErrorHandler(new CobolErrorStrategy());
+    Multimap<String, Position> variables =
+        HashMultimap.create(semanticContext.getVariables().getUsages());
+    Multimap<String, Position> paragraphs =
+        HashMultimap.create(semanticContext.getParagraphs().getUsages());
+    visit(documentUri, semanticContext, tree, errors);
 
-    CobolParser.StartRuleContext tree = parser.startRule();
-    CobolVisitor visitor =
-        new CobolVisitor(documentUri, preProcessedInput.getResult().getSemanticContext());
-    visitor.visit(tree);
+    ProcedureDivisionBodyContext body =
+        Optional.ofNullable(tree.compilationUnit())
+            .map(it -> it.programUnit(0))
+            .map(ProgramUnitContext::procedureDivision)
+            .map(ProcedureDivisionContext::procedureDivisionBody)
+            .orElse(null);
+    Optional<List<Integer>> bodyStarts =
+        Optional.ofNullable(body).flatMap(it -> IncrementalAnalysis.findUnitStarts(it, tokens, 0));
+    int tailStart = bodyStarts.isPresent() ? IncrementalAnalysis.findTailStart(body, tokens) : -1;
+    if (tailStart < 0) {
+      incrementalAnalysis.forget(documentUri);
+    } else {
+      incrementalAnalysis.store(
+          documentUri,
+          input,
+          semanticContext.getVariables().getAll(),
+          bodyStarts.get(),
+          tailStart,
+          errors,
+          parserErrors,
+          IncrementalAnalysis.difference(variables, semanticContext.getVariables().getUsages()),
+          IncrementalAnalysis.difference(paragraphs, semanticContext.getParagraphs().getUsages()));
+    }
+    parserErrors.addAll(errors);
+    return parserErrors;
+  }
 
+  private Optional<List<SyntaxError>> analyzeIncrementally(
+      String documentUri,
+      String input,
+      SemanticContext semanticContext,
+      String textDocumentSyncType,
+      CancellationToken token) {
+    if (!DID_CHANGE.equals(textDocumentSyncType)) {
+      return Optional.empty();
+    }
+    return incrementalAnalysis
+        .findChange(documentUri, input, semanticContext.getVariables().getAll())
+        .flatMap(change -> analyzeRegion(documentUri, input, semanticContext, change, token));
+  }
+
+  /**
+   * Parse and visit only the changed region of the document and reuse the results of the previous
+   * analysis for the rest of it. The region is lexed separately, but the token positions stay the
+   * same as if the whole document was lexed. If the region has syntax errors, the document should
+   * be analyzed completely, since the error recovery may consume the tokens of the next regions.
+   *
+   * @return the errors of the whole document or empty if the region cannot be parsed separately,
+   *     e.g. if the change affected the structure of the procedure division
+   */
+  private Optional<List<SyntaxError>> analyzeRegion(
+      String documentUri,
+      String input,
+      SemanticContext semanticContext,
+      RegionChange change,
+      CancellationToken token) {
+    List<SyntaxError> errors = new ArrayList<>();
+    List<DocumentRegion> regions = new ArrayList<>();
+    if (change.hasRegion()) {
+      CobolLexer lexer =
+          cacheManager.manage(
+              new CobolLexer(
+                  CharStreams.fromString(
+                      input.substring(change.getStartOffset(), change.getStopOffset()))));
+      lexer.setLine(change.getStartLine());
+      lexer.removeErrorListeners();
+      lexer.addErrorListener(new VerboseListener(errors, documentUri));
+
+      TokenStream tokens = new CompactTokenStream(lexer, token, change.getStartOffset());
+      ProcedureDivisionBodyContext tree =
+          parse(documentUri, tokens, errors, CobolParser::procedureDivisionBody);
+      Optional<List<Integer>> starts =
+          IncrementalAnalysis.findUnitStarts(tree, tokens, change.getStartLine());
+      if (!errors.isEmpty() || tokens.LA(1) != Token.EOF || !starts.isPresent()) {
+        LOG.debug("The changed region of {} cannot be parsed separately", documentUri);
+        return Optional.empty();
+      }
+
+      Multimap<String, Position> variables =
+          HashMultimap.create(semanticContext.getVariables().getUsages());
+      Multimap<String, Position> paragraphs =
+          HashMultimap.create(semanticContext.getParagraphs().getUsages());
+      visit(documentUri, semanticContext, tree, errors);
+      regions =
+          IncrementalAnalysis.partition(
+              starts.get(),
+              change.getStopLine(),
+              errors,
+              Collections.emptyList(),
+              IncrementalAnalysis.difference(variables, semanticContext.getVariables().getUsages()),
+              IncrementalAnalysis.difference(
+                  paragraphs, semanticContext.getParagraphs().getUsages()));
+    }
+    incrementalAnalysis.store(
+        documentUri, input, semanticContext.getVariables().getAll(), change, regions);
+    change.getReused().forEach(it -> it.applyTo(semanticContext, errors));
+    statistics.registerIncrementalAnalysis();
+    return Optional.of(errors);
+  }
+
+  private void visit(
+      String documentUri,
+      SemanticContext semanticContext,
+      ParserRuleContext tree,
+      List<SyntaxError> errors) {
+    CobolVisitor visitor = new CobolVisitor(documentUri, semanticContext);
+    visitor.visit(tree);
     errors.addAll(visitor.getErrors());
+  }
 
-    errors.forEach(err -> LOG.debug(err.toString()));
-    return new ResultWithErrors<>(preProcessedInput.getResult().getSemanticContext(), errors);
+  /**
+   * Parse the given tokens in two stages. The first stage uses the fast SLL prediction mode and
+   * bails out on the first syntax error without reporting it. Only if it fails, the same tokens are
+   * parsed again using the full LL prediction mode and {@link CobolErrorStrategy}, which reports
+   * the errors. If the SLL stage succeeds, the input has no syntax errors at all, so the
+   * diagnostics stay the same as for the single-stage LL parsing.
+   *
+   * @param documentUri unique resource identifier of the processed document
+   * @param tokens the token stream of the document
+   * @param errors the list to collect the syntax errors found by the LL stage
+   * @param rule the grammar rule to start parsing with
+   * @return the parse tree of the document
+   */
+  private <T extends ParserRuleContext> T parse(
+      String documentUri,
+      TokenStream tokens,
+      List<SyntaxError> errors,
+      Function<CobolParser, T> rule) {
+    CobolParser parser = cacheManager.manage(new CobolParser(tokens));
+    parser.removeErrorListeners();
+    parser.setErrorHandler(new BailErrorStrategy());
+    parser.getInterpreter().setPredictionMode(PredictionMode.SLL);
+    try {
+      T tree = rule.apply(parser);
+      statistics.registerSllParse();
+      return tree;
+    } catch (ParseCancellationException e) {
+      LOG.debug("SLL parsing failed for {}, falling back to LL", documentUri);
+      statistics.registerLlFallback();
+    }
+
+    parser.reset();
+    parser.addErrorListener(new VerboseListener(errors, documentUri));
+    parser.setErrorHandler(new CobolErrorStrategy());
+    parser.getInterpreter().setPredictionMode(PredictionMode.LL);
+    return rule.apply(parser);
   }
 }
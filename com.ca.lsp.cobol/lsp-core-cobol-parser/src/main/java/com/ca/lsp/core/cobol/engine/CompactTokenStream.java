@@ -0,0 +1,425 @@
+/*
+ * Copyright (c) 2020 Broadcom.
+ * The term "Broadcom" refers to Broadcom Inc. and/or its subsidiaries.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *   Broadcom, Inc. - initial API and implementation
+ */
+package com.ca.lsp.core.cobol.engine;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.RuleContext;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.TokenSource;
+import org.antlr.v4.runtime.TokenStream;
+import org.antlr.v4.runtime.misc.Interval;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * This token stream keeps the tokens of the main COBOL parsing in parallel primitive arrays
+ * instead of a list of {@link org.antlr.v4.runtime.CommonToken} objects. The tokens produced by the
+ * lexer are copied into the arrays and dropped right away, and the {@link Token} objects are
+ * created lazily as lightweight views of the arrays only when the parser asks for them. The views
+ * are created once per index, so the hidden tokens, i.e. whitespaces, comments and new lines, never
+ * have them, and the parse tree keeps only the views of the tokens it matched.
+ *
+ * <p>The stream works the same way as {@link org.antlr.v4.runtime.CommonTokenStream}: it returns
+ * only the tokens of the default channel for the lookahead and buffers all the tokens. The text of
+ * a token is read from the lexer input, since the COBOL lexer doesn't change the token texts. If
+ * the lexer input is a region of the document, the start and stop indexes of the tokens are moved
+ * by the region offset, so they are the same as if the whole document was lexed.
+ *
+ * <p>The {@link CancellationToken} is checked the same way as in {@link CancellableTokenStream}.
+ */
+public class CompactTokenStream implements TokenStream {
+  private static final int INITIAL_CAPACITY = 1024;
+  private static final int FILL_BLOCK_SIZE = 1000;
+
+  private final TokenSource tokenSource;
+  private final CancellationToken cancellationToken;
+  private final int offset;
+
+  private int[] types = new int[INITIAL_CAPACITY];
+  private int[] starts = new int[INITIAL_CAPACITY];
+  private int[] stops = new int[INITIAL_CAPACITY];
+  private int[] lines = new int[INITIAL_CAPACITY];
+  private int[] columns = new int[INITIAL_CAPACITY];
+  private byte[] channels = new byte[INITIAL_CAPACITY];
+  private Token[] views = new Token[INITIAL_CAPACITY];
+  private int size;
+  private int index = -1;
+  private boolean fetchedEOF;
+
+  public CompactTokenStream(TokenSource tokenSource, CancellationToken cancellationToken) {
+    this(tokenSource, cancellationToken, 0);
+  }
+
+  /**
+   * @param tokenSource - the lexer of the document or its region
+   * @param cancellationToken - the token to check if the parsing should stop
+   * @param offset - the offset of the lexed region in the document
+   */
+  public CompactTokenStream(
+      TokenSource tokenSource, CancellationToken cancellationToken, int offset) {
+    this.tokenSource = tokenSource;
+    this.cancellationToken = cancellationToken;
+    this.offset = offset;
+  }
+
+  @Override
+  public Token LT(int k) {
+    int i = indexOfLT(k);
+    return i < 0 ? null : get(i);
+  }
+
+  @Override
+  public int LA(int i) {
+    int tokenIndex = indexOfLT(i);
+    return tokenIndex < 0 ? Token.INVALID_TYPE : types[tokenIndex];
+  }
+
+  @Override
+  public Token get(int i) {
+    if (i < 0 || i >= size) {
+      throw new IndexOutOfBoundsException("token index " + i + " out of range 0.." + (size - 1));
+    }
+    Token view = views[i];
+    if (view == null) {
+      view = new TokenView(i);
+      views[i] = view;
+    }
+    return view;
+  }
+
+  /**
+   * Get all the tokens between the given indexes except EOF
+   *
+   * @param start - the index of the first token
+   * @param stop - the index of the last token
+   * @return the list of tokens or null if the indexes are out of the stream
+   */
+  public List<Token> get(int start, int stop) {
+    if (start < 0 || stop < 0) {
+      return null;
+    }
+    lazyInit();
+    List<Token> result = new ArrayList<>();
+    for (int i = start; i <= Math.min(stop, size - 1) && types[i] != Token.EOF; i++) {
+      result.add(get(i));
+    }
+    return result;
+  }
+
+  @Override
+  public void consume() {
+    cancellationToken.checkCancelled();
+    boolean skipEofCheck = index >= 0 && (fetchedEOF ? index < size - 1 : index < size);
+    if (!skipEofCheck && LA(1) == Token.EOF) {
+      throw new IllegalStateException("cannot consume EOF");
+    }
+    if (sync(index + 1)) {
+      index = nextTokenOnChannel(index + 1);
+    }
+  }
+
+  @Override
+  public int mark() {
+    return 0;
+  }
+
+  @Override
+  public void release(int marker) {
+    // no resources to release
+  }
+
+  @Override
+  public int index() {
+    return index;
+  }
+
+  @Override
+  public void seek(int index) {
+    lazyInit();
+    this.index = nextTokenOnChannel(index);
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public String getSourceName() {
+    return tokenSource.getSourceName();
+  }
+
+  @Override
+  public TokenSource getTokenSource() {
+    return tokenSource;
+  }
+
+  @Override
+  public String getText() {
+    fill();
+    return getText(Interval.of(0, size - 1));
+  }
+
+  @Override
+  public String getText(Interval interval) {
+    int start = interval.a;
+    int stop = interval.b;
+    if (start < 0 || stop < 0) {
+      return "";
+    }
+    fill();
+    StringBuilder builder = new StringBuilder();
+    for (int i = start; i <= Math.min(stop, size - 1) && types[i] != Token.EOF; i++) {
+      builder.append(getTokenText(i));
+    }
+    return builder.toString();
+  }
+
+  @Override
+  public String getText(RuleContext ctx) {
+    return getText(ctx.getSourceInterval());
+  }
+
+  @Override
+  public String getText(Token start, Token stop) {
+    if (start == null || stop == null) {
+      return "";
+    }
+    return getText(Interval.of(start.getTokenIndex(), stop.getTokenIndex()));
+  }
+
+  /** Read all the tokens from the lexer */
+  public void fill() {
+    lazyInit();
+    while (fetch(FILL_BLOCK_SIZE) == FILL_BLOCK_SIZE) {
+      // continue until EOF
+    }
+  }
+
+  private void lazyInit() {
+    if (index == -1) {
+      sync(0);
+      index = nextTokenOnChannel(0);
+    }
+  }
+
+  /** @return the index of the k-th token of the default channel from the current one */
+  private int indexOfLT(int k) {
+    lazyInit();
+    if (k == 0) {
+      return -1;
+    }
+    if (k < 0) {
+      return indexOfLB(-k);
+    }
+    int i = index;
+    for (int n = 1; n < k; n++) {
+      if (sync(i + 1)) {
+        i = nextTokenOnChannel(i + 1);
+      }
+    }
+    return i;
+  }
+
+  private int indexOfLB(int k) {
+    if (index - k < 0) {
+      return -1;
+    }
+    int i = index;
+    for (int n = 1; n <= k && i > 0; n++) {
+      i = previousTokenOnChannel(i - 1);
+    }
+    return i;
+  }
+
+  private int nextTokenOnChannel(int i) {
+    sync(i);
+    if (i >= size) {
+      return size - 1;
+    }
+    while (channels[i] != Token.DEFAULT_CHANNEL) {
+      if (types[i] == Token.EOF) {
+        return i;
+      }
+      i++;
+      sync(i);
+    }
+    return i;
+  }
+
+  private int previousTokenOnChannel(int i) {
+    sync(i);
+    if (i >= size) {
+      return size - 1;
+    }
+    while (i >= 0 && types[i] != Token.EOF && channels[i] != Token.DEFAULT_CHANNEL) {
+      i--;
+    }
+    return i;
+  }
+
+  /** @return true if the token with the given index is available */
+  private boolean sync(int i) {
+    int n = i - size + 1;
+    return n <= 0 || fetch(n) >= n;
+  }
+
+  /** @return the number of fetched tokens that may be less than requested if EOF is reached */
+  private int fetch(int n) {
+    cancellationToken.checkCancelled();
+    if (fetchedEOF) {
+      return 0;
+    }
+    for (int i = 0; i < n; i++) {
+      if (add(tokenSource.nextToken())) {
+        fetchedEOF = true;
+        trim();
+        return i + 1;
+      }
+    }
+    return n;
+  }
+
+  /** @return true if the added token is EOF */
+  private boolean add(Token token) {
+    if (size == types.length) {
+      resize(size * 2);
+    }
+    if (token.getChannel() > Byte.MAX_VALUE) {
+      throw new IllegalStateException("Unsupported token channel " + token.getChannel());
+    }
+    types[size] = token.getType();
+    starts[size] = token.getStartIndex();
+    stops[size] = token.getStopIndex();
+    lines[size] = token.getLine();
+    columns[size] = token.getCharPositionInLine();
+    channels[size] = (byte) token.getChannel();
+    size++;
+    return token.getType() == Token.EOF;
+  }
+
+  /** Release the unused capacity after all the tokens are read, since the stream may live long */
+  private void trim() {
+    resize(size);
+  }
+
+  private void resize(int capacity) {
+    types = Arrays.copyOf(types, capacity);
+    starts = Arrays.copyOf(starts, capacity);
+    stops = Arrays.copyOf(stops, capacity);
+    lines = Arrays.copyOf(lines, capacity);
+    columns = Arrays.copyOf(columns, capacity);
+    channels = Arrays.copyOf(channels, capacity);
+    views = Arrays.copyOf(views, capacity);
+  }
+
+  private String getTokenText(int i) {
+    CharStream input = tokenSource.getInputStream();
+    if (input == null) {
+      return null;
+    }
+    int n = input.size();
+    if (starts[i] < n && stops[i] < n) {
+      return input.getText(Interval.of(starts[i], stops[i]));
+    }
+    return "<EOF>";
+  }
+
+  /** A token that reads its attributes from the arrays of the stream by its index */
+  private final class TokenView implements Token {
+    private final int tokenIndex;
+
+    private TokenView(int tokenIndex) {
+      this.tokenIndex = tokenIndex;
+    }
+
+    @Override
+    public String getText() {
+      return getTokenText(tokenIndex);
+    }
+
+    @Override
+    public int getType() {
+      return types[tokenIndex];
+    }
+
+    @Override
+    public int getLine() {
+      return lines[tokenIndex];
+    }
+
+    @Override
+    public int getCharPositionInLine() {
+      return columns[tokenIndex];
+    }
+
+    @Override
+    public int getChannel() {
+      return channels[tokenIndex];
+    }
+
+    @Override
+    public int getTokenIndex() {
+      return tokenIndex;
+    }
+
+    @Override
+    public int getStartIndex() {
+      return starts[tokenIndex] + offset;
+    }
+
+    @Override
+    public int getStopIndex() {
+      return stops[tokenIndex] + offset;
+    }
+
+    @Override
+    public TokenSource getTokenSource() {
+      return tokenSource;
+    }
+
+    @Override
+    public CharStream getInputStream() {
+      return tokenSource.getInputStream();
+    }
+
+    @Override
+    public String toString() {
+      String text = getText();
+      String escaped =
+          text == null
+              ? "<no text>"
+              : text.replace("\n", "\\n").replace("\r", "\\r").replace("\t", "\\t");
+      return "[@"
+          + tokenIndex
+          + ","
+          + getStartIndex()
+          + ":"
+          + getStopIndex()
+          + "='"
+          + escaped
+          + "',<"
+          + getType()
+          + ">"
+          + (getChannel() > 0 ? ",channel=" + getChannel() : "")
+          + ","
+          + getLine()
+          + ":"
+          + getCharPositionInLine()
+          + "]";
+    }
+  }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2020 Broadcom.
+ * The term "Broadcom" refers to Broadcom Inc. and/or its subsidiaries.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *   Broadcom, Inc. - initial API and implementation
+ */
+package com.ca.lsp.core.cobol.engine;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.google.inject.name.Named;
+import lombok.extern.slf4j.Slf4j;
+import org.antlr.v4.runtime.Lexer;
+import org.antlr.v4.runtime.Parser;
+import org.antlr.v4.runtime.Recognizer;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class manages the DFA and prediction context caches of the COBOL grammar recognizers. The
+ * caches of the generated classes are static and grow without a limit during the server lifetime,
+ * so every lexer and parser should be passed to {@link #manage(Lexer)} or {@link #manage(Parser)}
+ * to use the caches of this class instead. The size of the caches is checked by {@link
+ * #checkCeiling()} before each analysis, and if the total number of the DFA states exceeds the
+ * limit, all the caches get cleared. The statistics are available using JMX and the debug log.
+ */
+@Slf4j
+@Singleton
+public class DFACacheManager implements DFACacheManagerMXBean {
+  private static final String MBEAN_NAME = "com.ca.lsp.core.cobol:type=DFACacheManager";
+
+  private final Map<String, GrammarDFACache> caches = new ConcurrentHashMap<>();
+  private final AtomicLong rebuilds = new AtomicLong();
+  private volatile int maxStates;
+
+  @Inject
+  public DFACacheManager(@Named("DFA-CACHE-MAX-STATES") int maxStates) {
+    this.maxStates = maxStates;
+    registerMBean();
+  }
+
+  /**
+   * Make the given lexer use the managed caches
+   *
+   * @param lexer the lexer to apply the caches
+   * @param <T> the type of the lexer
+   * @return the same lexer
+   */
+  public <T extends Lexer> T manage(T lexer) {
+    lexer.setInterpreter(getCache(lexer).createLexerSimulator(lexer));
+    return lexer;
+  }
+
+  /**
+   * Make the given parser use the managed caches
+   *
+   * @param parser the parser to apply the caches
+   * @param <T> the type of the parser
+   * @return the same parser
+   */
+  public <T extends Parser> T manage(T parser) {
+    parser.setInterpreter(getCache(parser).createParserSimulator(parser));
+    return parser;
+  }
+
+  /**
+   * Clear the caches if the total number of the DFA states exceeds the limit. This method should
+   * be called between the analyses; the parsers that are already running keep using the previous
+   * caches, so it is safe in case of the concurrent analyses.
+   */
+  public synchronized void checkCeiling() {
+    int stateCount = getStateCount();
+    LOG.debug(
+        String.format(
+            "DFA caches: %d states, %d prediction contexts, hit rate %.2f%%",
+            stateCount, getContextCacheSize(), getHitRate()));
+    if (stateCount > maxStates) {
+      LOG.info(
+          "DFA caches exceeded the limit of {} states: {}, clearing", maxStates, getStateCounts());
+      clear();
+    }
+  }
+
+  @Override
+  public Map<String, Integer> getStateCounts() {
+    Map<String, Integer> result = new TreeMap<>();
+    caches.forEach((name, cache) -> result.put(name, cache.getStateCount()));
+    return result;
+  }
+
+  @Override
+  public int getStateCount() {
+    return caches.values().stream().mapToInt(GrammarDFACache::getStateCount).sum();
+  }
+
+  @Override
+  public int getContextCacheSize() {
+    return caches.values().stream().mapToInt(GrammarDFACache::getContextCacheSize).sum();
+  }
+
+  @Override
+  public double getHitRate() {
+    long hits = caches.values().stream().mapToLong(GrammarDFACache::getHits).sum();
+    long total = hits + caches.values().stream().mapToLong(GrammarDFACache::getMisses).sum();
+    return total == 0 ? 0 : hits * 100.0 / total;
+  }
+
+  @Override
+  public long getRebuilds() {
+    return rebuilds.get();
+  }
+
+  @Override
+  public int getMaxStates() {
+    return maxStates;
+  }
+
+  @Override
+  public void setMaxStates(int maxStates) {
+    this.maxStates = maxStates;
+  }
+
+  @Override
+  public synchronized void clear() {
+    caches.values().forEach(GrammarDFACache::clear);
+    LOG.info("DFA caches cleared, rebuild #{}", rebuilds.incrementAndGet());
+  }
+
+  private GrammarDFACache getCache(Recognizer<?, ?> recognizer) {
+    return caches.computeIfAbsent(
+        recognizer.getClass().getSimpleName(), it -> new GrammarDFACache(recognizer.getATN()));
+  }
+
+  private void registerMBean() {
+    try {
+      MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      ObjectName name = new ObjectName(MBEAN_NAME);
+      if (server.isRegistered(name)) {
+        server.unregisterMBean(name);
+      }
+      server.registerMBean(this, name);
+    } catch (JMException e) {
+      LOG.warn("Cannot register the DFA cache MBean", e);
+    }
+  }
+}
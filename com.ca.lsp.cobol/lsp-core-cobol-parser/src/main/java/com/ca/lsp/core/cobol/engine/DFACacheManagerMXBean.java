@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2020 Broadcom.
+ * The term "Broadcom" refers to Broadcom Inc. and/or its subsidiaries.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *   Broadcom, Inc. - initial API and implementation
+ */
+package com.ca.lsp.core.cobol.engine;
+
+import java.util.Map;
+
+/** JMX interface of {@link DFACacheManager} to observe and control the parser DFA caches */
+public interface DFACacheManagerMXBean {
+
+  /** @return the number of cached DFA states per grammar recognizer */
+  Map<String, Integer> getStateCounts();
+
+  /** @return the total number of cached DFA states of all the grammar recognizers */
+  int getStateCount();
+
+  /** @return the total number of cached prediction contexts of all the grammar recognizers */
+  int getContextCacheSize();
+
+  /** @return the percentage of the DFA transitions that were found in the caches */
+  double getHitRate();
+
+  /** @return the number of times the caches were cleared since the server start */
+  long getRebuilds();
+
+  /** @return the maximum number of the DFA states to keep before clearing the caches */
+  int getMaxStates();
+
+  /** @param maxStates the maximum number of the DFA states to keep before clearing the caches */
+  void setMaxStates(int maxStates);
+
+  /** Clear the caches of all the grammar recognizers, the running analyses are not affected */
+  void clear();
+}
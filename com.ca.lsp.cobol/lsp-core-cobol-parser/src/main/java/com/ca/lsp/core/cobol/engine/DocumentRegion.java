@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2020 Broadcom.
+ * The term "Broadcom" refers to Broadcom Inc. and/or its subsidiaries.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *   Broadcom, Inc. - initial API and implementation
+ */
+package com.ca.lsp.core.cobol.engine;
+
+import com.broadcom.lsp.domain.common.model.Position;
+import com.ca.lsp.core.cobol.model.SyntaxError;
+import com.ca.lsp.core.cobol.semantics.SemanticContext;
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Multimap;
+import lombok.Value;
+
+import java.util.List;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * This class represents a range of lines of a preprocessed document, e.g. a paragraph of the
+ * procedure division, with the results of its analysis: the syntax and semantic errors and the
+ * usages of the variables and paragraphs found by the visitor. These results can be reused if the
+ * region text stays the same, even if the region moved because of the changes above it.
+ *
+ * <p>The positions of the parser errors and the usages are built from the tokens, so they contain
+ * the offsets in the document that move with the region. The other errors, found by the lexer and
+ * the visitor, contain the positions in the line instead, so only their line moves.
+ */
+@Value
+class DocumentRegion {
+  private int startLine;
+  private int stopLine;
+  private List<SyntaxError> errors;
+  private List<SyntaxError> parserErrors;
+  private Multimap<String, Position> variableUsages;
+  private Multimap<String, Position> paragraphUsages;
+
+  /**
+   * Move the region and all its positions by the given number of lines and characters
+   *
+   * @param lines the number of lines to move the region by
+   * @param chars the number of characters to move the offsets of the positions by
+   * @return a new moved region or the same one if there is nothing to move
+   */
+  DocumentRegion shift(int lines, int chars) {
+    if (lines == 0 && chars == 0) {
+      return this;
+    }
+    return new DocumentRegion(
+        startLine + lines,
+        stopLine + lines,
+        errors.stream().map(it -> shift(it, lines, 0)).collect(toList()),
+        parserErrors.stream().map(it -> shift(it, lines, chars)).collect(toList()),
+        shift(variableUsages, lines, chars),
+        shift(paragraphUsages, lines, chars));
+  }
+
+  /**
+   * Add the results of the region analysis to the given semantic context and the list of errors
+   *
+   * @param context the semantic context of the analyzed document
+   * @param target the list of errors of the analyzed document
+   */
+  void applyTo(SemanticContext context, List<SyntaxError> target) {
+    target.addAll(parserErrors);
+    target.addAll(errors);
+    variableUsages
+        .entries()
+        .forEach(it -> context.getVariables().addUsage(it.getKey(), it.getValue()));
+    paragraphUsages
+        .entries()
+        .forEach(it -> context.getParagraphs().addUsage(it.getKey(), it.getValue()));
+  }
+
+  private static SyntaxError shift(SyntaxError error, int lines, int chars) {
+    return SyntaxError.syntaxError()
+        .position(shift(error.getPosition(), lines, chars))
+        .ruleStack(error.getRuleStack())
+        .suggestion(error.getSuggestion())
+        .severity(error.getSeverity())
+        .errorCode(error.getErrorCode())
+        .build();
+  }
+
+  private static Multimap<String, Position> shift(
+      Multimap<String, Position> usages, int lines, int chars) {
+    Multimap<String, Position> result = HashMultimap.create();
+    usages.entries().forEach(it -> result.put(it.getKey(), shift(it.getValue(), lines, chars)));
+    return result;
+  }
+
+  private static Position shift(Position position, int lines, int chars) {
+    return new Position(
+        position.getDocumentURI(),
+        position.getStartPosition() + chars,
+        position.getStopPosition() + chars,
+        position.getLine() + lines,
+        position.getCharPositionInLine());
+  }
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) 2020 Broadcom.
+ * The term "Broadcom" refers to Broadcom Inc. and/or its subsidiaries.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *   Broadcom, Inc. - initial API and implementation
+ */
+package com.ca.lsp.core.cobol.engine;
+
+import com.ca.lsp.core.cobol.model.Variable;
+import lombok.Value;
+
+import javax.annotation.Nullable;
+import java.util.List;
+
+/**
+ * This class stores the result of the last analysis of a document split into regions: the header
+ * with everything up to the procedure division body, the units of the procedure division body,
+ * i.e. sentences, paragraphs and section headers, and the tail with the rest of the document.
+ */
+@Value
+class DocumentSnapshot {
+  private String text;
+  private int[] lineOffsets;
+  private List<Variable> variables;
+  private DocumentRegion header;
+  private List<DocumentRegion> body;
+  @Nullable private DocumentRegion tail;
+
+  /** @return the number of lines of the preprocessed text */
+  int getLineCount() {
+    return lineOffsets.length - 1;
+  }
+}
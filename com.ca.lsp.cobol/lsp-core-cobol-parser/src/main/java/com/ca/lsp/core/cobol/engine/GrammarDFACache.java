@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2020 Broadcom.
+ * The term "Broadcom" refers to Broadcom Inc. and/or its subsidiaries.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *   Broadcom, Inc. - initial API and implementation
+ */
+package com.ca.lsp.core.cobol.engine;
+
+import org.antlr.v4.runtime.Lexer;
+import org.antlr.v4.runtime.Parser;
+import org.antlr.v4.runtime.atn.ATN;
+import org.antlr.v4.runtime.atn.LexerATNSimulator;
+import org.antlr.v4.runtime.atn.ParserATNSimulator;
+import org.antlr.v4.runtime.atn.PredictionContextCache;
+import org.antlr.v4.runtime.dfa.DFA;
+import org.antlr.v4.runtime.dfa.DFAState;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class holds the DFA and the prediction context cache of one grammar recognizer instead of
+ * the static ones of the generated class. The caches are replaced with the new ones on {@link
+ * #clear()}, while the simulators that already use the previous caches keep them till the end of
+ * their parsing, so the clearing never affects a running analysis.
+ */
+class GrammarDFACache {
+  private final ATN atn;
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+
+  private DFA[] decisionToDFA;
+  private PredictionContextCache contextCache;
+
+  GrammarDFACache(ATN atn) {
+    this.atn = atn;
+    clear();
+  }
+
+  /** Replace the current caches with the empty ones */
+  synchronized void clear() {
+    decisionToDFA = new DFA[atn.getNumberOfDecisions()];
+    for (int i = 0; i < decisionToDFA.length; i++) {
+      decisionToDFA[i] = new DFA(atn.getDecisionState(i), i);
+    }
+    contextCache = new PredictionContextCache();
+  }
+
+  /**
+   * Create a parser simulator that uses the current caches and counts the DFA hits and misses
+   *
+   * @param parser the parser to create the simulator for
+   * @return a new parser simulator
+   */
+  synchronized ParserATNSimulator createParserSimulator(Parser parser) {
+    return new ParserATNSimulator(parser, atn, decisionToDFA, contextCache) {
+      @Override
+      protected DFAState getExistingTargetState(DFAState previousD, int t) {
+        return count(super.getExistingTargetState(previousD, t));
+      }
+    };
+  }
+
+  /**
+   * Create a lexer simulator that uses the current caches and counts the DFA hits and misses
+   *
+   * @param lexer the lexer to create the simulator for
+   * @return a new lexer simulator
+   */
+  synchronized LexerATNSimulator createLexerSimulator(Lexer lexer) {
+    return new LexerATNSimulator(lexer, atn, decisionToDFA, contextCache) {
+      @Override
+      protected DFAState getExistingTargetState(DFAState s, int t) {
+        return count(super.getExistingTargetState(s, t));
+      }
+    };
+  }
+
+  /** @return the number of DFA states currently cached for all the decisions of the grammar */
+  synchronized int getStateCount() {
+    int result = 0;
+    for (DFA dfa : decisionToDFA) {
+      result += dfa.states.size();
+    }
+    return result;
+  }
+
+  /** @return the number of the prediction contexts currently cached */
+  synchronized int getContextCacheSize() {
+    return contextCache.size();
+  }
+
+  /** @return the number of DFA transitions that were found in the cache */
+  long getHits() {
+    return hits.sum();
+  }
+
+  /** @return the number of DFA transitions that required the ATN simulation */
+  long getMisses() {
+    return misses.sum();
+  }
+
+  private DFAState count(DFAState state) {
+    if (state == null) {
+      misses.increment();
+    } else {
+      hits.increment();
+    }
+    return state;
+  }
+}
@@ -0,0 +1,459 @@
+/*
+ * Copyright (c) 2020 Broadcom.
+ * The term "Broadcom" refers to Broadcom Inc. and/or its subsidiaries.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *   Broadcom, Inc. - initial API and implementation
+ */
+package com.ca.lsp.core.cobol.engine;
+
+import com.broadcom.lsp.domain.common.model.Position;
+import com.ca.lsp.core.cobol.model.SyntaxError;
+import com.ca.lsp.core.cobol.model.Variable;
+import com.ca.lsp.core.cobol.parser.CobolParser.ProcedureDivisionBodyContext;
+import com.ca.lsp.core.cobol.parser.CobolParser.ProcedureSectionContext;
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Multimap;
+import com.google.inject.Singleton;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.TokenStream;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static java.util.Collections.emptyList;
+
+/**
+ * This class supports the incremental analysis of the documents. It keeps the result of the last
+ * analysis of each document split into regions, see {@link DocumentSnapshot}. When the document
+ * changes, it compares the new preprocessed text with the previous one line by line and finds the
+ * units of the procedure division body touched by the change. Only these units should be parsed
+ * again, while the results of the other regions are reused, being shifted if the lines above them
+ * were added or removed.
+ *
+ * <p>The results can be reused only if the header and the tail of the document are not changed and
+ * the defined variables are the same, since the semantic checks of the procedure division depend
+ * on them. In other cases, the document should be analyzed completely.
+ */
+@Slf4j
+@Singleton
+public class IncrementalAnalysis {
+  private static final int MAX_DOCUMENTS = 100;
+
+  private final Map<String, DocumentSnapshot> snapshots =
+      Collections.synchronizedMap(
+          new LinkedHashMap<String, DocumentSnapshot>(MAX_DOCUMENTS, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, DocumentSnapshot> eldest) {
+              return size() > MAX_DOCUMENTS;
+            }
+          });
+
+  /**
+   * Find the region of the given document to analyze again comparing to the last analysis
+   *
+   * @param uri unique resource identifier of the processed document
+   * @param text the preprocessed text of the document
+   * @param variables the variables defined in the document
+   * @return the change to apply or empty if the document should be analyzed completely
+   */
+  Optional<RegionChange> findChange(String uri, String text, List<Variable> variables) {
+    DocumentSnapshot snapshot = snapshots.get(uri);
+    if (snapshot == null || !snapshot.getVariables().equals(variables)) {
+      return Optional.empty();
+    }
+    int[] oldOffsets = snapshot.getLineOffsets();
+    int[] newOffsets = lineOffsets(text);
+    int oldCount = oldOffsets.length - 1;
+    int newCount = newOffsets.length - 1;
+    int prefix = 0;
+    while (prefix < Math.min(oldCount, newCount)
+        && lineEquals(snapshot.getText(), oldOffsets, prefix, text, newOffsets, prefix)) {
+      prefix++;
+    }
+    int suffix = 0;
+    while (suffix < Math.min(oldCount, newCount) - prefix
+        && lineEquals(
+            snapshot.getText(),
+            oldOffsets,
+            oldCount - suffix - 1,
+            text,
+            newOffsets,
+            newCount - suffix - 1)) {
+      suffix++;
+    }
+    return findChange(snapshot, text, newOffsets, prefix + 1, oldCount - suffix);
+  }
+
+  /**
+   * Store the result of the complete analysis of the document
+   *
+   * @param uri unique resource identifier of the processed document
+   * @param text the preprocessed text of the document
+   * @param variables the variables defined in the document
+   * @param bodyStarts the start lines of the units of the procedure division body
+   * @param tailStart the start line of the tail or 0 if there is no tail
+   * @param errors the errors found by the lexer and the visitor
+   * @param parserErrors the errors found by the parser
+   * @param variableUsages the variable usages found by the visitor
+   * @param paragraphUsages the paragraph usages found by the visitor
+   */
+  void store(
+      String uri,
+      String text,
+      List<Variable> variables,
+      List<Integer> bodyStarts,
+      int tailStart,
+      List<SyntaxError> errors,
+      List<SyntaxError> parserErrors,
+      Multimap<String, Position> variableUsages,
+      Multimap<String, Position> paragraphUsages) {
+    int[] offsets = lineOffsets(text);
+    List<Integer> starts = new ArrayList<>();
+    starts.add(1);
+    starts.addAll(bodyStarts);
+    if (tailStart > 0) {
+      starts.add(tailStart);
+    }
+    List<DocumentRegion> regions =
+        partition(
+            starts, offsets.length - 1, errors, parserErrors, variableUsages, paragraphUsages);
+    snapshots.put(
+        uri,
+        new DocumentSnapshot(
+            text,
+            offsets,
+            variables,
+            regions.get(0),
+            regions.subList(1, tailStart > 0 ? regions.size() - 1 : regions.size()),
+            tailStart > 0 ? regions.get(regions.size() - 1) : null));
+  }
+
+  /**
+   * Store the result of the incremental analysis of the document
+   *
+   * @param uri unique resource identifier of the processed document
+   * @param text the preprocessed text of the document
+   * @param variables the variables defined in the document
+   * @param change the applied change
+   * @param region the regions built for the analyzed part of the document
+   */
+  void store(
+      String uri,
+      String text,
+      List<Variable> variables,
+      RegionChange change,
+      List<DocumentRegion> region) {
+    List<DocumentRegion> body = new ArrayList<>(change.getBefore());
+    body.addAll(region);
+    body.addAll(change.getAfter());
+    snapshots.put(
+        uri,
+        new DocumentSnapshot(
+            text, change.getLineOffsets(), variables, change.getHeader(), body, change.getTail()));
+  }
+
+  /**
+   * Remove the stored result of the document analysis, so the next one will be complete
+   *
+   * @param uri unique resource identifier of the document
+   */
+  public void forget(String uri) {
+    snapshots.remove(uri);
+  }
+
+  /**
+   * Find the start lines of the units of the procedure division body. A unit may start only on a
+   * line that doesn't contain any tokens of the previous unit, otherwise it is merged with the
+   * previous one.
+   *
+   * @param body the procedure division body
+   * @param tokens the token stream of the parsed text
+   * @param firstLine the line to start the first unit at or 0 to start it at its first token
+   * @return the start lines of the units or empty if the body cannot be split. If there are no
+   *     units, but the first line is specified, it is returned as the start of a single unit.
+   */
+  static Optional<List<Integer>> findUnitStarts(
+      ProcedureDivisionBodyContext body, TokenStream tokens, int firstLine) {
+    List<Integer> result = new ArrayList<>();
+    for (ParserRuleContext unit : collectUnits(body)) {
+      Token start = unit.getStart();
+      if (result.isEmpty()) {
+        if (firstLine > 0) {
+          result.add(firstLine);
+        } else if (findPreviousLine(tokens, start.getTokenIndex()) < start.getLine()) {
+          result.add(start.getLine());
+        } else {
+          return Optional.empty();
+        }
+      } else if (findPreviousLine(tokens, start.getTokenIndex()) < start.getLine()) {
+        result.add(start.getLine());
+      }
+    }
+    if (result.isEmpty() && firstLine > 0) {
+      result.add(firstLine);
+    }
+    return result.isEmpty() ? Optional.empty() : Optional.of(result);
+  }
+
+  /**
+   * Find the start line of the tail of the document, i.e. the first token after the procedure
+   * division body
+   *
+   * @param body the procedure division body
+   * @param tokens the token stream of the parsed text
+   * @return the start line of the tail, 0 if there is no tail, or -1 if the tail starts on the
+   *     same line as the body ends
+   */
+  static int findTailStart(ProcedureDivisionBodyContext body, TokenStream tokens) {
+    int index = body.getStop().getTokenIndex() + 1;
+    while (tokens.get(index).getChannel() != Token.DEFAULT_CHANNEL) {
+      index++;
+    }
+    Token next = tokens.get(index);
+    if (next.getType() == Token.EOF) {
+      return 0;
+    }
+    return next.getLine() > body.getStop().getLine() ? next.getLine() : -1;
+  }
+
+  /**
+   * Split the errors and usages found in the given lines into the regions
+   *
+   * @param starts the start lines of the regions
+   * @param stop the last line of the last region
+   * @param errors the errors found by the lexer and the visitor
+   * @param parserErrors the errors found by the parser
+   * @param variableUsages the variable usages found by the visitor
+   * @param paragraphUsages the paragraph usages found by the visitor
+   * @return the list of the regions
+   */
+  static List<DocumentRegion> partition(
+      List<Integer> starts,
+      int stop,
+      List<SyntaxError> errors,
+      List<SyntaxError> parserErrors,
+      Multimap<String, Position> variableUsages,
+      Multimap<String, Position> paragraphUsages) {
+    List<List<SyntaxError>> regionErrors = new ArrayList<>();
+    List<List<SyntaxError>> regionParserErrors = new ArrayList<>();
+    List<Multimap<String, Position>> regionVariables = new ArrayList<>();
+    List<Multimap<String, Position>> regionParagraphs = new ArrayList<>();
+    for (int i = 0; i < starts.size(); i++) {
+      regionErrors.add(new ArrayList<>());
+      regionParserErrors.add(new ArrayList<>());
+      regionVariables.add(HashMultimap.create());
+      regionParagraphs.add(HashMultimap.create());
+    }
+    errors.forEach(it -> regionErrors.get(findRegion(starts, it.getPosition())).add(it));
+    parserErrors.forEach(
+        it -> regionParserErrors.get(findRegion(starts, it.getPosition())).add(it));
+    variableUsages
+        .entries()
+        .forEach(
+            it ->
+                regionVariables
+                    .get(findRegion(starts, it.getValue()))
+                    .put(it.getKey(), it.getValue()));
+    paragraphUsages
+        .entries()
+        .forEach(
+            it ->
+                regionParagraphs
+                    .get(findRegion(starts, it.getValue()))
+                    .put(it.getKey(), it.getValue()));
+
+    List<DocumentRegion> result = new ArrayList<>();
+    for (int i = 0; i < starts.size(); i++) {
+      result.add(
+          new DocumentRegion(
+              starts.get(i),
+              i + 1 < starts.size() ? starts.get(i + 1) - 1 : stop,
+              regionErrors.get(i),
+              regionParserErrors.get(i),
+              regionVariables.get(i),
+              regionParagraphs.get(i)));
+    }
+    return result;
+  }
+
+  /**
+   * Find the usages that were added to the context after the given copy of it was taken
+   *
+   * @param before the copy of the usages taken before
+   * @param after the current usages
+   * @return the new usages
+   */
+  static Multimap<String, Position> difference(
+      Multimap<String, Position> before, Multimap<String, Position> after) {
+    Multimap<String, Position> result = HashMultimap.create();
+    after.entries().stream()
+        .filter(it -> !before.containsEntry(it.getKey(), it.getValue()))
+        .forEach(it -> result.put(it.getKey(), it.getValue()));
+    return result;
+  }
+
+  /**
+   * Calculate the offsets of the lines of the given text. The last element is the offset of the
+   * virtual line after the end of the text.
+   *
+   * @param text the text to split into lines
+   * @return the array with the offset of each line start
+   */
+  static int[] lineOffsets(String text) {
+    int count = 1;
+    for (int i = 0; i < text.length(); i++) {
+      if (text.charAt(i) == '\n') {
+        count++;
+      }
+    }
+    int[] result = new int[count + 1];
+    int line = 1;
+    for (int i = 0; i < text.length(); i++) {
+      if (text.charAt(i) == '\n') {
+        result[line++] = i + 1;
+      }
+    }
+    result[count] = text.length() + 1;
+    return result;
+  }
+
+  private Optional<RegionChange> findChange(
+      DocumentSnapshot snapshot, String text, int[] newOffsets, int from, int to) {
+    List<DocumentRegion> body = snapshot.getBody();
+    if (from > to && newOffsets.length == snapshot.getLineOffsets().length) {
+      return Optional.of(
+          new RegionChange(
+              newOffsets, snapshot.getHeader(), body, emptyList(), snapshot.getTail(), 1, 0, 0, 0));
+    }
+    int bodyStart = body.get(0).getStartLine();
+    int bodyStop = body.get(body.size() - 1).getStopLine();
+    if (from < bodyStart || to > bodyStop || from > bodyStop + 1) {
+      return Optional.empty();
+    }
+    int first = from > bodyStop ? body.size() - 1 : findRegion(body, from);
+    int last = Math.max(first, to < from ? first : findRegion(body, to));
+
+    int lineDelta = newOffsets.length - snapshot.getLineOffsets().length;
+    int startLine = body.get(first).getStartLine();
+    int stopLine = body.get(last).getStopLine() + lineDelta;
+    int charDelta =
+        offset(newOffsets, stopLine + 1)
+            - offset(snapshot.getLineOffsets(), body.get(last).getStopLine() + 1);
+
+    List<DocumentRegion> after = new ArrayList<>();
+    body.subList(last + 1, body.size()).forEach(it -> after.add(it.shift(lineDelta, charDelta)));
+    return Optional.of(
+        new RegionChange(
+            newOffsets,
+            snapshot.getHeader(),
+            Collections.unmodifiableList(new ArrayList<>(body.subList(0, first))),
+            after,
+            Optional.ofNullable(snapshot.getTail())
+                .map(it -> it.shift(lineDelta, charDelta))
+                .orElse(null),
+            startLine,
+            stopLine,
+            offset(newOffsets, startLine),
+            Math.min(offset(newOffsets, stopLine + 1), text.length())));
+  }
+
+  private static List<ParserRuleContext> collectUnits(ProcedureDivisionBodyContext body) {
+    List<ParserRuleContext> result = new ArrayList<>(body.paragraphs().sentence());
+    result.addAll(body.paragraphs().paragraph());
+    for (ProcedureSectionContext section : body.procedureSection()) {
+      result.add(section);
+      result.addAll(section.paragraphs().paragraph());
+    }
+    return result;
+  }
+
+  private static int findPreviousLine(TokenStream tokens, int index) {
+    for (int i = index - 1; i >= 0; i--) {
+      Token token = tokens.get(i);
+      if (token.getChannel() == Token.DEFAULT_CHANNEL) {
+        return token.getLine();
+      }
+    }
+    return 0;
+  }
+
+  private static int findRegion(List<Integer> starts, Position position) {
+    int index = Collections.binarySearch(starts, position.getLine());
+    return Math.max(0, index >= 0 ? index : -index - 2);
+  }
+
+  private static int findRegion(List<DocumentRegion> regions, int line) {
+    for (int i = 0; i < regions.size(); i++) {
+      if (regions.get(i).getStopLine() >= line) {
+        return i;
+      }
+    }
+    return regions.size() - 1;
+  }
+
+  private static int offset(int[] offsets, int line) {
+    return offsets[Math.min(line, offsets.length) - 1];
+  }
+
+  private static boolean lineEquals(
+      String oldText,
+      int[] oldOffsets,
+      int oldLine,
+      String newText,
+      int[] newOffsets,
+      int newLine) {
+    int length = oldOffsets[oldLine + 1] - oldOffsets[oldLine];
+    return length == newOffsets[newLine + 1] - newOffsets[newLine]
+        && oldText.regionMatches(
+            oldOffsets[oldLine],
+            newText,
+            newOffsets[newLine],
+            Math.min(length, oldText.length() - oldOffsets[oldLine]));
+  }
+
+  /**
+   * This class describes the part of the document that should be analyzed again and the results
+   * of the previous analysis that may be reused.
+   */
+  @Value
+  static class RegionChange {
+    private int[] lineOffsets;
+    private DocumentRegion header;
+    private List<DocumentRegion> before;
+    private List<DocumentRegion> after;
+    @Nullable private DocumentRegion tail;
+    private int startLine;
+    private int stopLine;
+    private int startOffset;
+    private int stopOffset;
+
+    /** @return true if there are lines to analyze, false if all the lines were removed */
+    boolean hasRegion() {
+      return stopLine >= startLine;
+    }
+
+    /** @return all the regions which results may be reused */
+    Stream<DocumentRegion> getReused() {
+      return Stream.of(Stream.of(header), before.stream(), after.stream(), Stream.of(tail))
+          .flatMap(it -> it)
+          .filter(Objects::nonNull);
+    }
+  }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2020 Broadcom.
+ * The term "Broadcom" refers to Broadcom Inc. and/or its subsidiaries.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *   Broadcom, Inc. - initial API and implementation
+ */
+package com.ca.lsp.core.cobol.engine;
+
+import com.ca.lsp.core.cobol.preprocessor.CobolPreprocessor;
+import com.ca.lsp.core.cobol.preprocessor.impl.CobolLineCache;
+import com.google.common.io.ByteStreams;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * This class warms up the ATN simulators of the COBOL grammars by analyzing a small bundled corpus
+ * of COBOL programs, so the DFA caches are already filled when the first document is opened. The
+ * corpus programs don't use copybooks, so the warm-up doesn't require the copybook resolution.
+ *
+ * <p>The corpus is analyzed by a separate engine that shares only the preprocessor and the DFA
+ * caches with the main one, so the warm-up runs are not counted in {@link ParsingStatistics} and
+ * don't leave the snapshots of {@link IncrementalAnalysis}. The preprocessed lines of the corpus
+ * are removed from {@link CobolLineCache} after each run.
+ */
+@Slf4j
+@Singleton
+public class ParserWarmUp {
+  private static final String CORPUS_FOLDER = "warmup/";
+  private static final List<String> CORPUS = Arrays.asList("CM101M.CBL", "IX401M.CBL");
+  private static final String SYNC_TYPE = "DID_OPEN";
+
+  private CobolPreprocessor preprocessor;
+  private DFACacheManager cacheManager;
+  private CobolLineCache lineCache;
+
+  @Inject
+  public ParserWarmUp(
+      CobolPreprocessor preprocessor, DFACacheManager cacheManager, CobolLineCache lineCache) {
+    this.preprocessor = preprocessor;
+    this.cacheManager = cacheManager;
+    this.lineCache = lineCache;
+  }
+
+  /** Analyze the bundled corpus and log the time it took and the reached size of the DFA caches */
+  public void run() {
+    long start = System.currentTimeMillis();
+    CobolLanguageEngine engine =
+        new CobolLanguageEngine(
+            preprocessor, new ParsingStatistics(), cacheManager, new IncrementalAnalysis());
+    for (String name : CORPUS) {
+      String text = readProgram(name);
+      if (text != null) {
+        engine.run(CORPUS_FOLDER + name, text, SYNC_TYPE);
+        lineCache.forget(CORPUS_FOLDER + name);
+      }
+    }
+    LOG.info(
+        "Parser warm-up finished in {} ms, DFA states: {}",
+        System.currentTimeMillis() - start,
+        cacheManager.getStateCounts());
+  }
+
+  private String readProgram(String name) {
+    try (InputStream program = ParserWarmUp.class.getResourceAsStream(CORPUS_FOLDER + name)) {
+      if (program == null) {
+        LOG.error("Cannot find the warm-up program {}", name);
+        return null;
+      }
+      return new String(ByteStreams.toByteArray(program), UTF_8);
+    } catch (IOException e) {
+      LOG.error("Cannot load the warm-up program " + name, e);
+      return null;
+    }
+  }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2020 Broadcom.
+ * The term "Broadcom" refers to Broadcom Inc. and/or its subsidiaries.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *   Broadcom, Inc. - initial API and implementation
+ */
+package com.ca.lsp.core.cobol.engine;
+
+import com.google.inject.Singleton;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class collects the statistics of the two-stage parsing applied by {@link
+ * CobolLanguageEngine}. It counts how many documents were parsed successfully with the fast SLL
+ * prediction mode and how many of them required the fallback to the full LL prediction mode. It
+ * also counts how many analyses parsed only the changed regions of the documents, and how many
+ * copybooks and documents were analyzed without the copybooks that were not resolved in time.
+ */
+@Slf4j
+@Singleton
+public class ParsingStatistics {
+  private final AtomicLong sllParses = new AtomicLong();
+  private final AtomicLong llFallbacks = new AtomicLong();
+  private final AtomicLong incrementalAnalyses = new AtomicLong();
+  private final AtomicLong copybookTimeouts = new AtomicLong();
+  private final AtomicLong documentTimeouts = new AtomicLong();
+
+  /** Register a document that was successfully parsed using the SLL prediction mode only */
+  public void registerSllParse() {
+    sllParses.incrementAndGet();
+    logStatistics();
+  }
+
+  /** Register a document that required the second parsing with the LL prediction mode */
+  public void registerLlFallback() {
+    llFallbacks.incrementAndGet();
+    logStatistics();
+  }
+
+  /** Register an analysis that parsed only the changed regions of the document */
+  public void registerIncrementalAnalysis() {
+    incrementalAnalyses.incrementAndGet();
+    logStatistics();
+  }
+
+  /** Register a copybook that was not resolved within the copybook resolution timeout */
+  public void registerCopybookTimeout() {
+    copybookTimeouts.incrementAndGet();
+    logStatistics();
+  }
+
+  /** Register a document which copybooks were not analyzed within the document timeout */
+  public void registerDocumentTimeout() {
+    documentTimeouts.incrementAndGet();
+    logStatistics();
+  }
+
+  /** @return the number of documents parsed with the SLL prediction mode only */
+  public long getSllParses() {
+    return sllParses.get();
+  }
+
+  /** @return the number of documents that required the fallback to the LL prediction mode */
+  public long getLlFallbacks() {
+    return llFallbacks.get();
+  }
+
+  /** @return the number of analyses that parsed only the changed regions of the documents */
+  public long getIncrementalAnalyses() {
+    return incrementalAnalyses.get();
+  }
+
+  /** @return the number of copybooks that were not resolved within the timeout */
+  public long getCopybookTimeouts() {
+    return copybookTimeouts.get();
+  }
+
+  /** @return the number of documents which copybooks were not analyzed within the timeout */
+  public long getDocumentTimeouts() {
+    return documentTimeouts.get();
+  }
+
+  /** @return the percentage of the parsings that required the LL fallback or 0 if none happened */
+  public double getFallbackRate() {
+    long fallbacks = llFallbacks.get();
+    long total = sllParses.get() + fallbacks;
+    return total == 0 ? 0 : fallbacks * 100.0 / total;
+  }
+
+  private void logStatistics() {
+    if (LOG.isDebugEnabled()) {
+      LOG.debug(
+          String.format(
+              "Parsing statistics: %d SLL parses, %d LL fallbacks (%.2f%%), "
+                  + "%d incremental analyses, %d copybook timeouts, %d document timeouts",
+              getSllParses(),
+              getLlFallbacks(),
+              getFallbackRate(),
+              getIncrementalAnalyses(),
+              getCopybookTimeouts(),
+              getDocumentTimeouts()));
+    }
+  }
+}
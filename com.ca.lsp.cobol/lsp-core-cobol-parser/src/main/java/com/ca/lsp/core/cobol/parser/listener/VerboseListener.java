@@ -42,7 +42,7 @@ public class VerboseListener extends BaseErrorListener {
     if (recognizer instanceof Parser) {
       stack = ((Parser) recognizer).getRuleInvocationStack();
       Collections.reverse(stack);
-      CommonToken wrongToken = (CommonToken) offendingSymbol;
+      Token wrongToken = (Token) offendingSymbol;
       Position position =
           new Position(
               documentUri,
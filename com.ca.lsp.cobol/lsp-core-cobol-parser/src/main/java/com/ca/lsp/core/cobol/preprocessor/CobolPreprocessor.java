@@ -13,6 +13,7 @@
  */
 package com.ca.lsp.core.cobol.preprocessor;
 
+import com.ca.lsp.core.cobol.engine.CancellationToken;
 import com.ca.lsp.core.cobol.model.PreprocessedInput;
 import com.ca.lsp.core.cobol.model.ResultWithErrors;
 import com.ca.lsp.core.cobol.semantics.SemanticContext;
@@ -20,11 +21,15 @@ import com.ca.lsp.core.cobol.semantics.SemanticContext;
 /** The CobolPreprocessor is engaged in order to process, transform and parse the document */
 public interface CobolPreprocessor {
   ResultWithErrors<PreprocessedInput> process(
-      String documentUri, String cobolCode, String textDocumentSyncType);
+      String documentUri,
+      String cobolCode,
+      String textDocumentSyncType,
+      CancellationToken cancellationToken);
 
   ResultWithErrors<PreprocessedInput> process(
       String documentUri,
       String cobolCode,
       SemanticContext semanticContext,
-      String textDocumentSyncType);
+      String textDocumentSyncType,
+      CancellationToken cancellationToken);
 }
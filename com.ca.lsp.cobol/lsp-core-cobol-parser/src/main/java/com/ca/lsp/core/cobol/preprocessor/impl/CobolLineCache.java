@@ -0,0 +1,357 @@
+/*
+ * Copyright (c) 2020 Broadcom.
+ * The term "Broadcom" refers to Broadcom Inc. and/or its subsidiaries.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *   Broadcom, Inc. - initial API and implementation
+ */
+package com.ca.lsp.core.cobol.preprocessor.impl;
+
+import com.broadcom.lsp.domain.common.model.Position;
+import com.ca.lsp.core.cobol.model.SyntaxError;
+import com.ca.lsp.core.cobol.preprocessor.sub.CobolLine;
+import com.ca.lsp.core.cobol.preprocessor.sub.CobolLineArea;
+import com.ca.lsp.core.cobol.preprocessor.sub.CobolLineTypeEnum;
+import com.ca.lsp.core.cobol.preprocessor.sub.util.CobolLineUtils;
+import com.google.inject.Singleton;
+import org.apache.commons.lang3.StringUtils;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * This class keeps the results of the line stages of the last preprocessing of each document, so
+ * when a document changes, only the changed lines and their neighbours are processed again, while
+ * the other lines reuse their processed content and errors. The result of a line depends on its
+ * text without the comment area, on the text of the previous line that the continuation check
+ * uses, on the type of the following line, and, for a continuation line, on the processed content
+ * of the previous one, see {@link Key}. Each pass keeps only the lines of the processed text, so
+ * the cache of a document doesn't grow with the edits.
+ */
+@Singleton
+public class CobolLineCache {
+  private static final int MAX_DOCUMENTS = 50;
+
+  private final Map<String, Map<Key, Entry>> documents =
+      Collections.synchronizedMap(
+          new LinkedHashMap<String, Map<Key, Entry>>(MAX_DOCUMENTS, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Map<Key, Entry>> eldest) {
+              return size() > MAX_DOCUMENTS;
+            }
+          });
+
+  /**
+   * Start a new pass over the lines of the given document. The lines of the previous pass stay
+   * available until the new one is finished, so a cancelled pass doesn't affect the cache.
+   *
+   * @param documentUri unique resource identifier of the processed document
+   * @return the pass to look up and keep the results of the lines
+   */
+  @Nonnull
+  Pass startPass(@Nonnull String documentUri) {
+    return new Pass(documentUri, documents.getOrDefault(documentUri, Collections.emptyMap()));
+  }
+
+  /**
+   * Remove the results of the lines of the given document, e.g. if it is not analyzed anymore
+   *
+   * @param documentUri unique resource identifier of the document
+   */
+  public void forget(@Nonnull String documentUri) {
+    documents.remove(documentUri);
+  }
+
+  /** This class collects the results of the lines of a document during a single pass */
+  final class Pass {
+    private final String documentUri;
+    private final Map<Key, Entry> previous;
+    private final Map<Key, Entry> current = new HashMap<>();
+
+    private Pass(String documentUri, Map<Key, Entry> previous) {
+      this.documentUri = documentUri;
+      this.previous = previous;
+    }
+
+    /**
+     * Find the result of a line processed by the last finished pass
+     *
+     * @param key the key of the line
+     * @return the result of the line or null if it should be processed
+     */
+    @Nullable
+    Entry find(@Nonnull Key key) {
+      return previous.get(key);
+    }
+
+    /**
+     * Keep the result of a line for the next pass
+     *
+     * @param entry the result of the line
+     */
+    void keep(@Nonnull Entry entry) {
+      current.put(entry.key, entry);
+    }
+
+    /** Replace the results of the last pass with the collected ones */
+    void finish() {
+      documents.put(documentUri, current);
+    }
+  }
+
+  /**
+   * The text of a line that its processing depends on, i.e. the type and all the areas except the
+   * comment one. A text created from a line refers to the areas of it, so it should be stored to
+   * keep it after the document text is released.
+   */
+  static final class LineText {
+    private final CobolLineTypeEnum type;
+    private final CharSequence sequenceArea;
+    private final String indicatorArea;
+    private final CharSequence contentArea;
+    private final int hash;
+
+    LineText(@Nonnull CobolLine line) {
+      this(
+          line.getType(), line.getSequenceArea(), line.getIndicatorArea(), line.getContentArea());
+    }
+
+    private LineText(
+        CobolLineTypeEnum type,
+        CharSequence sequenceArea,
+        String indicatorArea,
+        CharSequence contentArea) {
+      this.type = type;
+      this.sequenceArea = sequenceArea;
+      this.indicatorArea = indicatorArea;
+      this.contentArea = contentArea;
+      hash =
+          hash(hash(31 * type.ordinal() + indicatorArea.hashCode(), sequenceArea), contentArea);
+    }
+
+    @Nonnull
+    LineText store() {
+      return new LineText(type, sequenceArea.toString(), indicatorArea, contentArea.toString());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) return true;
+      if (o == null || getClass() != o.getClass()) return false;
+      LineText that = (LineText) o;
+      return hash == that.hash
+          && type == that.type
+          && indicatorArea.equals(that.indicatorArea)
+          && StringUtils.equals(sequenceArea, that.sequenceArea)
+          && StringUtils.equals(contentArea, that.contentArea);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+  }
+
+  /**
+   * The key of a line result. It consists of the text of the line and of the previous one, the
+   * flag if the following line is a continuation one and the processed content of the previous
+   * line if this line is a continuation one, since only continuation lines use it.
+   */
+  static final class Key {
+    private final LineText line;
+    @Nullable private final LineText previousLine;
+    private final boolean continued;
+    @Nullable private final CharSequence processedPredecessor;
+    private final int hash;
+
+    Key(
+        @Nonnull LineText line,
+        @Nullable LineText previousLine,
+        boolean continued,
+        @Nullable CharSequence processedPredecessor) {
+      this.line = line;
+      this.previousLine = previousLine;
+      this.continued = continued;
+      this.processedPredecessor = processedPredecessor;
+      hash =
+          hash(
+              31 * (31 * line.hash + Objects.hashCode(previousLine)) + Boolean.hashCode(continued),
+              processedPredecessor == null ? "" : processedPredecessor);
+    }
+
+    @Nonnull
+    Key store() {
+      return new Key(
+          line.store(),
+          previousLine,
+          continued,
+          processedPredecessor == null ? null : processedPredecessor.toString());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) return true;
+      if (o == null || getClass() != o.getClass()) return false;
+      Key that = (Key) o;
+      return hash == that.hash
+          && continued == that.continued
+          && line.equals(that.line)
+          && Objects.equals(previousLine, that.previousLine)
+          && StringUtils.equals(processedPredecessor, that.processedPredecessor);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+  }
+
+  /**
+   * The result of a line: the errors of the continuation check, the line processed by the line
+   * indicator processor and the content rewritten by the rest of the rewriters. The processed
+   * content is kept as a range of the content area of the line if possible, so the reused lines
+   * still refer to the document text.
+   */
+  static final class Entry {
+    private final Key key;
+    private final int number;
+    private final List<SyntaxError> errors;
+    private final String indicatorArea;
+    private final int contentStart;
+    private final int contentStop;
+    @Nullable private final String content;
+    @Nullable private final String rewrittenContent;
+
+    /**
+     * Create a result of the given line processed by the line stages
+     *
+     * @param key the key of the line
+     * @param line the line before processing
+     * @param errors the errors of the continuation check of the line
+     * @param processed the line processed by the line indicator processor
+     * @param rewritten the line processed by the rest of the rewriters
+     */
+    Entry(
+        @Nonnull Key key,
+        @Nonnull CobolLine line,
+        @Nonnull List<SyntaxError> errors,
+        @Nonnull CobolLine processed,
+        @Nonnull CobolLine rewritten) {
+      this.key = key.store();
+      number = line.getNumber();
+      this.errors = errors;
+      indicatorArea = processed.getIndicatorArea();
+      CobolLineArea processedContent = processed.getContentArea();
+      contentStart = processedContent.indexIn(line.getContentArea());
+      contentStop = contentStart + processedContent.length();
+      content = contentStart < 0 ? processedContent.toString() : null;
+      rewrittenContent =
+          StringUtils.equals(processedContent, rewritten.getContentArea())
+              ? null
+              : rewritten.getContentArea().toString();
+    }
+
+    private Entry(Entry entry, int number) {
+      key = entry.key;
+      this.number = number;
+      errors = entry.errors.stream().map(it -> shift(it, number - entry.number)).collect(toList());
+      indicatorArea = entry.indicatorArea;
+      contentStart = entry.contentStart;
+      contentStop = entry.contentStop;
+      content = entry.content;
+      rewrittenContent = entry.rewrittenContent;
+    }
+
+    /** @return the stored text of the line to use as the previous one for the following line */
+    @Nonnull
+    LineText getText() {
+      return key.line;
+    }
+
+    /**
+     * Move the result to the given line number
+     *
+     * @param lineNumber the number of the line in the processed document
+     * @return a new result with the errors at the given line or the same one if it didn't move
+     */
+    @Nonnull
+    Entry moveTo(int lineNumber) {
+      return lineNumber == number || errors.isEmpty() ? this : new Entry(this, lineNumber);
+    }
+
+    @Nonnull
+    List<SyntaxError> getErrors() {
+      return errors;
+    }
+
+    /**
+     * Apply the result of the line indicator processor to the given line. The line is copied and
+     * bound to the neighbour lines the same way as by the processor.
+     *
+     * @param line the line with the same key as the one of this result
+     * @return the processed line
+     */
+    @Nonnull
+    CobolLine process(@Nonnull CobolLine line) {
+      return CobolLineUtils.copyCobolLineWithIndicatorAndContentArea(
+          indicatorArea,
+          content == null ? line.getContentArea().subSequence(contentStart, contentStop) : content,
+          line);
+    }
+
+    /**
+     * Apply the result of the rest of the rewriters to the processed line
+     *
+     * @param processed the line returned by {@link #process(CobolLine)}
+     * @return the same line or its copy with the rewritten content
+     */
+    @Nonnull
+    CobolLine rewrite(@Nonnull CobolLine processed) {
+      if (rewrittenContent == null) {
+        return processed;
+      }
+      CobolLine rewritten = new CobolLine(processed);
+      rewritten.setContentArea(rewrittenContent);
+      return rewritten;
+    }
+
+    private static SyntaxError shift(SyntaxError error, int lines) {
+      Position position = error.getPosition();
+      return SyntaxError.syntaxError()
+          .position(
+              new Position(
+                  position.getDocumentURI(),
+                  position.getStartPosition(),
+                  position.getStopPosition(),
+                  position.getLine() + lines,
+                  position.getCharPositionInLine()))
+          .ruleStack(error.getRuleStack())
+          .suggestion(error.getSuggestion())
+          .severity(error.getSeverity())
+          .errorCode(error.getErrorCode())
+          .build();
+    }
+  }
+
+  private static int hash(int hash, CharSequence text) {
+    int result = hash;
+    for (int i = 0; i < text.length(); i++) {
+      result = 31 * result + text.charAt(i);
+    }
+    return result;
+  }
+}
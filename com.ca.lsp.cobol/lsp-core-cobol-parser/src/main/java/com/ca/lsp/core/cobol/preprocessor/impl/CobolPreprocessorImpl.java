@@ -13,12 +13,14 @@
  */
 package com.ca.lsp.core.cobol.preprocessor.impl;
 
+import com.ca.lsp.core.cobol.engine.CancellationToken;
+import com.ca.lsp.core.cobol.engine.DFACacheManager;
 import com.ca.lsp.core.cobol.model.PreprocessedInput;
 import com.ca.lsp.core.cobol.model.ResultWithErrors;
 import com.ca.lsp.core.cobol.model.SyntaxError;
 import com.ca.lsp.core.cobol.preprocessor.CobolPreprocessor;
 import com.ca.lsp.core.cobol.preprocessor.sub.CobolLine;
-import com.ca.lsp.core.cobol.preprocessor.sub.cleaner.CobolDocumentCleaner;
+import com.ca.lsp.core.cobol.preprocessor.sub.CobolLineTypeEnum;
 import com.ca.lsp.core.cobol.preprocessor.sub.cleaner.impl.CobolDocumentCleanerImpl;
 import com.ca.lsp.core.cobol.preprocessor.sub.document.CobolSemanticParser;
 import com.ca.lsp.core.cobol.preprocessor.sub.line.reader.CobolLineReader;
@@ -40,27 +42,61 @@ import lombok.extern.slf4j.Slf4j;
 import javax.annotation.Nonnull;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
-
+import java.util.NoSuchElementException;
+
+/**
+ * This class preprocesses a COBOL document. The lines of the document are read and passed through
+ * all the line stages one by one: the continuation line check, the line indicator processor, the
+ * inline comment entries normalizer and the comment entries marker, and the resulting lines are
+ * serialized at once, so no intermediate lists of lines are created. The line stages don't keep any
+ * state, so they are shared by all the calls.
+ *
+ * <p>The results of the line stages are kept in {@link CobolLineCache}, so when the document
+ * changes, only the changed lines and their neighbours pass through the stages again.
+ */
 @Slf4j
 @Singleton
 public class CobolPreprocessorImpl implements CobolPreprocessor {
+  private static final CobolLineReader LINE_READER = new CobolLineReaderImpl();
+  private static final CobolLinesTransformation CONTINUATION_LINE_PROCESSOR =
+      new ContinuationLineTransformation();
+  private static final CobolLineIndicatorProcessor LINE_INDICATOR_PROCESSOR =
+      new CobolLineIndicatorProcessorImpl();
+  private static final CobolLineReWriter INLINE_COMMENT_ENTRIES_NORMALIZER =
+      new CobolInlineCommentEntriesNormalizerImpl();
+  private static final CobolLineReWriter COMMENT_ENTRIES_MARKER =
+      new CobolCommentEntriesMarkerImpl();
+  private static final CobolLineWriter LINE_WRITER = new CobolLineWriterImpl();
+
   private CobolSemanticParser semanticParser;
+  private DFACacheManager cacheManager;
+  private CobolLineCache lineCache;
 
   @Inject
-  public CobolPreprocessorImpl(CobolSemanticParser semanticParser) {
+  public CobolPreprocessorImpl(
+      CobolSemanticParser semanticParser,
+      DFACacheManager cacheManager,
+      CobolLineCache lineCache) {
     this.semanticParser = semanticParser;
+    this.cacheManager = cacheManager;
+    this.lineCache = lineCache;
   }
 
   @Nonnull
   @Override
   public ResultWithErrors<PreprocessedInput> process(
-      @Nonnull String documentUri, @Nonnull String cobolSourceCode, String textDocumentSyncType) {
+      @Nonnull String documentUri,
+      @Nonnull String cobolSourceCode,
+      String textDocumentSyncType,
+      @Nonnull CancellationToken cancellationToken) {
     return process(
         documentUri,
         cobolSourceCode,
         new SemanticContext(Collections.emptyList()),
-        textDocumentSyncType);
+        textDocumentSyncType,
+        cancellationToken);
   }
 
   @Nonnull
@@ -69,80 +105,135 @@ public class CobolPreprocessorImpl implements CobolPreprocessor {
       @Nonnull String documentUri,
       @Nonnull String cobolCode,
       @Nonnull SemanticContext semanticContext,
-      @Nonnull String textDocumentSyncType) {
-
-    ResultWithErrors<List<CobolLine>> lines = readLines(cobolCode, documentUri);
-
-    ResultWithErrors<List<CobolLine>> transformedLines =
-        transformLines(documentUri, lines.getResult());
-
-    List<CobolLine> rewrittenLines = rewriteLines(transformedLines.getResult());
-
-    String cleanDocument = cleanDocument(documentUri, rewrittenLines);
+      @Nonnull String textDocumentSyncType,
+      @Nonnull CancellationToken cancellationToken) {
+    List<SyntaxError> readErrors = new ArrayList<>();
+    List<SyntaxError> transformErrors = new ArrayList<>();
+    CobolLineCache.Pass pass = lineCache.startPass(documentUri);
+    RewrittenLines lines =
+        new RewrittenLines(
+            documentUri,
+            LINE_READER.readLines(documentUri, cobolCode, readErrors),
+            transformErrors,
+            pass,
+            cancellationToken);
+    String code = LINE_WRITER.serialize(() -> lines);
+    cancellationToken.checkCancelled();
+    pass.finish();
+
+    String cleanDocument =
+        new CobolDocumentCleanerImpl(cacheManager, cancellationToken)
+            .cleanDocument(documentUri, code);
 
     ResultWithErrors<PreprocessedInput> parsedDocument =
         semanticParser.processLines(
-            documentUri, cleanDocument, semanticContext, textDocumentSyncType);
+            documentUri, cleanDocument, semanticContext, textDocumentSyncType, cancellationToken);
 
     List<SyntaxError> errors = new ArrayList<>();
-    errors.addAll(lines.getErrors());
-    errors.addAll(transformedLines.getErrors());
+    errors.addAll(readErrors);
+    errors.addAll(transformErrors);
     errors.addAll(parsedDocument.getErrors());
 
     return new ResultWithErrors<>(parsedDocument.getResult(), errors);
   }
 
-  private String cleanDocument(String documentUri, List<CobolLine> lines) {
-    String code = createLineWriter().serialize(lines);
-    return createDocumentCleaner().cleanDocument(documentUri, code);
-  }
-
-  private ResultWithErrors<List<CobolLine>> readLines(String cobolCode, String documentURI) {
-    return createLineReader().processLines(documentURI, cobolCode);
-  }
-
-  private ResultWithErrors<List<CobolLine>> transformLines(
-      String documentURI, List<CobolLine> lines) {
-    return createContinuationLineProcessor().transformLines(documentURI, lines);
-  }
-
   /**
-   * Normalize lines of given COBOL source code, so that comment entries can be parsed and lines
-   * have a unified line format.
+   * This iterator pulls the lines from the reader and passes them through the line stages, so the
+   * lines of the document are processed in a single pass. The line indicator processor needs the
+   * following line to be read, since it checks if it is a continuation one, and it binds the
+   * following line to the processed one. So, the iterator reads one line ahead. The rest of the
+   * rewriters process a copy of the line that is not bound to the neighbours to keep the same
+   * results as if each stage processed all the lines at once. If the line was processed by the
+   * last pass with the same neighbours, its result is reused instead.
    */
-  private List<CobolLine> rewriteLines(List<CobolLine> lines) {
-    List<CobolLine> lineIndicatorProcessedLines =
-        createLineIndicatorProcessor().processLines(lines);
-    List<CobolLine> normalizedInlineCommentEntriesLines =
-        createInlineCommentEntriesNormalizer().processLines(lineIndicatorProcessedLines);
-    return createCommentEntriesMarker().processLines(normalizedInlineCommentEntriesLines);
-  }
-
-  private CobolLineReWriter createCommentEntriesMarker() {
-    return new CobolCommentEntriesMarkerImpl();
-  }
-
-  private CobolDocumentCleaner createDocumentCleaner() {
-    return new CobolDocumentCleanerImpl();
-  }
-
-  private CobolLineReWriter createInlineCommentEntriesNormalizer() {
-    return new CobolInlineCommentEntriesNormalizerImpl();
-  }
-
-  private CobolLineIndicatorProcessor createLineIndicatorProcessor() {
-    return new CobolLineIndicatorProcessorImpl();
-  }
-
-  private CobolLinesTransformation createContinuationLineProcessor() {
-    return new ContinuationLineTransformation();
-  }
-
-  private CobolLineReader createLineReader() {
-    return new CobolLineReaderImpl();
-  }
-
-  private CobolLineWriter createLineWriter() {
-    return new CobolLineWriterImpl();
+  private static class RewrittenLines implements Iterator<CobolLine> {
+    private final String documentUri;
+    private final Iterator<CobolLine> lines;
+    private final List<SyntaxError> errors;
+    private final CobolLineCache.Pass pass;
+    private final CancellationToken cancellationToken;
+    private CobolLine previousLine;
+    private CobolLineCache.LineText previousText;
+    private CobolLine nextLine;
+
+    RewrittenLines(
+        String documentUri,
+        Iterator<CobolLine> lines,
+        List<SyntaxError> errors,
+        CobolLineCache.Pass pass,
+        CancellationToken cancellationToken) {
+      this.documentUri = documentUri;
+      this.lines = lines;
+      this.errors = errors;
+      this.pass = pass;
+      this.cancellationToken = cancellationToken;
+      nextLine = readLine();
+    }
+
+    @Override
+    public boolean hasNext() {
+      return nextLine != null;
+    }
+
+    @Override
+    public CobolLine next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      cancellationToken.checkCancelled();
+      CobolLine line = nextLine;
+      nextLine = readLine();
+      CobolLineCache.Key key =
+          new CobolLineCache.Key(
+              new CobolLineCache.LineText(line),
+              previousText,
+              isFollowedByContinuation(line),
+              getProcessedPredecessor(line));
+      CobolLineCache.Entry entry = pass.find(key);
+      CobolLine result;
+      if (entry == null) {
+        int firstError = errors.size();
+        CONTINUATION_LINE_PROCESSOR.transformLine(
+            documentUri, line.getNumber(), previousLine, line, errors);
+        CobolLine processed = LINE_INDICATOR_PROCESSOR.processLine(line);
+        result =
+            COMMENT_ENTRIES_MARKER.processLine(
+                INLINE_COMMENT_ENTRIES_NORMALIZER.processLine(new CobolLine(processed)));
+        entry =
+            new CobolLineCache.Entry(
+                key,
+                line,
+                new ArrayList<>(errors.subList(firstError, errors.size())),
+                processed,
+                result);
+      } else {
+        entry = entry.moveTo(line.getNumber());
+        errors.addAll(entry.getErrors());
+        result = entry.rewrite(entry.process(line));
+      }
+      pass.keep(entry);
+      previousLine = line;
+      previousText = entry.getText();
+      return result;
+    }
+
+    private CobolLine readLine() {
+      return lines.hasNext() ? lines.next() : null;
+    }
+
+    private static boolean isFollowedByContinuation(CobolLine line) {
+      return line.getSuccessor() != null
+          && CobolLineTypeEnum.CONTINUATION.equals(line.getSuccessor().getType());
+    }
+
+    /**
+     * The line indicator processor checks the content of the processed previous line only for a
+     * continuation line
+     */
+    private static CharSequence getProcessedPredecessor(CobolLine line) {
+      return CobolLineTypeEnum.CONTINUATION.equals(line.getType()) && line.getPredecessor() != null
+          ? line.getPredecessor().getContentArea()
+          : null;
+    }
   }
 }
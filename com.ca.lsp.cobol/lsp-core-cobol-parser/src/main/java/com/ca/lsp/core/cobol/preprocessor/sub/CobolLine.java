@@ -13,8 +13,13 @@
  */
 package com.ca.lsp.core.cobol.preprocessor.sub;
 
-import lombok.Data;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.apache.commons.lang3.StringUtils;
+
+import javax.annotation.Nonnull;
+import java.util.Objects;
 
 /**
  * This class represents a structure for a COBOL code line that is used for parsing. The format is
@@ -25,27 +30,145 @@ import lombok.NoArgsConstructor;
  * 8-12: area A<br>
  * 13-72: area B<br>
  * 73-80: comments<br>
+ * <br>
+ * The areas are not stored as separate strings, but as offsets in a text shared by all the lines
+ * of a document, and they are returned as {@link CobolLineArea} views. A copy of a line and its
+ * content area cut from the same text keep referring to it, so only the lines with the content
+ * that doesn't exist in the text require a new buffer.
  */
-@Data
 @NoArgsConstructor
 public class CobolLine {
-  private String commentArea = "";
-  private String contentAreaA = "";
-  private String contentAreaB = "";
-  private String indicatorArea = " ";
-  private int number;
-  private CobolLine predecessor;
-  private String sequenceArea = "";
-  private CobolLine successor;
-  private CobolLineTypeEnum type = CobolLineTypeEnum.NORMAL;
+  private static final int INDICATOR_AREA_INDEX = 6;
+  private static final int AREA_A_INDEX = 7;
+  private static final int AREA_B_INDEX = 11;
+  private static final int COMMENT_AREA_INDEX = 72;
+  private static final int AREA_A_LENGTH = AREA_B_INDEX - AREA_A_INDEX;
+
+  private CharSequence source = "";
+  private int sequenceStart;
+  private int sequenceStop;
+  private int contentStart;
+  private int contentAreaBStart;
+  private int contentStop;
+  private int commentStart;
+  private int commentStop;
+
+  @Getter @Setter private String indicatorArea = " ";
+  @Getter @Setter private int number;
+  @Getter private CobolLine predecessor;
+  @Getter private CobolLine successor;
+  @Getter @Setter private CobolLineTypeEnum type = CobolLineTypeEnum.NORMAL;
+
+  /**
+   * Create a line from the given range of a text and split it into the areas by their columns. The
+   * indicator area and the type of the line should be set separately.
+   *
+   * @param source the text that the line is backed by, e.g. the whole document
+   * @param start the offset of the line start in the text
+   * @param stop the offset of the line end in the text excluding the line break
+   */
+  public CobolLine(@Nonnull CharSequence source, int start, int stop) {
+    this.source = source;
+    sequenceStart = start;
+    sequenceStop = Math.min(stop, start + INDICATOR_AREA_INDEX);
+    contentStart = Math.min(stop, start + AREA_A_INDEX);
+    contentAreaBStart = Math.min(stop, start + AREA_B_INDEX);
+    contentStop = Math.min(stop, start + COMMENT_AREA_INDEX);
+    commentStart = contentStop;
+    commentStop = stop;
+  }
+
+  /**
+   * Create a copy of the given line backed by the same text. The copy is not bound to the
+   * neighbour lines of the given one.
+   *
+   * @param line the line to copy
+   */
+  public CobolLine(@Nonnull CobolLine line) {
+    source = line.source;
+    sequenceStart = line.sequenceStart;
+    sequenceStop = line.sequenceStop;
+    contentStart = line.contentStart;
+    contentAreaBStart = line.contentAreaBStart;
+    contentStop = line.contentStop;
+    commentStart = line.commentStart;
+    commentStop = line.commentStop;
+    indicatorArea = line.indicatorArea;
+    number = line.number;
+    type = line.type;
+  }
+
+  @Nonnull
+  public CobolLineArea getSequenceArea() {
+    return new CobolLineArea(source, sequenceStart, sequenceStop);
+  }
+
+  @Nonnull
+  public CobolLineArea getContentAreaA() {
+    return new CobolLineArea(source, contentStart, contentAreaBStart);
+  }
+
+  @Nonnull
+  public CobolLineArea getContentAreaB() {
+    return new CobolLineArea(source, contentAreaBStart, contentStop);
+  }
+
+  @Nonnull
+  public CobolLineArea getCommentArea() {
+    return new CobolLineArea(source, commentStart, commentStop);
+  }
 
   /**
    * Build and return a significant for syntax parsing content line
    *
-   * @return a String with combined content areas
+   * @return a view of the combined content areas
    */
-  public String getContentArea() {
-    return contentAreaA + contentAreaB;
+  @Nonnull
+  public CobolLineArea getContentArea() {
+    return new CobolLineArea(source, contentStart, contentStop);
+  }
+
+  public void setSequenceArea(@Nonnull CharSequence sequenceArea) {
+    rebuild(sequenceArea, getContentAreaA(), getContentAreaB(), getCommentArea());
+  }
+
+  public void setContentAreaA(@Nonnull CharSequence contentAreaA) {
+    rebuild(getSequenceArea(), contentAreaA, getContentAreaB(), getCommentArea());
+  }
+
+  public void setContentAreaB(@Nonnull CharSequence contentAreaB) {
+    rebuild(getSequenceArea(), getContentAreaA(), contentAreaB, getCommentArea());
+  }
+
+  public void setCommentArea(@Nonnull CharSequence commentArea) {
+    rebuild(getSequenceArea(), getContentAreaA(), getContentAreaB(), commentArea);
+  }
+
+  /**
+   * Replace the content of the line and split it into the area A of 4 chars and the area B with
+   * the rest of it. If the content is a view of the text this line is backed by, e.g. a trimmed
+   * content area of this line, no characters are copied.
+   *
+   * @param contentArea the new content of the line
+   */
+  public void setContentArea(@Nonnull CharSequence contentArea) {
+    if (contentArea.length() == 0) {
+      contentAreaBStart = contentStart;
+      contentStop = contentStart;
+    } else if (contentArea instanceof CobolLineArea
+        && ((CobolLineArea) contentArea).isBackedBy(source)) {
+      CobolLineArea area = (CobolLineArea) contentArea;
+      contentStart = area.getStart();
+      contentStop = area.getStop();
+      contentAreaBStart = Math.min(contentStop, contentStart + AREA_A_LENGTH);
+    } else {
+      int split = Math.min(contentArea.length(), AREA_A_LENGTH);
+      rebuild(
+          getSequenceArea(),
+          contentArea.subSequence(0, split),
+          contentArea.subSequence(split, contentArea.length()),
+          getCommentArea());
+    }
   }
 
   /**
@@ -74,6 +197,69 @@ public class CobolLine {
     }
   }
 
+  /** Copy the given areas into a new buffer that belongs to this line only */
+  private void rebuild(
+      CharSequence sequenceArea,
+      CharSequence contentAreaA,
+      CharSequence contentAreaB,
+      CharSequence commentArea) {
+    source =
+        new StringBuilder(
+                sequenceArea.length()
+                    + contentAreaA.length()
+                    + contentAreaB.length()
+                    + commentArea.length())
+            .append(sequenceArea)
+            .append(contentAreaA)
+            .append(contentAreaB)
+            .append(commentArea)
+            .toString();
+    sequenceStart = 0;
+    sequenceStop = sequenceArea.length();
+    contentStart = sequenceStop;
+    contentAreaBStart = contentStart + contentAreaA.length();
+    contentStop = contentAreaBStart + contentAreaB.length();
+    commentStart = contentStop;
+    commentStop = commentStart + commentArea.length();
+  }
+
+  /**
+   * Compare the lines by their areas, numbers and types. The links to the neighbour lines are not
+   * compared.
+   */
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (o == null || getClass() != o.getClass()) return false;
+    CobolLine that = (CobolLine) o;
+    return number == that.number
+        && type == that.type
+        && indicatorArea.equals(that.indicatorArea)
+        && StringUtils.equals(getSequenceArea(), that.getSequenceArea())
+        && StringUtils.equals(getContentAreaA(), that.getContentAreaA())
+        && StringUtils.equals(getContentAreaB(), that.getContentAreaB())
+        && StringUtils.equals(getCommentArea(), that.getCommentArea());
+  }
+
+  /** The hash is calculated from the same fields as {@link #equals}, without creating strings */
+  @Override
+  public int hashCode() {
+    int result = 31 * number + Objects.hashCode(type);
+    result = 31 * result + indicatorArea.hashCode();
+    result = hash(result, getSequenceArea());
+    result = hash(result, getContentAreaA());
+    result = hash(result, getContentAreaB());
+    return hash(result, getCommentArea());
+  }
+
+  private static int hash(int hash, CharSequence text) {
+    int result = 31 * hash + text.length();
+    for (int i = 0; i < text.length(); i++) {
+      result = 31 * result + text.charAt(i);
+    }
+    return result;
+  }
+
   /**
    * Serialize the line and combine the fields that are significant for parsing
    *
@@ -81,6 +267,11 @@ public class CobolLine {
    */
   @Override
   public String toString() {
-    return sequenceArea + indicatorArea + contentAreaA + contentAreaB + commentArea;
+    return new StringBuilder()
+        .append(getSequenceArea())
+        .append(indicatorArea)
+        .append(getContentArea())
+        .append(getCommentArea())
+        .toString();
   }
 }
@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2020 Broadcom.
+ * The term "Broadcom" refers to Broadcom Inc. and/or its subsidiaries.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *   Broadcom, Inc. - initial API and implementation
+ */
+package com.ca.lsp.core.cobol.preprocessor.sub;
+
+import javax.annotation.Nonnull;
+
+/**
+ * This class is a view of an area of a {@link CobolLine} or its part. It doesn't copy the
+ * characters, but refers to the range of the text that the line is backed by, so the lines and
+ * their areas can be processed without creating a string for each of them. The subsequences of an
+ * area are backed by the same text.
+ */
+public final class CobolLineArea implements CharSequence {
+  private final CharSequence source;
+  private final int start;
+  private final int stop;
+
+  CobolLineArea(@Nonnull CharSequence source, int start, int stop) {
+    this.source = source;
+    this.start = start;
+    this.stop = stop;
+  }
+
+  @Override
+  public int length() {
+    return stop - start;
+  }
+
+  @Override
+  public char charAt(int index) {
+    if (index < 0 || index >= length()) {
+      throw new StringIndexOutOfBoundsException("index: " + index + ", length: " + length());
+    }
+    return source.charAt(start + index);
+  }
+
+  @Nonnull
+  @Override
+  public CobolLineArea subSequence(int from, int to) {
+    if (from < 0 || to > length() || from > to) {
+      throw new StringIndexOutOfBoundsException(
+          "from: " + from + ", to: " + to + ", length: " + length());
+    }
+    return new CobolLineArea(source, start + from, start + to);
+  }
+
+  @Nonnull
+  @Override
+  public String toString() {
+    return source.subSequence(start, stop).toString();
+  }
+
+  /**
+   * Check if this area refers to the given text, so its offsets can be reused
+   *
+   * @param text the text to check
+   * @return true if the area is backed by the same instance of the text
+   */
+  boolean isBackedBy(@Nonnull CharSequence text) {
+    return source == text;
+  }
+
+  /**
+   * Find this area in the given one if they are backed by the same text, so this area can be cut
+   * from the given one again, e.g. from the same area of another line
+   *
+   * @param area the area that may contain this one
+   * @return the offset of this area in the given one or -1 if it is not a part of it
+   */
+  public int indexIn(@Nonnull CobolLineArea area) {
+    return source == area.source && start >= area.start && stop <= area.stop
+        ? start - area.start
+        : -1;
+  }
+
+  int getStart() {
+    return start;
+  }
+
+  int getStop() {
+    return stop;
+  }
+}
@@ -15,6 +15,9 @@
  */
 package com.ca.lsp.core.cobol.preprocessor.sub.cleaner.impl;
 
+import com.ca.lsp.core.cobol.engine.CancellableTokenStream;
+import com.ca.lsp.core.cobol.engine.CancellationToken;
+import com.ca.lsp.core.cobol.engine.DFACacheManager;
 import com.ca.lsp.core.cobol.model.SyntaxError;
 import com.ca.lsp.core.cobol.parser.CobolCleanerLexer;
 import com.ca.lsp.core.cobol.parser.CobolCleanerParser;
@@ -28,52 +31,44 @@ import org.antlr.v4.runtime.tree.ParseTreeWalker;
 import java.util.ArrayList;
 import java.util.List;
 
+/**
+ * This cleaner comments out the EXEC SQL, EXEC SQLIMS, EXEC CICS and EJECT statements, so they
+ * are not analyzed as COBOL code. The cleaner grammar reproduces the rest of the text unchanged, so
+ * the text is lexed and parsed only if it contains one of the keywords that start these statements.
+ * Otherwise, the same text is returned, and the document is lexed only by the following stages.
+ */
 public class CobolDocumentCleanerImpl implements CobolDocumentCleaner {
+  private static final String[] TRIGGERS = new String[] {"exec", "eject"};
+
+  private DFACacheManager cacheManager;
+  private CancellationToken cancellationToken;
 
-  private static final String[] TRIGGERS =
-      new String[] {
-        "cbl",
-        "copy",
-        "exec sql",
-        "exec sqlims",
-        "exec cics",
-        "process",
-        "replace",
-        "eject",
-        "skip1",
-        "skip2",
-        "skip3",
-        "title"
-      };
+  public CobolDocumentCleanerImpl(
+      DFACacheManager cacheManager, CancellationToken cancellationToken) {
+    this.cacheManager = cacheManager;
+    this.cancellationToken = cancellationToken;
+  }
 
   @Override
   public String cleanDocument(String documentUri, String text) {
-    final boolean requiresProcessorExecution = containsTrigger(text, TRIGGERS);
-    final String result;
-
-    if (requiresProcessorExecution) {
-      result = cleanWithParser(documentUri, text);
-    } else {
-      result = text;
-    }
-
-    return result;
+    return containsTrigger(text) ? cleanWithParser(documentUri, text) : text;
   }
 
-  private boolean containsTrigger(final String code, final String[] triggers) {
-    final String codeLowerCase = code.toLowerCase();
-    boolean result = false;
-
-    for (final String trigger : triggers) {
-      final boolean containsTrigger = codeLowerCase.contains(trigger);
-
-      if (containsTrigger) {
-        result = true;
-        break;
+  /**
+   * Check if the text contains any of the triggers ignoring the case. The text is scanned once
+   * without copying, since it is the whole document.
+   */
+  private static boolean containsTrigger(String code) {
+    for (int i = 0; i < code.length(); i++) {
+      char current = Character.toLowerCase(code.charAt(i));
+      for (String trigger : TRIGGERS) {
+        if (current == trigger.charAt(0)
+            && code.regionMatches(true, i, trigger, 0, trigger.length())) {
+          return true;
+        }
       }
     }
-
-    return result;
+    return false;
   }
 
   private String cleanWithParser(final String documentUri, final String code) {
@@ -81,17 +76,18 @@ public class CobolDocumentCleanerImpl implements CobolDocumentCleaner {
     List<SyntaxError> errors = new ArrayList<>();
 
     // run the lexer
-    final CobolCleanerLexer lexer = new CobolCleanerLexer(CharStreams.fromString(code));
+    final CobolCleanerLexer lexer =
+        cacheManager.manage(new CobolCleanerLexer(CharStreams.fromString(code)));
 
     // register an error listener, so that preprocessing stops on errors
     lexer.removeErrorListeners();
     lexer.addErrorListener(new VerboseListener(errors, documentUri));
 
     // get a list of matched tokens
-    final CommonTokenStream tokens = new CommonTokenStream(lexer);
+    final CommonTokenStream tokens = new CancellableTokenStream(lexer, cancellationToken);
 
     // pass the tokens to the parser
-    final CobolCleanerParser parser = new CobolCleanerParser(tokens);
+    final CobolCleanerParser parser = cacheManager.manage(new CobolCleanerParser(tokens));
     // register an error listener, so that preprocessing stops on errors
     parser.removeErrorListeners();
     parser.addErrorListener(new VerboseListener(errors, documentUri));
@@ -18,11 +18,10 @@ package com.ca.lsp.core.cobol.preprocessor.sub.copybook;
 import com.broadcom.lsp.domain.cobol.databus.api.CopybookRepository;
 import com.broadcom.lsp.domain.cobol.databus.api.DataBusBroker;
 import com.broadcom.lsp.domain.cobol.databus.model.CopybookStorable;
-import com.broadcom.lsp.domain.cobol.event.api.EventObserver;
 import com.broadcom.lsp.domain.cobol.event.model.CopybookDepEvent;
-import com.broadcom.lsp.domain.cobol.event.model.DataEventType;
 import com.broadcom.lsp.domain.cobol.event.model.FetchedCopybookEvent;
-import com.broadcom.lsp.domain.cobol.event.model.RequiredCopybookEvent;
+import com.ca.lsp.core.cobol.engine.CancellationToken;
+import com.ca.lsp.core.cobol.engine.ParsingStatistics;
 import com.ca.lsp.core.cobol.model.CopybookSemanticContext;
 import com.ca.lsp.core.cobol.model.CopybookUsage;
 import com.ca.lsp.core.cobol.model.PreprocessedInput;
@@ -31,77 +30,95 @@ import com.ca.lsp.core.cobol.preprocessor.CobolPreprocessor;
 import com.ca.lsp.core.cobol.semantics.SemanticContext;
 import com.google.inject.Inject;
 import com.google.inject.assistedinject.Assisted;
+import com.google.inject.name.Named;
 import lombok.extern.slf4j.Slf4j;
 
+import java.util.AbstractMap.SimpleEntry;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeoutException;
 
 import static java.util.Collections.emptyList;
 import static java.util.Collections.unmodifiableList;
 import static java.util.Optional.ofNullable;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 
 /**
  * Represent the ForkJoinTask that is executed in parallel for address copybooks duties It uses a
- * {@link DataBusBroker} to communicate with other modules
+ * {@link DataBusBroker} to communicate with other modules and {@link CopybookResolution} to request
+ * the copybooks that are not cached yet
  */
 @Slf4j
-public class AnalyseCopybookTask extends RecursiveTask<ResultWithErrors<CopybookSemanticContext>>
-    implements EventObserver<FetchedCopybookEvent> {
+public class AnalyseCopybookTask extends RecursiveTask<ResultWithErrors<CopybookSemanticContext>> {
+  private static final long CANCELLATION_CHECK_INTERVAL = 50;
 
   private transient DataBusBroker databus;
   private final String copyBookName;
   private String documentUri;
   private transient CopybookUsage copybookUsage;
   private transient List<CopybookUsage> copybookUsageTracker;
-  private transient CompletableFuture<String> waitForResolving;
+  private transient CompletableFuture<FetchedCopybookEvent> waitForResolving;
   private String textDocumentSyncType;
   private transient CobolPreprocessor preprocessor;
+  private transient PreprocessedCopybookCache copybookCache;
+  private transient CopybookResolution resolution;
+  private transient CancellationToken cancellationToken;
+  private transient ParsingStatistics statistics;
+  private final long resolutionTimeout;
+  private volatile boolean timedOut;
 
   @Inject
   public AnalyseCopybookTask(
       DataBusBroker databus,
       CobolPreprocessor preprocessor,
+      PreprocessedCopybookCache copybookCache,
+      CopybookResolution resolution,
+      ParsingStatistics statistics,
+      @Named("COPYBOOK-RESOLUTION-TIMEOUT") int resolutionTimeout,
       @Assisted("documentUri") String documentUri,
       @Assisted("copybookUsage") CopybookUsage copybookUsage,
       @Assisted("copybookUsageTracker") List<CopybookUsage> copybookUsageTracker,
-      @Assisted("textDocumentSyncType") String textDocumentSyncType) {
+      @Assisted("textDocumentSyncType") String textDocumentSyncType,
+      @Assisted("cancellationToken") CancellationToken cancellationToken) {
     this.documentUri = documentUri;
     this.copybookUsage = copybookUsage;
     copyBookName = copybookUsage.getName();
     this.copybookUsageTracker = copybookUsageTracker;
     this.textDocumentSyncType = textDocumentSyncType;
     this.preprocessor = preprocessor;
-    waitForResolving = new CompletableFuture<>();
+    this.copybookCache = copybookCache;
+    this.resolution = resolution;
+    this.statistics = statistics;
+    this.resolutionTimeout = resolutionTimeout;
+    this.cancellationToken = cancellationToken;
     this.databus = databus;
   }
 
   /**
    * Check if copybook name already presents in the cache. If presents, grab the content from the
-   * cache and parse without involving the workspace manager. If not present - post a scan event on
-   * the data bus for workspace manager to retrieve the content and post fetch event on data bus to
-   * populate the cache with the retrieved content.
+   * cache and parse without involving the workspace manager. If not present - request the workspace
+   * manager to retrieve the content using {@link CopybookResolution} that also populates the cache
+   * with the retrieved content.
    *
    * @return SemanticContext with errors (if found) populated for copybooks.
+   * @throws com.ca.lsp.core.cobol.engine.AnalysisCancelledException if the analysis of the
+   *     document was cancelled
    */
   @Override
   public ResultWithErrors<CopybookSemanticContext> compute() {
+    cancellationToken.checkCancelled();
     ResultWithErrors<SemanticContext> semanticContext;
 
     if (isCopybookInCache(copyBookName)) {
       semanticContext = parseCopybookFromCache();
     } else {
-      Object subscriber = databus.subscribe(DataEventType.FETCHED_COPYBOOK_EVENT, this);
-      databus.postData(
-          RequiredCopybookEvent.builder()
-              .name(copyBookName)
-              .documentUri(documentUri)
-              .textDocumentSyncType(textDocumentSyncType)
-              .build());
+      waitForResolving = resolution.resolve(copyBookName, documentUri, textDocumentSyncType);
       semanticContext = parseCopybook();
-      databus.unSubscribe(subscriber);
     }
 
     databus.postData(
@@ -120,9 +137,8 @@ public class AnalyseCopybookTask extends RecursiveTask<ResultWithErrors<Copybook
 
   private ResultWithErrors<SemanticContext> parseCopybook() {
     ResultWithErrors<SemanticContext> semanticContext = null;
-    String content = null;
     try {
-      content = waitForResolving.get();
+      String content = waitForContent();
       if (content != null) {
         semanticContext = parseCopybook(content);
       }
@@ -131,21 +147,42 @@ public class AnalyseCopybookTask extends RecursiveTask<ResultWithErrors<Copybook
       LOG.error("Error copybooks analysis for: " + copyBookName, e);
       Thread.currentThread().interrupt();
     }
+    return semanticContext;
+  }
 
-    // populate the cache with content retrieved while analysis
-    if (semanticContext != null) {
-      populateCacheWithCopybookContents(content);
+  /**
+   * Wait for the workspace manager to resolve the copybook, checking periodically if the analysis
+   * was cancelled, so the task doesn't block the pool after the document changed or after the
+   * document resolution timeout, which cancels the token of the document copybooks. The wait is
+   * managed by the pool, see {@link ResolutionBlocker}. If the copybook is not resolved within the
+   * resolution timeout, e.g. because the request was lost, the analysis goes on without it.
+   *
+   * @return the content of the copybook or null if it was not found or not resolved in time
+   */
+  private String waitForContent() throws InterruptedException, ExecutionException {
+    ForkJoinPool.managedBlock(
+        new ResolutionBlocker(System.nanoTime() + MILLISECONDS.toNanos(resolutionTimeout)));
+    cancellationToken.checkCancelled();
+    if (!waitForResolving.isDone()) {
+      LOG.warn("Copybook {} was not resolved in {} ms", copyBookName, resolutionTimeout);
+      statistics.registerCopybookTimeout();
+      resolution.forget(copyBookName, waitForResolving);
+      timedOut = true;
+      return null;
     }
-    return semanticContext;
+    FetchedCopybookEvent event = waitForResolving.get();
+    copybookUsage.setUri(event.getUri());
+    return event.getContent();
   }
 
-  private void populateCacheWithCopybookContents(String content) {
-    databus.storeData(
-        CopybookStorable.builder()
-            .name(copybookUsage.getName())
-            .content(content)
-            .uri(copybookUsage.getUri())
-            .build());
+  /** @return the name of the analyzed copybook */
+  String getCopybookName() {
+    return copyBookName;
+  }
+
+  /** @return true if the copybook was not resolved within the resolution timeout */
+  boolean isTimedOut() {
+    return timedOut;
   }
 
   private ResultWithErrors<SemanticContext> parseCopybookFromCache() {
@@ -159,26 +196,82 @@ public class AnalyseCopybookTask extends RecursiveTask<ResultWithErrors<Copybook
     return cachedData.getContent();
   }
 
+  /**
+   * Preprocess the copybook content or take the result from {@link PreprocessedCopybookCache} if
+   * the same content was already preprocessed in the same hierarchy of copybooks. A cached result
+   * skips the analysis of the nested copybooks, so their dependencies are posted here instead.
+   */
   private ResultWithErrors<SemanticContext> parseCopybook(String content) {
     List<CopybookUsage> nextTrackerIteration = new ArrayList<>(copybookUsageTracker);
     nextTrackerIteration.add(copybookUsage);
-    ResultWithErrors<PreprocessedInput> preprocessedInput =
-        preprocessor.process(
-            copybookUsage.getUri(),
-            content,
-            new SemanticContext(unmodifiableList(nextTrackerIteration)),
-            textDocumentSyncType);
+    PreprocessedCopybookCache.Key key =
+        copybookCache.createKey(copybookUsage.getUri(), content, nextTrackerIteration);
+    ResultWithErrors<PreprocessedInput> preprocessedInput = copybookCache.get(key).orElse(null);
+    if (preprocessedInput == null) {
+      preprocessedInput =
+          preprocessor.process(
+              copybookUsage.getUri(),
+              content,
+              new SemanticContext(unmodifiableList(nextTrackerIteration)),
+              textDocumentSyncType,
+              cancellationToken);
+      copybookCache.put(key, preprocessedInput, nextTrackerIteration);
+    } else {
+      postNestedDependencies(preprocessedInput.getResult().getSemanticContext());
+    }
     return new ResultWithErrors<>(
         preprocessedInput.getResult().getSemanticContext(), preprocessedInput.getErrors());
   }
 
-  @Override
-  public void observerCallback(FetchedCopybookEvent adaptedDataEvent) {
-    if (!copyBookName.equals(adaptedDataEvent.getName())) {
-      return;
+  private void postNestedDependencies(SemanticContext semanticContext) {
+    semanticContext.getCopybooks().getUsages().entries().stream()
+        .map(it -> new SimpleEntry<>(it.getKey(), it.getValue().getDocumentURI()))
+        .distinct()
+        .forEach(
+            it ->
+                databus.postData(
+                    CopybookDepEvent.builder()
+                        .copybookName(it.getKey())
+                        .textDocumentSync(textDocumentSyncType)
+                        .documentUri(it.getValue())
+                        .build()));
+  }
+
+  /**
+   * This blocker lets the pool start a spare worker while the task waits for the copybook content,
+   * so the sibling tasks post their requests and wait for the resolution at the same time instead
+   * of one by one, and the nested copybooks are analyzed even if all the workers are waiting.
+   */
+  private class ResolutionBlocker implements ForkJoinPool.ManagedBlocker {
+    private final long deadline;
+
+    ResolutionBlocker(long deadline) {
+      this.deadline = deadline;
+    }
+
+    @Override
+    public boolean block() throws InterruptedException {
+      while (!isReleasable()) {
+        try {
+          long remaining = deadline - System.nanoTime();
+          waitForResolving.get(
+              Math.min(MILLISECONDS.toNanos(CANCELLATION_CHECK_INTERVAL), remaining), NANOSECONDS);
+        } catch (TimeoutException e) {
+          LOG.trace("Copybook {} is not resolved yet", copyBookName);
+        } catch (ExecutionException e) {
+          return true;
+        }
+      }
+      return true;
+    }
+
+    @Override
+    public boolean isReleasable() {
+      return waitForResolving.isDone()
+          || cancellationToken.isCancelled()
+          || isCancelled()
+          || System.nanoTime() - deadline >= 0;
     }
-    copybookUsage.setUri(adaptedDataEvent.getUri());
-    waitForResolving.complete((adaptedDataEvent).getContent());
   }
 
   private boolean isCopybookInCache(String copyBookName) {
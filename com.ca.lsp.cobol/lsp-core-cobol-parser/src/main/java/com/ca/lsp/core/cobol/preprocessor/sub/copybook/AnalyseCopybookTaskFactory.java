@@ -15,6 +15,7 @@
 
 package com.ca.lsp.core.cobol.preprocessor.sub.copybook;
 
+import com.ca.lsp.core.cobol.engine.CancellationToken;
 import com.ca.lsp.core.cobol.model.CopybookUsage;
 import com.google.inject.assistedinject.Assisted;
 
@@ -26,5 +27,6 @@ public interface AnalyseCopybookTaskFactory {
       @Assisted("documentUri") String documentUri,
       @Assisted("copybookUsage") CopybookUsage copybookUsage,
       @Assisted("copybookUsageTracker") List<CopybookUsage> copybookUsageTracker,
-      @Assisted("textDocumentSyncType") String textDocumentSyncType);
+      @Assisted("textDocumentSyncType") String textDocumentSyncType,
+      @Assisted("cancellationToken") CancellationToken cancellationToken);
 }
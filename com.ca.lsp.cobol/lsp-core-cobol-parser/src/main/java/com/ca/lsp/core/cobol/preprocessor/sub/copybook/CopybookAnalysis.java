@@ -16,6 +16,7 @@
 package com.ca.lsp.core.cobol.preprocessor.sub.copybook;
 
 import com.broadcom.lsp.domain.common.model.Position;
+import com.ca.lsp.core.cobol.engine.CancellationToken;
 import com.ca.lsp.core.cobol.model.CopybookUsage;
 import com.ca.lsp.core.cobol.model.CopybookSemanticContext;
 import com.ca.lsp.core.cobol.model.ResultWithErrors;
@@ -28,5 +29,6 @@ public interface CopybookAnalysis {
       String documentUri,
       Multimap<String, Position> copybookNames,
       List<CopybookUsage> copybookUsageTracker,
-      String textDocumentSyncType);
+      String textDocumentSyncType,
+      CancellationToken cancellationToken);
 }
@@ -16,6 +16,9 @@
 package com.ca.lsp.core.cobol.preprocessor.sub.copybook;
 
 import com.broadcom.lsp.domain.common.model.Position;
+import com.ca.lsp.core.cobol.engine.AnalysisCancelledException;
+import com.ca.lsp.core.cobol.engine.CancellationToken;
+import com.ca.lsp.core.cobol.engine.ParsingStatistics;
 import com.ca.lsp.core.cobol.model.CopybookSemanticContext;
 import com.ca.lsp.core.cobol.model.CopybookUsage;
 import com.ca.lsp.core.cobol.model.ResultWithErrors;
@@ -23,25 +26,53 @@ import com.ca.lsp.core.cobol.model.SyntaxError;
 import com.google.common.collect.Multimap;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
+import com.google.inject.name.Named;
+import lombok.extern.slf4j.Slf4j;
 
 import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeoutException;
 import java.util.function.Function;
 
 import static com.ca.lsp.core.cobol.model.ErrorCode.MISSING_COPYBOOK;
 import static java.lang.String.format;
+import static java.util.Collections.emptyList;
 import static java.util.concurrent.ForkJoinTask.invokeAll;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 import static java.util.stream.Collectors.toList;
 
+/**
+ * This class analyzes the copybooks of a document in parallel. Each copybook waits for its content
+ * only for the configured time, and the copybooks of the document are analyzed only until the
+ * document resolution timeout passes, so an unresponsive client cannot block the analysis. The
+ * copybooks that were not resolved in time are reported as missing ones with a separate
+ * suggestion and counted in {@link ParsingStatistics}.
+ */
+@Slf4j
 @Singleton
 public class CopybookParallelAnalysis implements CopybookAnalysis {
   private static final String ERROR_SUGGESTION = "%s: Copybook not found";
+  private static final String TIMEOUT_SUGGESTION = "%s: Copybook resolution timed out";
   private AnalyseCopybookTaskFactory factory;
+  private ParsingStatistics statistics;
+  private long documentTimeout;
 
   @Inject
-  public CopybookParallelAnalysis(AnalyseCopybookTaskFactory factory) {
+  public CopybookParallelAnalysis(
+      AnalyseCopybookTaskFactory factory,
+      ParsingStatistics statistics,
+      @Named("DOCUMENT-RESOLUTION-TIMEOUT") int documentTimeout) {
     this.factory = factory;
+    this.statistics = statistics;
+    this.documentTimeout = documentTimeout;
   }
 
   @Override
@@ -49,13 +80,27 @@ public class CopybookParallelAnalysis implements CopybookAnalysis {
       String documentUri,
       Multimap<String, Position> copybooks,
       List<CopybookUsage> copybookUsageTracker,
-      String textDocumentSyncType) {
-
+      String textDocumentSyncType,
+      CancellationToken cancellationToken) {
+
+    boolean documentCopybooks = copybookUsageTracker.isEmpty();
+    CancellationToken copybooksToken =
+        documentCopybooks ? new CancellationToken(cancellationToken) : cancellationToken;
+    List<AnalyseCopybookTask> tasks =
+        createTasks(
+            documentUri, copybooks, copybookUsageTracker, textDocumentSyncType, copybooksToken);
+    Set<String> timedOut = new HashSet<>();
     List<ResultWithErrors<CopybookSemanticContext>> contexts =
-        runAnalysisAsynchronously(
-            documentUri, copybooks, copybookUsageTracker, textDocumentSyncType);
+        documentCopybooks
+            ? runAnalysisWithinTimeout(documentUri, tasks, copybooksToken, timedOut)
+            : runAnalysisAsynchronously(tasks);
+    cancellationToken.checkCancelled();
+    tasks.stream()
+        .filter(AnalyseCopybookTask::isTimedOut)
+        .map(AnalyseCopybookTask::getCopybookName)
+        .forEach(timedOut::add);
 
-    List<SyntaxError> errors = createMissingCopybookErrors(copybooks, contexts);
+    List<SyntaxError> errors = createMissingCopybookErrors(copybooks, contexts, timedOut);
 
     errors.addAll(extractAnalysingErrors(contexts));
 
@@ -63,16 +108,76 @@ public class CopybookParallelAnalysis implements CopybookAnalysis {
   }
 
   private List<ResultWithErrors<CopybookSemanticContext>> runAnalysisAsynchronously(
+      List<AnalyseCopybookTask> tasks) {
+    return invokeAll(tasks).stream().map(ForkJoinTask::join).collect(toList());
+  }
+
+  /**
+   * Run the analysis of the copybooks of the document itself, i.e. including the nested ones, until
+   * the document resolution timeout passes. The caller waits for the futures completed by the
+   * tasks, since waiting for the tasks themselves may run them on the caller thread. After the
+   * timeout the given token stops the remaining tasks, including the nested ones, and the names of
+   * their copybooks are added to the given set.
+   */
+  private List<ResultWithErrors<CopybookSemanticContext>> runAnalysisWithinTimeout(
       String documentUri,
-      Multimap<String, Position> copybooks,
-      List<CopybookUsage> copybookUsageTracker,
-      String textDocumentSyncType) {
+      List<AnalyseCopybookTask> tasks,
+      CancellationToken copybooksToken,
+      Set<String> timedOut) {
+    List<CompletableFuture<ResultWithErrors<CopybookSemanticContext>>> results =
+        tasks.stream().map(this::fork).collect(toList());
+    long deadline = System.nanoTime() + MILLISECONDS.toNanos(documentTimeout);
+    List<ResultWithErrors<CopybookSemanticContext>> contexts = new ArrayList<>();
+    for (int i = 0; i < tasks.size(); i++) {
+      AnalyseCopybookTask task = tasks.get(i);
+      try {
+        contexts.add(results.get(i).get(Math.max(deadline - System.nanoTime(), 0), NANOSECONDS));
+      } catch (TimeoutException e) {
+        copybooksToken.cancel();
+        task.cancel(false);
+        contexts.add(skip(task, timedOut));
+      } catch (ExecutionException e) {
+        if (e.getCause() instanceof CancellationException && copybooksToken.isCancelled()) {
+          contexts.add(skip(task, timedOut));
+          continue;
+        }
+        throw e.getCause() instanceof RuntimeException
+            ? (RuntimeException) e.getCause()
+            : new IllegalStateException(e.getCause());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new AnalysisCancelledException();
+      }
+    }
+    if (!timedOut.isEmpty()) {
+      LOG.warn("Copybooks of {} were not analyzed in {} ms", documentUri, documentTimeout);
+      statistics.registerDocumentTimeout();
+    }
+    return contexts;
+  }
 
-    return invokeAll(
-            createTasks(documentUri, copybooks, copybookUsageTracker, textDocumentSyncType))
-        .stream()
-        .map(ForkJoinTask::join)
-        .collect(toList());
+  private ResultWithErrors<CopybookSemanticContext> skip(
+      AnalyseCopybookTask task, Set<String> timedOut) {
+    timedOut.add(task.getCopybookName());
+    return new ResultWithErrors<>(
+        new CopybookSemanticContext(task.getCopybookName(), null), emptyList());
+  }
+
+  /** Start the task in the pool and return the future that the task completes when it ends */
+  private CompletableFuture<ResultWithErrors<CopybookSemanticContext>> fork(
+      AnalyseCopybookTask task) {
+    CompletableFuture<ResultWithErrors<CopybookSemanticContext>> result =
+        new CompletableFuture<>();
+    ForkJoinTask.adapt(
+            () -> {
+              try {
+                result.complete(task.invoke());
+              } catch (RuntimeException | Error e) {
+                result.completeExceptionally(e);
+              }
+            })
+        .fork();
+    return result;
   }
 
   private List<CopybookSemanticContext> collectCorrectContexts(
@@ -93,36 +198,44 @@ public class CopybookParallelAnalysis implements CopybookAnalysis {
 
   private List<SyntaxError> createMissingCopybookErrors(
       Multimap<String, Position> copybooks,
-      List<ResultWithErrors<CopybookSemanticContext>> contexts) {
+      List<ResultWithErrors<CopybookSemanticContext>> contexts,
+      Set<String> timedOut) {
     return contexts.stream()
         .map(ResultWithErrors::getResult)
         .filter(it -> it.getContext() == null)
         .map(CopybookSemanticContext::getName)
-        .map(defineErrors(copybooks))
+        .map(defineErrors(copybooks, timedOut))
         .flatMap(List::stream)
         .collect(toList());
   }
 
   @Nonnull
-  private Function<String, List<SyntaxError>> defineErrors(Multimap<String, Position> copybooks) {
+  private Function<String, List<SyntaxError>> defineErrors(
+      Multimap<String, Position> copybooks, Set<String> timedOut) {
     return copybookName ->
         copybooks.get(copybookName).stream()
             .map(
                 position ->
                     SyntaxError.syntaxError()
                         .position(position)
-                        .suggestion(format(ERROR_SUGGESTION, copybookName))
+                        .suggestion(
+                            format(
+                                timedOut.contains(copybookName)
+                                    ? TIMEOUT_SUGGESTION
+                                    : ERROR_SUGGESTION,
+                                copybookName))
                         .severity(1)
                         .errorCode(MISSING_COPYBOOK)
                         .build())
             .collect(toList());
   }
 
-  private List<ForkJoinTask<ResultWithErrors<CopybookSemanticContext>>> createTasks(
+  private List<AnalyseCopybookTask> createTasks(
       String documentUri,
       Multimap<String, Position> names,
       List<CopybookUsage> copybookUsageTracker,
-      String textDocumentSyncType) {
+      String textDocumentSyncType,
+      CancellationToken cancellationToken) {
 
     return names.asMap().entrySet().stream()
         .map(
@@ -131,7 +244,8 @@ public class CopybookParallelAnalysis implements CopybookAnalysis {
                     documentUri,
                     new CopybookUsage(it.getKey(), documentUri, it.getValue()),
                     copybookUsageTracker,
-                    textDocumentSyncType))
+                    textDocumentSyncType,
+                    cancellationToken))
         .collect(toList());
   }
 }
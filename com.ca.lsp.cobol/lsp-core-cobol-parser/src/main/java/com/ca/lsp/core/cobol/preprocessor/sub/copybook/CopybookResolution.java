@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2020 Broadcom.
+ * The term "Broadcom" refers to Broadcom Inc. and/or its subsidiaries.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *   Broadcom, Inc. - initial API and implementation
+ */
+package com.ca.lsp.core.cobol.preprocessor.sub.copybook;
+
+import com.broadcom.lsp.domain.cobol.databus.api.DataBusBroker;
+import com.broadcom.lsp.domain.cobol.databus.model.CopybookStorable;
+import com.broadcom.lsp.domain.cobol.event.api.EventObserver;
+import com.broadcom.lsp.domain.cobol.event.model.DataEventType;
+import com.broadcom.lsp.domain.cobol.event.model.FetchedCopybookEvent;
+import com.broadcom.lsp.domain.cobol.event.model.RequiredCopybookEvent;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.annotation.Nonnull;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This class coalesces the concurrent requests for the same copybook, so the workspace manager
+ * resolves each copybook once no matter how many documents or copybook tasks wait for it. Every
+ * request posts a {@link RequiredCopybookEvent} on the data bus, so the workspace manager records
+ * the dependency of each requesting document, while it searches the copybook only once for the
+ * concurrent requests. The requests share the same future until the {@link FetchedCopybookEvent}
+ * arrives. The copybook names are case-insensitive. This class is the only subscriber for the
+ * fetched copybooks, so an event is not delivered to every waiting task. The resolved content is
+ * stored in the copybook cache of the data bus before the waiters are notified, so the requests
+ * that come after the resolution take it from the cache.
+ */
+@Slf4j
+@Singleton
+public class CopybookResolution implements EventObserver<FetchedCopybookEvent> {
+  private final DataBusBroker databus;
+  private final Map<String, CompletableFuture<FetchedCopybookEvent>> resolutions =
+      new ConcurrentHashMap<>();
+
+  @Inject
+  public CopybookResolution(DataBusBroker databus) {
+    this.databus = databus;
+    databus.subscribe(DataEventType.FETCHED_COPYBOOK_EVENT, this);
+  }
+
+  /**
+   * Request the workspace manager to resolve the copybook and to record the dependency of the
+   * document, joining the resolution that is already in progress if any
+   *
+   * @param copybookName - the name of the required copybook
+   * @param documentUri - the URI of the document that requires the copybook
+   * @param textDocumentSyncType - the sync type of the analysis, i.e. DID_OPEN or DID_CHANGE
+   * @return the future of the resolved copybook that has null content if it was not found
+   */
+  @Nonnull
+  public CompletableFuture<FetchedCopybookEvent> resolve(
+      @Nonnull String copybookName, String documentUri, String textDocumentSyncType) {
+    CompletableFuture<FetchedCopybookEvent> resolution =
+        resolutions.computeIfAbsent(toKey(copybookName), it -> new CompletableFuture<>());
+    databus.postData(
+        RequiredCopybookEvent.builder()
+            .name(copybookName)
+            .documentUri(documentUri)
+            .textDocumentSyncType(textDocumentSyncType)
+            .build());
+    return resolution;
+  }
+
+  /**
+   * Forget the request that was not answered in time, so the next request for the copybook is
+   * posted again instead of joining it
+   *
+   * @param copybookName - the name of the required copybook
+   * @param resolution - the future returned by {@link #resolve(String, String, String)}
+   */
+  public void forget(@Nonnull String copybookName, @Nonnull CompletableFuture<?> resolution) {
+    resolutions.remove(toKey(copybookName), resolution);
+  }
+
+  @Override
+  public void observerCallback(FetchedCopybookEvent event) {
+    if (event.getName() == null) {
+      return;
+    }
+    if (event.getContent() != null) {
+      databus.storeData(
+          CopybookStorable.builder()
+              .name(event.getName())
+              .uri(event.getUri())
+              .content(event.getContent())
+              .build());
+    }
+    CompletableFuture<FetchedCopybookEvent> resolution = resolutions.remove(toKey(event.getName()));
+    if (resolution != null) {
+      resolution.complete(event);
+    }
+  }
+
+  private static String toKey(String copybookName) {
+    return copybookName.toUpperCase(Locale.ROOT);
+  }
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright (c) 2020 Broadcom.
+ * The term "Broadcom" refers to Broadcom Inc. and/or its subsidiaries.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *   Broadcom, Inc. - initial API and implementation
+ */
+package com.ca.lsp.core.cobol.preprocessor.sub.copybook;
+
+import com.broadcom.lsp.domain.cobol.databus.api.CopybookRepository;
+import com.broadcom.lsp.domain.cobol.databus.api.DataBusBroker;
+import com.broadcom.lsp.domain.cobol.databus.model.CopybookStorable;
+import com.broadcom.lsp.domain.common.model.Position;
+import com.ca.lsp.core.cobol.model.CopybookUsage;
+import com.ca.lsp.core.cobol.model.PreprocessedInput;
+import com.ca.lsp.core.cobol.model.ResultWithErrors;
+import com.ca.lsp.core.cobol.model.SyntaxError;
+import com.ca.lsp.core.cobol.semantics.SemanticContext;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.google.inject.name.Named;
+import lombok.Value;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+
+import static java.util.Collections.emptyList;
+import static java.util.Collections.unmodifiableList;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * This class caches the preprocessed copybooks, i.e. their cleaned text, semantic context and
+ * errors, so a copybook that is included by several documents or analyzed again after a change of
+ * the document is not preprocessed each time. The results are keyed by the copybook URI, a 64-bit
+ * hash of its content and the names of the copybooks that include it, since the recursion check
+ * depends on them. The cache keeps the results of the most recently used copybooks up to the
+ * configured size.
+ *
+ * <p>A result also depends on the content of the nested copybooks. Instead of tracking their
+ * changes, the cache stores the hash of the content of each nested copybook from the copybook
+ * cache of the {@link DataBusBroker}, and returns the result only if all of them are still there
+ * with the same content. The results that report a recursive copybook are not stored, since the
+ * errors are bound to the positions of the COPY statements in the document, and so are the results
+ * with the nested copybooks that are not resolved yet.
+ *
+ * <p>The cache stores an immutable summary of the semantic context, see {@link
+ * SemanticContext#freeze()}, and returns the same summary on each hit, since merging it into the
+ * context of a document doesn't modify it.
+ */
+@Singleton
+public class PreprocessedCopybookCache {
+  private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+  private static final long FNV_PRIME = 0x100000001b3L;
+
+  private final DataBusBroker databus;
+  private final Map<Key, Entry> results;
+
+  @Inject
+  public PreprocessedCopybookCache(
+      DataBusBroker databus, @Named("COPYBOOK-CACHE-MAX-SIZE") int maxSize) {
+    this.databus = databus;
+    results =
+        new LinkedHashMap<Key, Entry>(16, 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+            return size() > maxSize;
+          }
+        };
+  }
+
+  /**
+   * Create a key for the given copybook content analyzed in the given hierarchy of copybooks
+   *
+   * @param uri - the URI of the copybook
+   * @param content - the content of the copybook
+   * @param copybookUsageTracker - the copybooks that include this one including itself
+   * @return the key to look up and store the preprocessed copybook
+   */
+  @Nonnull
+  public Key createKey(
+      @Nonnull String uri,
+      @Nonnull String content,
+      @Nonnull List<CopybookUsage> copybookUsageTracker) {
+    return new Key(
+        uri,
+        hash(content),
+        content.length(),
+        copybookUsageTracker.stream().map(CopybookUsage::getName).collect(toList()));
+  }
+
+  /**
+   * @param key - the key of the copybook content
+   * @return the preprocessed copybook with the immutable semantic context or empty if it wasn't
+   *     stored or its nested copybooks changed
+   */
+  @Nonnull
+  public Optional<ResultWithErrors<PreprocessedInput>> get(@Nonnull Key key) {
+    Entry entry;
+    synchronized (this) {
+      entry = results.get(key);
+    }
+    if (entry == null || !entry.getDependencies().equals(readDependencies(entry))) {
+      return Optional.empty();
+    }
+    return Optional.of(
+        new ResultWithErrors<>(
+            new PreprocessedInput(entry.getInput(), entry.getSemanticContext()),
+            entry.getErrors()));
+  }
+
+  /**
+   * Store the preprocessed copybook if it doesn't depend on the document it is included in and
+   * all its nested copybooks are resolved
+   *
+   * @param key - the key of the copybook content
+   * @param result - the preprocessed copybook
+   * @param copybookUsageTracker - the copybooks that include this one including itself
+   */
+  public void put(
+      @Nonnull Key key,
+      @Nonnull ResultWithErrors<PreprocessedInput> result,
+      @Nonnull List<CopybookUsage> copybookUsageTracker) {
+    SemanticContext semanticContext = result.getResult().getSemanticContext();
+    if (isRecursionReported(result.getErrors(), copybookUsageTracker)) {
+      return;
+    }
+    Map<String, Long> dependencies = new HashMap<>();
+    for (String name : semanticContext.getCopybooks().getUsages().keySet()) {
+      Long dependency = readDependency(name);
+      if (dependency == null) {
+        return;
+      }
+      dependencies.put(name, dependency);
+    }
+    Entry entry =
+        new Entry(
+            result.getResult().getInput(),
+            semanticContext.freeze(),
+            unmodifiableList(new ArrayList<>(result.getErrors())),
+            dependencies);
+    synchronized (this) {
+      results.put(key, entry);
+    }
+  }
+
+  private static boolean isRecursionReported(
+      List<SyntaxError> errors, List<CopybookUsage> copybookUsageTracker) {
+    Collection<Position> statements =
+        Optional.ofNullable(copybookUsageTracker.isEmpty() ? null : copybookUsageTracker.get(0))
+            .map(CopybookUsage::getUsages)
+            .orElse(emptyList());
+    return !statements.isEmpty()
+        && errors.stream().map(SyntaxError::getPosition).anyMatch(statements::contains);
+  }
+
+  private Map<String, Long> readDependencies(Entry entry) {
+    Map<String, Long> dependencies = new HashMap<>();
+    entry.getDependencies().keySet().forEach(name -> dependencies.put(name, readDependency(name)));
+    return dependencies;
+  }
+
+  /**
+   * @return the hash of the content of the given copybook in the copybook cache combined with its
+   *     length or null if the copybook is not resolved
+   */
+  private Long readDependency(String name) {
+    try {
+      CopybookStorable storable =
+          databus.getData(CopybookRepository.calculateUUID(new StringBuilder(name)));
+      return hash(storable.getContent()) * 31 + storable.getContent().length();
+    } catch (NoSuchElementException e) {
+      return null;
+    }
+  }
+
+  private static long hash(String text) {
+    long hash = FNV_OFFSET_BASIS;
+    for (int i = 0; i < text.length(); i++) {
+      hash = (hash ^ text.charAt(i)) * FNV_PRIME;
+    }
+    return hash;
+  }
+
+  /** The key of a preprocessed copybook that identifies its content and the including copybooks */
+  @Value
+  public static class Key {
+    private String uri;
+    private long contentHash;
+    private int contentLength;
+    private List<String> copybookNames;
+  }
+
+  @Value
+  private static class Entry {
+    private String input;
+    private SemanticContext semanticContext;
+    private List<SyntaxError> errors;
+    private Map<String, Long> dependencies;
+  }
+}
@@ -13,6 +13,7 @@
  */
 package com.ca.lsp.core.cobol.preprocessor.sub.document;
 
+import com.ca.lsp.core.cobol.engine.CancellationToken;
 import com.ca.lsp.core.cobol.model.PreprocessedInput;
 import com.ca.lsp.core.cobol.model.ResultWithErrors;
 import com.ca.lsp.core.cobol.semantics.SemanticContext;
@@ -31,6 +32,7 @@ public interface CobolSemanticParser {
    * @param code - COBOL program text to analyse
    * @param semanticContext - semantic context of the currently processed document to be filled in.
    * @param textDocumentSyncType - reflect the sync status of the document (DID_OPEN|DID_CHANGE)
+   * @param cancellationToken - the token to check if the analysis should stop
    * @return a PreprocessedInput - text and its semantic context with syntax errors if found or an
    *     empty list
    */
@@ -39,5 +41,6 @@ public interface CobolSemanticParser {
       @Nonnull String uri,
       @Nonnull String code,
       @Nonnull SemanticContext semanticContext,
-      String textDocumentSyncType);
+      String textDocumentSyncType,
+      @Nonnull CancellationToken cancellationToken);
 }
@@ -13,6 +13,7 @@
  */
 package com.ca.lsp.core.cobol.preprocessor.sub.document.impl;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
@@ -22,10 +23,13 @@ import com.ca.lsp.core.cobol.parser.CobolPreprocessorParser.ReplaceClauseContext
 
 /**
  * A replacement context that defines, which replaceables should be replaced by which replacements.
+ * The replaceables of the current REPLACE clauses are compiled into a {@link
+ * CobolReplacementMatcher} once, and it is reused until the clauses change.
  */
 public class CobolDocumentContext {
 
   private CobolReplacementMapping[] currentReplaceableReplacements;
+  private CobolReplacementMatcher matcher;
 
   private StringBuilder outputBuffer = new StringBuilder();
 
@@ -36,19 +40,34 @@ public class CobolDocumentContext {
   /** Replaces replaceables with replacements. */
   public void replaceReplaceablesByReplacements(final BufferedTokenStream tokens) {
     if (currentReplaceableReplacements != null) {
-      Arrays.sort(currentReplaceableReplacements);
+      if (matcher == null) {
+        matcher = compile(tokens);
+      }
+      outputBuffer = matcher.replace(outputBuffer);
+    }
+  }
 
-      for (final CobolReplacementMapping replaceableReplacement : currentReplaceableReplacements) {
-        final String currentOutput = outputBuffer.toString();
-        final String replacedOutput = replaceableReplacement.replace(currentOutput, tokens);
+  /** Compile the current mappings ordered by the length of the replaceables, the longest first */
+  private CobolReplacementMatcher compile(final BufferedTokenStream tokens) {
+    Arrays.sort(currentReplaceableReplacements);
+    final List<String> replaceables = new ArrayList<>();
+    final List<String> replacements = new ArrayList<>();
 
-        outputBuffer = new StringBuilder();
-        outputBuffer.append(replacedOutput);
+    for (final CobolReplacementMapping replaceableReplacement : currentReplaceableReplacements) {
+      final String replaceable = replaceableReplacement.getReplaceableText(tokens);
+      final String replacement = replaceableReplacement.getReplacementText(tokens);
+
+      if (replaceable != null && replacement != null) {
+        replaceables.add(replaceable);
+        replacements.add(replacement);
       }
     }
+    return new CobolReplacementMatcher(replaceables, replacements);
   }
 
   public void storeReplaceablesAndReplacements(final List<ReplaceClauseContext> replaceClauses) {
+    matcher = null;
+
     if (replaceClauses == null) {
       currentReplaceableReplacements = null;
     } else {
@@ -21,10 +21,6 @@ import com.ca.lsp.core.cobol.preprocessor.sub.util.TokenUtils;
 import lombok.Data;
 import org.antlr.v4.runtime.BufferedTokenStream;
 import org.antlr.v4.runtime.ParserRuleContext;
-import org.codehaus.plexus.util.StringUtils;
-
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /** A mapping from a replaceable to a replacement. */
 @Data
@@ -39,31 +35,6 @@ public class CobolReplacementMapping implements Comparable<CobolReplacementMappi
     return pseudoText.replaceAll("^==", "").replaceAll("==$", "").trim();
   }
 
-  /**
-   * Whitespace in Cobol replaceables matches line breaks. Hence, the replaceable search string has
-   * to be enhanced to a regex, which is returned by this function.
-   */
-  private String getRegexFromReplaceable(final String replaceable) {
-    final String result;
-
-    if (replaceable == null) {
-      result = null;
-    } else {
-      final String[] parts = StringUtils.split(replaceable);
-      final String[] regexParts = new String[parts.length];
-      final String regexSeparator = "[\\r\\n\\s]+";
-
-      for (int i = 0; i < parts.length; i++) {
-        final String part = parts[i];
-        regexParts[i] = Pattern.quote(part);
-      }
-
-      result = StringUtils.join(regexParts, regexSeparator);
-    }
-
-    return result;
-  }
-
   private String getText(final ParserRuleContext ctx, final BufferedTokenStream tokens) {
     if (ctx instanceof ReplaceableContext) {
       return getContextSameElement(((ReplaceableContext) ctx).replaceSameElement(), tokens);
@@ -88,25 +59,20 @@ public class CobolReplacementMapping implements Comparable<CobolReplacementMappi
     return null;
   }
 
-  protected String replace(final String string, final BufferedTokenStream tokens) {
-    final String replaceableString = getText(replaceable, tokens);
-    final String replacementString = getText(replacement, tokens);
-
-    final String result;
-
-    if (replaceableString != null && replacementString != null) {
-      // regex for the replaceable
-      final String replaceableRegex = getRegexFromReplaceable(replaceableString);
-
-      // regex for the replacement
-      final String quotedReplacementRegex = Matcher.quoteReplacement(replacementString);
-
-      result = Pattern.compile(replaceableRegex).matcher(string).replaceAll(quotedReplacementRegex);
-    } else {
-      result = string;
-    }
+  /**
+   * @param tokens the token stream of the document
+   * @return the text to replace or null if the replaceable has no text
+   */
+  String getReplaceableText(final BufferedTokenStream tokens) {
+    return getText(replaceable, tokens);
+  }
 
-    return result;
+  /**
+   * @param tokens the token stream of the document
+   * @return the text to put instead of the replaceable or null if the replacement has no text
+   */
+  String getReplacementText(final BufferedTokenStream tokens) {
+    return getText(replacement, tokens);
   }
 
   @Override
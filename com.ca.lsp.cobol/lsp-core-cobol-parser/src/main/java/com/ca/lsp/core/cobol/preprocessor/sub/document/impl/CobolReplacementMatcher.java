@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) 2020 Broadcom.
+ * The term "Broadcom" refers to Broadcom Inc. and/or its subsidiaries.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *   Broadcom, Inc. - initial API and implementation
+ */
+package com.ca.lsp.core.cobol.preprocessor.sub.document.impl;
+
+import org.codehaus.plexus.util.StringUtils;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * This class replaces all the replaceables of a REPLACE clause list in a single scan of the text.
+ * The replaceables are split into words, and a whitespace between the words matches any sequence
+ * of whitespace and line breaks in the text. So, the replaceables are put into an Aho-Corasick
+ * automaton over the text where each whitespace sequence is seen as a single space.
+ *
+ * <p>The replaceables have priorities: a replaceable that comes first wins over the ones that
+ * overlap it, regardless of their positions, and the matches of the same replaceable are taken from
+ * left to right, as if each replaceable was applied to the whole text in turn. Unlike such
+ * sequential application, the replaced text is not scanned again, so a replacement never matches
+ * the replaceables.
+ */
+final class CobolReplacementMatcher {
+  private static final char SEPARATOR = ' ';
+  private static final Comparator<Match> BY_PRIORITY =
+      Comparator.<Match>comparingInt(it -> it.replaceable).thenComparingInt(it -> it.start);
+
+  private final Node root = new Node();
+  private final List<String> replacements = new ArrayList<>();
+  private int maxLength;
+
+  /**
+   * Create a matcher for the given replaceables and their replacements
+   *
+   * @param replaceables the replaceables ordered by their priorities
+   * @param replacements the replacements of the replaceables with the same indexes
+   */
+  CobolReplacementMatcher(@Nonnull List<String> replaceables, @Nonnull List<String> replacements) {
+    for (int i = 0; i < replaceables.size(); i++) {
+      String normalized = StringUtils.join(StringUtils.split(replaceables.get(i)), " ");
+      if (!normalized.isEmpty()) {
+        add(normalized, this.replacements.size());
+        this.replacements.add(replacements.get(i));
+      }
+    }
+    link();
+  }
+
+  /**
+   * Replace all the replaceables in the given text
+   *
+   * @param text the text to replace the replaceables in
+   * @return a new text with the replaceables replaced or the given one if nothing was found
+   */
+  @Nonnull
+  StringBuilder replace(@Nonnull StringBuilder text) {
+    List<Match> matches = findMatches(text);
+    if (matches.isEmpty()) {
+      return text;
+    }
+    matches.sort(BY_PRIORITY);
+    TreeMap<Integer, Match> selected = new TreeMap<>();
+    for (Match match : matches) {
+      Map.Entry<Integer, Match> before = selected.floorEntry(match.start);
+      Map.Entry<Integer, Match> after = selected.ceilingEntry(match.start);
+      if ((before == null || before.getValue().stop <= match.start)
+          && (after == null || after.getKey() >= match.stop)) {
+        selected.put(match.start, match);
+      }
+    }
+
+    StringBuilder result = new StringBuilder(text.length());
+    int position = 0;
+    for (Match match : selected.values()) {
+      result.append(text, position, match.start).append(replacements.get(match.replaceable));
+      position = match.stop;
+    }
+    return result.append(text, position, text.length());
+  }
+
+  /**
+   * Scan the text with the automaton and collect all the matches of all the replaceables. The
+   * offsets of the last symbols are kept in a ring buffer to find the start of a match in the
+   * original text, since a single space of a replaceable may match several characters.
+   */
+  private List<Match> findMatches(CharSequence text) {
+    List<Match> matches = new ArrayList<>();
+    if (maxLength == 0) {
+      return matches;
+    }
+    int[] symbolStarts = new int[maxLength];
+    int symbols = 0;
+    Node node = root;
+    for (int i = 0; i < text.length(); i++) {
+      char symbol = text.charAt(i);
+      if (isWhitespace(symbol)) {
+        if (i > 0 && isWhitespace(text.charAt(i - 1))) {
+          continue;
+        }
+        symbol = SEPARATOR;
+      }
+      symbolStarts[symbols++ % maxLength] = i;
+      node = next(node, symbol);
+      for (Node found = node.pattern < 0 ? node.output : node;
+          found != null;
+          found = found.output) {
+        matches.add(
+            new Match(
+                found.pattern, symbolStarts[(symbols - found.depth) % maxLength], i + 1));
+      }
+    }
+    return matches;
+  }
+
+  private Node next(Node node, char symbol) {
+    Node current = node;
+    while (true) {
+      Node child = current.children.get(symbol);
+      if (child != null) {
+        return child;
+      }
+      if (current == root) {
+        return root;
+      }
+      current = current.failure;
+    }
+  }
+
+  private void add(String replaceable, int index) {
+    Node node = root;
+    for (int i = 0; i < replaceable.length(); i++) {
+      Node parent = node;
+      node = node.children.computeIfAbsent(replaceable.charAt(i), it -> new Node(parent.depth + 1));
+    }
+    if (node.pattern < 0) {
+      node.pattern = index;
+    }
+    maxLength = Math.max(maxLength, replaceable.length());
+  }
+
+  /** Build the failure and output links of the automaton in the breadth-first order */
+  private void link() {
+    Deque<Node> queue = new ArrayDeque<>();
+    root.children.values().forEach(
+        it -> {
+          it.failure = root;
+          queue.add(it);
+        });
+    while (!queue.isEmpty()) {
+      Node node = queue.poll();
+      for (Map.Entry<Character, Node> entry : node.children.entrySet()) {
+        Node child = entry.getValue();
+        child.failure = next(node.failure, entry.getKey());
+        child.output = child.failure.pattern < 0 ? child.failure.output : child.failure;
+        queue.add(child);
+      }
+    }
+  }
+
+  /** The same whitespace characters as matched by \s of the regular expressions */
+  private static boolean isWhitespace(char c) {
+    return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+  }
+
+  private static final class Node {
+    private final Map<Character, Node> children = new HashMap<>();
+    private final int depth;
+    private Node failure;
+    private Node output;
+    private int pattern = -1;
+
+    private Node() {
+      this(0);
+    }
+
+    private Node(int depth) {
+      this.depth = depth;
+    }
+  }
+
+  private static final class Match {
+    private final int replaceable;
+    private final int start;
+    private final int stop;
+
+    private Match(int replaceable, int start, int stop) {
+      this.replaceable = replaceable;
+      this.start = start;
+      this.stop = stop;
+    }
+  }
+}
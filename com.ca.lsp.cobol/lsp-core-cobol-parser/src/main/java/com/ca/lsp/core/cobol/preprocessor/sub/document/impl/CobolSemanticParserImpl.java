@@ -14,6 +14,9 @@
 package com.ca.lsp.core.cobol.preprocessor.sub.document.impl;
 
 import com.broadcom.lsp.domain.common.model.Position;
+import com.ca.lsp.core.cobol.engine.CancellableTokenStream;
+import com.ca.lsp.core.cobol.engine.CancellationToken;
+import com.ca.lsp.core.cobol.engine.DFACacheManager;
 import com.ca.lsp.core.cobol.model.CopybookSemanticContext;
 import com.ca.lsp.core.cobol.model.PreprocessedInput;
 import com.ca.lsp.core.cobol.model.ResultWithErrors;
@@ -43,10 +46,12 @@ import static java.util.Collections.emptyList;
  */
 public class CobolSemanticParserImpl implements CobolSemanticParser {
   private CopybookAnalysis analysis;
+  private DFACacheManager cacheManager;
 
   @Inject
-  public CobolSemanticParserImpl(CopybookAnalysis analysis) {
+  public CobolSemanticParserImpl(CopybookAnalysis analysis, DFACacheManager cacheManager) {
     this.analysis = analysis;
+    this.cacheManager = cacheManager;
   }
 
   @Nonnull
@@ -55,14 +60,16 @@ public class CobolSemanticParserImpl implements CobolSemanticParser {
       @Nonnull String uri,
       @Nonnull String code,
       @Nonnull SemanticContext semanticContext,
-      @Nonnull String textDocumentSyncType) {
+      @Nonnull String textDocumentSyncType,
+      @Nonnull CancellationToken cancellationToken) {
     // run the lexer
-    CobolPreprocessorLexer lexer = new CobolPreprocessorLexer(CharStreams.fromString(code));
+    CobolPreprocessorLexer lexer =
+        cacheManager.manage(new CobolPreprocessorLexer(CharStreams.fromString(code)));
     // get a list of matched tokens
-    CommonTokenStream tokens = new CommonTokenStream(lexer);
+    CommonTokenStream tokens = new CancellableTokenStream(lexer, cancellationToken);
 
     // pass the tokens to the parser
-    CobolPreprocessorParser parser = new CobolPreprocessorParser(tokens);
+    CobolPreprocessorParser parser = cacheManager.manage(new CobolPreprocessorParser(tokens));
 
     // specify our entry point
     StartRuleContext startRule = parser.startRule();
@@ -74,7 +81,7 @@ public class CobolSemanticParserImpl implements CobolSemanticParser {
 
     // analyze contained copy books
     ResultWithErrors<List<CopybookSemanticContext>> contexts =
-        processCopybooks(uri, semanticContext, textDocumentSyncType);
+        processCopybooks(uri, semanticContext, textDocumentSyncType, cancellationToken);
 
     buildCompleteVariableStructure(semanticContext, contexts);
 
@@ -89,7 +96,8 @@ public class CobolSemanticParserImpl implements CobolSemanticParser {
   private ResultWithErrors<List<CopybookSemanticContext>> processCopybooks(
       @Nonnull String documentUri,
       @Nonnull SemanticContext semanticContext,
-      String textDocumentSyncType) {
+      String textDocumentSyncType,
+      @Nonnull CancellationToken cancellationToken) {
     Multimap<String, Position> copybookNames = semanticContext.getCopybooks().getUsages();
 
     if (copybookNames.isEmpty()) {
@@ -99,7 +107,8 @@ public class CobolSemanticParserImpl implements CobolSemanticParser {
         documentUri,
         copybookNames,
         semanticContext.getCopybookUsageTracker(),
-        textDocumentSyncType);
+        textDocumentSyncType,
+        cancellationToken);
   }
 
   private void buildCompleteVariableStructure(
@@ -14,10 +14,12 @@
 package com.ca.lsp.core.cobol.preprocessor.sub.line.reader;
 
 import com.ca.lsp.core.cobol.model.ResultWithErrors;
+import com.ca.lsp.core.cobol.model.SyntaxError;
 import com.ca.lsp.core.cobol.preprocessor.sub.CobolLine;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import java.util.Iterator;
 import java.util.List;
 
 /**
@@ -34,4 +36,17 @@ public interface CobolLineReader {
    */
   @Nonnull
   ResultWithErrors<List<CobolLine>> processLines(@Nullable String uri, @Nonnull String lines);
+
+  /**
+   * Convert String with COBOL code into CobolLines lazily, i.e. each line is read only when it is
+   * requested from the iterator, so the lines can be processed further one by one.
+   *
+   * @param uri - URI of the currently open document
+   * @param lines - a String to be converted into CobolLines
+   * @param errors - a list to add the errors to when the lines are read
+   * @return an iterator of the COBOL lines
+   */
+  @Nonnull
+  Iterator<CobolLine> readLines(
+      @Nullable String uri, @Nonnull String lines, @Nonnull List<SyntaxError> errors);
 }
@@ -24,25 +24,30 @@ import com.ca.lsp.core.cobol.preprocessor.sub.line.reader.CobolLineReaderDelegat
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Scanner;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.NoSuchElementException;
 
 import static com.ca.lsp.core.cobol.preprocessor.ProcessingConstants.*;
-import static java.util.regex.Pattern.compile;
 
 /**
  * Preprocessor, which converts strings with COBOL code into a specific entities; analyzes and
  * processes line indicators. This implementation checks if the lines match the given format and
  * raises an error if not.
  *
+ * <p>The lines are read by a single scan over the document: the line breaks are the same as for
+ * {@link java.util.Scanner#nextLine()}, and the lines refer to the areas by their column offsets
+ * in the document, so no regular expressions are applied and no strings are created for them.
+ *
  * <p>Also, this class uses a compiler directives delegate to apply appropriate transformations.
+ * The delegate is called only for the lines that contain CBL or PROCESS keywords.
  */
 public class CobolLineReaderImpl implements CobolLineReader {
   private static final int INDICATOR_AREA_INDEX = 6;
-  private static final Pattern FIXED_FORMAT_PATTERN =
-      compile("^(.{6})" + INDICATOR_FIELD + "(.{0,4})(.{0,61})(.{0,8})");
+  private static final int MAX_LINE_LENGTH = 80;
+  private static final String CBL = "CBL ";
+  private static final String PROCESS = "PROCESS ";
+  private static final CobolLineReaderDelegate DELEGATE = new CompilerDirectivesTransformation();
 
   @Nonnull
   @Override
@@ -50,88 +55,154 @@ public class CobolLineReaderImpl implements CobolLineReader {
       @Nullable String documentURI, @Nonnull String lines) {
     List<SyntaxError> errors = new ArrayList<>();
     List<CobolLine> result = new ArrayList<>();
-    try (Scanner scanner = new Scanner(lines)) {
-      String currentLine;
-      CobolLine lastCobolLine = null;
-      int lineNumber = 0;
-
-      while (scanner.hasNextLine()) {
-        currentLine = scanner.nextLine();
+    readLines(documentURI, lines, errors).forEachRemaining(result::add);
+    return new ResultWithErrors<>(result, errors);
+  }
 
-        ResultWithErrors<CobolLine> output = parseLine(currentLine, documentURI, lineNumber);
+  @Nonnull
+  @Override
+  public Iterator<CobolLine> readLines(
+      @Nullable String documentURI, @Nonnull String lines, @Nonnull List<SyntaxError> errors) {
+    return new LineIterator(documentURI, lines, errors);
+  }
 
-        CobolLine currentCobolLine = output.getResult();
-        errors.addAll(output.getErrors());
+  /**
+   * Split the given range of the text into the areas of a COBOL line
+   *
+   * @param text the document text, the line refers to it instead of copying the areas
+   * @param start the offset of the line start
+   * @param end the offset of the line end excluding the line break
+   * @param uri URI of the document
+   * @param lineNumber zero-based number of the line
+   * @param errors the list to add the format errors to
+   * @return the COBOL line with the areas of the given range
+   */
+  @Nonnull
+  private CobolLine parseLine(
+      @Nonnull String text,
+      int start,
+      int end,
+      @Nullable String uri,
+      int lineNumber,
+      @Nonnull List<SyntaxError> errors) {
+    if (containsDirective(text, start, end)) {
+      text = DELEGATE.apply(text.substring(start, end));
+      start = 0;
+      end = text.length();
+    }
+    end = checkFormatCorrect(text, start, end, uri, lineNumber, errors);
 
-        currentCobolLine.setPredecessor(lastCobolLine);
-        result.add(currentCobolLine);
+    CobolLine cobolLine = new CobolLine(text, start, end);
+    if (end - start > INDICATOR_AREA_INDEX) {
+      char indicator = text.charAt(start + INDICATOR_AREA_INDEX);
+      cobolLine.setIndicatorArea(indicatorArea(indicator));
+      cobolLine.setType(determineType(indicator));
+    }
+    cobolLine.setNumber(lineNumber);
+    return cobolLine;
+  }
 
-        lineNumber++;
-        lastCobolLine = currentCobolLine;
-      }
+  /**
+   * Check if the line matches the fixed format, i.e. it has a valid indicator and it is not longer
+   * than 80 characters. A too long line is cut to fit the format.
+   *
+   * @return the offset of the line end after the format check
+   */
+  private int checkFormatCorrect(
+      @Nonnull String text,
+      int start,
+      int end,
+      @Nullable String uri,
+      int lineNumber,
+      @Nonnull List<SyntaxError> errors) {
+    int length = end - start;
+    if (length <= INDICATOR_AREA_INDEX) {
+      return end;
     }
-    return new ResultWithErrors<>(result, errors);
+    if (!isIndicator(text.charAt(start + INDICATOR_AREA_INDEX))) {
+      // format error could appear at the indicator area index, for now
+      errors.add(registerFormatError(uri, lineNumber, INDICATOR_AREA_INDEX, 0));
+      return end;
+    }
+    if (length > MAX_LINE_LENGTH) {
+      errors.add(
+          registerFormatError(uri, lineNumber, MAX_LINE_LENGTH, length - MAX_LINE_LENGTH));
+      return start + MAX_LINE_LENGTH;
+    }
+    return end;
   }
 
-  @Nonnull
-  private ResultWithErrors<CobolLine> parseLine(
-      @Nonnull String line, @Nullable String uri, int lineNumber) {
-    CobolLine cobolLine = new CobolLine();
-
-    line = getDelegate().apply(line);
-
-    Matcher matcher = FIXED_FORMAT_PATTERN.matcher(line);
-    ResultWithErrors<String> result = checkFormatCorrect(line, uri, lineNumber, matcher);
-    line = result.getResult();
-
-    if (line.length() > 0) {
-      for (int i = line.length(); i > 0; i--) {
-        if (i > 72) {
-          cobolLine.setCommentArea(line.substring(72, i));
-          i = 73;
-        } else if (i > 11) {
-          cobolLine.setContentAreaB(line.substring(11, i));
-          i = 12;
-        } else if (i > 7) {
-          cobolLine.setContentAreaA(line.substring(7, i));
-          i = 8;
-        } else if (i > 6) {
-          String indicatorArea = line.substring(6, 7);
-          cobolLine.setIndicatorArea(indicatorArea);
-          cobolLine.setType(determineType(indicatorArea));
-          i = 7;
-        } else {
-          cobolLine.setSequenceArea(line.substring(0, i));
-          i = 0;
-        }
+  /**
+   * Check if the line may be a compiler directive, i.e. it contains CBL or PROCESS keyword followed
+   * by a space and some content. The delegate makes the final decision.
+   */
+  private boolean containsDirective(@Nonnull String text, int start, int end) {
+    for (int i = start; i < end; i++) {
+      char c = text.charAt(i);
+      if ((c == 'C' || c == 'c') && isKeyword(text, i, end, CBL)
+          || (c == 'P' || c == 'p') && isKeyword(text, i, end, PROCESS)) {
+        return true;
       }
     }
+    return false;
+  }
 
-    cobolLine.setNumber(lineNumber);
+  private boolean isKeyword(@Nonnull String text, int offset, int end, @Nonnull String keyword) {
+    return offset + keyword.length() < end
+        && text.regionMatches(true, offset, keyword, 0, keyword.length());
+  }
 
-    return new ResultWithErrors<>(cobolLine, result.getErrors());
+  private boolean isIndicator(char indicator) {
+    switch (indicator) {
+      case ' ':
+      case '\t':
+      case '\u000B':
+      case '\f':
+      case '*':
+      case '-':
+      case '/':
+      case 'D':
+      case 'd':
+      case '$':
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  @Nonnull
+  private String indicatorArea(char indicator) {
+    switch (indicator) {
+      case ' ':
+        return WS;
+      case '*':
+        return CHAR_ASTERISK;
+      case '-':
+        return CHAR_MINUS;
+      default:
+        return String.valueOf(indicator);
+    }
   }
 
   @Nonnull
-  private CobolLineTypeEnum determineType(@Nonnull String indicatorArea) {
+  private CobolLineTypeEnum determineType(char indicator) {
     CobolLineTypeEnum result;
 
-    switch (indicatorArea) {
-      case CHAR_D_UPPER:
-      case CHAR_D_LOWER:
+    switch (indicator) {
+      case 'D':
+      case 'd':
         result = CobolLineTypeEnum.DEBUG;
         break;
-      case CHAR_MINUS:
+      case '-':
         result = CobolLineTypeEnum.CONTINUATION;
         break;
-      case CHAR_ASTERISK:
-      case CHAR_SLASH:
+      case '*':
+      case '/':
         result = CobolLineTypeEnum.COMMENT;
         break;
-      case CHAR_DOLLAR_SIGN:
+      case '$':
         result = CobolLineTypeEnum.COMPILER_DIRECTIVE;
         break;
-      case WS:
       default:
         result = CobolLineTypeEnum.NORMAL;
         break;
@@ -140,29 +211,58 @@ public class CobolLineReaderImpl implements CobolLineReader {
     return result;
   }
 
-  @Nonnull
-  private ResultWithErrors<String> checkFormatCorrect(
-      @Nonnull String line, @Nullable String uri, int lineNumber, @Nonnull Matcher matcher) {
-    int errorLength = 0;
-    int charPosition;
-    List<SyntaxError> errors = new ArrayList<>();
-    if (!matcher.matches() && line.length() > INDICATOR_AREA_INDEX) {
-      if (matcher.lookingAt()) {
-        charPosition = matcher.end();
-        errorLength = line.length() - 80;
-      } else {
-        charPosition =
-            INDICATOR_AREA_INDEX; // format error could appear at the indicator area index, for now
+  /** This iterator reads the lines of a document one by one and binds each to the previous one */
+  private class LineIterator implements Iterator<CobolLine> {
+    private final String uri;
+    private final String text;
+    private final List<SyntaxError> errors;
+    private CobolLine lastCobolLine;
+    private int lineNumber;
+    private int start;
+
+    LineIterator(@Nullable String uri, @Nonnull String text, @Nonnull List<SyntaxError> errors) {
+      this.uri = uri;
+      this.text = text;
+      this.errors = errors;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return start < text.length();
+    }
+
+    @Override
+    public CobolLine next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
       }
-      errors.add(registerFormatError(uri, lineNumber, charPosition, errorLength));
-      line = line.substring(0, line.length() - errorLength);
+      int end = start;
+      while (end < text.length() && !isLineBreak(text.charAt(end))) {
+        end++;
+      }
+
+      CobolLine currentCobolLine = parseLine(text, start, end, uri, lineNumber, errors);
+      currentCobolLine.setPredecessor(lastCobolLine);
+
+      lineNumber++;
+      lastCobolLine = currentCobolLine;
+      start = skipLineBreak(text, end);
+      return currentCobolLine;
     }
-    return new ResultWithErrors<>(line, errors);
   }
 
-  @Nonnull
-  private CobolLineReaderDelegate getDelegate() {
-    return new CompilerDirectivesTransformation();
+  /** The line breaks are the same as recognized by {@link java.util.Scanner#nextLine()} */
+  private static boolean isLineBreak(char c) {
+    return c == '\n' || c == '\r' || c == '\u2028' || c == '\u2029' || c == '\u0085';
+  }
+
+  private static int skipLineBreak(@Nonnull String text, int offset) {
+    if (offset + 1 < text.length()
+        && text.charAt(offset) == '\r'
+        && text.charAt(offset + 1) == '\n') {
+      return offset + 2;
+    }
+    return offset + 1;
   }
 
   @Nonnull
@@ -13,13 +13,7 @@
  */
 package com.ca.lsp.core.cobol.preprocessor.sub.line.rewriter;
 
-import com.ca.lsp.core.cobol.preprocessor.sub.CobolLine;
-
 /**
  * Preprocessor, which analyzes and processes line indicators.
  */
-public interface CobolLineIndicatorProcessor extends CobolLineReWriter {
-
-	CobolLine processLine(CobolLine line);
-
-}
+public interface CobolLineIndicatorProcessor extends CobolLineReWriter {}
@@ -17,11 +17,24 @@ import com.ca.lsp.core.cobol.preprocessor.sub.CobolLine;
 
 import java.util.List;
 
+import static java.util.stream.Collectors.toList;
+
 /**
  * The implementations of this interface should receive a list of lines and apply some changes on
  * each line. It should not change order of the lines, add or remove them.
  */
 public interface CobolLineReWriter {
 
-  List<CobolLine> processLines(List<CobolLine> lines);
+  /**
+   * Apply the changes on the given line. The lines should be processed in the order of the
+   * document, since the result may depend on the neighbour lines.
+   *
+   * @param line - a line to process
+   * @return the processed line or the given one if nothing changed
+   */
+  CobolLine processLine(CobolLine line);
+
+  default List<CobolLine> processLines(List<CobolLine> lines) {
+    return lines.stream().map(this::processLine).collect(toList());
+  }
 }
@@ -17,10 +17,8 @@ import com.ca.lsp.core.cobol.preprocessor.sub.CobolLine;
 import com.ca.lsp.core.cobol.preprocessor.sub.line.rewriter.CobolLineReWriter;
 
 import javax.annotation.Nonnull;
-import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
-import java.util.stream.Collectors;
 
 import static com.ca.lsp.core.cobol.preprocessor.ProcessingConstants.COMMENT_ENTRY_TAG;
 import static com.ca.lsp.core.cobol.preprocessor.ProcessingConstants.WS;
@@ -40,17 +38,16 @@ public class CobolCommentEntriesMarkerImpl implements CobolLineReWriter {
         "AUTHOR.", "INSTALLATION.", "DATE-WRITTEN.", "DATE-COMPILED.", "SECURITY."
       };
 
+  private static final String TRIGGER_FIRST_CHARS = "AIDS";
+
   private static final Pattern COMMENT_ENTRY_TRIGGER_LINE =
       compile("([ \\t]*)(" + join("|", TRIGGERS_START) + ")(.+)", CASE_INSENSITIVE);
 
-  @Override
-  public List<CobolLine> processLines(@Nonnull List<CobolLine> lines) {
-    return lines.stream().map(this::escapeCommentEntry).collect(Collectors.toList());
-  }
-
   /** Escapes in a given line a potential comment entry. */
   @Nonnull
-  private CobolLine escapeCommentEntry(@Nonnull CobolLine line) {
+  @Override
+  public CobolLine processLine(@Nonnull CobolLine line) {
+    if (!mayStartWithTrigger(line.getContentArea())) return line;
     Matcher matcher = COMMENT_ENTRY_TRIGGER_LINE.matcher(line.getContentArea());
 
     if (!matcher.matches()) return line;
@@ -61,4 +58,18 @@ public class CobolCommentEntriesMarkerImpl implements CobolLineReWriter {
 
     return copyCobolLineWithContentArea(newContentArea, line);
   }
+
+  /**
+   * Check the first character after the leading whitespace before applying the regular
+   * expression, since most of the lines cannot start with a trigger
+   */
+  private boolean mayStartWithTrigger(@Nonnull CharSequence contentArea) {
+    int index = 0;
+    while (index < contentArea.length()
+        && (contentArea.charAt(index) == ' ' || contentArea.charAt(index) == '\t')) {
+      index++;
+    }
+    return index < contentArea.length()
+        && TRIGGER_FIRST_CHARS.indexOf(Character.toUpperCase(contentArea.charAt(index))) >= 0;
+  }
 }
@@ -17,14 +17,12 @@ import com.ca.lsp.core.cobol.preprocessor.sub.CobolLine;
 import com.ca.lsp.core.cobol.preprocessor.sub.line.rewriter.CobolLineReWriter;
 
 import javax.annotation.Nonnull;
-import java.util.List;
 import java.util.regex.Pattern;
 
 import static com.ca.lsp.core.cobol.preprocessor.ProcessingConstants.COMMENT_TAG;
 import static com.ca.lsp.core.cobol.preprocessor.ProcessingConstants.WS;
 import static com.ca.lsp.core.cobol.preprocessor.sub.util.CobolLineUtils.copyCobolLineWithContentArea;
 import static java.util.regex.Pattern.compile;
-import static java.util.stream.Collectors.toList;
 
 /**
  * The pre-processor which looks for denormalized lines and rewrites them. A line is a denormalized
@@ -35,25 +33,33 @@ public class CobolInlineCommentEntriesNormalizerImpl implements CobolLineReWrite
   private static final Pattern DENORMALIZED_COMMENT_ENTRY = compile("\\*>[^ ]");
 
   /**
-   * Check all the lines if they have denormalized comment entries and normalize them.
+   * Check the line if it has denormalized comment entries and normalize them.
    *
-   * @param lines - a list of lines to process
-   * @return list of normalized lines
+   * @param line - a line to process
+   * @return normalized line
    */
   @Override
   @Nonnull
-  public List<CobolLine> processLines(@Nonnull List<CobolLine> lines) {
-    return lines.stream().map(this::normalizeLine).collect(toList());
-  }
-
-  @Nonnull
-  private CobolLine normalizeLine(@Nonnull CobolLine line) {
+  public CobolLine processLine(@Nonnull CobolLine line) {
     if (isNormal(line)) return line;
-    String newContentArea = line.getContentArea().replace(COMMENT_TAG, COMMENT_TAG + WS);
+    String newContentArea =
+        line.getContentArea().toString().replace(COMMENT_TAG, COMMENT_TAG + WS);
     return copyCobolLineWithContentArea(newContentArea, line);
   }
 
   private boolean isNormal(@Nonnull CobolLine line) {
-    return !DENORMALIZED_COMMENT_ENTRY.matcher(line.getContentArea()).find();
+    CharSequence contentArea = line.getContentArea();
+    return !containsCommentTag(contentArea)
+        || !DENORMALIZED_COMMENT_ENTRY.matcher(contentArea).find();
+  }
+
+  /** Check the comment tag without a regular expression, since most of the lines don't have it */
+  private boolean containsCommentTag(@Nonnull CharSequence contentArea) {
+    for (int i = 0; i < contentArea.length() - 1; i++) {
+      if (contentArea.charAt(i) == '*' && contentArea.charAt(i + 1) == '>') {
+        return true;
+      }
+    }
+    return false;
   }
 }
@@ -14,13 +14,13 @@
 package com.ca.lsp.core.cobol.preprocessor.sub.line.rewriter.impl;
 
 import com.ca.lsp.core.cobol.preprocessor.sub.CobolLine;
+import com.ca.lsp.core.cobol.preprocessor.sub.CobolLineArea;
 import com.ca.lsp.core.cobol.preprocessor.sub.CobolLineTypeEnum;
 import com.ca.lsp.core.cobol.preprocessor.sub.line.rewriter.CobolLineIndicatorProcessor;
 import com.ca.lsp.core.cobol.preprocessor.sub.util.CobolLineUtils;
 import org.apache.commons.lang3.StringUtils;
 
-import java.util.List;
-import java.util.stream.Collectors;
+import java.util.regex.Pattern;
 
 import static com.ca.lsp.core.cobol.preprocessor.ProcessingConstants.COMMENT_TAG;
 import static com.ca.lsp.core.cobol.preprocessor.ProcessingConstants.WS;
@@ -29,15 +29,8 @@ public class CobolLineIndicatorProcessorImpl implements CobolLineIndicatorProces
 
   private static final String EMPTY_STRING = "";
   private static final int AREA_A_FILLER = 5;
-  private static final String DOUBLE_QUOTE_LITERAL = "\"([^\"]|\"\"|'')*\"";
-  private static final String SINGLE_QUOTE_LITERAL = "'([^']|''|\"\")*'";
-  private static final String LEADING_WHITESPACE = "^\\s+";
-  private static final String TRAILING_WHITESPACE = "\\s+$";
-
-  @Override
-  public List<CobolLine> processLines(final List<CobolLine> lines) {
-    return lines.stream().map(this::processLine).collect(Collectors.toList());
-  }
+  private static final Pattern DOUBLE_QUOTE_LITERAL = Pattern.compile("\"([^\"]|\"\"|'')*\"");
+  private static final Pattern SINGLE_QUOTE_LITERAL = Pattern.compile("'([^']|''|\"\")*'");
 
   /**
    * Normalizes a line by stripping the sequence number and line indicator, and interpreting the
@@ -45,7 +38,7 @@ public class CobolLineIndicatorProcessorImpl implements CobolLineIndicatorProces
    */
   @Override
   public CobolLine processLine(final CobolLine line) {
-    final String conditionalRightTrimmedContentArea = conditionalRightTrimContentArea(line);
+    final CharSequence conditionalRightTrimmedContentArea = conditionalRightTrimContentArea(line);
     final CobolLine result;
 
     switch (line.getType()) {
@@ -73,10 +66,11 @@ public class CobolLineIndicatorProcessorImpl implements CobolLineIndicatorProces
   }
 
   private CobolLine processContinuationLine(
-      CobolLine line, String conditionalRightTrimmedContentArea) {
+      CobolLine line, CharSequence conditionalRightTrimmedContentArea) {
     CobolLine result;
 
-    final String trimmedContentArea = trimLeadingWhitespace(conditionalRightTrimmedContentArea);
+    final CharSequence trimmedContentArea =
+        trimLeadingWhitespace(conditionalRightTrimmedContentArea);
     if (StringUtils.isBlank(conditionalRightTrimmedContentArea)) {
       result = CobolLineUtils.copyCobolLineWithIndicatorAndContentArea(WS, EMPTY_STRING, line);
     }
@@ -133,20 +127,25 @@ public class CobolLineIndicatorProcessorImpl implements CobolLineIndicatorProces
       result =
           CobolLineUtils.copyCobolLineWithIndicatorAndContentArea(
               WS,
-              trimLeadingWhitespace(conditionalRightTrimmedContentArea.substring(AREA_A_FILLER)),
+              trimLeadingWhitespace(conditionalRightTrimmedContentArea.subSequence(
+                      AREA_A_FILLER, conditionalRightTrimmedContentArea.length())),
               line);
     }
     return result;
   }
 
-  private String conditionalRightTrimContentArea(final CobolLine line) {
+  private CharSequence conditionalRightTrimContentArea(final CobolLine line) {
     return !isNextLineContinuation(line) || !isEndingWithOpenLiteral(line)
         ? rightTrimContentArea(line.getContentArea())
         : line.getContentArea();
   }
 
   private boolean isEndingWithOpenLiteral(final CobolLine line) {
-    final String contentAreaWithoutStringLiterals = removeStringLiterals(line.getContentArea());
+    final CobolLineArea contentArea = line.getContentArea();
+    if (!StringUtils.containsAny(contentArea, '"', '\'')) {
+      return false;
+    }
+    final String contentAreaWithoutStringLiterals = removeStringLiterals(contentArea);
     return contentAreaWithoutStringLiterals.contains("\"")
         || contentAreaWithoutStringLiterals.contains("'");
   }
@@ -161,43 +160,67 @@ public class CobolLineIndicatorProcessorImpl implements CobolLineIndicatorProces
         && (checkStringEndsWithQuoteMark(line.getPredecessor().getContentArea()));
   }
 
-  private boolean checkStringEndsWithQuoteMark(String stringToCheck) {
-    return stringToCheck.endsWith("\"") || stringToCheck.endsWith("'");
+  private boolean checkStringEndsWithQuoteMark(CharSequence stringToCheck) {
+    return stringToCheck.length() > 0
+        && isQuoteMark(stringToCheck.charAt(stringToCheck.length() - 1));
   }
 
-  private boolean checkStringStartsWithQuoteMark(String stringToCheck) {
-    return stringToCheck.startsWith("\"") || stringToCheck.startsWith("'");
+  private boolean checkStringStartsWithQuoteMark(CharSequence stringToCheck) {
+    return stringToCheck.length() > 0 && isQuoteMark(stringToCheck.charAt(0));
   }
 
-  private String removeStringLiterals(final String contentArea) {
-    return contentArea
-        .replaceAll(DOUBLE_QUOTE_LITERAL, EMPTY_STRING)
-        .replaceAll(SINGLE_QUOTE_LITERAL, EMPTY_STRING);
+  private boolean isQuoteMark(char c) {
+    return c == '"' || c == '\'';
   }
 
-  private String repairTrailingComma(final String contentArea) {
-    /*
-     * repair trimmed whitespace after comma separator
-     */
-    return (!contentArea.isEmpty() && (contentArea.endsWith(",") || contentArea.endsWith(";")))
-        ? contentArea + WS
-        : contentArea;
+  private String removeStringLiterals(final CharSequence contentArea) {
+    return SINGLE_QUOTE_LITERAL
+        .matcher(DOUBLE_QUOTE_LITERAL.matcher(contentArea).replaceAll(EMPTY_STRING))
+        .replaceAll(EMPTY_STRING);
   }
 
-  private String rightTrimContentArea(final String contentArea) {
-    final String contentAreaWithTrimmedTrailingWhitespace = trimTrailingWhitespace(contentArea);
-    return repairTrailingComma(contentAreaWithTrimmedTrailingWhitespace);
+  /**
+   * Trim the trailing whitespace, but repair the one after a comma separator. The result refers to
+   * the given content area if it already has a space after the separator.
+   */
+  private CharSequence rightTrimContentArea(final CharSequence contentArea) {
+    final int end = trimTrailingWhitespace(contentArea);
+    if (end == 0 || !isSeparator(contentArea.charAt(end - 1))) {
+      return contentArea.subSequence(0, end);
+    }
+    if (end < contentArea.length() && contentArea.charAt(end) == ' ') {
+      return contentArea.subSequence(0, end + 1);
+    }
+    return contentArea.subSequence(0, end) + WS;
+  }
+
+  private boolean isSeparator(char c) {
+    return c == ',' || c == ';';
   }
 
-  private String trimLeadingChar(final String contentArea) {
-    return contentArea.substring(1);
+  private CharSequence trimLeadingChar(final CharSequence contentArea) {
+    return contentArea.subSequence(1, contentArea.length());
   }
 
-  private String trimLeadingWhitespace(final String contentArea) {
-    return contentArea.replaceAll(LEADING_WHITESPACE, EMPTY_STRING);
+  private CharSequence trimLeadingWhitespace(final CharSequence contentArea) {
+    int start = 0;
+    while (start < contentArea.length() && isWhitespace(contentArea.charAt(start))) {
+      start++;
+    }
+    return contentArea.subSequence(start, contentArea.length());
+  }
+
+  /** @return the length of the given content area without the trailing whitespace */
+  private int trimTrailingWhitespace(final CharSequence contentArea) {
+    int end = contentArea.length();
+    while (end > 0 && isWhitespace(contentArea.charAt(end - 1))) {
+      end--;
+    }
+    return end;
   }
 
-  private String trimTrailingWhitespace(final String contentArea) {
-    return contentArea.replaceAll(TRAILING_WHITESPACE, EMPTY_STRING);
+  /** The same whitespace characters as matched by \s of the regular expressions */
+  private boolean isWhitespace(char c) {
+    return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
   }
 }
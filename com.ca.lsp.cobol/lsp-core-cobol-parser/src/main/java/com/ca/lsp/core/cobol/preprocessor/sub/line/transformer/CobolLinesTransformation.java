@@ -14,6 +14,7 @@
 package com.ca.lsp.core.cobol.preprocessor.sub.line.transformer;
 
 import com.ca.lsp.core.cobol.model.ResultWithErrors;
+import com.ca.lsp.core.cobol.model.SyntaxError;
 import com.ca.lsp.core.cobol.preprocessor.sub.CobolLine;
 
 import java.util.List;
@@ -25,4 +26,22 @@ import java.util.List;
 public interface CobolLinesTransformation {
 
   ResultWithErrors<List<CobolLine>> transformLines(String documentURI, List<CobolLine> lines);
+
+  /**
+   * Transform a single line the same way as {@link #transformLines(String, List)} does, so the
+   * lines can be processed one by one.
+   *
+   * @param documentURI - URI of the processing document
+   * @param lineNumber - number of the line in the document
+   * @param previousLine - the line before the given one or null if it is the first one
+   * @param line - the line to transform
+   * @param errors - a list to add the errors to if found
+   * @return the transformed line
+   */
+  CobolLine transformLine(
+      String documentURI,
+      int lineNumber,
+      CobolLine previousLine,
+      CobolLine line,
+      List<SyntaxError> errors);
 }
@@ -52,17 +52,25 @@ public class ContinuationLineTransformation implements CobolLinesTransformation
     CobolLine previousLine = null;
     for (int i = 0; i < lines.size(); i++) {
       CobolLine cobolLine = lines.get(i);
-
-      Optional.ofNullable(checkContinuationLine(documentURI, i, cobolLine)).ifPresent(errors::add);
-      Optional.ofNullable(checkIfStringClosedCorrectly(previousLine, documentURI, i, cobolLine))
-          .ifPresent(errors::add);
-
+      result.add(transformLine(documentURI, i, previousLine, cobolLine, errors));
       previousLine = cobolLine;
-      result.add(cobolLine);
     }
     return new ResultWithErrors<>(result, errors);
   }
 
+  @Override
+  public CobolLine transformLine(
+      String documentURI,
+      int lineNumber,
+      CobolLine previousLine,
+      CobolLine line,
+      List<SyntaxError> errors) {
+    Optional.ofNullable(checkContinuationLine(documentURI, lineNumber, line)).ifPresent(errors::add);
+    Optional.ofNullable(checkIfStringClosedCorrectly(previousLine, documentURI, lineNumber, line))
+        .ifPresent(errors::add);
+    return line;
+  }
+
   /**
    * Check if line is a continuation one and performs pattern check
    *
@@ -124,16 +132,16 @@ public class ContinuationLineTransformation implements CobolLinesTransformation
     if (CobolLineTypeEnum.COMMENT.equals(cobolLine.getType()))
       return false; // Do not process comment lines
 
-    String cobolLineToCheck = cobolLine.getContentAreaA() + cobolLine.getContentAreaB();
+    CharSequence cobolLineToCheck = cobolLine.getContentArea();
     String startChar = findQuoteOpeningChar(cobolLineToCheck);
 
     if (startChar == null) return false;
     return isStringMatchOdd(cobolLineToCheck, startChar);
   }
 
-  private String findQuoteOpeningChar(String cobolLineToCheck) {
-    int indexOfSingle = cobolLineToCheck.indexOf('\'');
-    int indexOfDouble = cobolLineToCheck.indexOf('"');
+  private String findQuoteOpeningChar(CharSequence cobolLineToCheck) {
+    int indexOfSingle = StringUtils.indexOf(cobolLineToCheck, '\'');
+    int indexOfDouble = StringUtils.indexOf(cobolLineToCheck, '"');
 
     if (indexOfSingle == indexOfDouble) return null;
 
@@ -142,7 +150,7 @@ public class ContinuationLineTransformation implements CobolLinesTransformation
     return indexOfSingle > indexOfDouble ? "\"" : "'";
   }
 
-  private boolean isStringMatchOdd(String cobolLineToCheck, String substring) {
+  private boolean isStringMatchOdd(CharSequence cobolLineToCheck, String substring) {
     return StringUtils.countMatches(cobolLineToCheck, substring) % 2 != 0;
   }
 
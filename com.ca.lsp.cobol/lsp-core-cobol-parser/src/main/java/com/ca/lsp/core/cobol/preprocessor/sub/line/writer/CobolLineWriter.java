@@ -15,9 +15,14 @@ package com.ca.lsp.core.cobol.preprocessor.sub.line.writer;
 
 import com.ca.lsp.core.cobol.preprocessor.sub.CobolLine;
 
-import java.util.List;
-
 public interface CobolLineWriter {
 
-	String serialize(List<CobolLine> lines);
+  /**
+   * Serialize the lines into a text that is used for the further processing. The lines are
+   * iterated only once, so they can be produced lazily.
+   *
+   * @param lines - the lines to serialize
+   * @return the text of the lines
+   */
+  String serialize(Iterable<CobolLine> lines);
 }
@@ -16,9 +16,7 @@ package com.ca.lsp.core.cobol.preprocessor.sub.line.writer.impl;
 import com.ca.lsp.core.cobol.preprocessor.sub.CobolLine;
 import com.ca.lsp.core.cobol.preprocessor.sub.CobolLineTypeEnum;
 import com.ca.lsp.core.cobol.preprocessor.sub.line.writer.CobolLineWriter;
-import org.apache.commons.lang3.StringUtils;
 
-import java.util.List;
 import java.util.stream.IntStream;
 
 import static com.ca.lsp.core.cobol.preprocessor.ProcessingConstants.BLANK_SEQUENCE_AREA;
@@ -27,7 +25,7 @@ import static com.ca.lsp.core.cobol.preprocessor.ProcessingConstants.NEWLINE;
 public class CobolLineWriterImpl implements CobolLineWriter {
 
   @Override
-  public String serialize(final List<CobolLine> lines) {
+  public String serialize(final Iterable<CobolLine> lines) {
     final StringBuilder sb = new StringBuilder();
     int counter = 0;
 
@@ -62,11 +60,13 @@ public class CobolLineWriterImpl implements CobolLineWriter {
   /**
    * We need to remove the opening quote from a continuation line to concatenate string correctly
    */
-  private String removeStartingQuote(final CobolLine line) {
-    String continuation = StringUtils.stripStart(line.getContentArea(), null);
-    if (continuation.startsWith("'") || continuation.startsWith("\""))
-      continuation = continuation.substring(1);
-    return continuation;
+  private CharSequence removeStartingQuote(final CobolLine line) {
+    CharSequence content = line.getContentArea();
+    int start = 0;
+    while (start < content.length() && Character.isWhitespace(content.charAt(start))) start++;
+    if (start < content.length() && (content.charAt(start) == '\'' || content.charAt(start) == '"'))
+      start++;
+    return content.subSequence(start, content.length());
   }
 
   /**
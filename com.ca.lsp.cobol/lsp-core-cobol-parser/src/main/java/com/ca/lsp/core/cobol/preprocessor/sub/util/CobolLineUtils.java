@@ -25,7 +25,8 @@ import javax.annotation.Nonnull;
 public class CobolLineUtils {
 
   /**
-   * Copy a given CobolLine and put there the given content
+   * Copy a given CobolLine and put there the given content. The copy shares the text of the given
+   * line, so if the content is a part of its content area, no characters are copied.
    *
    * @param contentArea - content to put
    * @param line - line to be copied.
@@ -33,10 +34,9 @@ public class CobolLineUtils {
    */
   @Nonnull
   public static CobolLine copyCobolLineWithContentArea(
-      @Nonnull String contentArea, @Nonnull CobolLine line) {
+      @Nonnull CharSequence contentArea, @Nonnull CobolLine line) {
     CobolLine cobolLine = copyCobolLine(line);
-    cobolLine.setContentAreaA(extractContentAreaA(contentArea));
-    cobolLine.setContentAreaB(extractContentAreaB(contentArea));
+    cobolLine.setContentArea(contentArea);
     return cobolLine;
   }
   /**
@@ -50,11 +50,10 @@ public class CobolLineUtils {
    */
   @Nonnull
   public CobolLine copyCobolLineWithIndicatorAndContentArea(
-      @Nonnull String indicatorArea, @Nonnull String contentArea, @Nonnull CobolLine line) {
+      @Nonnull String indicatorArea, @Nonnull CharSequence contentArea, @Nonnull CobolLine line) {
     CobolLine cobolLine = copyCobolLine(line);
     cobolLine.setIndicatorArea(indicatorArea);
-    cobolLine.setContentAreaA(extractContentAreaA(contentArea));
-    cobolLine.setContentAreaB(extractContentAreaB(contentArea));
+    cobolLine.setContentArea(contentArea);
     return cobolLine;
   }
   /**
@@ -74,26 +73,9 @@ public class CobolLineUtils {
 
   @Nonnull
   private CobolLine copyCobolLine(@Nonnull CobolLine line) {
-    CobolLine cobolLine = new CobolLine();
-    cobolLine.setSequenceArea(line.getSequenceArea());
-    cobolLine.setIndicatorArea(line.getIndicatorArea());
-    cobolLine.setContentAreaA(line.getContentAreaA());
-    cobolLine.setContentAreaB(line.getContentAreaB());
-    cobolLine.setCommentArea(line.getCommentArea());
-    cobolLine.setNumber(line.getNumber());
-    cobolLine.setType(line.getType());
+    CobolLine cobolLine = new CobolLine(line);
     cobolLine.setPredecessor(line.getPredecessor());
     cobolLine.setSuccessor(line.getSuccessor());
     return cobolLine;
   }
-
-  @Nonnull
-  private String extractContentAreaA(@Nonnull String contentArea) {
-    return contentArea.length() > 4 ? contentArea.substring(0, 4) : contentArea;
-  }
-
-  @Nonnull
-  private String extractContentAreaB(@Nonnull String contentArea) {
-    return contentArea.length() > 4 ? contentArea.substring(4) : "";
-  }
 }
@@ -18,6 +18,7 @@ package com.ca.lsp.core.cobol.semantics;
 
 import com.broadcom.lsp.domain.common.model.Position;
 import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ImmutableSetMultimap;
 import com.google.common.collect.Multimap;
 import lombok.Getter;
 
@@ -25,8 +26,30 @@ import java.util.Collection;
 
 class CobolNamedContext implements SubContext<String> {
 
-  @Getter private final Multimap<String, Position> definitions = HashMultimap.create();
-  @Getter private final Multimap<String, Position> usages = HashMultimap.create();
+  @Getter private final Multimap<String, Position> definitions;
+  @Getter private final Multimap<String, Position> usages;
+
+  CobolNamedContext() {
+    this(HashMultimap.create(), HashMultimap.create());
+  }
+
+  private CobolNamedContext(
+      Multimap<String, Position> definitions, Multimap<String, Position> usages) {
+    this.definitions = definitions;
+    this.usages = usages;
+  }
+
+  /**
+   * Create an immutable copy of the given context that can be shared
+   *
+   * @param context - the context to copy
+   * @return the immutable copy of the context
+   */
+  static SubContext<String> freeze(SubContext<String> context) {
+    return new CobolNamedContext(
+        ImmutableSetMultimap.copyOf(context.getDefinitions()),
+        ImmutableSetMultimap.copyOf(context.getUsages()));
+  }
 
   @Override
   public void define(String paragraph, Position position) {
@@ -19,11 +19,15 @@ package com.ca.lsp.core.cobol.semantics;
 import com.broadcom.lsp.domain.common.model.Position;
 import com.ca.lsp.core.cobol.model.Variable;
 import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ImmutableSetMultimap;
 import com.google.common.collect.Multimap;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static java.util.stream.Collectors.toList;
@@ -36,9 +40,22 @@ public class CobolVariableContext implements SubContext<Variable> {
   private static final int LEVEL_77 = 77;
   private static final int LEVEL_66 = 66;
 
-  private final List<Variable> variables = new ArrayList<>();
-  private final Multimap<String, Position> variableDefinitions = HashMultimap.create();
-  private final Multimap<String, Position> variableUsages = HashMultimap.create();
+  private final List<Variable> variables;
+  private final Multimap<String, Position> variableDefinitions;
+  private final Multimap<String, Position> variableUsages;
+
+  public CobolVariableContext() {
+    this(new ArrayList<>(), HashMultimap.create(), HashMultimap.create());
+  }
+
+  private CobolVariableContext(
+      List<Variable> variables,
+      Multimap<String, Position> variableDefinitions,
+      Multimap<String, Position> variableUsages) {
+    this.variables = variables;
+    this.variableDefinitions = variableDefinitions;
+    this.variableUsages = variableUsages;
+  }
 
   @Override
   public void define(Variable variable, Position position) {
@@ -75,7 +92,44 @@ public class CobolVariableContext implements SubContext<Variable> {
   public void merge(String name, SubContext<Variable> subContext) {
     variableDefinitions.putAll(subContext.getDefinitions());
     variableUsages.putAll(subContext.getUsages());
-    buildVariableStructure(name, subContext);
+    buildVariableStructure(name, copyVariables(subContext.getAll()));
+  }
+
+  /**
+   * Create an immutable copy of this context that can be shared, e.g. between the documents that
+   * include the same copybook. The variables are not copied, since merging the context copies them
+   * before building the relations, so the variables of a shared context are never modified.
+   *
+   * @return the immutable copy of this context
+   */
+  CobolVariableContext freeze() {
+    return new CobolVariableContext(
+        Collections.unmodifiableList(new ArrayList<>(variables)),
+        ImmutableSetMultimap.copyOf(variableDefinitions),
+        ImmutableSetMultimap.copyOf(variableUsages));
+  }
+
+  /**
+   * Copy the variables of a merged context with their relations, since building the relations in
+   * this context modifies them, and the merged context may be shared with other documents
+   */
+  private static List<Variable> copyVariables(Collection<Variable> variables) {
+    Map<Variable, Variable> copies = new IdentityHashMap<>();
+    return variables.stream().map(it -> copyOf(it, copies)).collect(toList());
+  }
+
+  private static Variable copyOf(Variable variable, Map<Variable, Variable> copies) {
+    if (variable == null) {
+      return null;
+    }
+    Variable copy = copies.get(variable);
+    if (copy == null) {
+      copy = new Variable(String.valueOf(variable.getLevelNumber()), variable.getName());
+      copies.put(variable, copy);
+      copy.getChildren().addAll(variable.getChildren());
+      copy.setParent(copyOf(variable.getParent(), copies));
+    }
+    return copy;
   }
 
   public Variable get(String name) {
@@ -210,16 +264,16 @@ public class CobolVariableContext implements SubContext<Variable> {
    * @param name - copybook name
    * @param subContext - copybook context
    */
-  private void buildVariableStructure(String name, SubContext<Variable> subContext) {
+  private void buildVariableStructure(String name, List<Variable> copybookVariables) {
     int indexOfCopybook = variables.indexOf(new Variable("-1", name));
     if (indexOfCopybook == -1) {
-      variables.addAll(subContext.getAll());
+      variables.addAll(copybookVariables);
     }
-    variables.addAll(indexOfCopybook + 1, subContext.getAll());
+    variables.addAll(indexOfCopybook + 1, copybookVariables);
     variables.remove(indexOfCopybook);
     variableDefinitions.removeAll(name);
     if (variables.contains(new Variable("-1", name))) {
-      buildVariableStructure(name, subContext);
+      buildVariableStructure(name, copybookVariables);
     }
   }
 }
@@ -20,18 +20,59 @@ import com.ca.lsp.core.cobol.model.CopybookUsage;
 import com.ca.lsp.core.cobol.model.CopybookSemanticContext;
 import lombok.Value;
 
+import java.util.Collections;
 import java.util.List;
 
 @Value
 public class SemanticContext {
-  private CobolVariableContext variables = new CobolVariableContext();
-  private SubContext<String> paragraphs = new CobolNamedContext();
-  private SubContext<String> copybooks = new CobolNamedContext();
+  private CobolVariableContext variables;
+  private SubContext<String> paragraphs;
+  private SubContext<String> copybooks;
   private List<CopybookUsage> copybookUsageTracker;
 
+  public SemanticContext(List<CopybookUsage> copybookUsageTracker) {
+    this(
+        new CobolVariableContext(),
+        new CobolNamedContext(),
+        new CobolNamedContext(),
+        copybookUsageTracker);
+  }
+
+  private SemanticContext(
+      CobolVariableContext variables,
+      SubContext<String> paragraphs,
+      SubContext<String> copybooks,
+      List<CopybookUsage> copybookUsageTracker) {
+    this.variables = variables;
+    this.paragraphs = paragraphs;
+    this.copybooks = copybooks;
+    this.copybookUsageTracker = copybookUsageTracker;
+  }
+
+  /**
+   * Merge the context of a copybook into this one. The copybook context is not modified, so the
+   * same context can be merged into several documents.
+   *
+   * @param semanticContext - the context of the copybook
+   */
   public void merge(CopybookSemanticContext semanticContext) {
     variables.merge(semanticContext.getName(), semanticContext.getContext().getVariables());
     paragraphs.merge(semanticContext.getName(), semanticContext.getContext().getParagraphs());
     copybooks.merge(semanticContext.getName(), semanticContext.getContext().getCopybooks());
   }
+
+  /**
+   * Create an immutable summary of this context, i.e. its variables, paragraphs and copybook
+   * usages, that can be shared between the documents that include the same copybook. The summary
+   * doesn't keep the copybook usage tracker, since it is used only while the context is built.
+   *
+   * @return the immutable summary of this context
+   */
+  public SemanticContext freeze() {
+    return new SemanticContext(
+        variables.freeze(),
+        CobolNamedContext.freeze(paragraphs),
+        CobolNamedContext.freeze(copybooks),
+        Collections.emptyList());
+  }
 }
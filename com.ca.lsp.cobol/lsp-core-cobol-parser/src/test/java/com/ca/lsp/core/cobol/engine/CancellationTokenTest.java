@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2020 Broadcom.
+ * The term "Broadcom" refers to Broadcom Inc. and/or its subsidiaries.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *   Broadcom, Inc. - initial API and implementation
+ */
+package com.ca.lsp.core.cobol.engine;
+
+import com.broadcom.lsp.cdi.EngineModule;
+import com.broadcom.lsp.cdi.module.databus.DatabusModule;
+import com.ca.lsp.core.cobol.parser.CobolLexer;
+import com.ca.lsp.core.cobol.parser.CobolParser;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import org.antlr.v4.runtime.CharStreams;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * This test checks that the analysis stops if its {@link CancellationToken} is cancelled, both
+ * before the analysis starts and while the parser processes the tokens, and that the cancellation
+ * is not treated as a syntax error by the two-stage parsing.
+ */
+public class CancellationTokenTest {
+  private static final String TEXT =
+      "       IDENTIFICATION DIVISION.\r\n"
+          + "       PROGRAM-ID. TEST1.\r\n"
+          + "       DATA DIVISION.\r\n"
+          + "       WORKING-STORAGE SECTION.\r\n"
+          + "       01 PARENT.\r\n"
+          + "          05 CHILD PIC 9 VALUE 0.\r\n"
+          + "       PROCEDURE DIVISION.\r\n"
+          + "           MOVE 1 TO CHILD.\r\n"
+          + "           MOVE 2 TO CHILD.\r\n"
+          + "           MOVE 3 TO CHILD.";
+
+  private CobolLanguageEngine engine;
+  private ParsingStatistics statistics;
+
+  @Before
+  public void init() {
+    Injector injector = Guice.createInjector(new EngineModule(), new DatabusModule());
+    engine = injector.getInstance(CobolLanguageEngine.class);
+    statistics = injector.getInstance(ParsingStatistics.class);
+  }
+
+  @Test
+  public void testCancelledTokenStopsAnalysis() {
+    CancellationToken token = new CancellationToken();
+    token.cancel();
+
+    assertCancelled(() -> engine.run("1", TEXT, "DID_OPEN", token));
+    assertEquals(0, statistics.getSllParses());
+    assertEquals(0, statistics.getLlFallbacks());
+  }
+
+  @Test
+  public void testCancellationDuringAnalysisStopsParsing() {
+    CountingToken token = new CountingToken(20);
+
+    assertCancelled(() -> engine.run("1", TEXT, "DID_OPEN", token));
+    assertEquals(21, token.checks);
+    assertEquals(0, statistics.getSllParses());
+    assertEquals(0, statistics.getLlFallbacks());
+  }
+
+  @Test
+  public void testTokenStreamStopsParser() {
+    CountingToken token = new CountingToken(5);
+    CobolLexer lexer = new CobolLexer(CharStreams.fromString(TEXT));
+    CobolParser parser = new CobolParser(new CancellableTokenStream(lexer, token));
+
+    assertCancelled(parser::startRule);
+    assertEquals(6, token.checks);
+  }
+
+  @Test
+  public void testNotCancelledTokenAllowsAnalysis() {
+    CancellationToken token = new CancellationToken();
+
+    engine.run("1", TEXT, "DID_OPEN", token);
+
+    assertTrue(statistics.getSllParses() > 0);
+  }
+
+  @Test
+  public void testNoneTokenIgnoresCancel() {
+    CancellationToken.NONE.cancel();
+
+    assertFalse(CancellationToken.NONE.isCancelled());
+    engine.run("1", TEXT, "DID_OPEN", CancellationToken.NONE);
+    assertTrue(statistics.getSllParses() > 0);
+  }
+
+  @Test
+  public void testChildTokenIsCancelledWithParent() {
+    CancellationToken parent = new CancellationToken();
+    CancellationToken child = new CancellationToken(parent);
+
+    child.cancel();
+    assertFalse(parent.isCancelled());
+
+    CancellationToken sibling = new CancellationToken(parent);
+    parent.cancel();
+    assertCancelled(() -> engine.run("1", TEXT, "DID_OPEN", sibling));
+  }
+
+  private void assertCancelled(Runnable analysis) {
+    try {
+      analysis.run();
+      fail("The analysis should be cancelled");
+    } catch (AnalysisCancelledException e) {
+      // expected
+    }
+  }
+
+  /** This token cancels itself after the given number of checks, like a new document change */
+  private static class CountingToken extends CancellationToken {
+    private final int limit;
+    private int checks;
+
+    CountingToken(int limit) {
+      this.limit = limit;
+    }
+
+    @Override
+    public void checkCancelled() {
+      if (++checks > limit) {
+        cancel();
+      }
+      super.checkCancelled();
+    }
+  }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2020 Broadcom.
+ * The term "Broadcom" refers to Broadcom Inc. and/or its subsidiaries.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *   Broadcom, Inc. - initial API and implementation
+ */
+package com.ca.lsp.core.cobol.engine;
+
+import com.broadcom.lsp.cdi.EngineModule;
+import com.broadcom.lsp.cdi.module.databus.DatabusModule;
+import com.ca.lsp.core.cobol.model.ResultWithErrors;
+import com.ca.lsp.core.cobol.model.SyntaxError;
+import com.ca.lsp.core.cobol.semantics.SemanticContext;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * This test checks that {@link CobolLanguageEngine} applies the two-stage parsing: the SLL stage is
+ * enough for correct programs, and the LL stage reports the syntax errors for incorrect ones.
+ */
+public class CobolLanguageEngineTest {
+  private static final String CORRECT_TEXT =
+      "       IDENTIFICATION DIVISION.\r\n"
+          + "       PROGRAM-ID. TEST1.\r\n"
+          + "       DATA DIVISION.\r\n"
+          + "       WORKING-STORAGE SECTION.\r\n"
+          + "       01 PARENT.\r\n"
+          + "          05 CHILD PIC 9 VALUE 0.\r\n"
+          + "       PROCEDURE DIVISION.\r\n"
+          + "           MOVE 1 TO CHILD.";
+
+  private static final String INCORRECT_TEXT =
+      "       IDENTIFICATION DIVISION.\r\n"
+          + "       PROGRAM-ID. TEST1.\r\n"
+          + "       PROCEDURE DIVISION.\r\n"
+          + "           MOVE 1 TO .";
+
+  private CobolLanguageEngine engine;
+  private ParsingStatistics statistics;
+
+  @Before
+  public void init() {
+    Injector injector = Guice.createInjector(new EngineModule(), new DatabusModule());
+    engine = injector.getInstance(CobolLanguageEngine.class);
+    statistics = injector.getInstance(ParsingStatistics.class);
+  }
+
+  @Test
+  public void testCorrectProgramParsedWithSllOnly() {
+    ResultWithErrors<SemanticContext> result = engine.run("1", CORRECT_TEXT, "DID_OPEN");
+
+    assertEquals(0, countSyntaxErrors(result.getErrors()));
+    assertEquals(1, statistics.getSllParses());
+    assertEquals(0, statistics.getLlFallbacks());
+  }
+
+  @Test
+  public void testIncorrectProgramFallsBackToLl() {
+    ResultWithErrors<SemanticContext> result = engine.run("1", INCORRECT_TEXT, "DID_OPEN");
+
+    assertEquals(1, countSyntaxErrors(result.getErrors()));
+    assertEquals(0, statistics.getSllParses());
+    assertEquals(1, statistics.getLlFallbacks());
+  }
+
+  private long countSyntaxErrors(List<SyntaxError> errors) {
+    return errors.stream().filter(it -> it.getSeverity() == 1).count();
+  }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2020 Broadcom.
+ * The term "Broadcom" refers to Broadcom Inc. and/or its subsidiaries.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *   Broadcom, Inc. - initial API and implementation
+ */
+package com.ca.lsp.core.cobol.engine;
+
+import com.ca.lsp.core.cobol.parser.CobolLexer;
+import com.ca.lsp.core.cobol.parser.CobolParser;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.TokenStream;
+import org.antlr.v4.runtime.misc.Interval;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * This test checks that {@link CompactTokenStream} provides the same tokens and the same parse
+ * trees as {@link CommonTokenStream}, including the lexing of a document region.
+ */
+public class CompactTokenStreamTest {
+  private static final String TEXT =
+      "       IDENTIFICATION DIVISION.\r\n"
+          + "       PROGRAM-ID. TEST1.\r\n"
+          + "      * A COMMENT LINE\r\n"
+          + "       DATA DIVISION.\r\n"
+          + "       WORKING-STORAGE SECTION.\r\n"
+          + "       01 PARENT.\r\n"
+          + "          05 CHILD PIC 9 VALUE 0.\r\n"
+          + "       PROCEDURE DIVISION.\r\n"
+          + "       MAINLINE.\r\n"
+          + "           MOVE 1 TO CHILD.\r\n"
+          + "           DISPLAY 'TEXT, WITH SEPARATOR'.\r\n"
+          + "           STOP RUN.";
+
+  @Test
+  public void testTokensAreSameAsInCommonTokenStream() {
+    CommonTokenStream expected = new CommonTokenStream(lexer(TEXT));
+    CompactTokenStream actual = new CompactTokenStream(lexer(TEXT), CancellationToken.NONE);
+    expected.fill();
+    actual.fill();
+
+    assertEquals(expected.size(), actual.size());
+    for (int i = 0; i < expected.size(); i++) {
+      assertEquals(expected.get(i).toString(), actual.get(i).toString());
+    }
+    assertEquals(expected.getText(), actual.getText());
+    assertEquals(expected.getText(Interval.of(3, 20)), actual.getText(Interval.of(3, 20)));
+  }
+
+  @Test
+  public void testParseTreeIsSameAsWithCommonTokenStream() {
+    CobolParser expected = new CobolParser(new CommonTokenStream(lexer(TEXT)));
+    CobolParser actual =
+        new CobolParser(new CompactTokenStream(lexer(TEXT), CancellationToken.NONE));
+
+    assertEquals(
+        expected.startRule().toStringTree(expected), actual.startRule().toStringTree(actual));
+  }
+
+  @Test
+  public void testLookaheadSkipsHiddenTokens() {
+    TokenStream expected = new CommonTokenStream(lexer(TEXT));
+    TokenStream actual = new CompactTokenStream(lexer(TEXT), CancellationToken.NONE);
+
+    for (int i = 0; i < 10; i++) {
+      expected.consume();
+      actual.consume();
+    }
+    assertEquals(expected.index(), actual.index());
+    for (int k : new int[] {-3, -1, 1, 2, 5}) {
+      assertEquals(expected.LA(k), actual.LA(k));
+      assertEquals(expected.LT(k).getTokenIndex(), actual.LT(k).getTokenIndex());
+    }
+    assertSame(actual.LT(1), actual.get(actual.index()));
+  }
+
+  @Test
+  public void testRegionTokensAreMovedByOffset() {
+    int offset = TEXT.indexOf("       MAINLINE.");
+    CobolLexer lexer = lexer(TEXT.substring(offset));
+    lexer.setLine(9);
+    CompactTokenStream region = new CompactTokenStream(lexer, CancellationToken.NONE, offset);
+    CommonTokenStream whole = new CommonTokenStream(lexer(TEXT));
+    region.fill();
+    whole.fill();
+
+    Token first = region.LT(1);
+    Token expected = whole.get(whole.size() - region.size() + first.getTokenIndex());
+    assertEquals("MAINLINE", first.getText());
+    assertEquals(expected.getStartIndex(), first.getStartIndex());
+    assertEquals(expected.getStopIndex(), first.getStopIndex());
+    assertEquals(expected.getLine(), first.getLine());
+  }
+
+  private static CobolLexer lexer(String text) {
+    return new CobolLexer(CharStreams.fromString(text));
+  }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2020 Broadcom.
+ * The term "Broadcom" refers to Broadcom Inc. and/or its subsidiaries.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *   Broadcom, Inc. - initial API and implementation
+ */
+package com.ca.lsp.core.cobol.engine;
+
+import com.ca.lsp.core.cobol.parser.CobolPreprocessorLexer;
+import com.ca.lsp.core.cobol.parser.CobolPreprocessorParser;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * This test checks that {@link DFACacheManager} collects the DFA states of the managed recognizers
+ * and clears them when the limit is exceeded.
+ */
+public class DFACacheManagerTest {
+  private static final String TEXT = "       COPY CPYNAME.\r\n       DATA DIVISION.";
+
+  @Test
+  public void testCachesClearedWhenLimitExceeded() {
+    DFACacheManager manager = new DFACacheManager(0);
+    parse(manager);
+
+    assertTrue(manager.getStateCount() > 0);
+    assertTrue(manager.getStateCounts().containsKey("CobolPreprocessorParser"));
+    assertTrue(manager.getStateCounts().containsKey("CobolPreprocessorLexer"));
+
+    manager.checkCeiling();
+
+    assertEquals(0, manager.getStateCount());
+    assertEquals(1, manager.getRebuilds());
+  }
+
+  @Test
+  public void testCachesKeptWithinLimit() {
+    DFACacheManager manager = new DFACacheManager(Integer.MAX_VALUE);
+    parse(manager);
+    int stateCount = manager.getStateCount();
+    parse(manager);
+
+    manager.checkCeiling();
+
+    assertEquals(stateCount, manager.getStateCount());
+    assertEquals(0, manager.getRebuilds());
+    assertTrue(manager.getHitRate() > 0);
+  }
+
+  private void parse(DFACacheManager manager) {
+    CobolPreprocessorLexer lexer =
+        manager.manage(new CobolPreprocessorLexer(CharStreams.fromString(TEXT)));
+    manager.manage(new CobolPreprocessorParser(new CommonTokenStream(lexer))).startRule();
+  }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2020 Broadcom.
+ * The term "Broadcom" refers to Broadcom Inc. and/or its subsidiaries.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *   Broadcom, Inc. - initial API and implementation
+ */
+package com.ca.lsp.core.cobol.engine;
+
+import com.broadcom.lsp.cdi.EngineModule;
+import com.broadcom.lsp.cdi.module.databus.DatabusModule;
+import com.ca.lsp.core.cobol.model.ResultWithErrors;
+import com.ca.lsp.core.cobol.semantics.SemanticContext;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashSet;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * This test checks that {@link CobolLanguageEngine} parses only the changed paragraphs of a
+ * document on {@code DID_CHANGE}, and the result is the same as the result of the complete
+ * analysis of the new text.
+ */
+public class IncrementalAnalysisTest {
+  private static final String URI = "document.cbl";
+  private static final String HEADER =
+      "       IDENTIFICATION DIVISION.\r\n"
+          + "       PROGRAM-ID. TEST1.\r\n"
+          + "       DATA DIVISION.\r\n"
+          + "       WORKING-STORAGE SECTION.\r\n"
+          + "       01 PARENT.\r\n"
+          + "          05 CHILD PIC 9 VALUE 0.\r\n"
+          + "       PROCEDURE DIVISION.\r\n";
+  private static final String PARA1 =
+      "       PARA1.\r\n" + "           MOVE 1 TO CHILD.\r\n" + "           PERFORM PARA3.\r\n";
+  private static final String PARA2 = "       PARA2.\r\n" + "           MOVE 2 TO CHILD.\r\n";
+  private static final String PARA3 =
+      "       PARA3.\r\n" + "           DISPLAY CHILD.\r\n" + "           PERFORM PARA1.\r\n";
+
+  private CobolLanguageEngine engine;
+  private ParsingStatistics statistics;
+
+  @Before
+  public void init() {
+    Injector injector = Guice.createInjector(new EngineModule(), new DatabusModule());
+    engine = injector.getInstance(CobolLanguageEngine.class);
+    statistics = injector.getInstance(ParsingStatistics.class);
+    engine.run(URI, HEADER + PARA1 + PARA2 + PARA3, "DID_OPEN");
+  }
+
+  @Test
+  public void testChangedParagraph() {
+    assertIncremental(
+        HEADER
+            + PARA1
+            + "       PARA2.\r\n"
+            + "           MOVE 2 TO CHILT.\r\n"
+            + "           MOVE 3 TO CHILD.\r\n"
+            + PARA3);
+  }
+
+  @Test
+  public void testInsertedLinesShiftNextParagraphs() {
+    assertIncremental(
+        HEADER
+            + PARA1
+            + "\r\n\r\n"
+            + "       PARA4.\r\n"
+            + "           MOVE 4 TO UNKNOWN.\r\n"
+            + PARA2
+            + PARA3);
+  }
+
+  @Test
+  public void testSemanticErrorBelowChangeKeepsColumn() {
+    String para3 = PARA3.replace("DISPLAY CHILD", "DISPLAY CHILT");
+    engine.run(URI, HEADER + PARA1 + PARA2 + para3, "DID_OPEN");
+
+    assertIncremental(
+        HEADER + PARA1.replace("MOVE 1 TO", "MOVE 1\r\n             TO") + PARA2 + para3);
+  }
+
+  @Test
+  public void testSyntaxErrorBelowChangeIsShifted() {
+    String para3 = PARA3.replace("DISPLAY CHILD", "DISPLAY CHILD CHILD TO");
+    engine.run(URI, HEADER + PARA1 + PARA2 + para3, "DID_OPEN");
+
+    assertIncremental(
+        HEADER + PARA1.replace("MOVE 1 TO", "MOVE 1\r\n             TO") + PARA2 + para3);
+  }
+
+  @Test
+  public void testRemovedParagraph() {
+    assertIncremental(HEADER + PARA1 + PARA3);
+  }
+
+  @Test
+  public void testSyntaxErrorInParagraphRequiresCompleteAnalysis() {
+    assertIncremental(
+        HEADER + PARA1 + "       PARA2.\r\n" + "           MOVE 2 TO .\r\n" + PARA3, 0);
+  }
+
+  @Test
+  public void testSequentialChanges() {
+    assertIncremental(
+        HEADER + PARA1 + "       PARA2.\r\n" + "           MOVE 2 TO CHILT.\r\n" + PARA3);
+    assertIncremental(HEADER + PARA2 + PARA1 + PARA3, 2);
+  }
+
+  @Test
+  public void testChangedDataDivisionRequiresCompleteAnalysis() {
+    assertIncremental(HEADER.replace("CHILD PIC", "CHILT PIC") + PARA1 + PARA2 + PARA3, 0);
+  }
+
+  private void assertIncremental(String text) {
+    assertIncremental(text, 1);
+  }
+
+  private void assertIncremental(String text, int expectedIncrementalAnalyses) {
+    ResultWithErrors<SemanticContext> actual = engine.run(URI, text, "DID_CHANGE");
+
+    assertEquals(expectedIncrementalAnalyses, statistics.getIncrementalAnalyses());
+    assertSameResult(analyzeCompletely(text), actual);
+  }
+
+  private ResultWithErrors<SemanticContext> analyzeCompletely(String text) {
+    return Guice.createInjector(new EngineModule(), new DatabusModule())
+        .getInstance(CobolLanguageEngine.class)
+        .run(URI, text, "DID_OPEN");
+  }
+
+  private void assertSameResult(
+      ResultWithErrors<SemanticContext> expected, ResultWithErrors<SemanticContext> actual) {
+    assertEquals(new HashSet<>(expected.getErrors()), new HashSet<>(actual.getErrors()));
+    assertEquals(
+        expected.getResult().getVariables().getUsages(),
+        actual.getResult().getVariables().getUsages());
+    assertEquals(
+        expected.getResult().getParagraphs().getUsages(),
+        actual.getResult().getParagraphs().getUsages());
+  }
+}
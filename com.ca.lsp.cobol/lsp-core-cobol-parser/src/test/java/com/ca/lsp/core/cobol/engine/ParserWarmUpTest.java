@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) 2020 Broadcom.
+ * The term "Broadcom" refers to Broadcom Inc. and/or its subsidiaries.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *   Broadcom, Inc. - initial API and implementation
+ */
+package com.ca.lsp.core.cobol.engine;
+
+import com.broadcom.lsp.cdi.EngineModule;
+import com.broadcom.lsp.cdi.module.databus.DatabusModule;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * This test checks that {@link ParserWarmUp} fills the DFA caches of all the grammars and isn't
+ * counted in the parsing statistics
+ */
+public class ParserWarmUpTest {
+
+  @Test
+  public void testWarmUpFillsCaches() {
+    Injector injector = Guice.createInjector(new EngineModule(), new DatabusModule());
+    DFACacheManager cacheManager = injector.getInstance(DFACacheManager.class);
+    ParsingStatistics statistics = injector.getInstance(ParsingStatistics.class);
+
+    injector.getInstance(ParserWarmUp.class).run();
+
+    assertEquals(6, cacheManager.getStateCounts().size());
+    assertTrue(cacheManager.getStateCounts().values().stream().allMatch(it -> it > 0));
+    assertEquals(0, statistics.getSllParses() + statistics.getLlFallbacks());
+  }
+}
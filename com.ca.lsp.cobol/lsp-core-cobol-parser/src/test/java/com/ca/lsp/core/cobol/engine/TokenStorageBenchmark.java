@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2020 Broadcom.
+ * The term "Broadcom" refers to Broadcom Inc. and/or its subsidiaries.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *   Broadcom, Inc. - initial API and implementation
+ */
+package com.ca.lsp.core.cobol.engine;
+
+import com.ca.lsp.core.cobol.parser.CobolLexer;
+import com.ca.lsp.core.cobol.parser.CobolParser;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.TokenStream;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * This benchmark measures the heap retained by the token stream and the parse tree of a large
+ * program using {@link CommonTokenStream} and {@link CompactTokenStream}. It is not a part of the
+ * test suite, run its main method with a fixed heap size, e.g. -Xms1g -Xmx1g, to get stable
+ * results.
+ */
+public class TokenStorageBenchmark {
+  private static final int PARAGRAPHS = 2000;
+  private static final int COPIES = 5;
+
+  public static void main(String[] args) {
+    String text = createProgram();
+    // warm up the DFA caches, so they are not counted as retained by the first measurement
+    measure(text, CommonTokenStream::new);
+
+    long common = measure(text, CommonTokenStream::new);
+    long compact = measure(text, lexer -> new CompactTokenStream(lexer, CancellationToken.NONE));
+    System.out.printf("Program of %d chars, %d copies retained%n", text.length(), COPIES);
+    System.out.printf("CommonTokenStream:  %,d bytes per parse%n", common / COPIES);
+    System.out.printf("CompactTokenStream: %,d bytes per parse%n", compact / COPIES);
+    System.out.printf("Saved: %.1f%%%n", 100.0 * (common - compact) / common);
+  }
+
+  private static long measure(String text, Function<CobolLexer, TokenStream> streamFactory) {
+    long before = usedHeap();
+    List<Object> retained = new ArrayList<>();
+    for (int i = 0; i < COPIES; i++) {
+      TokenStream tokens = streamFactory.apply(new CobolLexer(CharStreams.fromString(text)));
+      CobolParser parser = new CobolParser(tokens);
+      parser.removeErrorListeners();
+      retained.add(parser.startRule());
+      retained.add(tokens);
+    }
+    long after = usedHeap();
+    if (retained.isEmpty()) {
+      throw new IllegalStateException();
+    }
+    return after - before;
+  }
+
+  private static long usedHeap() {
+    Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < 5; i++) {
+      System.gc();
+    }
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+
+  private static String createProgram() {
+    StringBuilder text =
+        new StringBuilder()
+            .append("       IDENTIFICATION DIVISION.\r\n")
+            .append("       PROGRAM-ID. BENCH.\r\n")
+            .append("       DATA DIVISION.\r\n")
+            .append("       WORKING-STORAGE SECTION.\r\n")
+            .append("       01 PARENT.\r\n")
+            .append("          05 CHILD PIC 9(5) VALUE 0.\r\n")
+            .append("       PROCEDURE DIVISION.\r\n");
+    for (int i = 0; i < PARAGRAPHS; i++) {
+      text.append("       PAR")
+          .append(i)
+          .append(".\r\n")
+          .append("      * MOVE THE VALUE\r\n")
+          .append("           MOVE ")
+          .append(i)
+          .append(" TO CHILD.\r\n")
+          .append("           IF CHILD > 10 DISPLAY 'BIG, VALUE' END-IF.\r\n");
+    }
+    return text.append("           STOP RUN.").toString();
+  }
+}
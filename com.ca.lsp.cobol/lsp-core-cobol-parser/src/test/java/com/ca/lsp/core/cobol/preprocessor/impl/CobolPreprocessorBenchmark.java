@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2020 Broadcom.
+ * The term "Broadcom" refers to Broadcom Inc. and/or its subsidiaries.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *   Broadcom, Inc. - initial API and implementation
+ */
+package com.ca.lsp.core.cobol.preprocessor.impl;
+
+import com.ca.lsp.core.cobol.engine.CancellationToken;
+import com.ca.lsp.core.cobol.engine.DFACacheManager;
+import com.ca.lsp.core.cobol.model.PreprocessedInput;
+import com.ca.lsp.core.cobol.model.ResultWithErrors;
+import com.ca.lsp.core.cobol.preprocessor.CobolPreprocessor;
+import com.ca.lsp.core.cobol.preprocessor.sub.document.CobolSemanticParser;
+import com.ca.lsp.core.cobol.semantics.SemanticContext;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This JMH benchmark measures the time and the allocation of the line processing of {@link
+ * CobolPreprocessorImpl} for a 10k-line document. The semantic parser is replaced by a stub, so
+ * only the line stages are measured. The document is processed either for the first time or after
+ * a change of one line, when the results of the other lines are reused. It is not a part of the
+ * test suite, run its main method to get the results; see gc.alloc.rate.norm for the bytes
+ * allocated per call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CobolPreprocessorBenchmark {
+  private static final int PARAGRAPHS = 2000;
+
+  private static final CobolSemanticParser SEMANTIC_PARSER =
+      (uri, code, context, syncType, token) ->
+          new ResultWithErrors<>(new PreprocessedInput(code, context), Collections.emptyList());
+
+  private String[] texts;
+  private int version;
+  private DFACacheManager cacheManager;
+  private CobolPreprocessor preprocessor;
+
+  @Setup
+  public void setUp() {
+    String text = createProgram();
+    texts = new String[] {text, text.replaceFirst("'EMPTY, VALUE'", "'BLANK, VALUE'")};
+    cacheManager = new DFACacheManager(0);
+    preprocessor = new CobolPreprocessorImpl(SEMANTIC_PARSER, cacheManager, new CobolLineCache());
+  }
+
+  @Benchmark
+  public ResultWithErrors<PreprocessedInput> processOpened() {
+    return process(
+        new CobolPreprocessorImpl(SEMANTIC_PARSER, cacheManager, new CobolLineCache()),
+        texts[0],
+        "DID_OPEN");
+  }
+
+  @Benchmark
+  public ResultWithErrors<PreprocessedInput> processChanged() {
+    version = 1 - version;
+    return process(preprocessor, texts[version], "DID_CHANGE");
+  }
+
+  private static ResultWithErrors<PreprocessedInput> process(
+      CobolPreprocessor preprocessor, String text, String syncType) {
+    return preprocessor.process(
+        "file:///benchmark.cbl",
+        text,
+        new SemanticContext(Collections.emptyList()),
+        syncType,
+        CancellationToken.NONE);
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(
+            new OptionsBuilder()
+                .include(CobolPreprocessorBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build())
+        .run();
+  }
+
+  private static String createProgram() {
+    StringBuilder text = new StringBuilder();
+    appendLine(text, "000100 IDENTIFICATION DIVISION.");
+    appendLine(text, "000200 PROGRAM-ID. BENCH.");
+    appendLine(text, "000300 AUTHOR. SOMEBODY.");
+    appendLine(text, "000400 DATA DIVISION.");
+    appendLine(text, "000500 WORKING-STORAGE SECTION.");
+    appendLine(text, "000600 01 CHILD PIC X(80) VALUE SPACES.");
+    appendLine(text, "000700 PROCEDURE DIVISION.");
+    for (int i = 0; i < PARAGRAPHS; i++) {
+      appendLine(text, "000800 PAR" + i + ".");
+      appendLine(text, "000900* MOVE THE VALUE");
+      appendLine(text, "001000     MOVE 'A LITERAL THAT IS CONTINUED ON THE NEXT LINES, SO THERE");
+      appendLine(text, "001100-    ' A CONTINUATION LINE' TO CHILD.");
+      appendLine(text, "001200     IF CHILD = SPACES DISPLAY 'EMPTY, VALUE' END-IF.");
+    }
+    return text.append("001300     STOP RUN.").toString();
+  }
+
+  /** Append the line with its content area filled up to the comment area */
+  private static void appendLine(StringBuilder text, String line) {
+    text.append(line);
+    for (int i = line.length(); i < 72; i++) {
+      text.append(' ');
+    }
+    text.append("BENCHMRK\r\n");
+  }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2020 Broadcom.
+ * The term "Broadcom" refers to Broadcom Inc. and/or its subsidiaries.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *   Broadcom, Inc. - initial API and implementation
+ */
+package com.ca.lsp.core.cobol.preprocessor.impl;
+
+import com.ca.lsp.core.cobol.engine.CancellationToken;
+import com.ca.lsp.core.cobol.engine.DFACacheManager;
+import com.ca.lsp.core.cobol.model.PreprocessedInput;
+import com.ca.lsp.core.cobol.model.ResultWithErrors;
+import com.ca.lsp.core.cobol.preprocessor.sub.document.CobolSemanticParser;
+import com.ca.lsp.core.cobol.semantics.SemanticContext;
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * This test checks that {@link CobolPreprocessorImpl} reuses the results of the unchanged lines
+ * with {@link CobolLineCache}, but returns the same text and errors as for the first processing of
+ * the changed document.
+ */
+public class CobolPreprocessorImplTest {
+  private static final String URI = "file:///test.cbl";
+  private static final CobolSemanticParser SEMANTIC_PARSER =
+      (uri, code, context, syncType, token) ->
+          new ResultWithErrors<>(new PreprocessedInput(code, context), Collections.emptyList());
+
+  private static final String DOCUMENT =
+      "000100 IDENTIFICATION DIVISION.\n"
+          + "000200 PROGRAM-ID. TEST1.\n"
+          + "000300-AREA A IS NOT BLANK\n"
+          + "000400 DATA DIVISION.\n"
+          + "000500 WORKING-STORAGE SECTION.\n"
+          + "000600 01 CHILD PIC X(80) VALUE 'A LITERAL CONTINUED ON THE NEXT LINE\n"
+          + "000700-    'CONTINUATION'.";
+
+  private final CobolPreprocessorImpl preprocessor =
+      new CobolPreprocessorImpl(SEMANTIC_PARSER, new DFACacheManager(0), new CobolLineCache());
+
+  /** The errors of the reused lines should move with them if the lines above are added */
+  @Test
+  public void testErrorsOfReusedLinesMove() {
+    process(preprocessor, DOCUMENT);
+    String changed = "000050* A NEW COMMENT LINE\n" + DOCUMENT;
+
+    ResultWithErrors<PreprocessedInput> result = process(preprocessor, changed);
+
+    assertEquals(1, result.getErrors().size());
+    assertEquals(3, result.getErrors().get(0).getPosition().getLine());
+    assertSameAsFirstProcessing(changed, result);
+  }
+
+  /** The continuation line should be processed again if the continued line changed */
+  @Test
+  public void testContinuationLineOfChangedLineProcessedAgain() {
+    process(preprocessor, DOCUMENT);
+    String changed = DOCUMENT.replace("'A LITERAL CONTINUED", "'A LITERAL' CONTINUED");
+
+    assertSameAsFirstProcessing(changed, process(preprocessor, changed));
+  }
+
+  /** The continued line should be processed again if the following line is not continuation */
+  @Test
+  public void testContinuedLineProcessedAgainIfFollowingLineChanged() {
+    process(preprocessor, DOCUMENT);
+    String changed = DOCUMENT.replace("000700-    'CONTINUATION'.", "000700     'CONTINUATION'.");
+
+    ResultWithErrors<PreprocessedInput> result = process(preprocessor, changed);
+
+    assertEquals(2, result.getErrors().size());
+    assertSameAsFirstProcessing(changed, result);
+  }
+
+  private void assertSameAsFirstProcessing(
+      String text, ResultWithErrors<PreprocessedInput> result) {
+    ResultWithErrors<PreprocessedInput> expected =
+        process(
+            new CobolPreprocessorImpl(
+                SEMANTIC_PARSER, new DFACacheManager(0), new CobolLineCache()),
+            text);
+    assertEquals(expected.getResult().getInput(), result.getResult().getInput());
+    assertEquals(expected.getErrors(), result.getErrors());
+  }
+
+  private static ResultWithErrors<PreprocessedInput> process(
+      CobolPreprocessorImpl preprocessor, String text) {
+    return preprocessor.process(
+        URI,
+        text,
+        new SemanticContext(Collections.emptyList()),
+        "DID_CHANGE",
+        CancellationToken.NONE);
+  }
+}
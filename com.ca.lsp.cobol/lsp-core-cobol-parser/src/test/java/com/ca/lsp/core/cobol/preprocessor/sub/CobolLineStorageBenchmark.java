@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2020 Broadcom.
+ * The term "Broadcom" refers to Broadcom Inc. and/or its subsidiaries.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *   Broadcom, Inc. - initial API and implementation
+ */
+package com.ca.lsp.core.cobol.preprocessor.sub;
+
+import com.ca.lsp.core.cobol.preprocessor.sub.line.reader.impl.CobolLineReaderImpl;
+import com.ca.lsp.core.cobol.preprocessor.sub.line.rewriter.impl.CobolCommentEntriesMarkerImpl;
+import com.ca.lsp.core.cobol.preprocessor.sub.line.rewriter.impl.CobolInlineCommentEntriesNormalizerImpl;
+import com.ca.lsp.core.cobol.preprocessor.sub.line.rewriter.impl.CobolLineIndicatorProcessorImpl;
+import org.apache.commons.io.IOUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This benchmark measures the heap retained by the lines of a 10k-line document after they are read
+ * and rewritten by the preprocessor. The document text itself is not counted. It is not a part of
+ * the test suite, run its main method with a fixed heap size, e.g. -Xms1g -Xmx1g, to get stable
+ * results.
+ */
+public class CobolLineStorageBenchmark {
+  private static final int LINES = 10000;
+  private static final int COPIES = 10;
+
+  public static void main(String[] args) throws IOException {
+    String text = createDocument();
+    // warm up the classes and the regular expressions, so they are not counted
+    measure(text);
+
+    long retained = measure(text);
+    System.out.printf("Document of %d lines, %d copies retained%n", LINES, COPIES);
+    System.out.printf("Lines: %,d bytes per document%n", retained / COPIES);
+  }
+
+  private static long measure(String text) {
+    long before = usedHeap();
+    List<Object> retained = new ArrayList<>();
+    for (int i = 0; i < COPIES; i++) {
+      List<CobolLine> lines = new CobolLineReaderImpl().processLines(null, text).getResult();
+      List<CobolLine> rewritten = new CobolLineIndicatorProcessorImpl().processLines(lines);
+      rewritten = new CobolInlineCommentEntriesNormalizerImpl().processLines(rewritten);
+      rewritten = new CobolCommentEntriesMarkerImpl().processLines(rewritten);
+      retained.add(lines);
+      retained.add(rewritten);
+    }
+    long after = usedHeap();
+    if (retained.isEmpty()) {
+      throw new IllegalStateException();
+    }
+    return after - before;
+  }
+
+  private static long usedHeap() {
+    Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < 5; i++) {
+      System.gc();
+    }
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+
+  private static String createDocument() throws IOException {
+    String program;
+    try (InputStream stream = CobolLineStorageBenchmark.class.getResourceAsStream("/CM101M.CBL")) {
+      program = IOUtils.toString(stream, StandardCharsets.UTF_8);
+    }
+    String[] programLines = program.split("\r?\n");
+    StringBuilder builder = new StringBuilder();
+    for (int i = 0; i < LINES; i++) {
+      builder.append(programLines[i % programLines.length]).append("\r\n");
+    }
+    return builder.toString();
+  }
+}
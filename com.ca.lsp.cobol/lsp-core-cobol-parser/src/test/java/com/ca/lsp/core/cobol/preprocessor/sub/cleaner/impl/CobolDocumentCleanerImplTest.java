@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2020 Broadcom.
+ * The term "Broadcom" refers to Broadcom Inc. and/or its subsidiaries.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *   Broadcom, Inc. - initial API and implementation
+ */
+package com.ca.lsp.core.cobol.preprocessor.sub.cleaner.impl;
+
+import com.ca.lsp.core.cobol.engine.CancellationToken;
+import com.ca.lsp.core.cobol.engine.DFACacheManager;
+import com.ca.lsp.core.cobol.preprocessor.sub.cleaner.CobolDocumentCleaner;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * This test checks that {@link CobolDocumentCleanerImpl} comments out the EXEC statements and
+ * returns the text without them as is, without lexing it.
+ */
+public class CobolDocumentCleanerImplTest {
+  private static final String TEXT =
+      "       PROCEDURE DIVISION.\r\n"
+          + "       COPY EXECUTOR.\r\n"
+          + "           MOVE 1 TO CHILD.\r\n";
+
+  private CobolDocumentCleaner cleaner =
+      new CobolDocumentCleanerImpl(new DFACacheManager(0), CancellationToken.NONE);
+
+  @Test
+  public void testTextWithoutTriggersIsReturnedAsIs() {
+    String text = TEXT.replace("EXECUTOR", "CPY");
+
+    assertSame(text, cleaner.cleanDocument("1", text));
+  }
+
+  @Test
+  public void testTextWithTriggersIsCleaned() {
+    String text = TEXT + "           exec cics return end-exec.\r\n";
+
+    assertEquals(
+        TEXT + "                 *>EXECCICS EXEC CICS RETURN END-EXEC }.\r\n",
+        cleaner.cleanDocument("1", text));
+  }
+
+  @Test
+  public void testTriggerInsideWordKeepsText() {
+    assertEquals(TEXT, cleaner.cleanDocument("1", TEXT));
+  }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2020 Broadcom.
+ * The term "Broadcom" refers to Broadcom Inc. and/or its subsidiaries.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *   Broadcom, Inc. - initial API and implementation
+ */
+package com.ca.lsp.core.cobol.preprocessor.sub.copybook;
+
+import com.broadcom.lsp.cdi.EngineModule;
+import com.broadcom.lsp.cdi.module.databus.DatabusModule;
+import com.broadcom.lsp.domain.cobol.databus.api.DataBusBroker;
+import com.broadcom.lsp.domain.cobol.event.api.EventObserver;
+import com.broadcom.lsp.domain.cobol.event.model.DataEventType;
+import com.broadcom.lsp.domain.cobol.event.model.FetchedCopybookEvent;
+import com.broadcom.lsp.domain.cobol.event.model.RequiredCopybookEvent;
+import com.broadcom.lsp.domain.common.model.Position;
+import com.ca.lsp.core.cobol.engine.CancellationToken;
+import com.ca.lsp.core.cobol.model.CopybookSemanticContext;
+import com.ca.lsp.core.cobol.model.ResultWithErrors;
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Multimap;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.name.Names;
+import com.google.inject.util.Modules;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Collections.emptyList;
+
+/**
+ * This JMH benchmark measures the analysis of the copybooks of a program with 200 COPY statements,
+ * each copybook having a nested one, so 400 copybooks are resolved and analyzed per call. The
+ * copybooks are resolved by a stub that answers each request on the data bus after a delay that
+ * simulates the file system search, and neither the copybook cache of the data bus nor {@link
+ * PreprocessedCopybookCache} is used, so each call resolves and analyzes all of them. It is not a
+ * part of the test suite, run its main method to get the results.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CopybookAnalysisBenchmark {
+  private static final int COPYBOOKS = 200;
+  private static final long RESOLUTION_DELAY = 20;
+  private static final String DOCUMENT_URI = "file:///benchmark.cbl";
+
+  private final Multimap<String, Position> copybooks = HashMultimap.create();
+  private DataBusBroker databus;
+  private CopybookAnalysis analysis;
+
+  @Setup
+  @SuppressWarnings("unchecked")
+  public void setUp() {
+    Injector injector =
+        Guice.createInjector(
+            Modules.override(new EngineModule())
+                .with(
+                    binder ->
+                        binder
+                            .bindConstant()
+                            .annotatedWith(Names.named("COPYBOOK-CACHE-MAX-SIZE"))
+                            .to(0)),
+            new DatabusModule());
+    databus = injector.getInstance(DataBusBroker.class);
+    analysis = injector.getInstance(CopybookAnalysis.class);
+    databus.subscribe(DataEventType.REQUIRED_COPYBOOK_EVENT, new CopybookResolver());
+    for (int i = 0; i < COPYBOOKS; i++) {
+      copybooks.put("CPY" + i, new Position(DOCUMENT_URI, i * 20, i * 20 + 15, i + 5, 7));
+    }
+  }
+
+  @Benchmark
+  public ResultWithErrors<List<CopybookSemanticContext>> analyze() {
+    databus.invalidateCache();
+    return analysis.analyzeCopybooks(
+        DOCUMENT_URI, copybooks, emptyList(), "DID_OPEN", CancellationToken.NONE);
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(
+            new OptionsBuilder().include(CopybookAnalysisBenchmark.class.getSimpleName()).build())
+        .run();
+  }
+
+  /** This stub resolves CPYn to a group with a nested copybook NESTn and NESTn to its item */
+  private class CopybookResolver implements EventObserver<RequiredCopybookEvent> {
+    @Override
+    @SuppressWarnings("unchecked")
+    public void observerCallback(RequiredCopybookEvent event) {
+      String name = event.getName();
+      String content =
+          name.startsWith("CPY")
+              ? "       01 " + name + "-GROUP.\n       COPY " + name.replace("CPY", "NEST") + "."
+              : "       05 " + name + "-ITEM PIC X(10).";
+      try {
+        Thread.sleep(RESOLUTION_DELAY);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      databus.postData(
+          FetchedCopybookEvent.builder()
+              .name(name)
+              .uri("file:///" + name + ".cpy")
+              .content(content)
+              .build());
+    }
+  }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2020 Broadcom.
+ * The term "Broadcom" refers to Broadcom Inc. and/or its subsidiaries.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *   Broadcom, Inc. - initial API and implementation
+ */
+package com.ca.lsp.core.cobol.preprocessor.sub.copybook;
+
+import com.broadcom.lsp.cdi.module.databus.DatabusModule;
+import com.broadcom.lsp.domain.cobol.databus.api.DataBusBroker;
+import com.broadcom.lsp.domain.common.model.Position;
+import com.ca.lsp.core.cobol.engine.CancellationToken;
+import com.ca.lsp.core.cobol.engine.ParsingStatistics;
+import com.ca.lsp.core.cobol.model.CopybookSemanticContext;
+import com.ca.lsp.core.cobol.model.ErrorCode;
+import com.ca.lsp.core.cobol.model.ResultWithErrors;
+import com.ca.lsp.core.cobol.model.SyntaxError;
+import com.ca.lsp.core.cobol.preprocessor.CobolPreprocessor;
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Multimap;
+import com.google.inject.Guice;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.List;
+
+import static java.util.Collections.emptyList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+/**
+ * This test checks that {@link CopybookParallelAnalysis} doesn't wait for the copybooks that are
+ * not resolved within the copybook or the document resolution timeout, but reports them as missing
+ * ones and counts the timeouts.
+ */
+public class CopybookParallelAnalysisTest {
+  private static final String DOCUMENT_URI = "file:///document.cbl";
+  private static final String COPYBOOK_NAME = "UNRESOLVED";
+  private static final Position STATEMENT = new Position(DOCUMENT_URI, 20, 35, 5, 7);
+
+  private final DataBusBroker databus =
+      Guice.createInjector(new DatabusModule()).getInstance(DataBusBroker.class);
+  private final ParsingStatistics statistics = new ParsingStatistics();
+
+  @After
+  public void cleanup() {
+    databus.invalidateCache();
+  }
+
+  @Test
+  public void testCopybookTimeout() {
+    ResultWithErrors<List<CopybookSemanticContext>> result = analyze(100, 60000);
+
+    assertTimedOut(result);
+    assertEquals(1, statistics.getCopybookTimeouts());
+    assertEquals(0, statistics.getDocumentTimeouts());
+  }
+
+  @Test
+  public void testDocumentTimeout() {
+    long start = System.currentTimeMillis();
+    ResultWithErrors<List<CopybookSemanticContext>> result = analyze(60000, 100);
+
+    assertTrue(System.currentTimeMillis() - start < 30000);
+    assertTimedOut(result);
+    assertEquals(0, statistics.getCopybookTimeouts());
+    assertEquals(1, statistics.getDocumentTimeouts());
+  }
+
+  private ResultWithErrors<List<CopybookSemanticContext>> analyze(
+      int copybookTimeout, int documentTimeout) {
+    CobolPreprocessor preprocessor = mock(CobolPreprocessor.class);
+    PreprocessedCopybookCache cache = mock(PreprocessedCopybookCache.class);
+    CopybookResolution resolution = new CopybookResolution(databus);
+    AnalyseCopybookTaskFactory factory =
+        (documentUri, copybookUsage, tracker, textDocumentSyncType, token) ->
+            new AnalyseCopybookTask(
+                databus,
+                preprocessor,
+                cache,
+                resolution,
+                statistics,
+                copybookTimeout,
+                documentUri,
+                copybookUsage,
+                tracker,
+                textDocumentSyncType,
+                token);
+    Multimap<String, Position> copybooks = HashMultimap.create();
+    copybooks.put(COPYBOOK_NAME, STATEMENT);
+    return new CopybookParallelAnalysis(factory, statistics, documentTimeout)
+        .analyzeCopybooks(DOCUMENT_URI, copybooks, emptyList(), "DID_OPEN", CancellationToken.NONE);
+  }
+
+  private void assertTimedOut(ResultWithErrors<List<CopybookSemanticContext>> result) {
+    assertTrue(result.getResult().isEmpty());
+    assertEquals(1, result.getErrors().size());
+    SyntaxError error = result.getErrors().get(0);
+    assertEquals(STATEMENT, error.getPosition());
+    assertEquals(ErrorCode.MISSING_COPYBOOK, error.getErrorCode());
+    assertEquals(COPYBOOK_NAME + ": Copybook resolution timed out", error.getSuggestion());
+  }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2020 Broadcom.
+ * The term "Broadcom" refers to Broadcom Inc. and/or its subsidiaries.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *   Broadcom, Inc. - initial API and implementation
+ */
+package com.ca.lsp.core.cobol.preprocessor.sub.copybook;
+
+import com.broadcom.lsp.cdi.module.databus.DatabusModule;
+import com.broadcom.lsp.domain.cobol.databus.api.CopybookRepository;
+import com.broadcom.lsp.domain.cobol.databus.api.DataBusBroker;
+import com.broadcom.lsp.domain.cobol.event.api.EventObserver;
+import com.broadcom.lsp.domain.cobol.event.model.DataEventType;
+import com.broadcom.lsp.domain.cobol.event.model.FetchedCopybookEvent;
+import com.broadcom.lsp.domain.cobol.event.model.RequiredCopybookEvent;
+import com.google.inject.Guice;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * This test checks that {@link CopybookResolution} shares a single result between the concurrent
+ * requests of the same copybook, still posting the request of each document so its dependency is
+ * recorded, and stores the resolved content in the copybook cache.
+ */
+public class CopybookResolutionTest {
+  private static final String NAME = "SHARED";
+  private static final String CONTENT = "       01 SHARED-ITEM PIC X.";
+
+  private final DataBusBroker databus =
+      Guice.createInjector(new DatabusModule()).getInstance(DataBusBroker.class);
+  private final LinkedBlockingQueue<RequiredCopybookEvent> requests = new LinkedBlockingQueue<>();
+  private final CopybookResolution resolution = new CopybookResolution(databus);
+
+  @After
+  public void cleanup() {
+    databus.invalidateCache();
+  }
+
+  @Test
+  public void testConcurrentRequestsShareResolution() throws Exception {
+    databus.subscribe(
+        DataEventType.REQUIRED_COPYBOOK_EVENT,
+        (EventObserver<RequiredCopybookEvent>) requests::add);
+
+    CompletableFuture<FetchedCopybookEvent> first =
+        resolution.resolve(NAME, "file:///first.cbl", "DID_OPEN");
+    CompletableFuture<FetchedCopybookEvent> second =
+        resolution.resolve(NAME.toLowerCase(), "file:///second.cbl", "DID_OPEN");
+
+    assertSame(first, second);
+    Set<String> requesters = new HashSet<>();
+    requesters.add(requests.poll(10, TimeUnit.SECONDS).getDocumentUri());
+    requesters.add(requests.poll(10, TimeUnit.SECONDS).getDocumentUri());
+    assertEquals(new HashSet<>(asList("file:///first.cbl", "file:///second.cbl")), requesters);
+    databus.postData(
+        FetchedCopybookEvent.builder()
+            .name(NAME)
+            .uri("file:///SHARED.cpy")
+            .content(CONTENT)
+            .build());
+
+    assertEquals(CONTENT, first.get(10, TimeUnit.SECONDS).getContent());
+    assertTrue(databus.isStored(CopybookRepository.calculateUUID(NAME)));
+    assertNull(requests.poll(100, TimeUnit.MILLISECONDS));
+  }
+
+  @Test
+  public void testForgottenRequestIsPostedAgain() throws Exception {
+    databus.subscribe(
+        DataEventType.REQUIRED_COPYBOOK_EVENT,
+        (EventObserver<RequiredCopybookEvent>) requests::add);
+
+    CompletableFuture<FetchedCopybookEvent> lost = resolution.resolve(NAME, null, "DID_OPEN");
+    resolution.forget(NAME, lost);
+    CompletableFuture<FetchedCopybookEvent> next = resolution.resolve(NAME, null, "DID_OPEN");
+
+    assertNotSame(lost, next);
+    assertNotNull(requests.poll(10, TimeUnit.SECONDS));
+    assertNotNull(requests.poll(10, TimeUnit.SECONDS));
+  }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2020 Broadcom.
+ * The term "Broadcom" refers to Broadcom Inc. and/or its subsidiaries.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *   Broadcom, Inc. - initial API and implementation
+ */
+package com.ca.lsp.core.cobol.preprocessor.sub.copybook;
+
+import com.broadcom.lsp.cdi.module.databus.DatabusModule;
+import com.broadcom.lsp.domain.cobol.databus.api.DataBusBroker;
+import com.broadcom.lsp.domain.cobol.databus.model.CopybookStorable;
+import com.broadcom.lsp.domain.common.model.Position;
+import com.ca.lsp.core.cobol.model.CopybookUsage;
+import com.ca.lsp.core.cobol.model.PreprocessedInput;
+import com.ca.lsp.core.cobol.model.ResultWithErrors;
+import com.ca.lsp.core.cobol.model.SyntaxError;
+import com.ca.lsp.core.cobol.model.Variable;
+import com.ca.lsp.core.cobol.semantics.SemanticContext;
+import com.google.inject.Guice;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.List;
+
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+/**
+ * This test checks that {@link PreprocessedCopybookCache} returns the stored result only for the
+ * same content in the same copybook hierarchy and only until the nested copybooks change.
+ */
+public class PreprocessedCopybookCacheTest {
+  private static final String URI = "file:///c%3A/workspace/.copybooks/OUTER.cpy";
+  private static final String CONTENT = "       01 PARENT.\n       COPY INNER.";
+  private static final Position DOCUMENT_STATEMENT = new Position("document", 0, 0, 1, 0);
+  private static final Position COPYBOOK_STATEMENT = new Position(URI, 0, 0, 1, 0);
+  private static final List<CopybookUsage> TRACKER =
+      singletonList(new CopybookUsage("OUTER", URI, singletonList(DOCUMENT_STATEMENT)));
+
+  private final DataBusBroker databus =
+      Guice.createInjector(new DatabusModule()).getInstance(DataBusBroker.class);
+  private final PreprocessedCopybookCache cache = new PreprocessedCopybookCache(databus, 2);
+
+  @After
+  public void cleanup() {
+    databus.invalidateCache();
+  }
+
+  @Test
+  public void testSameContentReturnsStoredSummary() {
+    storeInner("       05 CHILD PIC X.");
+    SemanticContext context = createContext();
+    cache.put(cache.createKey(URI, CONTENT, TRACKER), toResult(context, emptyList()), TRACKER);
+
+    ResultWithErrors<PreprocessedInput> result =
+        cache.get(cache.createKey(URI, CONTENT, TRACKER)).orElse(null);
+
+    assertNotNull(result);
+    SemanticContext summary = result.getResult().getSemanticContext();
+    assertNotSame(context, summary);
+    assertSame(
+        summary,
+        cache.get(cache.createKey(URI, CONTENT, TRACKER)).get().getResult().getSemanticContext());
+    assertEquals(context.getVariables().getAll(), summary.getVariables().getAll());
+    assertEquals(context.getCopybooks().getUsages(), summary.getCopybooks().getUsages());
+    assertFalse(cache.get(cache.createKey(URI, CONTENT + " ", TRACKER)).isPresent());
+    assertFalse(cache.get(cache.createKey(URI, CONTENT, emptyList())).isPresent());
+  }
+
+  @Test
+  public void testChangeOfNestedCopybookHidesResult() {
+    storeInner("       05 CHILD PIC X.");
+    cache.put(
+        cache.createKey(URI, CONTENT, TRACKER), toResult(createContext(), emptyList()), TRACKER);
+
+    databus.invalidateCache();
+    storeInner("       05 CHILD PIC 9.");
+
+    assertFalse(cache.get(cache.createKey(URI, CONTENT, TRACKER)).isPresent());
+  }
+
+  @Test
+  public void testResultWithUnresolvedNestedCopybookIsNotStored() {
+    cache.put(
+        cache.createKey(URI, CONTENT, TRACKER), toResult(createContext(), emptyList()), TRACKER);
+
+    storeInner("       05 CHILD PIC X.");
+
+    assertFalse(cache.get(cache.createKey(URI, CONTENT, TRACKER)).isPresent());
+  }
+
+  @Test
+  public void testResultWithRecursionErrorIsNotStored() {
+    storeInner("       05 CHILD PIC X.");
+    List<SyntaxError> errors =
+        singletonList(SyntaxError.syntaxError().position(DOCUMENT_STATEMENT).build());
+    cache.put(cache.createKey(URI, CONTENT, TRACKER), toResult(createContext(), errors), TRACKER);
+
+    assertFalse(cache.get(cache.createKey(URI, CONTENT, TRACKER)).isPresent());
+  }
+
+  private void storeInner(String content) {
+    databus.storeData(
+        CopybookStorable.builder().name("INNER").uri("INNER").content(content).build());
+  }
+
+  private static SemanticContext createContext() {
+    SemanticContext context = new SemanticContext(TRACKER);
+    context.getVariables().define(new Variable("01", "PARENT"), COPYBOOK_STATEMENT);
+    context.getVariables().define(new Variable("05", "CHILD"), COPYBOOK_STATEMENT);
+    context.getVariables().createRelationBetweenVariables();
+    context.getCopybooks().addUsage("INNER", COPYBOOK_STATEMENT);
+    return context;
+  }
+
+  private static ResultWithErrors<PreprocessedInput> toResult(
+      SemanticContext context, List<SyntaxError> errors) {
+    return new ResultWithErrors<>(new PreprocessedInput(CONTENT, context), errors);
+  }
+}
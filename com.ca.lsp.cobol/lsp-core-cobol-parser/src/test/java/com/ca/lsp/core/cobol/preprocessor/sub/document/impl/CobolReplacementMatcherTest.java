@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2020 Broadcom.
+ * The term "Broadcom" refers to Broadcom Inc. and/or its subsidiaries.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *   Broadcom, Inc. - initial API and implementation
+ */
+package com.ca.lsp.core.cobol.preprocessor.sub.document.impl;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/** This test checks that {@link CobolReplacementMatcher} replaces all the replaceables at once. */
+public class CobolReplacementMatcherTest {
+
+  /** All the replaceables should be replaced, and the replaced text should not be scanned again */
+  @Test
+  public void testAllReplaceablesReplacedOnce() {
+    CobolReplacementMatcher matcher =
+        new CobolReplacementMatcher(
+            Arrays.asList(":TAG:", ":PREFIX:"), Arrays.asList("CHILD", ":TAG:-"));
+
+    assertEquals(
+        "05 :TAG:-NAME PIC X. 05 CHILD-ID PIC 9.",
+        replace(matcher, "05 :PREFIX:NAME PIC X. 05 :TAG:-ID PIC 9."));
+  }
+
+  /** A whitespace of a replaceable should match any sequence of whitespace and line breaks */
+  @Test
+  public void testWhitespaceMatchesLineBreaks() {
+    CobolReplacementMatcher matcher =
+        new CobolReplacementMatcher(
+            Collections.singletonList("  PIC   X(10)  "), Collections.singletonList("PIC X(20)"));
+
+    assertEquals(
+        "05 NAME PIC X(20).\r\n05 ID PIC 9.",
+        replace(matcher, "05 NAME PIC\r\n      X(10).\r\n05 ID PIC 9."));
+  }
+
+  /** The replaceable that comes first should win over the overlapping ones */
+  @Test
+  public void testFirstReplaceableWinsOverOverlappingOnes() {
+    CobolReplacementMatcher matcher =
+        new CobolReplacementMatcher(Arrays.asList("B C", "A B", "C"), Arrays.asList("1", "2", "3"));
+
+    assertEquals("A 1 3", replace(matcher, "A B C C"));
+  }
+
+  /** The text should not be copied if there is nothing to replace */
+  @Test
+  public void testTextWithoutReplaceablesNotCopied() {
+    CobolReplacementMatcher matcher =
+        new CobolReplacementMatcher(
+            Collections.singletonList(":TAG:"), Collections.singletonList("CHILD"));
+    StringBuilder text = new StringBuilder("05 NAME PIC X.");
+
+    assertSame(text, matcher.replace(text));
+  }
+
+  private static String replace(CobolReplacementMatcher matcher, String text) {
+    return matcher.replace(new StringBuilder(text)).toString();
+  }
+}
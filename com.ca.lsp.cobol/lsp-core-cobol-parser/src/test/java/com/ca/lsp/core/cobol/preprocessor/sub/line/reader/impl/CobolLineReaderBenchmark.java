@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2020 Broadcom.
+ * The term "Broadcom" refers to Broadcom Inc. and/or its subsidiaries.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *   Broadcom, Inc. - initial API and implementation
+ */
+package com.ca.lsp.core.cobol.preprocessor.sub.line.reader.impl;
+
+import com.ca.lsp.core.cobol.model.ResultWithErrors;
+import com.ca.lsp.core.cobol.preprocessor.sub.CobolLine;
+import org.apache.commons.io.IOUtils;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This JMH benchmark measures the time of reading a 50k-line document by {@link
+ * CobolLineReaderImpl}. The document is built by repeating a test program. It is not a part of the
+ * test suite, run its main method to get the results.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CobolLineReaderBenchmark {
+  private static final int LINES = 50000;
+
+  private String text;
+  private CobolLineReaderImpl reader;
+
+  @Setup
+  public void setUp() throws IOException {
+    String program;
+    try (InputStream stream = getClass().getResourceAsStream("/CM101M.CBL")) {
+      program = IOUtils.toString(stream, StandardCharsets.UTF_8);
+    }
+    String[] programLines = program.split("\r?\n");
+    StringBuilder builder = new StringBuilder();
+    for (int i = 0; i < LINES; i++) {
+      builder.append(programLines[i % programLines.length]).append("\r\n");
+    }
+    text = builder.toString();
+    reader = new CobolLineReaderImpl();
+  }
+
+  @Benchmark
+  public ResultWithErrors<List<CobolLine>> readLines() {
+    return reader.processLines("file:///benchmark.cbl", text);
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(
+            new OptionsBuilder().include(CobolLineReaderBenchmark.class.getSimpleName()).build())
+        .run();
+  }
+}
@@ -124,6 +124,47 @@ public class CobolLineReaderImplTest extends AbstractCobolLinePreprocessorTest {
     assertEquals(80, syntaxError.getPosition().getStartPosition());
   }
 
+  @Test
+  public void testAllLineBreaks() {
+    ResultWithErrors<List<CobolLine>> processed =
+        processText("000000 A.\n000010 B.\r000020 C.\r\n\r\n000030 D.\u2028000040 E.");
+
+    List<CobolLine> result = processed.getResult();
+    assertEquals(6, result.size());
+    assertEquals("000000 A.", result.get(0).toString());
+    assertEquals("000010 B.", result.get(1).toString());
+    assertEquals("000020 C.", result.get(2).toString());
+    assertEquals(" ", result.get(3).toString());
+    assertEquals("000030 D.", result.get(4).toString());
+    assertEquals("000040 E.", result.get(5).toString());
+    assertEquals(5, result.get(5).getNumber());
+    assertEquals(result.get(4), result.get(5).getPredecessor());
+    assertEquals(0, processed.getErrors().size());
+  }
+
+  @Test
+  public void testTooLongStringWithWrongIndicatorIsNotCut() {
+    String tooLongString =
+        "000000pIDENTIFICATION DIVISION.                                         23323232extra";
+    ResultWithErrors<List<CobolLine>> processed = processText(tooLongString);
+    assertEquals(tooLongString, processed.getResult().get(0).toString());
+
+    assertEquals(1, processed.getErrors().size());
+    SyntaxError syntaxError = processed.getErrors().get(0);
+    assertEquals(6, syntaxError.getPosition().getStartPosition());
+    assertEquals(6, syntaxError.getPosition().getStopPosition());
+  }
+
+  @Test
+  public void testCompilerDirectiveLine() {
+    ResultWithErrors<List<CobolLine>> processed = processText("process lib,apost");
+
+    CobolLine line = processed.getResult().get(0);
+    assertEquals("       process lib,apost", line.toString());
+    assertEquals("proc", line.getContentAreaA().toString());
+    assertEquals(0, processed.getErrors().size());
+  }
+
   // END @Test methods
 
   private List<String> createTextToTest() {
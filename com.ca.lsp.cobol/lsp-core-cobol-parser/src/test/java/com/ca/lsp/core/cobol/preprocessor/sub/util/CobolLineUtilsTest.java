@@ -17,6 +17,7 @@ package com.ca.lsp.core.cobol.preprocessor.sub.util;
 
 import com.ca.lsp.core.cobol.preprocessor.sub.CobolLine;
 import com.ca.lsp.core.cobol.preprocessor.sub.CobolLineTypeEnum;
+import org.apache.commons.lang3.StringUtils;
 import org.junit.Test;
 
 import static com.ca.lsp.core.cobol.preprocessor.ProcessingConstants.BLANK_SEQUENCE_AREA;
@@ -108,4 +109,19 @@ public class CobolLineUtilsTest {
 
     assertEquals(expected, actual);
   }
+
+  @Test
+  public void copyCobolLineWithPartOfContentArea() {
+    String text = "000100 MOVE A TO B." + StringUtils.repeat(' ', 53) + "00000001";
+    CobolLine line = new CobolLine(text, 0, text.length());
+
+    CobolLine actual =
+        CobolLineUtils.copyCobolLineWithContentArea(line.getContentArea().subSequence(5, 12), line);
+
+    assertEquals("A TO", actual.getContentAreaA().toString());
+    assertEquals(" B.", actual.getContentAreaB().toString());
+    assertEquals("000100", actual.getSequenceArea().toString());
+    assertEquals("00000001", actual.getCommentArea().toString());
+    assertEquals("000100 A TO B.00000001", actual.toString());
+  }
 }
@@ -161,6 +161,45 @@ public class CobolVariableContextTest {
     assertFalse(context.contains(cpyMark));
   }
 
+  /**
+   * Test that merging a frozen copybook context into several documents copies its variables, so
+   * building the variable structure of a document doesn't modify the shared context.
+   */
+  @Test
+  public void mergeFrozenContextTest() {
+    Position pos = new Position("cpy", 0, 1, 0, 0);
+    CobolVariableContext copybook = new CobolVariableContext();
+    copybook.define(new Variable(LEVEL10, VAR3), pos);
+    copybook.define(new Variable(LEVEL18, VAR6), pos);
+    copybook.createRelationBetweenVariables();
+    CobolVariableContext frozen = copybook.freeze();
+
+    CobolVariableContext first = mergeIntoDocument(frozen);
+    CobolVariableContext second = mergeIntoDocument(frozen);
+
+    assertNotSame(first.get(VAR3), second.get(VAR3));
+    assertSame(first.get(VAR3), first.get(VAR6).getParent());
+    assertEquals(VAR1, first.get(VAR3).getParent().getName());
+    assertNull(frozen.get(VAR3).getParent());
+    assertEquals(1, frozen.get(VAR3).getChildren().size());
+    try {
+      frozen.define(var1, pos);
+      fail("A frozen context should not be modified");
+    } catch (UnsupportedOperationException e) {
+      assertEquals(2, frozen.getAll().size());
+    }
+  }
+
+  private CobolVariableContext mergeIntoDocument(CobolVariableContext copybook) {
+    Position pos = new Position("doc", 0, 1, 0, 0);
+    CobolVariableContext document = new CobolVariableContext();
+    document.define(new Variable(LEVEL1, VAR1), pos);
+    document.define(new Variable("-1", "CPY"), pos);
+    document.merge("CPY", copybook);
+    document.createRelationBetweenVariables();
+    return document;
+  }
+
   private boolean isVariableDefinedInStructure(Variable variable, String targetVariableName) {
     if (variable.getChildren().contains(targetVariableName)) {
       return true;
@@ -73,4 +73,12 @@ public interface CopybookRepository {
 
   @SneakyThrows
   void invalidateCache();
+
+  /**
+   * Remove the copybook with the given name from the cache ignoring the case of the name, since it
+   * may be referred differently in the COPY statements
+   *
+   * @param name - the name of the changed copybook
+   */
+  void invalidateCache(@NonNull String name);
 }
@@ -81,4 +81,11 @@ public interface DataBusBroker<T extends DataEvent, S> {
 
   @SneakyThrows
   void invalidateCache();
+
+  /**
+   * Remove only the copybook with the given name from the cache, e.g. when its file changed
+   *
+   * @param copybookName - the name of the changed copybook
+   */
+  void invalidateCache(@NonNull String copybookName);
 }
@@ -160,4 +160,10 @@ public class CopybookRepositoryLRU implements CopybookRepository {
   public void invalidateCache() {
     cpyRepo.clear();
   }
+
+  @Override
+  @SneakyThrows
+  public synchronized void invalidateCache(@NonNull String name) {
+    cpyRepo.removeIf(it -> it.getName().equalsIgnoreCase(name));
+  }
 }
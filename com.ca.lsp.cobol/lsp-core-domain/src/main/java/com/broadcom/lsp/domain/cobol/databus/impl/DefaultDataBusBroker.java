@@ -138,4 +138,10 @@ public class DefaultDataBusBroker<T extends DataEvent, S> extends AbstractDataBu
   public void invalidateCache() {
     getCopybookRepo().invalidateCache();
   }
+
+  @Override
+  @SneakyThrows
+  public void invalidateCache(@NonNull String copybookName) {
+    getCopybookRepo().invalidateCache(copybookName);
+  }
 }
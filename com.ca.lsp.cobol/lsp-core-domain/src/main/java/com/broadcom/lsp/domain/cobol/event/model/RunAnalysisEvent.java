@@ -15,14 +15,27 @@
 
 package com.broadcom.lsp.domain.cobol.event.model;
 
+import lombok.Getter;
+
+import java.util.Collections;
+import java.util.Set;
+
 import static com.broadcom.lsp.domain.cobol.event.model.DataEventType.RUN_ANALYSIS_EVENT;
 
 /**
  * This class is a signal object to show that it is needed to run the syntax and semantic again for
- * all the registered documents.
+ * the registered documents, e.g. when the copybooks they depend on changed.
  */
 public class RunAnalysisEvent extends DataEvent {
+  /** The URIs of the documents to analyze or null if all the registered documents are affected */
+  @Getter private final Set<String> documentUris;
+
   public RunAnalysisEvent() {
+    this(null);
+  }
+
+  public RunAnalysisEvent(Set<String> documentUris) {
     super(RUN_ANALYSIS_EVENT, RUN_ANALYSIS_EVENT.getId());
+    this.documentUris = documentUris == null ? null : Collections.unmodifiableSet(documentUris);
   }
 }
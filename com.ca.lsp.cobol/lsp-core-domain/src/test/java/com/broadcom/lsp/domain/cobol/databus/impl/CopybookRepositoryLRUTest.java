@@ -176,6 +176,20 @@ public class CopybookRepositoryLRUTest extends CopybookStorableProvider {
     assertEquals(repository.size(), prevCacheSize);
   }
 
+  /**
+   * This test verifies that only the copybook with the given name is removed from the cache
+   * ignoring the case of the name
+   */
+  @Test
+  public void testInvalidateCopybook() {
+    repository.persist(new CopybookStorable("NEW_STO", "URI", "DUMMY CONTENT"));
+
+    repository.invalidateCache(storable.getName().toLowerCase());
+
+    assertFalse(repository.isStored(storable.getName()));
+    assertTrue(repository.isStored("NEW_STO"));
+  }
+
   /**
    * This test verify that a string representation of the cache content is returned to the callee.
    * If the cache is empty an empty string is returned
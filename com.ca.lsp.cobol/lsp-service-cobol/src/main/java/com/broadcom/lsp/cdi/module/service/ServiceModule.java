@@ -56,6 +56,10 @@ public class ServiceModule extends DefaultModule {
     bind(WorkspaceService.class).to(CobolWorkspaceServiceImpl.class);
     bind(Communications.class).to(ServerCommunications.class);
     bind(TextDocumentService.class).to(MyTextDocumentService.class);
+    bindConstant().annotatedWith(named("ANALYSIS-DEBOUNCE-DELAY")).to(300);
+    bindConstant().annotatedWith(named("ANALYSIS-CACHE-MAX-SIZE")).to(50);
+    bindConstant().annotatedWith(named("COPYBOOK-WATCHER-DELAY")).to(500);
+    bindConstant().annotatedWith(named("MISSING-COPYBOOK-TTL")).to(60000);
     bind(LanguageClient.class).toProvider(ClientProvider.class);
     bind(ConfigurationSettingsStorable.class).toProvider(SettingsProvider.class);
 
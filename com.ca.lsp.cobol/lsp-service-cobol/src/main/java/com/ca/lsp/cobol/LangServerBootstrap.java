@@ -20,6 +20,7 @@ import com.broadcom.lsp.cdi.LangServerCtx;
 import com.broadcom.lsp.cdi.module.databus.DatabusModule;
 import com.broadcom.lsp.cdi.module.service.ServiceModule;
 import com.ca.lsp.cobol.service.providers.ClientProvider;
+import com.ca.lsp.core.cobol.engine.ParserWarmUp;
 import lombok.experimental.UtilityClass;
 import lombok.extern.slf4j.Slf4j;
 import org.eclipse.lsp4j.jsonrpc.Launcher;
@@ -33,6 +34,7 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.util.Arrays;
 import java.util.concurrent.ExecutionException;
 
 /**
@@ -42,12 +44,16 @@ import java.util.concurrent.ExecutionException;
  *
  * <p>To run the extension using path, you may specify "pipeEnabled" as a program argument. In other
  * case the server will start using socket.
+ *
+ * <p>While the server waits for the client, the parser warm-up runs on a background thread. It may
+ * be disabled by specifying "warmUpDisabled" as a program argument.
  */
 @Slf4j
 @UtilityClass
 public class LangServerBootstrap {
   private static final Integer LSP_PORT = 1044;
   private static final String PIPE_ARG = "pipeEnabled";
+  private static final String NO_WARM_UP_ARG = "warmUpDisabled";
 
   public static void main(String[] args)
       throws ExecutionException, InterruptedException, IOException {
@@ -55,6 +61,9 @@ public class LangServerBootstrap {
     LanguageServer server = LangServerCtx.getInjector().getInstance(LanguageServer.class);
     ClientProvider provider = LangServerCtx.getInjector().getInstance(ClientProvider.class);
 
+    if (isWarmUpEnabled(args)) {
+      warmUp(LangServerCtx.getInjector().getInstance(ParserWarmUp.class));
+    }
     start(args, server, provider);
   }
 
@@ -90,6 +99,23 @@ public class LangServerBootstrap {
     return args.length > 0 && PIPE_ARG.equals(args[0]);
   }
 
+  boolean isWarmUpEnabled(@Nonnull String[] args) {
+    return !Arrays.asList(args).contains(NO_WARM_UP_ARG);
+  }
+
+  /**
+   * Run the parser warm-up on a separate daemon thread, so it neither blocks the client handshake
+   * nor prevents the server from stopping.
+   *
+   * @param warmUp the parser warm-up to run
+   */
+  void warmUp(@Nonnull ParserWarmUp warmUp) {
+    Thread thread = new Thread(warmUp::run, "parser-warm-up");
+    thread.setDaemon(true);
+    thread.setPriority(Thread.MIN_PRIORITY);
+    thread.start();
+  }
+
   Launcher<LanguageClient> createServerLauncherWithSocket(@Nonnull LanguageServer server)
       throws IOException {
     try (ServerSocket serverSocket = new ServerSocket(LSP_PORT)) {
@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) 2020 Broadcom.
+ * The term "Broadcom" refers to Broadcom Inc. and/or its subsidiaries.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *
+ *   Broadcom, Inc. - initial API and implementation
+ */
+package com.ca.lsp.cobol.service;
+
+import com.ca.lsp.core.cobol.engine.CancellationToken;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.google.inject.name.Named;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.function.Function;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * This class schedules the analysis of the documents, so there is at most one analysis running for
+ * each document at any time. The analyses requested during typing are debounced: an analysis
+ * starts only if there were no new requests for the document during the debounce delay. If a new
+ * analysis is requested while the previous one is still running, the running one is cancelled and
+ * exactly one follow-up analysis of the latest text starts after it stops. Since the analyses of a
+ * document never overlap, a result of an older text can never overwrite the result of a newer one.
+ */
+@Slf4j
+@Singleton
+public class AnalysisScheduler {
+  private final Map<String, DocumentState> states = new HashMap<>();
+  private final ScheduledExecutorService timer =
+      Executors.newSingleThreadScheduledExecutor(
+          runnable -> {
+            Thread thread = new Thread(runnable, "analysis-scheduler");
+            thread.setDaemon(true);
+            return thread;
+          });
+  private final int debounceDelay;
+
+  @Inject
+  public AnalysisScheduler(@Named("ANALYSIS-DEBOUNCE-DELAY") int debounceDelay) {
+    this.debounceDelay = debounceDelay;
+  }
+
+  /**
+   * Schedule the analysis of the document after the debounce delay. The previously scheduled
+   * analysis of the same document that didn't start yet is discarded.
+   *
+   * @param uri - the URI of the document to analyze
+   * @param analysis - the function that starts the analysis with the given cancellation token and
+   *     returns a future that completes when the analysis stops
+   */
+  public void schedule(String uri, Function<CancellationToken, CompletableFuture<?>> analysis) {
+    schedule(uri, analysis, debounceDelay);
+  }
+
+  /**
+   * Schedule the analysis of the document without the debounce delay, e.g. if the document was
+   * just opened. If another analysis of the document is running, the new one will start after it.
+   *
+   * @param uri - the URI of the document to analyze
+   * @param analysis - the function that starts the analysis with the given cancellation token and
+   *     returns a future that completes when the analysis stops
+   */
+  public void scheduleImmediately(
+      String uri, Function<CancellationToken, CompletableFuture<?>> analysis) {
+    schedule(uri, analysis, 0);
+  }
+
+  /**
+   * Discard the scheduled analysis of the document and cancel the running one, e.g. if the
+   * document was closed
+   *
+   * @param uri - the URI of the document
+   */
+  public synchronized void cancel(String uri) {
+    DocumentState state = states.get(uri);
+    if (state == null) {
+      return;
+    }
+    state.pending = null;
+    stopTimer(state);
+    if (state.running == null) {
+      states.remove(uri);
+    } else {
+      state.running.cancel();
+    }
+  }
+
+  private synchronized void schedule(
+      String uri, Function<CancellationToken, CompletableFuture<?>> analysis, int delay) {
+    DocumentState state = states.computeIfAbsent(uri, it -> new DocumentState());
+    state.pending = analysis;
+    stopTimer(state);
+    int generation = ++state.generation;
+    if (delay > 0) {
+      state.timer = timer.schedule(() -> trigger(uri, generation), delay, MILLISECONDS);
+    } else {
+      trigger(uri, generation);
+    }
+  }
+
+  private synchronized void trigger(String uri, int generation) {
+    DocumentState state = states.get(uri);
+    if (state == null || state.generation != generation || state.pending == null) {
+      return;
+    }
+    state.timer = null;
+    if (state.running == null) {
+      start(uri, state);
+    } else {
+      log.debug("Analysis of {} is superseded, it will be restarted on the latest text", uri);
+      state.running.cancel();
+    }
+  }
+
+  private void start(String uri, DocumentState state) {
+    CancellationToken token = new CancellationToken();
+    Function<CancellationToken, CompletableFuture<?>> analysis = state.pending;
+    state.pending = null;
+    state.running = token;
+    try {
+      analysis.apply(token).whenComplete((res, ex) -> finish(uri, token));
+    } catch (RuntimeException e) {
+      finish(uri, token);
+      throw e;
+    }
+  }
+
+  private synchronized void finish(String uri, CancellationToken token) {
+    DocumentState state = states.get(uri);
+    if (state == null || state.running != token) {
+      return;
+    }
+    state.running = null;
+    if (state.timer != null) {
+      return;
+    }
+    if (state.pending == null) {
+      states.remove(uri);
+    } else {
+      start(uri, state);
+    }
+  }
+
+  private void stopTimer(DocumentState state) {
+    if (state.timer != null) {
+      state.timer.cancel(false);
+      state.timer = null;
+    }
+  }
+
+  /** The scheduling state of a single document guarded by the scheduler monitor */
+  private static class DocumentState {
+    private Function<CancellationToken, CompletableFuture<?>> pending;
+    private ScheduledFuture<?> timer;
+    private CancellationToken running;
+    private int generation;
+  }
+}
@@ -19,6 +19,8 @@ import com.broadcom.lsp.domain.cobol.databus.api.DataBusBroker;
 import com.broadcom.lsp.domain.cobol.event.model.FetchedSettingsEvent;
 import com.broadcom.lsp.domain.cobol.event.model.RequiredCopybookEvent;
 import com.broadcom.lsp.domain.cobol.event.model.RunAnalysisEvent;
+import com.ca.lsp.cobol.service.delegates.validations.AnalysisResultCache;
+import com.ca.lsp.cobol.service.utils.FileSystemUtils;
 import com.google.gson.JsonPrimitive;
 import com.google.inject.Inject;
 import com.google.inject.Provider;
@@ -30,8 +32,15 @@ import org.eclipse.lsp4j.services.WorkspaceService;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.file.FileSystemNotFoundException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.function.BiConsumer;
 
@@ -49,11 +58,22 @@ import static java.util.concurrent.CompletableFuture.completedFuture;
 public class CobolWorkspaceServiceImpl implements WorkspaceService {
   private DataBusBroker dataBus;
   private Provider<LanguageClient> clientProvider;
+  private AnalysisResultCache analysisResultCache;
+  private CopybookIndex copybookIndex;
+  private DocumentDependencyIndex dependencies;
 
   @Inject
-  public CobolWorkspaceServiceImpl(DataBusBroker dataBus, Provider<LanguageClient> clientProvider) {
+  public CobolWorkspaceServiceImpl(
+      DataBusBroker dataBus,
+      Provider<LanguageClient> clientProvider,
+      AnalysisResultCache analysisResultCache,
+      CopybookIndex copybookIndex,
+      DocumentDependencyIndex dependencies) {
     this.dataBus = dataBus;
     this.clientProvider = clientProvider;
+    this.analysisResultCache = analysisResultCache;
+    this.copybookIndex = copybookIndex;
+    this.dependencies = dependencies;
   }
 
   /**
@@ -82,6 +102,7 @@ public class CobolWorkspaceServiceImpl implements WorkspaceService {
 
       // invalidate cache to avoid false positive
       dataBus.invalidateCache();
+      analysisResultCache.invalidate();
       fetchSettings(LSP_PREFIX.label + "." + CPY_MANAGER.label, null)
           .thenAccept(e -> dataBus.postData(FetchedSettingsEvent.builder().content(e).build()));
     } catch (RuntimeException e) {
@@ -112,16 +133,67 @@ public class CobolWorkspaceServiceImpl implements WorkspaceService {
   }
 
   /**
-   * This method is triggered when the user modify the settings in the settings.json
+   * This method is triggered when the copybook files or folders watched by the client or by {@link
+   * CopybookWatcher} change. The changes are applied to the {@link CopybookIndex}, only the changed
+   * copybooks are removed from the cache, and only the documents that depend on them are analyzed
+   * again, see {@link DocumentDependencyIndex}. If a change cannot be applied to the index, all the
+   * copybooks are removed from the cache, and all the documents are analyzed again.
    *
-   * @param params the object that wrap the content changed by the user in the settings.json and
-   *     sent from the client to the server.
+   * @param params the object that wrap the changed files sent from the client to the server.
    */
   @Override
   public void didChangeWatchedFiles(@Nonnull DidChangeWatchedFilesParams params) {
-    dataBus.invalidateCache();
-    log.info("Cache invalidated due to a copybooks file watcher was triggered");
-    dataBus.postData(new RunAnalysisEvent());
+    Set<String> copybookNames = new HashSet<>();
+    boolean unknownChange = false;
+    for (FileEvent change : params.getChanges()) {
+      Set<String> changed = updateCopybookIndex(change);
+      if (changed == null) {
+        unknownChange = true;
+      } else {
+        copybookNames.addAll(changed);
+      }
+    }
+    if (unknownChange) {
+      dataBus.invalidateCache();
+      analysisResultCache.invalidate();
+      log.info("Cache invalidated due to a copybooks file watcher was triggered");
+      dataBus.postData(new RunAnalysisEvent());
+    } else if (!copybookNames.isEmpty()) {
+      copybookNames.forEach(dataBus::invalidateCache);
+      Set<String> documents = dependencies.findDocuments(copybookNames);
+      analysisResultCache.invalidate(documents);
+      log.info(
+          "{} copybooks changed, {} documents depend on them",
+          copybookNames.size(),
+          documents.size());
+      if (!documents.isEmpty()) {
+        dataBus.postData(new RunAnalysisEvent(documents));
+      }
+    }
+  }
+
+  /**
+   * Apply the change to the {@link CopybookIndex}. A change of the charset of a folder changes all
+   * its copybooks, see {@link FileSystemUtils#getCharset(Path)}.
+   *
+   * @return the upper-cased names of the changed copybooks or null if the change cannot be applied
+   */
+  @Nullable
+  private Set<String> updateCopybookIndex(@Nonnull FileEvent event) {
+    Path path;
+    try {
+      path = Paths.get(new URI(event.getUri()));
+    } catch (URISyntaxException | IllegalArgumentException | FileSystemNotFoundException e) {
+      log.error("Cannot apply the change of " + event.getUri() + ": " + e.getMessage());
+      return null;
+    }
+    if (FileSystemUtils.isEncodingFile(path)) {
+      FileSystemUtils.forgetCharsets();
+      return copybookIndex.add(path.getParent());
+    }
+    return event.getType() == FileChangeType.Deleted
+        ? copybookIndex.remove(path)
+        : copybookIndex.add(path);
   }
 
   @Nullable
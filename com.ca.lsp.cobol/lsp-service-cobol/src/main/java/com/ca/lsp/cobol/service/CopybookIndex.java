@@ -0,0 +1,282 @@
+/*
+ * Copyright (c) 2020 Broadcom.
+ * The term "Broadcom" refers to Broadcom Inc. and/or its subsidiaries.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *
+ *   Broadcom, Inc. - initial API and implementation
+ */
+package com.ca.lsp.cobol.service;
+
+import com.ca.lsp.cobol.service.utils.FileSystemUtils;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.google.inject.name.Named;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.FilenameUtils;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.stream.Stream;
+
+import static java.util.Collections.emptySet;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * This class keeps an in-memory index of the copybook files, so a copybook is looked up without
+ * walking the copybook folders each time. Each indexed folder maps the upper-cased names of the
+ * copybooks without extension to their paths. The copybook folders of the workspace are indexed
+ * once in background, their sub-folders in parallel, and any other folder is indexed on the first
+ * lookup in it. The lookups and the changes wait for the background indexing, so a folder is not
+ * walked twice and no change is lost. The index is kept up to date by {@link #add(Path)} and {@link
+ * #remove(Path)} that should be called for the changes of the file system, e.g. reported by the
+ * client file watchers.
+ *
+ * <p>The copybooks that are not found in the given list of folders are remembered for the
+ * configured time, so a document that refers to missing copybooks doesn't look them up again on
+ * each change. A missing copybook is forgotten as soon as a file with its name is added. A folder
+ * that is not indexed is scanned when it is added, so its copybooks are forgotten as well.
+ */
+@Slf4j
+@Singleton
+public class CopybookIndex {
+  private static final int MAX_DEPTH = 100;
+
+  private final Map<Path, Map<String, Set<Path>>> folders = new ConcurrentHashMap<>();
+  private final Map<String, Miss> missing = new ConcurrentHashMap<>();
+  private final long missingTtl;
+  private volatile CompletableFuture<Void> indexing = CompletableFuture.completedFuture(null);
+
+  @Inject
+  public CopybookIndex(@Named("MISSING-COPYBOOK-TTL") int missingTtl) {
+    this.missingTtl = MILLISECONDS.toNanos(missingTtl);
+  }
+
+  /**
+   * Start indexing the given folders including their sub-folders in background. The folders that
+   * are already indexed are kept, since their indexes are up to date.
+   *
+   * @param paths - the folders to index, e.g. the copybook folders of the workspace
+   * @return the future that completes when the folders are indexed
+   */
+  @Nonnull
+  public synchronized CompletableFuture<Void> index(@Nonnull Collection<Path> paths) {
+    indexing =
+        indexing.thenRunAsync(
+            () -> {
+              paths.stream()
+                  .map(CopybookIndex::normalize)
+                  .forEach(it -> folders.computeIfAbsent(it, CopybookIndex::scan));
+              missing.clear();
+            });
+    return indexing;
+  }
+
+  /**
+   * Find the copybook with the given name in the first of the given folders that contains it. If
+   * it is not found, the same lookup returns null without searching until the copybook is added
+   * or the configured time passes.
+   *
+   * @param name - the name of the copybook without extension, case-insensitive
+   * @param paths - the folders to search the copybook in, the missing ones are skipped
+   * @return the path of the copybook or null if not found
+   */
+  @Nullable
+  public Path find(@Nonnull String name, @Nonnull List<Path> paths) {
+    String key = toKey(name);
+    Miss miss = missing.get(key);
+    if (miss != null
+        && miss.getFolders().equals(paths)
+        && miss.getExpiry() - System.nanoTime() > 0) {
+      return null;
+    }
+    Path result =
+        paths.stream()
+            .filter(Files::isDirectory)
+            .map(it -> find(name, it))
+            .filter(Objects::nonNull)
+            .findFirst()
+            .orElse(null);
+    if (result == null && missingTtl > 0) {
+      missing.put(key, new Miss(paths, System.nanoTime() + missingTtl));
+    }
+    return result;
+  }
+
+  /**
+   * Find the copybook with the given name in the given folder or its sub-folders
+   *
+   * @param name - the name of the copybook without extension, case-insensitive
+   * @param folder - the folder to search the copybook in
+   * @return the path of the copybook or null if not found
+   */
+  @Nullable
+  public Path find(@Nonnull String name, @Nonnull Path folder) {
+    indexing.join();
+    Path target = normalize(folder);
+    return findIndex(target).getOrDefault(toKey(name), emptySet()).stream()
+        .filter(it -> it.startsWith(target))
+        .filter(Files::isRegularFile)
+        .findFirst()
+        .orElse(null);
+  }
+
+  /**
+   * Add the created or changed file to the index. If it is a folder, all its copybooks are added.
+   *
+   * @param path - the path of the created or changed file or folder
+   * @return the upper-cased names of the added copybooks
+   */
+  @Nonnull
+  public Set<String> add(@Nonnull Path path) {
+    indexing.join();
+    Path target = normalize(path);
+    Map<String, Set<Path>> found = Files.isDirectory(target) ? scan(target) : scanFile(target);
+    findIndexes(target)
+        .forEach(index -> found.forEach((key, paths) -> getPaths(index, key).addAll(paths)));
+    found.keySet().forEach(missing::remove);
+    return found.keySet();
+  }
+
+  /**
+   * Remove the deleted file from the indexes of the folders that contain it. A copybook is looked
+   * up by its name. If it was not an indexed copybook, e.g. a folder, all the copybooks inside it
+   * are removed.
+   *
+   * @param path - the path of the deleted file or folder
+   * @return the upper-cased names of the removed copybooks
+   */
+  @Nonnull
+  public Set<String> remove(@Nonnull Path path) {
+    indexing.join();
+    Path target = normalize(path);
+    String key = toKey(target);
+    Set<String> removed = new HashSet<>();
+    for (Map<String, Set<Path>> index : findIndexes(target)) {
+      if (index.getOrDefault(key, emptySet()).remove(target)) {
+        removed.add(key);
+      } else {
+        index.forEach(
+            (name, paths) -> {
+              if (paths.removeIf(it -> it.startsWith(target))) {
+                removed.add(name);
+              }
+            });
+      }
+    }
+    return removed;
+  }
+
+  private Map<String, Set<Path>> findIndex(Path folder) {
+    return folders.entrySet().stream()
+        .filter(it -> folder.startsWith(it.getKey()))
+        .map(Map.Entry::getValue)
+        .findFirst()
+        .orElseGet(() -> folders.computeIfAbsent(folder, CopybookIndex::scan));
+  }
+
+  private List<Map<String, Set<Path>>> findIndexes(Path path) {
+    return folders.entrySet().stream()
+        .filter(it -> path.startsWith(it.getKey()))
+        .map(Map.Entry::getValue)
+        .collect(toList());
+  }
+
+  /** Walk the folder, each of its sub-folders in parallel, and collect the found copybooks */
+  private static Map<String, Set<Path>> scan(Path folder) {
+    Map<String, Set<Path>> index = new ConcurrentHashMap<>();
+    try (Stream<Path> children = Files.list(folder)) {
+      children.collect(toList()).parallelStream().forEach(it -> walk(it, index));
+    } catch (IOException e) {
+      log.debug("Cannot index copybooks in {}: {}", folder, e.getMessage());
+    }
+    return index;
+  }
+
+  private static Map<String, Set<Path>> scanFile(Path file) {
+    Map<String, Set<Path>> index = new ConcurrentHashMap<>();
+    if (Files.isRegularFile(file) && isCopybook(file)) {
+      getPaths(index, toKey(file)).add(file);
+    }
+    return index;
+  }
+
+  private static void walk(Path start, Map<String, Set<Path>> index) {
+    try {
+      Files.walkFileTree(
+          start,
+          EnumSet.of(FileVisitOption.FOLLOW_LINKS),
+          MAX_DEPTH - 1,
+          new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+              if (attributes.isRegularFile() && isCopybook(file)) {
+                getPaths(index, toKey(file)).add(file);
+              }
+              return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e) {
+              log.debug("Cannot index {}: {}", file, e.getMessage());
+              return FileVisitResult.CONTINUE;
+            }
+          });
+    } catch (IOException e) {
+      log.debug("Cannot index copybooks in {}: {}", start, e.getMessage());
+    }
+  }
+
+  private static Set<Path> getPaths(Map<String, Set<Path>> index, String key) {
+    return index.computeIfAbsent(key, it -> new ConcurrentSkipListSet<>());
+  }
+
+  private static boolean isCopybook(Path path) {
+    String fileName = String.valueOf(path.getFileName());
+    return fileName.contains(".") && FileSystemUtils.hasFileValidExtension(fileName);
+  }
+
+  private static String toKey(Path path) {
+    return toKey(FilenameUtils.getBaseName(String.valueOf(path.getFileName())));
+  }
+
+  private static String toKey(String name) {
+    return name.toUpperCase(Locale.ROOT);
+  }
+
+  private static Path normalize(Path path) {
+    return path.toAbsolutePath().normalize();
+  }
+
+  @Value
+  private static class Miss {
+    private List<Path> folders;
+    private long expiry;
+  }
+}
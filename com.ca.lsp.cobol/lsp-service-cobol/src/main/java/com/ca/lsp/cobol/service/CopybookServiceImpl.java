@@ -24,15 +24,18 @@ import com.ca.lsp.cobol.service.delegates.dependency.CopybookDependencyService;
 import com.google.inject.Inject;
 import com.google.inject.Provider;
 import com.google.inject.Singleton;
+import lombok.Value;
 import lombok.extern.slf4j.Slf4j;
 import org.eclipse.lsp4j.WorkspaceFolder;
 
-import java.net.URI;
 import java.nio.file.Path;
 import java.util.Collection;
 import java.util.List;
+import java.util.Locale;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -47,20 +50,25 @@ public class CopybookServiceImpl implements CopybookService {
 
   private CopybookDependencyService dependencyService;
   private final Provider<ConfigurationSettingsStorable> configurationSettingsStorableProvider;
+  private final CopybookIndex copybookIndex;
+  private final Set<Lookup> lookups = ConcurrentHashMap.newKeySet();
 
   @Inject
   public CopybookServiceImpl(
       DataBusBroker dataBus,
       Provider<ConfigurationSettingsStorable> configurationSettingsStorableProvider,
-      CopybookDependencyService dependencyService) {
+      CopybookDependencyService dependencyService,
+      CopybookIndex copybookIndex) {
     this.dataBus = dataBus;
     this.configurationSettingsStorableProvider = configurationSettingsStorableProvider;
     this.dependencyService = dependencyService;
+    this.copybookIndex = copybookIndex;
     dataBus.subscribe(DataEventType.REQUIRED_COPYBOOK_EVENT, this);
   }
 
   /**
-   * Store the information about the workspace folders defined by the client IDE
+   * Store the information about the workspace folders defined by the client IDE and start indexing
+   * their copybook folders in background, so the initialization is not delayed
    *
    * @param workspaceFolders list of workspace folders sent by the client to the server
    */
@@ -68,6 +76,9 @@ public class CopybookServiceImpl implements CopybookService {
   public void setWorkspaceFolders(List<WorkspaceFolder> workspaceFolders) {
     createPathListFromWorkspaceFolders(workspaceFolders);
     setPathListInDependencyFile();
+    List<Path> copybookFolders =
+        workspaceFolderPaths.stream().map(this::getCopybookBaseFolder).collect(Collectors.toList());
+    copybookIndex.index(copybookFolders);
   }
 
   private void createPathListFromWorkspaceFolders(List<WorkspaceFolder> workspaceFolders) {
@@ -96,11 +107,11 @@ public class CopybookServiceImpl implements CopybookService {
    */
   @Override
   public Path findCopybook(String fileName) {
-    return workspaceFolderPaths.stream()
-        .map(it -> applySearch(fileName, getCopybookBaseFolder(it)))
-        .filter(Objects::nonNull)
-        .findAny()
-        .orElse(null);
+    return copybookIndex.find(
+        fileName,
+        workspaceFolderPaths.stream()
+            .map(this::getCopybookBaseFolder)
+            .collect(Collectors.toList()));
   }
 
   /**
@@ -112,17 +123,10 @@ public class CopybookServiceImpl implements CopybookService {
    */
   @Override
   public Path findCopybook(String filename, List<String> datasetList) {
-    return retrievePathOrNull(
+    String copybookFolder = getCopybookBaseFolder(workspaceFolderPaths.get(0)).toString();
+    return copybookIndex.find(
         filename,
-        getPathList(getCopybookBaseFolder(workspaceFolderPaths.get(0)).toString(), datasetList));
-  }
-
-  private Path retrievePathOrNull(String filename, List<Path> datasetPathList) {
-    return datasetPathList.stream()
-        .map(it -> applySearch(filename, it))
-        .filter(Objects::nonNull)
-        .findAny()
-        .orElse(null);
+        datasetList.stream().map(it -> getPath(copybookFolder, it)).collect(Collectors.toList()));
   }
 
   private Path resolveURI(WorkspaceFolder workspaceFolder) {
@@ -133,13 +137,35 @@ public class CopybookServiceImpl implements CopybookService {
     return getPath(workspaceFolderPath.toString(), COPYBOOK_FOLDER_NAME);
   }
 
-  /** create the task and pass it to the executor service */
+  /**
+   * Record the dependency of the requesting document and resolve the copybook. Each document that
+   * requires the copybook posts its own request, so the dependency is recorded for all of them, but
+   * the concurrent requests for the same copybook in the same configuration share a single search
+   * in the file system and a single {@link FetchedCopybookEvent}, which completes all the waiting
+   * requests. The copybook names are case-insensitive.
+   *
+   * @param event - the request of a copybook by a document
+   */
   @Override
   public void observerCallback(RequiredCopybookEvent event) {
 
     String requiredCopybookName = event.getName();
     dependencyService.addCopybookInDepFile(event, requiredCopybookName);
-    resolveCopybookContent(requiredCopybookName);
+    ConfigurationSettingsStorable configurationSettingsStorable =
+        configurationSettingsStorableProvider.get();
+    Lookup lookup =
+        new Lookup(requiredCopybookName.toUpperCase(Locale.ROOT), configurationSettingsStorable);
+    if (!lookups.add(lookup)) {
+      log.trace("Copybook {} is already being resolved", requiredCopybookName);
+      return;
+    }
+    FetchedCopybookEvent fetched;
+    try {
+      fetched = resolveCopybookContent(requiredCopybookName, configurationSettingsStorable);
+    } finally {
+      lookups.remove(lookup);
+    }
+    dataBus.postData(fetched);
   }
 
   /**
@@ -148,33 +174,30 @@ public class CopybookServiceImpl implements CopybookService {
    *
    * @param requiredCopybookName name of the copybook for what is necessary retrieve the content if
    *     exists.
+   * @param configurationSettingsStorable the settings of the user or null if they are not set
+   * @return the event with the content of the copybook or without it if it is not found
    */
-  private void resolveCopybookContent(String requiredCopybookName) {
-    ConfigurationSettingsStorable configurationSettingsStorable =
-        configurationSettingsStorableProvider.get();
+  private FetchedCopybookEvent resolveCopybookContent(
+      String requiredCopybookName, ConfigurationSettingsStorable configurationSettingsStorable) {
     if (configurationSettingsStorable == null) {
-      publishOnDatabus(requiredCopybookName);
-      return;
+      return FetchedCopybookEvent.builder().name(requiredCopybookName).build();
     }
 
     Path path = findCopybook(requiredCopybookName, configurationSettingsStorable.getPaths());
     if (isFileExists(path)) {
-      publishOnDatabus(requiredCopybookName, getContentByPath(path), path);
-    } else {
-      publishOnDatabus(requiredCopybookName);
+      return FetchedCopybookEvent.builder()
+          .name(requiredCopybookName)
+          .uri(path.toUri().toString())
+          .content(getContentByPath(path))
+          .build();
     }
+    return FetchedCopybookEvent.builder().name(requiredCopybookName).build();
   }
 
-  private void publishOnDatabus(String requiredCopybookName, String content, Path path) {
-    dataBus.postData(
-        FetchedCopybookEvent.builder()
-            .name(requiredCopybookName)
-            .uri(Optional.ofNullable(path).map(Path::toUri).map(URI::toString).orElse(null))
-            .content(content)
-            .build());
-  }
-
-  private void publishOnDatabus(String requiredCopybookName) {
-    dataBus.postData(FetchedCopybookEvent.builder().name(requiredCopybookName).build());
+  /** The identity of a copybook search, i.e. the upper-cased name and the settings of the search */
+  @Value
+  private static class Lookup {
+    private String name;
+    private ConfigurationSettingsStorable configuration;
   }
 }
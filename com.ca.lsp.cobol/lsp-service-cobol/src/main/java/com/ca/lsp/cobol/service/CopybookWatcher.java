@@ -0,0 +1,236 @@
+/*
+ * Copyright (c) 2020 Broadcom.
+ * The term "Broadcom" refers to Broadcom Inc. and/or its subsidiaries.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *
+ *   Broadcom, Inc. - initial API and implementation
+ */
+package com.ca.lsp.cobol.service;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.google.inject.name.Named;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.lsp4j.DidChangeWatchedFilesParams;
+import org.eclipse.lsp4j.FileChangeType;
+import org.eclipse.lsp4j.FileEvent;
+import org.eclipse.lsp4j.WorkspaceFolder;
+import org.eclipse.lsp4j.services.WorkspaceService;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * This class watches the copybook folders of the workspace on the server side for the clients that
+ * don't register the file watchers, see {@link MyLanguageServerImpl}. The changes are collected
+ * until there are no new ones during the configured delay, so a burst of changes, e.g. when a lot
+ * of copybooks are downloaded at once, is applied by a single call of {@link
+ * WorkspaceService#didChangeWatchedFiles(DidChangeWatchedFilesParams)}, the same way as the changes
+ * reported by the client. If the changes don't stop, they are applied at least every ten delays.
+ */
+@Slf4j
+@Singleton
+public class CopybookWatcher {
+  private static final String COPYBOOK_FOLDER_NAME = ".copybooks";
+  private static final int MAX_BATCH_DELAYS = 10;
+
+  private final WorkspaceService workspaceService;
+  private final int delay;
+  private final Map<WatchKey, Path> folders = new ConcurrentHashMap<>();
+  private final Set<Path> copybookFolders = ConcurrentHashMap.newKeySet();
+  private WatchService watchService;
+
+  @Inject
+  public CopybookWatcher(
+      WorkspaceService workspaceService, @Named("COPYBOOK-WATCHER-DELAY") int delay) {
+    this.workspaceService = workspaceService;
+    this.delay = delay;
+  }
+
+  /**
+   * Start watching the copybook folders of the given workspace folders. If a copybook folder
+   * doesn't exist yet, the workspace folder is watched until it is created.
+   *
+   * @param workspaceFolders - the workspace folders sent by the client
+   */
+  public synchronized void watch(@Nonnull List<WorkspaceFolder> workspaceFolders) {
+    try {
+      if (watchService == null) {
+        watchService = FileSystems.getDefault().newWatchService();
+        WatchService service = watchService;
+        Thread thread = new Thread(() -> run(service), "copybook-watcher");
+        thread.setDaemon(true);
+        thread.start();
+      }
+      for (WorkspaceFolder workspaceFolder : workspaceFolders) {
+        Path workspacePath = Paths.get(new URI(workspaceFolder.getUri())).normalize();
+        Path copybookFolder = workspacePath.resolve(COPYBOOK_FOLDER_NAME);
+        copybookFolders.add(copybookFolder);
+        register(
+            watchService,
+            Files.isDirectory(copybookFolder) ? copybookFolder : workspacePath,
+            true);
+      }
+    } catch (IOException | URISyntaxException | IllegalArgumentException e) {
+      log.error("Cannot watch the copybook folders: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Stop watching the copybook folders. The watcher thread stops when the watch service is closed.
+   */
+  public synchronized void close() {
+    if (watchService == null) {
+      return;
+    }
+    try {
+      watchService.close();
+    } catch (IOException e) {
+      log.error("Cannot close the copybook watcher: " + e.getMessage());
+    }
+    watchService = null;
+    folders.clear();
+    copybookFolders.clear();
+  }
+
+  private void run(WatchService service) {
+    try {
+      while (true) {
+        Map<Path, FileChangeType> changes = new LinkedHashMap<>();
+        collect(service, service.take(), changes);
+        long deadline = System.nanoTime() + MILLISECONDS.toNanos((long) delay * MAX_BATCH_DELAYS);
+        WatchKey key;
+        while ((key = poll(service, deadline)) != null) {
+          collect(service, key, changes);
+        }
+        publish(changes);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (ClosedWatchServiceException e) {
+      log.debug("The copybook watcher is closed");
+    }
+  }
+
+  private WatchKey poll(WatchService service, long deadline) throws InterruptedException {
+    long remaining = deadline - System.nanoTime();
+    return remaining > 0
+        ? service.poll(Math.min(MILLISECONDS.toNanos(delay), remaining), NANOSECONDS)
+        : null;
+  }
+
+  private void collect(WatchService service, WatchKey key, Map<Path, FileChangeType> changes) {
+    Path folder = folders.get(key);
+    for (WatchEvent<?> event : key.pollEvents()) {
+      if (folder == null) {
+        continue;
+      }
+      if (event.kind() == OVERFLOW) {
+        changes.put(folder, FileChangeType.Created);
+        continue;
+      }
+      Path path = folder.resolve((Path) event.context());
+      if (copybookFolders.stream().noneMatch(path::startsWith)) {
+        continue;
+      }
+      if (event.kind() == ENTRY_DELETE) {
+        changes.put(path, FileChangeType.Deleted);
+      } else if (event.kind() == ENTRY_CREATE) {
+        if (Files.isDirectory(path)) {
+          register(service, path, false);
+        }
+        changes.put(path, FileChangeType.Created);
+      } else if (!Files.isDirectory(path)) {
+        changes.putIfAbsent(path, FileChangeType.Changed);
+      }
+    }
+    if (!key.reset()) {
+      folders.remove(key);
+    }
+  }
+
+  private void publish(Map<Path, FileChangeType> changes) {
+    if (changes.isEmpty()) {
+      return;
+    }
+    List<FileEvent> events = new ArrayList<>();
+    changes.forEach((path, type) -> events.add(new FileEvent(path.toUri().toString(), type)));
+    log.debug("Apply {} changes of the copybook folders", events.size());
+    try {
+      workspaceService.didChangeWatchedFiles(new DidChangeWatchedFilesParams(events));
+    } catch (RuntimeException e) {
+      log.error("Cannot apply the changes of the copybook folders", e);
+    }
+  }
+
+  /**
+   * Register the folder and, if it is a copybook folder or inside it, all its sub-folders. The
+   * service is passed by the caller, since the watcher thread must not see it replaced by {@link
+   * #close()}.
+   *
+   * @param service - the watch service to register the folders with
+   * @param folder - the folder to watch
+   * @param logErrors - true if the failures should be logged as errors
+   */
+  private void register(WatchService service, Path folder, boolean logErrors) {
+    try {
+      if (copybookFolders.stream().noneMatch(folder::startsWith)) {
+        registerFolder(service, folder);
+        return;
+      }
+      Files.walkFileTree(
+          folder,
+          new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attributes)
+                throws IOException {
+              registerFolder(service, dir);
+              return FileVisitResult.CONTINUE;
+            }
+          });
+    } catch (IOException e) {
+      if (logErrors) {
+        log.error("Cannot watch " + folder + ": " + e.getMessage());
+      } else {
+        log.debug("Cannot watch {}: {}", folder, e.getMessage());
+      }
+    }
+  }
+
+  private void registerFolder(WatchService service, Path folder) throws IOException {
+    folders.put(folder.register(service, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY), folder);
+  }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2020 Broadcom.
+ * The term "Broadcom" refers to Broadcom Inc. and/or its subsidiaries.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *   Broadcom, Inc. - initial API and implementation
+ */
+package com.ca.lsp.cobol.service;
+
+import com.google.inject.Singleton;
+
+import javax.annotation.Nonnull;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import static java.util.Collections.emptySet;
+import static java.util.stream.Collectors.toSet;
+
+/**
+ * This class keeps the copybooks that each analyzed document uses, including the nested ones, and
+ * the reverse index from each copybook to the documents that use it, so when a copybook changes,
+ * only the documents that depend on it are analyzed again. The copybook names are
+ * case-insensitive.
+ *
+ * <p>The dependencies of a document are known only after its analysis finishes, so a document that
+ * is being analyzed is considered dependent on any copybook until then.
+ *
+ * <p>Each opening of a document starts a new generation of it. An analysis keeps the generation it
+ * started with, and its dependencies are ignored if the document was removed or opened again in the
+ * meantime, so a late analysis cannot register a closed document again.
+ */
+@Singleton
+public class DocumentDependencyIndex {
+  /** The generation of a document that is not opened */
+  public static final long CLOSED = 0;
+
+  private final Map<String, Set<String>> copybooks = new HashMap<>();
+  private final Map<String, Set<String>> documents = new HashMap<>();
+  private final Set<String> analyzed = new HashSet<>();
+  private final Map<String, Long> generations = new HashMap<>();
+  private long lastGeneration = CLOSED;
+
+  /**
+   * Start a new generation of the opened document
+   *
+   * @param documentUri - the URI of the document
+   */
+  public synchronized void open(@Nonnull String documentUri) {
+    generations.put(documentUri, ++lastGeneration);
+  }
+
+  /**
+   * Mark the document as being analyzed, so it is analyzed again if any copybook changes before
+   * its dependencies are updated
+   *
+   * @param documentUri - the URI of the document
+   * @return the generation of the document to pass to {@link #update} or {@link #CLOSED} if the
+   *     document is not opened
+   */
+  public synchronized long startAnalysis(@Nonnull String documentUri) {
+    Long generation = generations.get(documentUri);
+    if (generation == null) {
+      return CLOSED;
+    }
+    analyzed.add(documentUri);
+    return generation;
+  }
+
+  /**
+   * Replace the dependencies of the document with the copybooks used by its latest analysis. The
+   * update is ignored if the document was removed or opened again after the analysis started.
+   *
+   * @param documentUri - the URI of the analyzed document
+   * @param generation - the generation returned by {@link #startAnalysis} for the analysis
+   * @param copybookNames - the names of the copybooks used by the document directly or through the
+   *     other copybooks
+   */
+  public synchronized void update(
+      @Nonnull String documentUri, long generation, @Nonnull Collection<String> copybookNames) {
+    if (generation == CLOSED || generation != generations.getOrDefault(documentUri, CLOSED)) {
+      return;
+    }
+    removeDependencies(documentUri);
+    Set<String> keys = copybookNames.stream().map(DocumentDependencyIndex::toKey).collect(toSet());
+    copybooks.put(documentUri, keys);
+    keys.forEach(it -> documents.computeIfAbsent(it, key -> new HashSet<>()).add(documentUri));
+  }
+
+  /**
+   * Remove the dependencies of the document, e.g. if it was closed
+   *
+   * @param documentUri - the URI of the document
+   */
+  public synchronized void remove(@Nonnull String documentUri) {
+    generations.remove(documentUri);
+    removeDependencies(documentUri);
+  }
+
+  private void removeDependencies(String documentUri) {
+    analyzed.remove(documentUri);
+    for (String key : copybooks.getOrDefault(documentUri, emptySet())) {
+      Set<String> uris = documents.get(key);
+      uris.remove(documentUri);
+      if (uris.isEmpty()) {
+        documents.remove(key);
+      }
+    }
+    copybooks.remove(documentUri);
+  }
+
+  /**
+   * @param copybookNames - the names of the changed copybooks
+   * @return the URIs of the documents that use any of the given copybooks or are being analyzed
+   */
+  @Nonnull
+  public synchronized Set<String> findDocuments(@Nonnull Collection<String> copybookNames) {
+    Set<String> result = new HashSet<>(analyzed);
+    copybookNames.stream()
+        .map(DocumentDependencyIndex::toKey)
+        .forEach(it -> result.addAll(documents.getOrDefault(it, emptySet())));
+    return result;
+  }
+
+  private static String toKey(String name) {
+    return name.toUpperCase(Locale.ROOT);
+  }
+}
@@ -15,6 +15,7 @@ package com.ca.lsp.cobol.service;
 
 import com.ca.lsp.cobol.service.delegates.validations.AnalysisResult;
 import lombok.Data;
+import lombok.Getter;
 import lombok.Value;
 import lombok.extern.slf4j.Slf4j;
 import org.eclipse.lsp4j.Position;
@@ -27,29 +28,31 @@ import java.util.List;
 
 /**
  * This class stores a Cobol program text to be processed. Provides a list of lines and text tokens
- * by position.
+ * by position. The text is split into lines only when they are requested for the first time.
  */
 @Data
 @Slf4j
 public class MyDocumentModel {
   private static final String DELIMITER = "[ .\\[\\]()<>,*]+";
-  private final List<Line> lines = new ArrayList<>();
   private final String text;
+
+  @Getter(lazy = true)
+  private final List<Line> lines = parse(text);
+
   private AnalysisResult analysisResult;
 
   public MyDocumentModel(String text, AnalysisResult analysisResult) {
     this.text = text;
     this.analysisResult = analysisResult;
-    parse(text);
   }
 
   public MyDocumentModel(String text) {
     this.text = text;
-    parse(text);
   }
 
   public Line getLine(int number) {
-    return lines.stream().filter(line -> line.getNumber() == number).findFirst().orElse(null);
+    List<Line> lines = getLines();
+    return number >= 0 && number < lines.size() ? lines.get(number) : null;
   }
 
   /**
@@ -74,7 +77,8 @@ public class MyDocumentModel {
     return retrieveToken(position, route);
   }
 
-  private void parse(String text) {
+  private static List<Line> parse(String text) {
+    List<Line> lines = new ArrayList<>();
     try (BufferedReader reader = new BufferedReader(new StringReader(text))) {
       String lineText;
       int lineNumber = 0;
@@ -86,6 +90,7 @@ public class MyDocumentModel {
     } catch (IOException e) {
       log.error(e.getMessage());
     }
+    return lines;
   }
 
   private String retrieveToken(Position position, Line route) {
@@ -30,6 +30,7 @@ import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 
 import static com.ca.lsp.cobol.service.utils.SettingsParametersEnum.CPY_MANAGER;
@@ -40,7 +41,7 @@ import static java.util.Arrays.stream;
 import static java.util.Collections.emptyList;
 import static java.util.concurrent.CompletableFuture.supplyAsync;
 import static java.util.stream.Collectors.toList;
-import static org.eclipse.lsp4j.TextDocumentSyncKind.Full;
+import static org.eclipse.lsp4j.TextDocumentSyncKind.Incremental;
 import static com.ca.lsp.cobol.service.utils.FileSystemUtils.interpretPaths;
 
 /**
@@ -52,7 +53,11 @@ import static com.ca.lsp.cobol.service.utils.FileSystemUtils.interpretPaths;
 public class MyLanguageServerImpl implements LanguageServer {
   /** Glob patterns to watch the copybooks folder and copybook files */
   private static final List<String> WATCHER_PATTERNS =
-      asList("**/.copybooks/**/*.cpy", "**/.copybooks/**/*.CPY", "**/.copybooks");
+      asList(
+          "**/.copybooks/**/*.cpy",
+          "**/.copybooks/**/*.CPY",
+          "**/.copybooks/**/.encoding",
+          "**/.copybooks");
 
   /**
    * The kind of events of interest, for watchers calculated as WatchKind.Create | WatchKind.Change
@@ -65,6 +70,7 @@ public class MyLanguageServerImpl implements LanguageServer {
   private CopybookService copybookService;
   private Provider<LanguageClient> clientProvider;
   private SettingsProvider settingsProvider;
+  private CopybookWatcher copybookWatcher;
 
   @Inject
   MyLanguageServerImpl(
@@ -72,12 +78,14 @@ public class MyLanguageServerImpl implements LanguageServer {
       TextDocumentService textService,
       WorkspaceService workspaceService,
       Provider<LanguageClient> clientProvider,
-      SettingsProvider settingsProvider) {
+      SettingsProvider settingsProvider,
+      CopybookWatcher copybookWatcher) {
     this.textService = textService;
     this.copybookService = copybookService;
     this.workspaceService = workspaceService;
     this.clientProvider = clientProvider;
     this.settingsProvider = settingsProvider;
+    this.copybookWatcher = copybookWatcher;
   }
 
   @Override
@@ -147,7 +155,7 @@ public class MyLanguageServerImpl implements LanguageServer {
   public CompletableFuture<InitializeResult> initialize(@Nonnull InitializeParams params) {
     ServerCapabilities capabilities = new ServerCapabilities();
 
-    capabilities.setTextDocumentSync(Full);
+    capabilities.setTextDocumentSync(Incremental);
     capabilities.setCompletionProvider(new CompletionOptions(true, emptyList()));
     capabilities.setDefinitionProvider(TRUE);
     capabilities.setReferencesProvider(TRUE);
@@ -163,11 +171,15 @@ public class MyLanguageServerImpl implements LanguageServer {
     capabilities.setWorkspace(workspaceServiceCapabilities);
 
     copybookService.setWorkspaceFolders(params.getWorkspaceFolders());
+    if (params.getWorkspaceFolders() != null && !isWatchingFilesSupported(params)) {
+      copybookWatcher.watch(params.getWorkspaceFolders());
+    }
     return supplyAsync(() -> new InitializeResult(capabilities));
   }
 
   @Override
   public CompletableFuture<Object> shutdown() {
+    copybookWatcher.close();
     return supplyAsync(() -> TRUE);
   }
 
@@ -176,6 +188,21 @@ public class MyLanguageServerImpl implements LanguageServer {
     // not supported
   }
 
+  /**
+   * Check if the client can register the file system watchers. If it cannot, the copybook folders
+   * are watched by {@link CopybookWatcher}.
+   *
+   * @param params - InitializeParams sent by a client
+   * @return true if the client supports the dynamic registration of the file system watchers
+   */
+  private static boolean isWatchingFilesSupported(@Nonnull InitializeParams params) {
+    return Optional.ofNullable(params.getCapabilities())
+        .map(ClientCapabilities::getWorkspace)
+        .map(WorkspaceClientCapabilities::getDidChangeWatchedFiles)
+        .map(DidChangeWatchedFilesCapabilities::getDynamicRegistration)
+        .orElse(false);
+  }
+
   @Nonnull
   private DidChangeWatchedFilesRegistrationOptions createWatcher() {
     return new DidChangeWatchedFilesRegistrationOptions(
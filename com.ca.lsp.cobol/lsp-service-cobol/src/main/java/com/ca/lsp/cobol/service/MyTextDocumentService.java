@@ -25,6 +25,8 @@ import com.ca.lsp.cobol.service.delegates.formations.Formations;
 import com.ca.lsp.cobol.service.delegates.references.Occurrences;
 import com.ca.lsp.cobol.service.delegates.validations.AnalysisResult;
 import com.ca.lsp.cobol.service.delegates.validations.LanguageEngineFacade;
+import com.ca.lsp.core.cobol.engine.AnalysisCancelledException;
+import com.ca.lsp.core.cobol.engine.CancellationToken;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import lombok.SneakyThrows;
@@ -36,10 +38,12 @@ import org.eclipse.lsp4j.services.TextDocumentService;
 import javax.annotation.Nonnull;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.BiConsumer;
 
 import static java.lang.String.format;
+import static java.util.Collections.emptySet;
 import static java.util.Optional.ofNullable;
 import static java.util.concurrent.CompletableFuture.runAsync;
 import static java.util.concurrent.CompletableFuture.supplyAsync;
@@ -53,6 +57,12 @@ import static java.util.concurrent.CompletableFuture.supplyAsync;
  * <p>For the maintainers: Please, add logging for exceptions if you run any asynchronous operation.
  * Also, you you perform any communication with the client, do it a using {@link Communications}
  * instance.
+ *
+ * <p>The analyses of the documents are run by {@link AnalysisScheduler}, which debounces the
+ * changes and cancels the analysis of the outdated text using its {@link CancellationToken}.
+ *
+ * <p>The documents are synchronized incrementally: the latest text of each opened document is
+ * stored in a {@link PieceTable} that applies the changes sent by the client in place.
  */
 @Slf4j
 @Singleton
@@ -61,6 +71,7 @@ public class MyTextDocumentService implements TextDocumentService, EventObserver
   private static final String GIT_FS_URI = "gitfs:/";
 
   private final Map<String, MyDocumentModel> docs = new ConcurrentHashMap<>();
+  private final Map<String, PieceTable> texts = new ConcurrentHashMap<>();
 
   private Communications communications;
   private LanguageEngineFacade engine;
@@ -68,6 +79,8 @@ public class MyTextDocumentService implements TextDocumentService, EventObserver
   private Completions completions;
   private Occurrences occurrences;
   private CodeActions actions;
+  private AnalysisScheduler scheduler;
+  private DocumentDependencyIndex dependencies;
 
   @Inject
   MyTextDocumentService(
@@ -77,13 +90,17 @@ public class MyTextDocumentService implements TextDocumentService, EventObserver
       Completions completions,
       Occurrences occurrences,
       DataBusBroker dataBus,
-      CodeActions actions) {
+      CodeActions actions,
+      AnalysisScheduler scheduler,
+      DocumentDependencyIndex dependencies) {
     this.communications = communications;
     this.engine = engine;
     this.formations = formations;
     this.completions = completions;
     this.occurrences = occurrences;
     this.actions = actions;
+    this.scheduler = scheduler;
+    this.dependencies = dependencies;
 
     dataBus.subscribe(DataEventType.RUN_ANALYSIS_EVENT, this);
   }
@@ -174,18 +191,26 @@ public class MyTextDocumentService implements TextDocumentService, EventObserver
   @Override
   public void didChange(DidChangeTextDocumentParams params) {
     String uri = params.getTextDocument().getUri();
-    String text = params.getContentChanges().get(0).getText();
     String fileExtension = extractExtension(uri);
     if (fileExtension != null && isCobolFile(fileExtension)) {
-      analyzeChanges(uri, text);
+      ofNullable(applyChanges(uri, params.getContentChanges()))
+          .ifPresent(text -> analyzeChanges(uri, text));
     }
   }
 
+  /**
+   * Forget the closed document and cancel its analysis. The monitor of the service guards the
+   * closing and the update of the analysis results, see {@link #applyResult}, so an analysis that
+   * finishes concurrently doesn't register the closed document again.
+   */
   @Override
-  public void didClose(DidCloseTextDocumentParams params) {
+  public synchronized void didClose(DidCloseTextDocumentParams params) {
     String uri = params.getTextDocument().getUri();
     log.info("Document closing invoked");
     docs.remove(uri);
+    texts.remove(uri);
+    scheduler.cancel(uri);
+    dependencies.remove(uri);
   }
 
   @Override
@@ -193,9 +218,22 @@ public class MyTextDocumentService implements TextDocumentService, EventObserver
     log.info("Document saved...");
   }
 
+  /**
+   * Analyze again the documents affected by the event, e.g. the documents that depend on the
+   * changed copybooks, or all the documents if the event doesn't specify them
+   *
+   * @param event - the event that specifies the documents to analyze
+   */
   @Override
   public void observerCallback(@Nonnull RunAnalysisEvent event) {
-    docs.forEach((key, value) -> analyzeChanges(key, value.getText()));
+    Set<String> documentUris = event.getDocumentUris();
+    docs.forEach(
+        (key, value) -> {
+          if (documentUris == null || documentUris.contains(key)) {
+            analyzeChanges(
+                key, ofNullable(texts.get(key)).map(PieceTable::getText).orElse(value.getText()));
+          }
+        });
   }
 
   private void registerEngineAndAnalyze(String uri, String languageType, String text) {
@@ -221,25 +259,119 @@ public class MyTextDocumentService implements TextDocumentService, EventObserver
         .orElse(null);
   }
 
+  /**
+   * Apply the changes sent by the client to the stored text of the document. A change without a
+   * range replaces the whole text.
+   *
+   * @param uri - the URI of the changed document
+   * @param changes - the changes in the order they were made
+   * @return the new text of the document or null if the document is unknown
+   */
+  private String applyChanges(String uri, List<TextDocumentContentChangeEvent> changes) {
+    PieceTable document = texts.get(uri);
+    for (TextDocumentContentChangeEvent change : changes) {
+      if (change.getRange() == null) {
+        document = new PieceTable(change.getText());
+        texts.put(uri, document);
+      } else if (document == null) {
+        log.warn("Cannot apply a change to {}, since the document is not opened", uri);
+        return null;
+      } else {
+        document.replace(change.getRange(), change.getText());
+      }
+    }
+    return ofNullable(document).map(PieceTable::getText).orElse(null);
+  }
+
   private void analyzeDocumentFirstTime(String uri, String text) {
+    texts.put(uri, new PieceTable(text));
     registerDocument(uri, new MyDocumentModel(text, AnalysisResult.empty()));
-    runAsync(
-            () -> {
-              AnalysisResult result = engine.analyze(uri, text, TextDocumentSyncType.DID_OPEN);
-              ofNullable(docs.get(uri)).ifPresent(doc -> doc.setAnalysisResult(result));
-              publishResult(uri, result);
-            })
-        .whenComplete(reportExceptionIfThrown(createDescriptiveErrorMessage("analysis", uri)));
+    dependencies.open(uri);
+    scheduler.scheduleImmediately(
+        uri,
+        token ->
+            runAsync(
+                    () -> {
+                      long generation = dependencies.startAnalysis(uri);
+                      AnalysisResult result =
+                          engine.analyze(uri, text, TextDocumentSyncType.DID_OPEN, token);
+                      applyResult(
+                          uri,
+                          token,
+                          () -> {
+                            updateDependencies(uri, generation, result);
+                            ofNullable(docs.get(uri))
+                                .ifPresent(doc -> doc.setAnalysisResult(result));
+                            publishResult(uri, result);
+                          });
+                    })
+                .whenComplete(finishAnalysis(uri)));
   }
 
   void analyzeChanges(String uri, String text) {
-    runAsync(
-            () -> {
-              AnalysisResult result = engine.analyze(uri, text, TextDocumentSyncType.DID_CHANGE);
-              registerDocument(uri, new MyDocumentModel(text, result));
-              communications.publishDiagnostics(uri, result.getDiagnostics());
-            })
-        .whenComplete(reportExceptionIfThrown(createDescriptiveErrorMessage("analysis", uri)));
+    scheduler.schedule(
+        uri,
+        token ->
+            runAsync(
+                    () -> {
+                      long generation = dependencies.startAnalysis(uri);
+                      AnalysisResult result =
+                          engine.analyze(uri, text, TextDocumentSyncType.DID_CHANGE, token);
+                      applyResult(
+                          uri,
+                          token,
+                          () -> {
+                            updateDependencies(uri, generation, result);
+                            registerDocument(uri, new MyDocumentModel(text, result));
+                            communications.publishDiagnostics(uri, result.getDiagnostics());
+                          });
+                    })
+                .whenComplete(finishAnalysis(uri)));
+  }
+
+  /**
+   * Apply the result of the analysis if it is still needed. The cancellation and the opened
+   * document are checked under the same monitor as {@link #didClose}, so the result of an analysis
+   * that was running when the document was closed is discarded.
+   *
+   * @param uri - the URI of the analyzed document
+   * @param token - the cancellation token of the analysis
+   * @param update - the action that applies the result
+   * @throws AnalysisCancelledException if the analysis was cancelled or the document was closed
+   */
+  private synchronized void applyResult(String uri, CancellationToken token, Runnable update) {
+    token.checkCancelled();
+    if (!texts.containsKey(uri)) {
+      throw new AnalysisCancelledException();
+    }
+    update.run();
+  }
+
+  /** The copybook usages of the result include the copybooks nested in the other ones */
+  private void updateDependencies(String uri, long generation, AnalysisResult result) {
+    dependencies.update(
+        uri,
+        generation,
+        ofNullable(result.getCopybookUsages()).map(Map::keySet).orElse(emptySet()));
+  }
+
+  private BiConsumer<Object, Throwable> finishAnalysis(String uri) {
+    BiConsumer<Object, Throwable> reporter =
+        reportExceptionIfThrown(createDescriptiveErrorMessage("analysis", uri));
+    return (res, ex) -> {
+      if (isCancellation(ex)) {
+        log.debug("The analysis of {} was cancelled", uri);
+        communications.cancelProgressNotification(uri);
+      } else {
+        reporter.accept(res, ex);
+      }
+    };
+  }
+
+  private boolean isCancellation(Throwable ex) {
+    return ex instanceof AnalysisCancelledException
+        || (ex instanceof CompletionException
+            && ex.getCause() instanceof AnalysisCancelledException);
   }
 
   private void publishResult(String uri, AnalysisResult result) {
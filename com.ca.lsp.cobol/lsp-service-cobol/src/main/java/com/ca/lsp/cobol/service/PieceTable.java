@@ -0,0 +1,261 @@
+/*
+ * Copyright (c) 2020 Broadcom.
+ * The term "Broadcom" refers to Broadcom Inc. and/or its subsidiaries.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *
+ *   Broadcom, Inc. - initial API and implementation
+ */
+package com.ca.lsp.cobol.service;
+
+import org.eclipse.lsp4j.Position;
+import org.eclipse.lsp4j.Range;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * This class stores the current text of an opened document as a piece table, so the incremental
+ * changes sent by the client are applied in place without copying the whole text. The original
+ * text and the inserted fragments are kept in two buffers, and the document is a sequence of pieces
+ * referring to them. The offsets of the line starts are updated incrementally on every change, so
+ * the LSP positions can be converted to offsets without scanning the text.
+ *
+ * <p>The line breaks are recognized the same way as in the LSP specification: "\n", "\r\n" and
+ * "\r". The full text is built only on demand and cached until the next change.
+ */
+public class PieceTable {
+  private static final int MAX_PIECES = 1024;
+
+  private final List<Piece> pieces = new ArrayList<>();
+  private final StringBuilder added = new StringBuilder();
+  private String original;
+  private int length;
+  private int[] lineStarts;
+  private int lineCount;
+  private String text;
+
+  public PieceTable(String text) {
+    reset(text);
+  }
+
+  /** @return the current text of the document */
+  public synchronized String getText() {
+    if (text == null) {
+      StringBuilder builder = new StringBuilder(length);
+      pieces.forEach(it -> builder.append(buffer(it), it.start, it.start + it.length));
+      text = builder.toString();
+    }
+    return text;
+  }
+
+  /** @return the number of characters in the document */
+  public synchronized int getLength() {
+    return length;
+  }
+
+  /** @return the number of lines in the document, an empty document has one line */
+  public synchronized int getLineCount() {
+    return lineCount;
+  }
+
+  /**
+   * Convert the given LSP position into an offset in the text. The positions after the end of a
+   * line or the document are moved to the end of the line or the document respectively.
+   *
+   * @param position - the line and the character of the position
+   * @return the offset of the position in the text
+   */
+  public synchronized int getOffset(Position position) {
+    int line = position.getLine();
+    if (line < 0) {
+      return 0;
+    }
+    if (line >= lineCount) {
+      return length;
+    }
+    int lineEnd = length;
+    if (line + 1 < lineCount) {
+      lineEnd = lineStarts[line + 1];
+      boolean crlf =
+          lineEnd - lineStarts[line] > 1 && "\r\n".equals(substring(lineEnd - 2, lineEnd));
+      lineEnd -= crlf ? 2 : 1;
+    }
+    return Math.min(lineStarts[line] + Math.max(position.getCharacter(), 0), lineEnd);
+  }
+
+  /**
+   * Replace the given range of the document with the new text
+   *
+   * @param range - the range to replace, as sent by the client in an incremental change
+   * @param newText - the text to insert instead of the range
+   */
+  public synchronized void replace(Range range, String newText) {
+    replace(getOffset(range.getStart()), getOffset(range.getEnd()), newText);
+  }
+
+  /**
+   * Replace the characters between the given offsets with the new text
+   *
+   * @param start - the offset of the first replaced character
+   * @param end - the offset after the last replaced character
+   * @param newText - the text to insert instead of the replaced characters
+   */
+  public synchronized void replace(int start, int end, String newText) {
+    if (start < 0 || end < start || end > length) {
+      throw new IndexOutOfBoundsException(
+          "Range [" + start + ", " + end + ") is out of the document of length " + length);
+    }
+    int from = splitAt(start);
+    pieces.subList(from, splitAt(end)).clear();
+    if (!newText.isEmpty()) {
+      pieces.add(from, new Piece(true, added.length(), newText.length()));
+      added.append(newText);
+    }
+    int delta = newText.length() - (end - start);
+    length += delta;
+    text = null;
+    updateLineStarts(start, end, newText.length(), delta);
+
+    if (pieces.size() > MAX_PIECES) {
+      reset(getText());
+    }
+  }
+
+  private void reset(String newText) {
+    original = newText;
+    text = newText;
+    length = newText.length();
+    added.setLength(0);
+    pieces.clear();
+    if (length > 0) {
+      pieces.add(new Piece(false, 0, length));
+    }
+    lineStarts = new int[16];
+    lineCount = 1;
+    addLineStarts(newText, 0, 1, length);
+  }
+
+  /**
+   * Update the offsets of the line starts after a change. A line start depends only on the two
+   * characters around it, so only the line starts around the changed range are computed again, and
+   * the line starts after it are moved.
+   */
+  private void updateLineStarts(int start, int end, int inserted, int delta) {
+    int first = Math.max(start, 1);
+    int lo = findLineIndex(first);
+    int hi = findLineIndex(end + 2);
+    int[] tail = Arrays.copyOfRange(lineStarts, hi, lineCount);
+    lineCount = lo;
+    int last = Math.min(start + inserted + 1, length);
+    if (first <= last) {
+      int windowStart = first - 1;
+      addLineStarts(substring(windowStart, Math.min(last + 1, length)), windowStart, first, last);
+    }
+    for (int lineStart : tail) {
+      addLineStart(lineStart + delta);
+    }
+  }
+
+  /** @return the index of the first line that starts at the given offset or after it */
+  private int findLineIndex(int offset) {
+    int index = Arrays.binarySearch(lineStarts, 0, lineCount, offset);
+    return index < 0 ? -index - 1 : index;
+  }
+
+  private void addLineStart(int offset) {
+    if (lineCount == lineStarts.length) {
+      lineStarts = Arrays.copyOf(lineStarts, lineCount * 2);
+    }
+    lineStarts[lineCount++] = offset;
+  }
+
+  /**
+   * Add the line starts between the given offsets found in the given fragment of the text. A line
+   * starts after "\n" and after "\r" that is not followed by "\n".
+   *
+   * @param fragment - the text of the document that contains the characters around the offsets
+   * @param fragmentStart - the offset of the fragment in the document
+   * @param first - the first offset to check, at least one after the fragment start
+   * @param last - the last offset to check
+   */
+  private void addLineStarts(CharSequence fragment, int fragmentStart, int first, int last) {
+    for (int offset = first; offset <= last; offset++) {
+      char previous = fragment.charAt(offset - 1 - fragmentStart);
+      if (previous == '\n'
+          || (previous == '\r'
+              && (offset == length || fragment.charAt(offset - fragmentStart) != '\n'))) {
+        addLineStart(offset);
+      }
+    }
+  }
+
+  private String substring(int from, int to) {
+    if (text != null) {
+      return text.substring(from, to);
+    }
+    StringBuilder builder = new StringBuilder(to - from);
+    int position = 0;
+    for (Piece piece : pieces) {
+      int pieceEnd = position + piece.length;
+      if (pieceEnd > from && position < to) {
+        int begin = piece.start + Math.max(from - position, 0);
+        builder.append(buffer(piece), begin, piece.start + Math.min(to, pieceEnd) - position);
+      }
+      if (pieceEnd >= to) {
+        break;
+      }
+      position = pieceEnd;
+    }
+    return builder.toString();
+  }
+
+  /**
+   * Make sure that a piece starts at the given offset, splitting the piece that contains it if
+   * necessary
+   *
+   * @return the index of the piece that starts at the offset or the number of pieces if the offset
+   *     is the end of the document
+   */
+  private int splitAt(int offset) {
+    int position = 0;
+    for (int i = 0; i < pieces.size(); i++) {
+      Piece piece = pieces.get(i);
+      if (position == offset) {
+        return i;
+      }
+      if (offset < position + piece.length) {
+        int head = offset - position;
+        pieces.set(i, new Piece(piece.added, piece.start, head));
+        pieces.add(i + 1, new Piece(piece.added, piece.start + head, piece.length - head));
+        return i + 1;
+      }
+      position += piece.length;
+    }
+    return pieces.size();
+  }
+
+  private CharSequence buffer(Piece piece) {
+    return piece.added ? added : original;
+  }
+
+  /** A fragment of the document that refers to the original or the added buffer */
+  private static class Piece {
+    private final boolean added;
+    private final int start;
+    private final int length;
+
+    Piece(boolean added, int start, int length) {
+      this.added = added;
+      this.start = start;
+      this.length = length;
+    }
+  }
+}
@@ -21,6 +21,7 @@ import com.broadcom.lsp.domain.cobol.event.model.CopybookDepEvent;
 import com.broadcom.lsp.domain.cobol.event.model.DataEventType;
 import com.broadcom.lsp.domain.cobol.event.model.RequiredCopybookEvent;
 import com.ca.lsp.cobol.model.ConfigurationSettingsStorable;
+import com.ca.lsp.cobol.service.CopybookIndex;
 import com.ca.lsp.cobol.service.TextDocumentSyncType;
 import com.google.inject.Inject;
 import com.google.inject.Provider;
@@ -32,7 +33,7 @@ import lombok.extern.slf4j.Slf4j;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
 import java.util.List;
-import java.util.Objects;
+import java.util.stream.Collectors;
 
 import static com.ca.lsp.cobol.service.utils.FileSystemUtils.*;
 
@@ -47,13 +48,16 @@ public class CopybookDependencyServiceImpl
   @Getter private List<Path> workspaceFolderPaths;
   private final DataBusBroker dataBus;
   private final Provider<ConfigurationSettingsStorable> configurationSettingsStorableProvider;
+  private final CopybookIndex copybookIndex;
 
   @Inject
   public CopybookDependencyServiceImpl(
       DataBusBroker dataBus,
-      Provider<ConfigurationSettingsStorable> configurationSettingsStorableProvider) {
+      Provider<ConfigurationSettingsStorable> configurationSettingsStorableProvider,
+      CopybookIndex copybookIndex) {
     this.dataBus = dataBus;
     this.configurationSettingsStorableProvider = configurationSettingsStorableProvider;
+    this.copybookIndex = copybookIndex;
     this.dataBus.subscribe(DataEventType.COPYBOOK_DEP_EVENT, this);
   }
 
@@ -182,15 +186,12 @@ public class CopybookDependencyServiceImpl
   }
 
   private Path getCopybookPath(CopybookDepEvent event) {
-    return getTargetFolders().stream()
-        .map(it -> applySearch(event.getCopybookName(), it))
-        .filter(Objects::nonNull)
-        .findAny()
-        .orElse(null);
-  }
-
-  private List<Path> getTargetFolders() {
-    return getPathList(getCopybookFolder(), configurationSettingsStorableProvider.get().getPaths());
+    String copybookFolder = getCopybookFolder();
+    return copybookIndex.find(
+        event.getCopybookName(),
+        configurationSettingsStorableProvider.get().getPaths().stream()
+            .map(it -> getPath(copybookFolder, it))
+            .collect(Collectors.toList()));
   }
 
   private String getCopybookFolder() {
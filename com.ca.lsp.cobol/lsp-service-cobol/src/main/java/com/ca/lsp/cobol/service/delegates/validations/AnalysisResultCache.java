@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2020 Broadcom.
+ * The term "Broadcom" refers to Broadcom Inc. and/or its subsidiaries.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *
+ *   Broadcom, Inc. - initial API and implementation
+ */
+package com.ca.lsp.cobol.service.delegates.validations;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.google.inject.name.Named;
+import lombok.EqualsAndHashCode;
+import lombok.Value;
+
+import javax.annotation.Nonnull;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * This class caches the results of the document analysis, so the text that was already analyzed,
+ * e.g. after an undo or a repeated analysis request, is not analyzed again. The results are keyed
+ * by the document URI and a 64-bit hash of its text. The cache keeps the results of the most
+ * recently used texts up to the configured size.
+ *
+ * <p>A result also depends on the copybooks and the settings used to resolve them. Instead of
+ * tracking them separately, the cache has a copybook version that is increased each time the
+ * results are invalidated, either all of them by {@link #invalidate()} when the settings change, or
+ * only the results of the documents that depend on the changed copybooks by {@link
+ * #invalidate(Collection)}. A key remembers the version it was created with, so the analyses that
+ * started before the invalidation of their document don't store their results.
+ */
+@Singleton
+public class AnalysisResultCache {
+  private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+  private static final long FNV_PRIME = 0x100000001b3L;
+
+  private final Map<Key, AnalysisResult> results;
+  private final Map<String, Long> documentVersions = new HashMap<>();
+  private long copybookVersion;
+  private long invalidationVersion;
+
+  @Inject
+  public AnalysisResultCache(@Named("ANALYSIS-CACHE-MAX-SIZE") int maxSize) {
+    results =
+        new LinkedHashMap<Key, AnalysisResult>(16, 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<Key, AnalysisResult> eldest) {
+            return size() > maxSize;
+          }
+        };
+  }
+
+  /**
+   * Create a key for the given document text using the current copybook version. The key should
+   * be created before the analysis starts, so its result is not stored if the copybooks change
+   * meanwhile.
+   *
+   * @param uri - the URI of the analyzed document
+   * @param text - the text of the analyzed document
+   * @return the key to look up and store the analysis result
+   */
+  public synchronized Key createKey(String uri, String text) {
+    return new Key(uri, hash(text), text.length(), copybookVersion);
+  }
+
+  /**
+   * @param key - the key of the analyzed text
+   * @return the cached analysis result or empty if the text wasn't analyzed with the current
+   *     copybooks
+   */
+  public synchronized Optional<AnalysisResult> get(Key key) {
+    return Optional.ofNullable(results.get(key));
+  }
+
+  /**
+   * Store the analysis result if the results of the document were not invalidated since the key was
+   * created
+   *
+   * @param key - the key of the analyzed text
+   * @param result - the analysis result to store
+   */
+  public synchronized void put(Key key, AnalysisResult result) {
+    if (key.getCopybookVersion() >= invalidationVersion
+        && key.getCopybookVersion() >= documentVersions.getOrDefault(key.getUri(), 0L)) {
+      results.put(key, result);
+    }
+  }
+
+  /** Remove all the results, since they may depend on the changed settings */
+  public synchronized void invalidate() {
+    invalidationVersion = ++copybookVersion;
+    documentVersions.clear();
+    results.clear();
+  }
+
+  /**
+   * Remove the results of the given documents, e.g. the ones that depend on the changed copybooks
+   *
+   * @param uris - the URIs of the documents to analyze again
+   */
+  public synchronized void invalidate(@Nonnull Collection<String> uris) {
+    copybookVersion++;
+    uris.forEach(it -> documentVersions.put(it, copybookVersion));
+    results.keySet().removeIf(it -> uris.contains(it.getUri()));
+  }
+
+  private static long hash(String text) {
+    long hash = FNV_OFFSET_BASIS;
+    for (int i = 0; i < text.length(); i++) {
+      hash = (hash ^ text.charAt(i)) * FNV_PRIME;
+    }
+    return hash;
+  }
+
+  /**
+   * The key of an analysis result that identifies the text. The copybook version is not a part of
+   * the identity, since the outdated results are removed on invalidation.
+   */
+  @Value
+  public static class Key {
+    private String uri;
+    private long textHash;
+    private int textLength;
+    @EqualsAndHashCode.Exclude private long copybookVersion;
+  }
+}
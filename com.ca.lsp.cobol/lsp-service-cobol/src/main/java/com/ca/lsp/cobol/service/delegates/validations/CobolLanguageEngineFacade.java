@@ -13,8 +13,11 @@
  */
 package com.ca.lsp.cobol.service.delegates.validations;
 
+import com.broadcom.lsp.domain.cobol.databus.api.DataBusBroker;
+import com.broadcom.lsp.domain.cobol.event.model.CopybookDepEvent;
 import com.broadcom.lsp.domain.common.model.Position;
 import com.ca.lsp.cobol.service.TextDocumentSyncType;
+import com.ca.lsp.core.cobol.engine.CancellationToken;
 import com.ca.lsp.core.cobol.engine.CobolLanguageEngine;
 import com.ca.lsp.core.cobol.model.ErrorCode;
 import com.ca.lsp.core.cobol.model.ResultWithErrors;
@@ -30,17 +33,27 @@ import org.eclipse.lsp4j.Location;
 import org.eclipse.lsp4j.Range;
 
 import javax.annotation.Nonnull;
+import java.util.AbstractMap.SimpleEntry;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.function.Function;
 import java.util.function.Predicate;
 
 import static com.ca.lsp.cobol.service.delegates.validations.AnalysisResult.empty;
+import static java.util.Collections.emptySet;
 import static java.util.Optional.ofNullable;
 import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toMap;
 
+/**
+ * This class runs the analysis of the documents and converts its results for the client. The
+ * results are reused for the same texts, see {@link AnalysisResultCache}, unless some copybooks
+ * were missing or not resolved in time, so a copybook that is resolved later reaches the document
+ * on the next analysis. Since the engine doesn't run for a reused result, the copybook dependency
+ * events it would post are posted for the copybooks of the result instead.
+ */
 @Slf4j
 @Singleton
 public class CobolLanguageEngineFacade implements LanguageEngineFacade {
@@ -53,19 +66,72 @@ public class CobolLanguageEngineFacade implements LanguageEngineFacade {
   private static final int ERR_POS_INDEX = 1;
 
   private CobolLanguageEngine engine;
+  private AnalysisResultCache cache;
+  private DataBusBroker dataBus;
 
   @Inject
-  CobolLanguageEngineFacade(CobolLanguageEngine engine) {
+  CobolLanguageEngineFacade(
+      CobolLanguageEngine engine, AnalysisResultCache cache, DataBusBroker dataBus) {
     this.engine = engine;
+    this.cache = cache;
+    this.dataBus = dataBus;
   }
 
   @Override
   public AnalysisResult analyze(
       String uri, String text, TextDocumentSyncType textDocumentSyncType) {
+    return analyze(uri, text, textDocumentSyncType, CancellationToken.NONE);
+  }
+
+  @Override
+  public AnalysisResult analyze(
+      String uri, String text, TextDocumentSyncType textDocumentSyncType, CancellationToken token) {
     if (isEmpty(text)) {
       return empty();
     }
-    return toAnalysisResult(engine.run(uri, text, textDocumentSyncType.toString()), uri);
+    AnalysisResultCache.Key key = cache.createKey(uri, text);
+    Optional<AnalysisResult> cached = cache.get(key);
+    if (cached.isPresent()) {
+      log.debug("Reuse the analysis result of the same text of {}", uri);
+      postCopybookDependencies(cached.get(), textDocumentSyncType);
+      return cached.get();
+    }
+    ResultWithErrors<SemanticContext> engineResult =
+        engine.run(uri, text, textDocumentSyncType.toString(), token);
+    AnalysisResult result = toAnalysisResult(engineResult, uri);
+    if (hasMissingCopybooks(engineResult.getErrors())) {
+      log.debug("The analysis result of {} is not cached, since some copybooks are missing", uri);
+    } else {
+      cache.put(key, result);
+    }
+    return result;
+  }
+
+  /** The errors of the nested copybooks are checked too, since they are a part of the result */
+  private static boolean hasMissingCopybooks(List<SyntaxError> errors) {
+    return errors.stream().anyMatch(it -> it.getErrorCode() == ErrorCode.MISSING_COPYBOOK);
+  }
+
+  /**
+   * Post the same copybook dependency events as the analysis of the document does, i.e. for each
+   * copybook and the document or copybook that includes it
+   */
+  private void postCopybookDependencies(
+      AnalysisResult result, TextDocumentSyncType textDocumentSyncType) {
+    ofNullable(result.getCopybookUsages()).map(Map::entrySet).orElse(emptySet()).stream()
+        .flatMap(
+            usages ->
+                usages.getValue().stream()
+                    .map(it -> new SimpleEntry<>(usages.getKey(), it.getUri())))
+        .distinct()
+        .forEach(
+            it ->
+                dataBus.postData(
+                    CopybookDepEvent.builder()
+                        .copybookName(it.getKey())
+                        .textDocumentSync(textDocumentSyncType.toString())
+                        .documentUri(it.getValue())
+                        .build()));
   }
 
   private static boolean isEmpty(String text) {
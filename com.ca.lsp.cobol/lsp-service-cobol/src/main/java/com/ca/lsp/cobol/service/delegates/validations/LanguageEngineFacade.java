@@ -14,6 +14,7 @@
 package com.ca.lsp.cobol.service.delegates.validations;
 
 import com.ca.lsp.cobol.service.TextDocumentSyncType;
+import com.ca.lsp.core.cobol.engine.CancellationToken;
 
 public interface LanguageEngineFacade {
   /**
@@ -23,4 +24,15 @@ public interface LanguageEngineFacade {
    * @return list of LSP diagnostic object used to display errors in the editor
    */
   AnalysisResult analyze(String uri, String text, TextDocumentSyncType textDocumentSyncType);
+
+  /**
+   * @param uri - URI of the processing document to define positions and errors properly
+   * @param text of document opened in the client editor
+   * @param textDocumentSyncType reflect the sync status of the document (DID_OPEN|DID_CHANGE)
+   * @param token to abort the analysis if it is not needed anymore, e.g. the document changed
+   * @return list of LSP diagnostic object used to display errors in the editor
+   * @throws com.ca.lsp.core.cobol.engine.AnalysisCancelledException if the token was cancelled
+   */
+  AnalysisResult analyze(
+      String uri, String text, TextDocumentSyncType textDocumentSyncType, CancellationToken token);
 }
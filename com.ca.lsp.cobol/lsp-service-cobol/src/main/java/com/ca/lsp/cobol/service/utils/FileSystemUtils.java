@@ -21,18 +21,20 @@ import org.apache.commons.io.FilenameUtils;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
-import java.io.File;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URLDecoder;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 import static java.nio.file.Files.readAllLines;
 
@@ -46,6 +48,9 @@ import static java.nio.file.Files.readAllLines;
 public class FileSystemUtils {
   private final List<String> ALLOWED_EXTENSIONS = Arrays.asList("cpy", "cbl", "cobol", "cob");
   private final String COPYBOOKS_FOLDER = ".copybooks";
+  private final String ENCODING_FILE = ".encoding";
+  private final char NEL = '\u0085';
+  private final Map<Path, Charset> CHARSETS = new ConcurrentHashMap<>();
 
   /** @return the representation os based of the FS separator */
   public static String filesystemSeparator() {
@@ -75,22 +80,6 @@ public class FileSystemUtils {
     }
   }
 
-  /**
-   * From a given file this routine analyze if the file is not a directory and have a valid
-   * ALLOWED_EXTENSIONS
-   *
-   * @param currentFile file analyzed during the scan of a folder
-   * @param requiredName the name of the file to match
-   * @return true if all the condition are met, false otherwise
-   */
-  public boolean isValidFileFound(File currentFile, String requiredName) {
-    return currentFile.isFile()
-        && !currentFile.isDirectory()
-        && currentFile.getName().contains(".")
-        && FilenameUtils.getBaseName(currentFile.getName()).equalsIgnoreCase(requiredName)
-        && hasFileValidExtension(currentFile.getAbsoluteFile().toString().toLowerCase());
-  }
-
   /**
    * Verify that the file extension is one of the ALLOWED_EXTENSIONS defined.
    *
@@ -150,21 +139,6 @@ public class FileSystemUtils {
     return Paths.get(basePath, more);
   }
 
-  /**
-   * This method return the list of paths represented by a fixed part (outer + inner) and a variable
-   * part iterated to obtains path in this form: {[base,middle,v1],[base,middle,v2], ...}
-   *
-   * @param outer first level of folder
-   * @param variablePart list of names of folders that are contained inside the inner
-   * @return a lis of paths represented in the way: {[outer,inner,v1],[outer,inner,v2], ...}
-   */
-  public List<Path> getPathList(@Nonnull String outer, List<String> variablePart) {
-    return variablePart.stream()
-        .map(it -> Paths.get(outer, it))
-        .filter(Files::exists)
-        .collect(Collectors.toList());
-  }
-
   /**
    * This method create a folder from a given path
    *
@@ -236,35 +210,106 @@ public class FileSystemUtils {
   }
 
   /**
+   * Read the content of a copybook in a single pass and decode it using the charset of its dataset,
+   * see {@link #getCharset(Path)}. The line breaks are normalized to CRLF and the final one is
+   * dropped, the same way as when the copybook was read line by line. NEL, which the EBCDIC code
+   * pages decode line ends to, is treated as a line break too.
+   *
    * @param path URI from where extract the content
    * @return content of the file as String representation
    */
   @Nullable
   public String getContentByPath(Path path) {
-    try (Stream<String> stream = Files.lines(path)) {
-      return stream.reduce((s1, s2) -> s1 + "\r\n" + s2).orElse("");
+    try {
+      return normalizeLineBreaks(new String(Files.readAllBytes(path), getCharset(path)));
     } catch (IOException e) {
       log.error(e.getMessage());
       return null;
     }
   }
 
+  private String normalizeLineBreaks(String text) {
+    int length = text.length();
+    StringBuilder result = new StringBuilder(length);
+    for (int i = 0; i < length; i++) {
+      char character = text.charAt(i);
+      if (character != '\r' && character != '\n' && character != NEL) {
+        result.append(character);
+        continue;
+      }
+      if (character == '\r' && i + 1 < length && text.charAt(i + 1) == '\n') {
+        i++;
+      }
+      if (i + 1 < length) {
+        result.append("\r\n");
+      }
+    }
+    return result.toString();
+  }
+
+  /**
+   * Find the charset of the given copybook. The client settings name only the datasets, so the
+   * charset is set by the user with a {@value #ENCODING_FILE} file in the copybook folder, e.g.
+   * ".copybooks/PRF/HLQ.DSN/.encoding" that contains "Cp1047" for the copybooks saved in EBCDIC. It
+   * applies to the folder and its sub-folders. The closest one up to the copybooks folder is used,
+   * otherwise the copybook is decoded as UTF-8, as it was before the charset was configurable. The
+   * encoding files are watched like the copybooks, see {@link
+   * com.ca.lsp.cobol.service.MyLanguageServerImpl}, and the charset is cached for each folder until
+   * {@link #forgetCharsets()} is called on their change.
+   *
+   * @param path the path of the copybook
+   * @return the charset to decode the copybook content
+   */
+  @Nonnull
+  public Charset getCharset(@Nonnull Path path) {
+    Path folder = path.toAbsolutePath().getParent();
+    return folder == null
+        ? StandardCharsets.UTF_8
+        : CHARSETS.computeIfAbsent(folder, FileSystemUtils::findCharset);
+  }
+
+  /** Drop the cached charsets of the copybook folders, e.g. after an encoding file changed */
+  public void forgetCharsets() {
+    CHARSETS.clear();
+  }
+
+  private Charset findCharset(Path folder) {
+    Path copybooksFolder = folder;
+    while (copybooksFolder != null && !isCopybooksFolder(copybooksFolder)) {
+      copybooksFolder = copybooksFolder.getParent();
+    }
+    if (copybooksFolder == null) {
+      return StandardCharsets.UTF_8;
+    }
+    for (Path it = folder; it != null && it.startsWith(copybooksFolder); it = it.getParent()) {
+      Path encodingFile = it.resolve(ENCODING_FILE);
+      if (Files.isRegularFile(encodingFile)) {
+        return readCharset(encodingFile);
+      }
+    }
+    return StandardCharsets.UTF_8;
+  }
+
+  private boolean isCopybooksFolder(Path folder) {
+    return folder.getFileName() != null
+        && COPYBOOKS_FOLDER.equals(folder.getFileName().toString());
+  }
+
   /**
-   * @param fileName file to search
-   * @param targetFolderPath physical path where to search for the file
-   * @return Path of the found copybook in the target folder.
+   * @param path the path of a file
+   * @return true if the file specifies the charset of the copybooks, see {@link #getCharset(Path)}
    */
-  public Path applySearch(String fileName, Path targetFolderPath) {
-    try (Stream<Path> pathStream =
-        Files.find(
-            targetFolderPath,
-            100,
-            (path, basicFileAttributes) -> isValidFileFound(path.toFile(), fileName),
-            FileVisitOption.FOLLOW_LINKS)) {
-      return pathStream.findAny().orElse(null);
-    } catch (IOException e) {
-      log.error(e.getMessage());
-      return null;
+  public boolean isEncodingFile(@Nonnull Path path) {
+    return path.getFileName() != null && ENCODING_FILE.equals(path.getFileName().toString());
+  }
+
+  private Charset readCharset(Path encodingFile) {
+    try {
+      return Charset.forName(
+          new String(Files.readAllBytes(encodingFile), StandardCharsets.US_ASCII).trim());
+    } catch (IOException | IllegalArgumentException e) {
+      log.error("Cannot read the charset from " + encodingFile + ": " + e.getMessage());
+      return StandardCharsets.UTF_8;
     }
   }
 
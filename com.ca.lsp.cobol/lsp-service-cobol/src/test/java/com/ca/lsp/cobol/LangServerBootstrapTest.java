@@ -77,6 +77,18 @@ public class LangServerBootstrapTest {
     assertFalse(LangServerBootstrap.isPipeEnabled(args));
   }
 
+  @Test
+  public void isWarmUpEnabledByDefault() {
+    String[] args = new String[] {PIPES};
+    assertTrue(LangServerBootstrap.isWarmUpEnabled(args));
+  }
+
+  @Test
+  public void isWarmUpEnabledDisabled() {
+    String[] args = new String[] {PIPES, "warmUpDisabled"};
+    assertFalse(LangServerBootstrap.isWarmUpEnabled(args));
+  }
+
   @Test
   public void createServerLauncherWithSocket() throws IOException {
     LanguageServer server = new TestLanguageServer();
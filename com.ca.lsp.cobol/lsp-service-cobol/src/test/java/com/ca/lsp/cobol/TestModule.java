@@ -66,6 +66,10 @@ public class TestModule extends DefaultModule {
     bind(CopybookService.class).to(CopybookServiceImpl.class);
     bind(Communications.class).to(ServerCommunications.class);
     bind(TextDocumentService.class).to(MyTextDocumentService.class);
+    bindConstant().annotatedWith(named("ANALYSIS-DEBOUNCE-DELAY")).to(0);
+    bindConstant().annotatedWith(named("ANALYSIS-CACHE-MAX-SIZE")).to(50);
+    bindConstant().annotatedWith(named("COPYBOOK-WATCHER-DELAY")).to(0);
+    bindConstant().annotatedWith(named("MISSING-COPYBOOK-TTL")).to(0);
     bind(CobolTextRegistry.class).to(ZipTextRegistry.class);
     bind(CopybookDependencyService.class).to(CopybookDependencyServiceImpl.class);
     bind(String.class)
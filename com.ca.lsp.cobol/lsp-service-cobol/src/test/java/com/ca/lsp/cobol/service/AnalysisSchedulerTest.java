@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2020 Broadcom.
+ * The term "Broadcom" refers to Broadcom Inc. and/or its subsidiaries.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *   Broadcom, Inc. - initial API and implementation
+ */
+package com.ca.lsp.cobol.service;
+
+import com.ca.lsp.core.cobol.engine.CancellationToken;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+
+import static com.ca.lsp.cobol.service.delegates.validations.UseCaseUtils.await;
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * This test checks that {@link AnalysisScheduler} debounces the analyses of a document, runs one
+ * analysis per document at a time and always finishes with the analysis of the latest text.
+ */
+public class AnalysisSchedulerTest {
+  private static final String URI = "file:///c%3A/workspace/document.cbl";
+  private static final String ANOTHER_URI = "file:///c%3A/workspace/another.cbl";
+
+  private final List<String> started = new CopyOnWriteArrayList<>();
+  private final List<CancellationToken> tokens = new CopyOnWriteArrayList<>();
+
+  @Test
+  public void testBurstOfChangesAnalyzedOnce() {
+    AnalysisScheduler scheduler = new AnalysisScheduler(200);
+
+    scheduler.schedule(URI, analysis("1", completedFuture(null)));
+    scheduler.schedule(URI, analysis("2", completedFuture(null)));
+    scheduler.schedule(URI, analysis("3", completedFuture(null)));
+
+    await(() -> !started.isEmpty());
+    sleep(400);
+    assertEquals(singletonList("3"), started);
+  }
+
+  @Test
+  public void testChangesDuringAnalysisTriggerOneFollowUp() {
+    AnalysisScheduler scheduler = new AnalysisScheduler(0);
+    CompletableFuture<Void> first = new CompletableFuture<>();
+
+    scheduler.schedule(URI, analysis("1", first));
+    scheduler.schedule(URI, analysis("2", completedFuture(null)));
+    scheduler.schedule(URI, analysis("3", completedFuture(null)));
+
+    assertEquals(singletonList("1"), started);
+    assertTrue(tokens.get(0).isCancelled());
+
+    first.complete(null);
+    assertEquals(asList("1", "3"), started);
+    assertFalse(tokens.get(1).isCancelled());
+  }
+
+  @Test
+  public void testDocumentsScheduledIndependently() {
+    AnalysisScheduler scheduler = new AnalysisScheduler(0);
+
+    scheduler.schedule(URI, analysis("1", new CompletableFuture<>()));
+    scheduler.schedule(ANOTHER_URI, analysis("2", completedFuture(null)));
+
+    assertEquals(asList("1", "2"), started);
+    assertFalse(tokens.get(0).isCancelled());
+  }
+
+  @Test
+  public void testCancelDiscardsScheduledAnalysis() {
+    AnalysisScheduler scheduler = new AnalysisScheduler(100);
+    CompletableFuture<Void> first = new CompletableFuture<>();
+
+    scheduler.scheduleImmediately(URI, analysis("1", first));
+    scheduler.schedule(URI, analysis("2", completedFuture(null)));
+    scheduler.cancel(URI);
+    first.complete(null);
+
+    sleep(300);
+    assertEquals(singletonList("1"), started);
+    assertTrue(tokens.get(0).isCancelled());
+  }
+
+  private Function<CancellationToken, CompletableFuture<?>> analysis(
+      String text, CompletableFuture<?> result) {
+    return token -> {
+      started.add(text);
+      tokens.add(token);
+      return result;
+    };
+  }
+
+  private void sleep(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
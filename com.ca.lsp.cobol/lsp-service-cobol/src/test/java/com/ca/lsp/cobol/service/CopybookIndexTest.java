@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2020 Broadcom.
+ *
+ * The term "Broadcom" refers to Broadcom Inc. and/or its subsidiaries.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ * Broadcom, Inc. - initial API and implementation
+ *
+ */
+package com.ca.lsp.cobol.service;
+
+import com.ca.lsp.cobol.FileSystemConfiguration;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * This test checks that {@link CopybookIndex} finds the copybooks in the given dataset folders and
+ * applies the changes of the file system.
+ */
+public class CopybookIndexTest extends FileSystemConfiguration {
+  private final CopybookIndex index = new CopybookIndex(0);
+  private Path dataset;
+
+  @Before
+  public void initIndex() {
+    index.index(singletonList(copybooksFolderPath)).join();
+    dataset = Paths.get(copybooksFolderPath + FULL_PATH2);
+  }
+
+  @Test
+  public void testFindInDataset() {
+    assertEquals(
+        dataset.resolve(CPY_INNER_FILE_NAME_WITH_EXT),
+        index.find(CPY_NAME_WITHOUT_EXT.toUpperCase(), dataset));
+    assertNull(index.find(COPYBOOK_NOT_PRESENT, copybooksFolderPath));
+  }
+
+  @Test
+  public void testAddCreatedCopybook() throws IOException {
+    Path created = Files.write(dataset.resolve(COPYBOOK_NOT_PRESENT + ".cpy"), new byte[0]);
+    assertNull(index.find(COPYBOOK_NOT_PRESENT, dataset));
+
+    index.add(created);
+
+    assertEquals(created, index.find(COPYBOOK_NOT_PRESENT, copybooksFolderPath));
+  }
+
+  @Test
+  public void testRemoveDeletedFolder() {
+    index.remove(dataset);
+
+    assertNull(index.find(CPY_NAME_WITHOUT_EXT, dataset));
+    assertEquals(
+        Paths.get(copybooksFolderPath + FULL_PATH, CPY_INNER_FILE_NAME_WITH_EXT),
+        index.find(CPY_NAME_WITHOUT_EXT, copybooksFolderPath));
+  }
+
+  @Test
+  public void testIndexedFolderIsNotScannedAgain() throws IOException {
+    Path created = Files.write(dataset.resolve(COPYBOOK_NOT_PRESENT + ".cpy"), new byte[0]);
+
+    index.index(singletonList(copybooksFolderPath)).join();
+    assertNull(index.find(COPYBOOK_NOT_PRESENT, dataset));
+
+    index.add(created);
+
+    assertEquals(created, index.find(COPYBOOK_NOT_PRESENT, dataset));
+  }
+
+  @Test
+  public void testMissingCopybookIsForgottenWhenAdded() throws IOException {
+    CopybookIndex cachingIndex = new CopybookIndex(60000);
+    cachingIndex.index(singletonList(copybooksFolderPath));
+    List<Path> datasets = asList(Paths.get(copybooksFolderPath + FULL_PATH), dataset);
+    assertNull(cachingIndex.find(COPYBOOK_NOT_PRESENT, datasets));
+
+    Path created = Files.write(dataset.resolve(COPYBOOK_NOT_PRESENT + ".cpy"), new byte[0]);
+    assertNull(cachingIndex.find(COPYBOOK_NOT_PRESENT, datasets));
+
+    cachingIndex.add(created);
+
+    assertEquals(created, cachingIndex.find(COPYBOOK_NOT_PRESENT, datasets));
+  }
+}
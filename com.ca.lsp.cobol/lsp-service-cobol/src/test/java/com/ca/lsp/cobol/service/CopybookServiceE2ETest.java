@@ -21,9 +21,13 @@ import com.ca.lsp.cobol.FileSystemConfiguration;
 import com.ca.lsp.cobol.model.ConfigurationSettingsStorable;
 import com.ca.lsp.cobol.service.delegates.dependency.CopybookDependencyService;
 import com.ca.lsp.cobol.service.delegates.dependency.CopybookDependencyServiceImpl;
+import com.ca.lsp.core.cobol.engine.CancellationToken;
+import com.ca.lsp.core.cobol.engine.ParsingStatistics;
 import com.ca.lsp.core.cobol.model.CopybookUsage;
 import com.ca.lsp.core.cobol.preprocessor.CobolPreprocessor;
 import com.ca.lsp.core.cobol.preprocessor.sub.copybook.AnalyseCopybookTask;
+import com.ca.lsp.core.cobol.preprocessor.sub.copybook.CopybookResolution;
+import com.ca.lsp.core.cobol.preprocessor.sub.copybook.PreprocessedCopybookCache;
 import com.google.inject.Guice;
 import com.google.inject.Provider;
 import lombok.extern.slf4j.Slf4j;
@@ -57,14 +61,15 @@ public class CopybookServiceE2ETest extends FileSystemConfiguration {
       mock(Provider.class);
 
   private CopybookDependencyService dependencyService =
-      new CopybookDependencyServiceImpl(broker, null);
+      new CopybookDependencyServiceImpl(broker, null, new CopybookIndex(0));
 
   @Before
   public void initActivities() {
     createProfileConfiguration();
 
     CopybookServiceImpl copybookService =
-        new CopybookServiceImpl(broker, configurationSettingsProvider, dependencyService);
+        new CopybookServiceImpl(
+            broker, configurationSettingsProvider, dependencyService, new CopybookIndex(0));
     copybookService.setWorkspaceFolders(createWorkspaceFolders());
   }
 
@@ -185,10 +190,15 @@ public class CopybookServiceE2ETest extends FileSystemConfiguration {
         new AnalyseCopybookTask(
             broker,
             preprocessor,
+            mock(PreprocessedCopybookCache.class),
+            new CopybookResolution(broker),
+            new ParsingStatistics(),
+            30000,
             CPY_DOCUMENT_URI,
             new CopybookUsage("CPYNEST2", null, null),
             emptyList(),
-            "DID_CHANGE");
+            "DID_CHANGE",
+            CancellationToken.NONE);
     analyseCopybookTask.compute();
   }
 
@@ -31,11 +31,18 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import static junit.framework.TestCase.assertTrue;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 @Slf4j
 public class CopybookServiceTest extends FileSystemConfiguration
@@ -46,7 +53,8 @@ public class CopybookServiceTest extends FileSystemConfiguration
   CopybookDependencyService dependencyService = mock(CopybookDependencyService.class);
 
   CopybookService copybookService =
-      new CopybookServiceImpl(dataBus, configurationSettingsStorableProvider, dependencyService);
+      new CopybookServiceImpl(
+          dataBus, configurationSettingsStorableProvider, dependencyService, new CopybookIndex(0));
 
   @Before
   public void initActivities() {
@@ -140,6 +148,45 @@ public class CopybookServiceTest extends FileSystemConfiguration
         copybookService.findCopybook(CPY_NAME_WITHOUT_EXT, Collections.singletonList(WRONG_PATH)));
   }
 
+  /**
+   * This test verifies that the requests of the same copybook that come while it is being searched
+   * record the dependencies of their documents, but share the search and the fetched event.
+   */
+  @Test
+  public void testConcurrentRequestsShareSearch() throws InterruptedException {
+    CopybookIndex index = mock(CopybookIndex.class);
+    CountDownLatch searching = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    when(index.find(any(), anyList()))
+        .thenAnswer(
+            invocation -> {
+              searching.countDown();
+              release.await();
+              return null;
+            });
+    when(configurationSettingsStorableProvider.get()).thenReturn(configurationSettingsStorable);
+    CopybookService service =
+        new CopybookServiceImpl(
+            dataBus, configurationSettingsStorableProvider, dependencyService, index);
+    service.setWorkspaceFolders(createWorkspaceFolders());
+    RequiredCopybookEvent first =
+        RequiredCopybookEvent.builder().name("CPYNAME").documentUri("file:///first.cbl").build();
+    RequiredCopybookEvent second =
+        RequiredCopybookEvent.builder().name("CpyName").documentUri("file:///second.cbl").build();
+
+    CompletableFuture<Void> search =
+        CompletableFuture.runAsync(() -> service.observerCallback(first));
+    assertTrue(searching.await(10, TimeUnit.SECONDS));
+    service.observerCallback(second);
+    release.countDown();
+    search.join();
+
+    verify(dependencyService).addCopybookInDepFile(first, "CPYNAME");
+    verify(dependencyService).addCopybookInDepFile(second, "CpyName");
+    verify(index).find(any(), anyList());
+    verify(dataBus).postData(FetchedCopybookEvent.builder().name("CPYNAME").build());
+  }
+
   @Override
   public void observerCallback(RequiredCopybookEvent event) {
     log.info(event.toString());
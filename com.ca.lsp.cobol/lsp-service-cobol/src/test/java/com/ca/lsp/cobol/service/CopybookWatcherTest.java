@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2020 Broadcom.
+ *
+ * The term "Broadcom" refers to Broadcom Inc. and/or its subsidiaries.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ * Broadcom, Inc. - initial API and implementation
+ *
+ */
+package com.ca.lsp.cobol.service;
+
+import com.ca.lsp.cobol.FileSystemConfiguration;
+import org.eclipse.lsp4j.DidChangeWatchedFilesParams;
+import org.eclipse.lsp4j.FileChangeType;
+import org.eclipse.lsp4j.FileEvent;
+import org.eclipse.lsp4j.WorkspaceFolder;
+import org.eclipse.lsp4j.services.WorkspaceService;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.Collections.singletonList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentCaptor.forClass;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+/**
+ * This test checks that {@link CopybookWatcher} applies a burst of changes of the copybook folders
+ * by a single call of {@link WorkspaceService#didChangeWatchedFiles(DidChangeWatchedFilesParams)}
+ * and stops applying them when it is closed.
+ */
+public class CopybookWatcherTest extends FileSystemConfiguration {
+  private static final int COPYBOOKS_COUNT = 20;
+
+  @Test
+  public void testBurstOfChangesIsCoalesced() throws IOException {
+    WorkspaceService workspaceService = mock(WorkspaceService.class);
+    CopybookWatcher watcher = new CopybookWatcher(workspaceService, 500);
+    watcher.watch(singletonList(new WorkspaceFolder(workspaceFolder.toUri().toString(), "test")));
+
+    Path dataset = Paths.get(copybooksFolderPath + FULL_PATH2);
+    List<String> created = new ArrayList<>();
+    for (int i = 0; i < COPYBOOKS_COUNT; i++) {
+      Path copybook = Files.write(dataset.resolve("CPY" + i + ".cpy"), COPYBOOK_CONTENT.getBytes());
+      created.add(copybook.toUri().toString());
+    }
+
+    ArgumentCaptor<DidChangeWatchedFilesParams> captor =
+        forClass(DidChangeWatchedFilesParams.class);
+    verify(workspaceService, timeout(10000)).didChangeWatchedFiles(captor.capture());
+
+    List<FileEvent> events = captor.getValue().getChanges();
+    assertEquals(COPYBOOKS_COUNT, events.size());
+    events.forEach(it -> assertTrue(created.contains(it.getUri())));
+    events.forEach(it -> assertEquals(FileChangeType.Created, it.getType()));
+  }
+
+  @Test
+  public void testClosedWatcherIgnoresChanges() throws IOException {
+    WorkspaceService workspaceService = mock(WorkspaceService.class);
+    CopybookWatcher watcher = new CopybookWatcher(workspaceService, 100);
+    watcher.watch(singletonList(new WorkspaceFolder(workspaceFolder.toUri().toString(), "test")));
+    watcher.close();
+
+    Path dataset = Paths.get(copybooksFolderPath + FULL_PATH2);
+    Files.write(dataset.resolve("CPY.cpy"), COPYBOOK_CONTENT.getBytes());
+
+    verify(workspaceService, after(2000).never()).didChangeWatchedFiles(any());
+  }
+}
@@ -61,7 +61,8 @@ public class CpyRecognizedWithoutConfigTest {
         createFolderStructure(Paths.get(System.getProperty("java.io.tmpdir"), "WORKSPACE"));
 
     copybookService =
-        new CopybookServiceImpl(dataBusBroker, settingsProvider, dependencyService);
+        new CopybookServiceImpl(
+            dataBusBroker, settingsProvider, dependencyService, new CopybookIndex(0));
     copybookService.setWorkspaceFolders(generateWorkspaceFolder());
 
     requiredCopybookEvent =
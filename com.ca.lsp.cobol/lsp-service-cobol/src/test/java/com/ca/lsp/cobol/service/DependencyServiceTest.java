@@ -55,7 +55,7 @@ public class DependencyServiceTest extends FileSystemConfiguration {
           new ConfigurationSettingsStorable(unmodifiableList(Arrays.asList(FULL_PATH, FULL_PATH2)));
 
   private CopybookDependencyService dependencyService =
-      new CopybookDependencyServiceImpl(broker, provider);
+      new CopybookDependencyServiceImpl(broker, provider, new CopybookIndex(0));
 
   @Before
   public void initActivities() {
@@ -69,7 +69,7 @@ public class DependencyServiceTest extends FileSystemConfiguration {
     DataBusBroker brokerMock = mock(DataBusBroker.class);
 
     CopybookDependencyServiceImpl dependencyService =
-        new CopybookDependencyServiceImpl(brokerMock, null);
+        new CopybookDependencyServiceImpl(brokerMock, null, new CopybookIndex(0));
     verify(brokerMock).subscribe(DataEventType.COPYBOOK_DEP_EVENT, dependencyService);
   }
 
@@ -80,7 +80,7 @@ public class DependencyServiceTest extends FileSystemConfiguration {
   @Test
   public void whenACopybookIsFound_ShouldBeRemovedFromDepFile() {
     CopybookDependencyServiceImpl copybookDependencyServiceImpl =
-        new CopybookDependencyServiceImpl(broker, provider);
+        new CopybookDependencyServiceImpl(broker, provider, new CopybookIndex(0));
     copybookDependencyServiceImpl.setWorkspaceFolderPaths(
         Collections.singletonList(workspaceFolder));
     Path depFileReference = createDependencyFileForCobolFile(COBOL_FILE_NAME);
@@ -16,6 +16,7 @@ package com.ca.lsp.cobol.service;
 
 import com.broadcom.lsp.domain.cobol.databus.impl.DefaultDataBusBroker;
 import com.broadcom.lsp.domain.cobol.event.model.FetchedSettingsEvent;
+import com.ca.lsp.cobol.service.delegates.validations.AnalysisResultCache;
 import com.ca.lsp.cobol.service.providers.ClientProvider;
 import com.ca.lsp.cobol.utils.ServiceTestUtils;
 import org.eclipse.lsp4j.ConfigurationParams;
@@ -45,7 +46,12 @@ public class DidChangeConfigurationTest {
   @Test
   public void testDidChangeConfiguration() {
     CobolWorkspaceServiceImpl cobolWorkspaceService =
-        new CobolWorkspaceServiceImpl(broker, provider);
+        new CobolWorkspaceServiceImpl(
+            broker,
+            provider,
+            new AnalysisResultCache(1),
+            mock(CopybookIndex.class),
+            new DocumentDependencyIndex());
     ArgumentCaptor<FetchedSettingsEvent> captor =
         ArgumentCaptor.forClass(FetchedSettingsEvent.class);
 
@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2020 Broadcom.
+ * The term "Broadcom" refers to Broadcom Inc. and/or its subsidiaries.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *   Broadcom, Inc. - initial API and implementation
+ */
+package com.ca.lsp.cobol.service;
+
+import org.junit.Test;
+
+import static com.ca.lsp.cobol.service.DocumentDependencyIndex.CLOSED;
+import static java.util.Collections.emptySet;
+import static java.util.Collections.singleton;
+import static java.util.Collections.singletonList;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * This test checks that {@link DocumentDependencyIndex} finds the documents that depend on the
+ * changed copybooks, and the analysis that finishes after the document was removed doesn't register
+ * it again.
+ */
+public class DocumentDependencyIndexTest {
+  private static final String DOCUMENT_URI = "file:///c%3A/workspace/document.cbl";
+  private static final String COPYBOOK = "CpyName";
+
+  private final DocumentDependencyIndex dependencies = new DocumentDependencyIndex();
+
+  @Test
+  public void testUpdateFindsDependentDocuments() {
+    dependencies.open(DOCUMENT_URI);
+    long generation = dependencies.startAnalysis(DOCUMENT_URI);
+    assertEquals(singleton(DOCUMENT_URI), dependencies.findDocuments(emptySet()));
+
+    dependencies.update(DOCUMENT_URI, generation, singletonList(COPYBOOK));
+
+    assertEquals(singleton(DOCUMENT_URI), dependencies.findDocuments(singleton("CPYNAME")));
+    assertEquals(emptySet(), dependencies.findDocuments(singleton("OTHER")));
+  }
+
+  @Test
+  public void testUpdateAfterRemoveIsIgnored() {
+    dependencies.open(DOCUMENT_URI);
+    long generation = dependencies.startAnalysis(DOCUMENT_URI);
+    dependencies.remove(DOCUMENT_URI);
+
+    dependencies.update(DOCUMENT_URI, generation, singletonList(COPYBOOK));
+
+    assertEquals(emptySet(), dependencies.findDocuments(singleton(COPYBOOK)));
+  }
+
+  @Test
+  public void testUpdateOfPreviousOpeningIsIgnored() {
+    dependencies.open(DOCUMENT_URI);
+    long generation = dependencies.startAnalysis(DOCUMENT_URI);
+    dependencies.remove(DOCUMENT_URI);
+    dependencies.open(DOCUMENT_URI);
+
+    dependencies.update(DOCUMENT_URI, generation, singletonList(COPYBOOK));
+
+    assertEquals(emptySet(), dependencies.findDocuments(singleton(COPYBOOK)));
+  }
+
+  @Test
+  public void testAnalysisAfterRemoveIsIgnored() {
+    dependencies.open(DOCUMENT_URI);
+    dependencies.remove(DOCUMENT_URI);
+
+    assertEquals(CLOSED, dependencies.startAnalysis(DOCUMENT_URI));
+    assertEquals(emptySet(), dependencies.findDocuments(emptySet()));
+  }
+}
@@ -77,17 +77,18 @@ public class DocumentExtensionTests {
     String uri = DOCUMENT_URI_BEGINNING + extension;
 
     // dynamic stubbing in DID_OPEN mode
-    when(engine.analyze(uri, TEXT, TextDocumentSyncType.DID_OPEN))
+    when(engine.analyze(eq(uri), eq(TEXT), eq(TextDocumentSyncType.DID_OPEN), any()))
         .thenReturn(AnalysisResult.empty());
     fireDidOpen(extension, uri);
-    verify(engine, timeout(10000).times(1)).analyze(uri, TEXT, TextDocumentSyncType.DID_OPEN);
+    verify(engine, timeout(10000).times(1))
+        .analyze(eq(uri), eq(TEXT), eq(TextDocumentSyncType.DID_OPEN), any());
 
     // dynamic stubbing in DID_CHANGE mode
-    when(engine.analyze(uri, TEXT, TextDocumentSyncType.DID_CHANGE))
+    when(engine.analyze(eq(uri), eq(TEXT), eq(TextDocumentSyncType.DID_CHANGE), any()))
         .thenReturn(AnalysisResult.empty());
     fireDidChange(uri);
     verify(engine, timeout(10000))
-        .analyze(uri, INCORRECT_TEXT_EXAMPLE, TextDocumentSyncType.DID_CHANGE);
+        .analyze(eq(uri), eq(INCORRECT_TEXT_EXAMPLE), eq(TextDocumentSyncType.DID_CHANGE), any());
   }
 
   private void checkExtensionNotMatches(String extension) {
@@ -97,7 +98,16 @@ public class DocumentExtensionTests {
 
   private void fireDidOpen(String extension, String uri) {
     TextDocumentService service =
-        new MyTextDocumentService(communications, engine, null, null, null, broker, null);
+        new MyTextDocumentService(
+            communications,
+            engine,
+            null,
+            null,
+            null,
+            broker,
+            null,
+            new AnalysisScheduler(0),
+            new DocumentDependencyIndex());
     service.didOpen(new DidOpenTextDocumentParams(new TextDocumentItem(uri, extension, 0, TEXT)));
   }
 
@@ -106,7 +116,16 @@ public class DocumentExtensionTests {
     textEdits.add(new TextDocumentContentChangeEvent(INCORRECT_TEXT_EXAMPLE));
 
     TextDocumentService service =
-        new MyTextDocumentService(communications, engine, null, null, null, broker, null);
+        new MyTextDocumentService(
+            communications,
+            engine,
+            null,
+            null,
+            null,
+            broker,
+            null,
+            new AnalysisScheduler(0),
+            new DocumentDependencyIndex());
     service.didChange(
         new DidChangeTextDocumentParams(new VersionedTextDocumentIdentifier(uri, 0), textEdits));
   }
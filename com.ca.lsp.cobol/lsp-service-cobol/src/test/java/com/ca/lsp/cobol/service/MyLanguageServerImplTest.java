@@ -47,7 +47,7 @@ public class MyLanguageServerImplTest {
     ClientProvider provider = new ClientProvider();
     provider.set(client);
 
-    MyLanguageServerImpl server = new MyLanguageServerImpl(null, null, null, provider, null);
+    MyLanguageServerImpl server = new MyLanguageServerImpl(null, null, null, provider, null, null);
     ArgumentCaptor<RegistrationParams> captor = forClass(RegistrationParams.class);
     server.initialized(new InitializedParams());
 
@@ -64,8 +64,9 @@ public class MyLanguageServerImplTest {
   @Test
   public void initialize() {
     CopybookService fileSystemService = mock(CopybookService.class);
+    CopybookWatcher watcher = mock(CopybookWatcher.class);
     MyLanguageServerImpl server =
-        new MyLanguageServerImpl(fileSystemService, null, null, null, null);
+        new MyLanguageServerImpl(fileSystemService, null, null, null, null, watcher);
     InitializeParams initializeParams = new InitializeParams();
 
     List<WorkspaceFolder> workspaceFolders = singletonList(new WorkspaceFolder("uri", "name"));
@@ -79,6 +80,21 @@ public class MyLanguageServerImplTest {
     }
 
     verify(fileSystemService).setWorkspaceFolders(workspaceFolders);
+    verify(watcher).watch(workspaceFolders);
+  }
+
+  /**
+   * Test the {@link MyLanguageServerImpl#shutdown()} method. It should stop watching the copybook
+   * folders.
+   */
+  @Test
+  public void shutdown() {
+    CopybookWatcher watcher = mock(CopybookWatcher.class);
+    MyLanguageServerImpl server = new MyLanguageServerImpl(null, null, null, null, null, watcher);
+
+    server.shutdown();
+
+    verify(watcher).close();
   }
 
   private void assertRegistrationParams(RegistrationParams params) {
@@ -92,10 +108,11 @@ public class MyLanguageServerImplTest {
 
     watchers.forEach(it -> assertTrue(it.getGlobPattern().startsWith("**/.copybooks")));
     watchers.forEach(it -> assertEquals(7, it.getKind().intValue()));
+    assertTrue(watchers.stream().anyMatch(it -> it.getGlobPattern().endsWith("/.encoding")));
   }
 
   private void checkOnlySupportedCapabilitiesAreSet(ServerCapabilities capabilities) {
-    assertEquals(TextDocumentSyncKind.Full, capabilities.getTextDocumentSync().getLeft());
+    assertEquals(TextDocumentSyncKind.Incremental, capabilities.getTextDocumentSync().getLeft());
     assertTrue(capabilities.getWorkspace().getWorkspaceFolders().getSupported());
     assertTrue(capabilities.getCompletionProvider().getResolveProvider());
     assertTrue(capabilities.getDefinitionProvider());
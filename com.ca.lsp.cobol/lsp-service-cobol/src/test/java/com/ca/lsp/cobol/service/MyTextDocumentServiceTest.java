@@ -24,6 +24,7 @@ import com.ca.lsp.cobol.service.delegates.validations.AnalysisResult;
 import com.ca.lsp.cobol.service.delegates.validations.LanguageEngineFacade;
 import com.ca.lsp.cobol.service.delegates.validations.UseCaseUtils;
 import com.ca.lsp.cobol.service.mocks.TestLanguageClient;
+import com.ca.lsp.core.cobol.engine.CancellationToken;
 import org.eclipse.lsp4j.*;
 import org.eclipse.lsp4j.jsonrpc.messages.Either;
 import org.eclipse.lsp4j.services.TextDocumentService;
@@ -37,6 +38,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutionException;
 import java.util.function.Function;
 
@@ -184,13 +186,17 @@ public class MyTextDocumentServiceTest extends ConfigurableTest {
      */
 
     // dynamic stubbing for did open event
-    when(engine.analyze(DOCUMENT_URI, TEXT_EXAMPLE, DID_OPEN)).thenReturn(resultNoErrors);
-    when(engine.analyze(DOCUMENT_WITH_ERRORS_URI, INCORRECT_TEXT_EXAMPLE, DID_OPEN))
+    when(engine.analyze(eq(DOCUMENT_URI), eq(TEXT_EXAMPLE), eq(DID_OPEN), any()))
+        .thenReturn(resultNoErrors);
+    when(engine.analyze(
+            eq(DOCUMENT_WITH_ERRORS_URI), eq(INCORRECT_TEXT_EXAMPLE), eq(DID_OPEN), any()))
         .thenReturn(resultWithErrors);
 
     // dynamic stubbing for did change event
-    when(engine.analyze(DOCUMENT_URI, TEXT_EXAMPLE, DID_CHANGE)).thenReturn(resultNoErrors);
-    when(engine.analyze(DOCUMENT_WITH_ERRORS_URI, INCORRECT_TEXT_EXAMPLE, DID_CHANGE))
+    when(engine.analyze(eq(DOCUMENT_URI), eq(TEXT_EXAMPLE), eq(DID_CHANGE), any()))
+        .thenReturn(resultNoErrors);
+    when(engine.analyze(
+            eq(DOCUMENT_WITH_ERRORS_URI), eq(INCORRECT_TEXT_EXAMPLE), eq(DID_CHANGE), any()))
         .thenReturn(resultWithErrors);
 
     // create a service and verify is subscribed to the required event
@@ -242,7 +248,16 @@ public class MyTextDocumentServiceTest extends ConfigurableTest {
     when(actions.collect(params)).thenReturn(expected);
 
     MyTextDocumentService service =
-        new MyTextDocumentService(null, null, null, null, null, broker, actions);
+        new MyTextDocumentService(
+            null,
+            null,
+            null,
+            null,
+            null,
+            broker,
+            actions,
+            new AnalysisScheduler(0),
+            new DocumentDependencyIndex());
     try {
       assertEquals(expected, service.codeAction(params).get());
     } catch (InterruptedException | ExecutionException e) {
@@ -261,7 +276,16 @@ public class MyTextDocumentServiceTest extends ConfigurableTest {
   private MyTextDocumentService verifyServiceStart(
       Communications communications, LanguageEngineFacade engine, DataBusBroker broker) {
     MyTextDocumentService service =
-        new MyTextDocumentService(communications, engine, null, null, null, broker, null);
+        new MyTextDocumentService(
+            communications,
+            engine,
+            null,
+            null,
+            null,
+            broker,
+            null,
+            new AnalysisScheduler(0),
+            new DocumentDependencyIndex());
 
     verify(broker).subscribe(DataEventType.RUN_ANALYSIS_EVENT, service);
     return service;
@@ -277,7 +301,7 @@ public class MyTextDocumentServiceTest extends ConfigurableTest {
     service.didOpen(
         new DidOpenTextDocumentParams(new TextDocumentItem(uri, LANGUAGE, 0, textToAnalyse)));
     verify(communications).notifyThatLoadingInProgress(uri);
-    verify(engine, timeout(10000)).analyze(uri, textToAnalyse, DID_OPEN);
+    verify(engine, timeout(10000)).analyze(eq(uri), eq(textToAnalyse), eq(DID_OPEN), any());
     verify(communications, timeout(10000)).cancelProgressNotification(uri);
     verify(communications, timeout(10000)).publishDiagnostics(uri, diagnostics);
   }
@@ -289,9 +313,9 @@ public class MyTextDocumentServiceTest extends ConfigurableTest {
       String text,
       String uri) {
 
-    verify(engine, timeout(10000).times(1)).analyze(uri, text, DID_CHANGE);
-    verify(engine, timeout(10000).times(1)).analyze(uri, text, DID_OPEN);
-    verify(communications, times(2)).publishDiagnostics(uri, diagnostics);
+    verify(engine, timeout(10000).times(1)).analyze(eq(uri), eq(text), eq(DID_CHANGE), any());
+    verify(engine, timeout(10000).times(1)).analyze(eq(uri), eq(text), eq(DID_OPEN), any());
+    verify(communications, timeout(10000).times(2)).publishDiagnostics(uri, diagnostics);
   }
 
   /**
@@ -309,10 +333,19 @@ public class MyTextDocumentServiceTest extends ConfigurableTest {
 
     doAnswer(new AnswersWithDelay(1000, invocation -> AnalysisResult.empty()))
         .when(engine)
-        .analyze(DOCUMENT_URI, TEXT_EXAMPLE, DID_OPEN);
+        .analyze(eq(DOCUMENT_URI), eq(TEXT_EXAMPLE), eq(DID_OPEN), any());
 
     MyTextDocumentService service =
-        new MyTextDocumentService(communications, engine, null, null, null, broker, null);
+        new MyTextDocumentService(
+            communications,
+            engine,
+            null,
+            null,
+            null,
+            broker,
+            null,
+            new AnalysisScheduler(0),
+            new DocumentDependencyIndex());
 
     service.didOpen(
         new DidOpenTextDocumentParams(
@@ -326,6 +359,135 @@ public class MyTextDocumentServiceTest extends ConfigurableTest {
     verify(communications, timeout(2000)).cancelProgressNotification(DOCUMENT_URI);
   }
 
+  /**
+   * Check that the incremental changes are applied to the latest text of the document and the
+   * analysis receives the full updated text.
+   */
+  @Test
+  public void testIncrementalChangesAppliedToText() {
+    DataBusBroker broker = mock(DataBusBroker.class);
+    Communications communications = mock(Communications.class);
+    LanguageEngineFacade engine = mock(LanguageEngineFacade.class);
+    when(engine.analyze(any(), any(), any(), any())).thenReturn(AnalysisResult.empty());
+
+    MyTextDocumentService service =
+        new MyTextDocumentService(
+            communications,
+            engine,
+            null,
+            null,
+            null,
+            broker,
+            null,
+            new AnalysisScheduler(0),
+            new DocumentDependencyIndex());
+    service.didOpen(
+        new DidOpenTextDocumentParams(
+            new TextDocumentItem(DOCUMENT_URI, LANGUAGE, 0, TEXT_EXAMPLE + "\r\n")));
+
+    List<TextDocumentContentChangeEvent> textEdits = new ArrayList<>();
+    textEdits.add(new TextDocumentContentChangeEvent(range(0, 30, 0, 30), 0, "s"));
+    textEdits.add(new TextDocumentContentChangeEvent(range(1, 0, 1, 0), 0, TEXT_EXAMPLE));
+    service.didChange(
+        new DidChangeTextDocumentParams(
+            new VersionedTextDocumentIdentifier(DOCUMENT_URI, 1), textEdits));
+
+    verify(engine, timeout(10000))
+        .analyze(
+            eq(DOCUMENT_URI),
+            eq(INCORRECT_TEXT_EXAMPLE + "\r\n" + TEXT_EXAMPLE),
+            eq(DID_CHANGE),
+            any());
+  }
+
+  /**
+   * Check that a new change of the document cancels the analysis of the previous one that is still
+   * running, and only the result of the latest analysis is published.
+   */
+  @Test
+  public void testNewChangeCancelsPreviousAnalysis() {
+    DataBusBroker broker = mock(DataBusBroker.class);
+    Communications communications = mock(Communications.class);
+    LanguageEngineFacade engine = mock(LanguageEngineFacade.class);
+    List<CancellationToken> tokens = new CopyOnWriteArrayList<>();
+
+    when(engine.analyze(eq(DOCUMENT_URI), eq(TEXT_EXAMPLE), eq(DID_CHANGE), any()))
+        .thenAnswer(
+            invocation -> {
+              CancellationToken token = invocation.getArgument(3);
+              tokens.add(token);
+              await(token::isCancelled);
+              token.checkCancelled();
+              return AnalysisResult.empty();
+            });
+    when(engine.analyze(eq(DOCUMENT_URI), eq(INCORRECT_TEXT_EXAMPLE), eq(DID_CHANGE), any()))
+        .thenReturn(AnalysisResult.empty());
+
+    MyTextDocumentService service =
+        new MyTextDocumentService(
+            communications,
+            engine,
+            null,
+            null,
+            null,
+            broker,
+            null,
+            new AnalysisScheduler(0),
+            new DocumentDependencyIndex());
+
+    changeText(service, TEXT_EXAMPLE);
+    verify(engine, timeout(10000))
+        .analyze(eq(DOCUMENT_URI), eq(TEXT_EXAMPLE), eq(DID_CHANGE), any());
+    changeText(service, INCORRECT_TEXT_EXAMPLE);
+
+    verify(communications, timeout(10000)).cancelProgressNotification(DOCUMENT_URI);
+    verify(communications, timeout(10000)).publishDiagnostics(DOCUMENT_URI, emptyList());
+    assertTrue(tokens.get(0).isCancelled());
+    assertEquals(INCORRECT_TEXT_EXAMPLE, service.getDocs().get(DOCUMENT_URI).getText());
+  }
+
+  /**
+   * Check that the result of an analysis that finishes while the document is being closed doesn't
+   * register the closed document again
+   */
+  @Test
+  public void testCloseDuringAnalysisDiscardsResult() {
+    DataBusBroker broker = mock(DataBusBroker.class);
+    Communications communications = mock(Communications.class);
+    LanguageEngineFacade engine = mock(LanguageEngineFacade.class);
+    DocumentDependencyIndex dependencies = spy(new DocumentDependencyIndex());
+    MyTextDocumentService service =
+        new MyTextDocumentService(
+            communications,
+            engine,
+            null,
+            null,
+            null,
+            broker,
+            null,
+            new AnalysisScheduler(0),
+            dependencies);
+
+    when(engine.analyze(eq(DOCUMENT_URI), eq(TEXT_EXAMPLE), eq(DID_CHANGE), any()))
+        .thenReturn(AnalysisResult.empty());
+    doAnswer(
+            invocation -> {
+              CompletableFuture.runAsync(
+                  () ->
+                      service.didClose(
+                          new DidCloseTextDocumentParams(
+                              new TextDocumentIdentifier(DOCUMENT_URI))));
+              Thread.sleep(500);
+              return invocation.callRealMethod();
+            })
+        .when(dependencies)
+        .update(eq(DOCUMENT_URI), anyLong(), any());
+    changeText(service, TEXT_EXAMPLE);
+
+    verify(communications, timeout(10000)).publishDiagnostics(DOCUMENT_URI, emptyList());
+    await(() -> service.getDocs().isEmpty());
+  }
+
   @Ignore("Not implemented yet")
   @Test
   public void testHover() {
@@ -343,6 +505,13 @@ public class MyTextDocumentServiceTest extends ConfigurableTest {
     }
   }
 
+  private void changeText(MyTextDocumentService service, String text) {
+    service.didChange(
+        new DidChangeTextDocumentParams(
+            new VersionedTextDocumentIdentifier(DOCUMENT_URI, 0),
+            singletonList(new TextDocumentContentChangeEvent(text))));
+  }
+
   private void openAndAwait() {
     service.didOpen(
         new DidOpenTextDocumentParams(
@@ -377,6 +546,10 @@ public class MyTextDocumentServiceTest extends ConfigurableTest {
     assertEquals(31, range.getEnd().getCharacter());
   }
 
+  private Range range(int startLine, int startChar, int endLine, int endChar) {
+    return new Range(new Position(startLine, startChar), new Position(endLine, endChar));
+  }
+
   private Map<String, MyDocumentModel> closeGetter(TextDocumentService service) {
     return ((MyTextDocumentService) service).getDocs();
   }
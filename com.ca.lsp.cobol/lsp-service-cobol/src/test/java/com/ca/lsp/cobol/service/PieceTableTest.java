@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2020 Broadcom.
+ * The term "Broadcom" refers to Broadcom Inc. and/or its subsidiaries.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *   Broadcom, Inc. - initial API and implementation
+ */
+package com.ca.lsp.cobol.service;
+
+import org.eclipse.lsp4j.Position;
+import org.eclipse.lsp4j.Range;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * This test checks that {@link PieceTable} applies the changes to the text and keeps the line index
+ * consistent with the text, including the changes that join or split the "\r\n" line breaks.
+ */
+public class PieceTableTest {
+  private static final String TEXT =
+      "       IDENTIFICATION DIVISION.\r\n"
+          + "       PROGRAM-ID. TEST1.\r\n"
+          + "       PROCEDURE DIVISION.\r\n"
+          + "           STOP RUN.";
+
+  @Test
+  public void testInsertion() {
+    PieceTable table = new PieceTable(TEXT);
+
+    table.replace(range(1, 23, 1, 23), "2");
+
+    assertEquals(TEXT.replace("TEST1", "TEST21"), table.getText());
+    assertLines(table);
+  }
+
+  @Test
+  public void testDeletionOfLines() {
+    PieceTable table = new PieceTable(TEXT);
+
+    table.replace(range(1, 0, 3, 0), "");
+
+    assertEquals("       IDENTIFICATION DIVISION.\r\n           STOP RUN.", table.getText());
+    assertEquals(2, table.getLineCount());
+    assertLines(table);
+  }
+
+  @Test
+  public void testInsertionOfLines() {
+    PieceTable table = new PieceTable(TEXT);
+
+    table.replace(range(3, 20, 3, 20), "\r\n           GOBACK.\n");
+
+    assertEquals(TEXT + "\r\n           GOBACK.\n", table.getText());
+    assertEquals(6, table.getLineCount());
+    assertLines(table);
+  }
+
+  @Test
+  public void testSplittingAndJoiningLineBreaks() {
+    PieceTable table = new PieceTable("A\r\nB");
+
+    table.replace(2, 2, "C");
+    assertEquals("A\rC\nB", table.getText());
+    assertEquals(3, table.getLineCount());
+
+    table.replace(2, 3, "");
+    assertEquals("A\r\nB", table.getText());
+    assertEquals(2, table.getLineCount());
+    assertLines(table);
+  }
+
+  @Test
+  public void testPositionsOutOfDocumentAreMovedToTheEnd() {
+    PieceTable table = new PieceTable(TEXT);
+
+    assertEquals(TEXT.indexOf("\r\n"), table.getOffset(new Position(0, 1000)));
+    assertEquals(TEXT.length(), table.getOffset(new Position(100, 0)));
+  }
+
+  @Test
+  public void testRandomChangesKeepLinesConsistent() {
+    Random random = new Random(42);
+    String[] fragments = {"", "A", "\r", "\n", "\r\n", "MOVE 1 TO X.\r\n", "\n\r"};
+    PieceTable table = new PieceTable(TEXT);
+    StringBuilder expected = new StringBuilder(TEXT);
+
+    for (int i = 0; i < 5000; i++) {
+      int start = random.nextInt(expected.length() + 1);
+      int end = Math.min(expected.length(), start + random.nextInt(5));
+      String fragment = fragments[random.nextInt(fragments.length)];
+
+      table.replace(start, end, fragment);
+      expected.replace(start, end, fragment);
+
+      if (i % 50 == 0) {
+        assertEquals(expected.toString(), table.getText());
+        assertLines(table);
+      }
+    }
+    assertEquals(expected.toString(), table.getText());
+    assertLines(table);
+  }
+
+  private void assertLines(PieceTable table) {
+    List<Integer> expected = findLineStarts(table.getText());
+    assertEquals(expected.size(), table.getLineCount());
+    for (int line = 0; line < expected.size(); line++) {
+      assertEquals(expected.get(line).intValue(), table.getOffset(new Position(line, 0)));
+    }
+  }
+
+  private List<Integer> findLineStarts(String text) {
+    List<Integer> result = new ArrayList<>();
+    result.add(0);
+    for (int i = 0; i < text.length(); i++) {
+      char current = text.charAt(i);
+      boolean lastChar = i + 1 == text.length();
+      if (current == '\n' || (current == '\r' && (lastChar || text.charAt(i + 1) != '\n'))) {
+        result.add(i + 1);
+      }
+    }
+    return result;
+  }
+
+  private Range range(int startLine, int startChar, int endLine, int endChar) {
+    return new Range(new Position(startLine, startChar), new Position(endLine, endChar));
+  }
+}
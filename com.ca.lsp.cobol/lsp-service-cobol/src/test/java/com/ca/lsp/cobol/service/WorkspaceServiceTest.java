@@ -19,6 +19,7 @@ import com.broadcom.lsp.domain.cobol.databus.api.DataBusBroker;
 import com.broadcom.lsp.domain.cobol.databus.impl.DefaultDataBusBroker;
 import com.broadcom.lsp.domain.cobol.event.model.RequiredCopybookEvent;
 import com.broadcom.lsp.domain.cobol.event.model.RunAnalysisEvent;
+import com.ca.lsp.cobol.service.delegates.validations.AnalysisResultCache;
 import com.google.gson.JsonPrimitive;
 import lombok.extern.slf4j.Slf4j;
 import org.eclipse.lsp4j.DidChangeWatchedFilesParams;
@@ -36,6 +37,7 @@ import static com.ca.lsp.cobol.service.delegates.validations.UseCaseUtils.DOCUME
 import static com.ca.lsp.core.cobol.model.ErrorCode.MISSING_COPYBOOK;
 import static java.util.Arrays.asList;
 import static java.util.Collections.emptyList;
+import static java.util.Collections.singleton;
 import static java.util.Collections.singletonList;
 import static org.eclipse.lsp4j.FileChangeType.Changed;
 import static org.junit.Assert.*;
@@ -55,7 +57,13 @@ public class WorkspaceServiceTest {
   @Test
   public void testExecuteNonExistingCommand() {
     DataBusBroker broker = mock(DataBusBroker.class);
-    WorkspaceService service = new CobolWorkspaceServiceImpl(broker, null);
+    WorkspaceService service =
+        new CobolWorkspaceServiceImpl(
+            broker,
+            null,
+            new AnalysisResultCache(1),
+            mock(CopybookIndex.class),
+            new DocumentDependencyIndex());
 
     CompletableFuture<Object> result =
         service.executeCommand(new ExecuteCommandParams("Missing command name", emptyList()));
@@ -75,7 +83,13 @@ public class WorkspaceServiceTest {
   @Test
   public void testExecuteCommandIncorrectArguments() {
     DataBusBroker broker = mock(DataBusBroker.class);
-    WorkspaceService service = new CobolWorkspaceServiceImpl(broker, null);
+    WorkspaceService service =
+        new CobolWorkspaceServiceImpl(
+            broker,
+            null,
+            new AnalysisResultCache(1),
+            mock(CopybookIndex.class),
+            new DocumentDependencyIndex());
 
     CompletableFuture<Object> result =
         service.executeCommand(
@@ -106,17 +120,58 @@ public class WorkspaceServiceTest {
     checkWatchers(new FileEvent("file:///c%3A/workspace/COBOL/.copybooks", Changed));
   }
 
+  /**
+   * This test verifies that all the documents are analyzed again if the change of the watched files
+   * cannot be applied to the copybook index
+   */
+  @Test
+  public void testDidChangeWatchedFilesInvalidUri() {
+    DefaultDataBusBroker broker = mock(DefaultDataBusBroker.class);
+    AnalysisResultCache cache = mock(AnalysisResultCache.class);
+    CopybookIndex copybookIndex = mock(CopybookIndex.class);
+    ArgumentCaptor<RunAnalysisEvent> captor = forClass(RunAnalysisEvent.class);
+
+    WorkspaceService service =
+        new CobolWorkspaceServiceImpl(
+            broker, null, cache, copybookIndex, new DocumentDependencyIndex());
+
+    service.didChangeWatchedFiles(
+        new DidChangeWatchedFilesParams(singletonList(new FileEvent("invalid uri", Changed))));
+
+    verify(copybookIndex, never()).add(any());
+    verify(broker).invalidateCache();
+    verify(cache).invalidate();
+    verify(broker).postData(captor.capture());
+    assertNull(captor.getValue().getDocumentUris());
+  }
+
   private void checkWatchers(FileEvent event) {
     DefaultDataBusBroker broker = mock(DefaultDataBusBroker.class);
+    AnalysisResultCache cache = mock(AnalysisResultCache.class);
+    CopybookIndex copybookIndex = mock(CopybookIndex.class);
+    DocumentDependencyIndex dependencies = new DocumentDependencyIndex();
     ArgumentCaptor<RunAnalysisEvent> captor = forClass(RunAnalysisEvent.class);
+    when(copybookIndex.add(any())).thenReturn(singleton("CPYNAME"));
+    addDependency(dependencies, DOCUMENT_URI, "CpyName");
+    addDependency(dependencies, "file:///c%3A/workspace/COBOL/other.cbl", "Other");
 
-    WorkspaceService service = new CobolWorkspaceServiceImpl(broker, null);
+    WorkspaceService service =
+        new CobolWorkspaceServiceImpl(broker, null, cache, copybookIndex, dependencies);
 
     DidChangeWatchedFilesParams params = new DidChangeWatchedFilesParams(singletonList(event));
     service.didChangeWatchedFiles(params);
 
-    verify(broker).invalidateCache();
+    verify(copybookIndex).add(any());
+    verify(broker).invalidateCache("CPYNAME");
+    verify(broker, never()).invalidateCache();
+    verify(cache, never()).invalidate();
+    verify(cache).invalidate(singleton(DOCUMENT_URI));
     verify(broker).postData(captor.capture());
-    assertNotNull(captor.getValue());
+    assertEquals(singleton(DOCUMENT_URI), captor.getValue().getDocumentUris());
+  }
+
+  private void addDependency(DocumentDependencyIndex dependencies, String uri, String copybook) {
+    dependencies.open(uri);
+    dependencies.update(uri, dependencies.startAnalysis(uri), singletonList(copybook));
   }
 }
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2020 Broadcom.
+ * The term "Broadcom" refers to Broadcom Inc. and/or its subsidiaries.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *   Broadcom, Inc. - initial API and implementation
+ */
+package com.ca.lsp.cobol.service.delegates.validations;
+
+import org.junit.Test;
+
+import static java.util.Collections.singleton;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+
+/**
+ * This test checks that {@link AnalysisResultCache} returns the stored results only for the same
+ * text of the same document and only until the copybooks change, and that the results of the other
+ * documents are kept if only some documents depend on the changed copybooks.
+ */
+public class AnalysisResultCacheTest {
+  private static final String URI = "file:///c%3A/workspace/document.cbl";
+  private static final String OTHER_URI = "file:///c%3A/workspace/other.cbl";
+  private static final String TEXT = "       IDENTIFICATION DIVISION.";
+
+  private AnalysisResultCache cache = new AnalysisResultCache(2);
+
+  @Test
+  public void testSameTextReturnsStoredResult() {
+    AnalysisResult result = AnalysisResult.empty();
+    cache.put(cache.createKey(URI, TEXT), result);
+
+    assertSame(result, cache.get(cache.createKey(URI, TEXT)).orElse(null));
+    assertFalse(cache.get(cache.createKey(URI, TEXT + " ")).isPresent());
+    assertFalse(cache.get(cache.createKey(URI + "2", TEXT)).isPresent());
+  }
+
+  @Test
+  public void testInvalidationRemovesResults() {
+    cache.put(cache.createKey(URI, TEXT), AnalysisResult.empty());
+
+    cache.invalidate();
+
+    assertFalse(cache.get(cache.createKey(URI, TEXT)).isPresent());
+  }
+
+  @Test
+  public void testResultOfOutdatedAnalysisIsNotStored() {
+    AnalysisResultCache.Key key = cache.createKey(URI, TEXT);
+
+    cache.invalidate();
+    cache.put(key, AnalysisResult.empty());
+
+    assertFalse(cache.get(cache.createKey(URI, TEXT)).isPresent());
+  }
+
+  @Test
+  public void testDocumentInvalidationKeepsOtherResults() {
+    AnalysisResult other = AnalysisResult.empty();
+    AnalysisResultCache.Key outdated = cache.createKey(URI, "A");
+    cache.put(cache.createKey(URI, TEXT), AnalysisResult.empty());
+    cache.put(cache.createKey(OTHER_URI, TEXT), other);
+
+    cache.invalidate(singleton(URI));
+    cache.put(outdated, AnalysisResult.empty());
+
+    assertFalse(cache.get(cache.createKey(URI, TEXT)).isPresent());
+    assertFalse(cache.get(cache.createKey(URI, "A")).isPresent());
+    assertSame(other, cache.get(cache.createKey(OTHER_URI, TEXT)).orElse(null));
+  }
+
+  @Test
+  public void testLeastRecentlyUsedResultIsEvicted() {
+    cache.put(cache.createKey(URI, "A"), AnalysisResult.empty());
+    cache.put(cache.createKey(URI, "B"), AnalysisResult.empty());
+    cache.get(cache.createKey(URI, "A"));
+    cache.put(cache.createKey(URI, "C"), AnalysisResult.empty());
+
+    assertFalse(cache.get(cache.createKey(URI, "B")).isPresent());
+    assertEquals(AnalysisResult.empty(), cache.get(cache.createKey(URI, "A")).orElse(null));
+  }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2020 Broadcom.
+ * The term "Broadcom" refers to Broadcom Inc. and/or its subsidiaries.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *   Broadcom, Inc. - initial API and implementation
+ */
+package com.ca.lsp.cobol.service.delegates.validations;
+
+import com.broadcom.lsp.domain.cobol.databus.api.DataBusBroker;
+import com.broadcom.lsp.domain.cobol.event.model.CopybookDepEvent;
+import com.broadcom.lsp.domain.common.model.Position;
+import com.ca.lsp.core.cobol.engine.CancellationToken;
+import com.ca.lsp.core.cobol.engine.CobolLanguageEngine;
+import com.ca.lsp.core.cobol.model.ErrorCode;
+import com.ca.lsp.core.cobol.model.ResultWithErrors;
+import com.ca.lsp.core.cobol.model.SyntaxError;
+import com.ca.lsp.core.cobol.semantics.SemanticContext;
+import org.junit.Test;
+
+import static com.ca.lsp.cobol.service.TextDocumentSyncType.DID_CHANGE;
+import static com.ca.lsp.cobol.service.TextDocumentSyncType.DID_OPEN;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * This test checks that {@link CobolLanguageEngineFacade} reuses only the results without missing
+ * copybooks and posts the copybook dependencies of a reused result.
+ */
+public class CobolLanguageEngineFacadeTest {
+  private static final String URI = "file:///c%3A/workspace/document.cbl";
+  private static final String TEXT = "       IDENTIFICATION DIVISION.";
+  private static final String COPYBOOK = "CPYNAME";
+
+  private final CobolLanguageEngine engine = mock(CobolLanguageEngine.class);
+  private final DataBusBroker broker = mock(DataBusBroker.class);
+  private final CobolLanguageEngineFacade facade =
+      new CobolLanguageEngineFacade(engine, new AnalysisResultCache(2), broker);
+
+  @Test
+  public void testReusedResultPostsCopybookDependencies() {
+    SemanticContext context = new SemanticContext(emptyList());
+    context.getCopybooks().addUsage(COPYBOOK, new Position(URI, 0, 0, 1, 12));
+    when(engine.run(URI, TEXT, "DID_OPEN", CancellationToken.NONE))
+        .thenReturn(new ResultWithErrors<>(context, emptyList()));
+
+    AnalysisResult result = facade.analyze(URI, TEXT, DID_OPEN);
+    verify(broker, never()).postData(any());
+
+    assertEquals(result, facade.analyze(URI, TEXT, DID_CHANGE));
+    verify(engine).run(any(), any(), any(), any());
+    verify(broker)
+        .postData(
+            CopybookDepEvent.builder()
+                .copybookName(COPYBOOK)
+                .textDocumentSync("DID_CHANGE")
+                .documentUri(URI)
+                .build());
+  }
+
+  @Test
+  public void testResultWithMissingCopybookIsNotReused() {
+    SyntaxError error =
+        SyntaxError.syntaxError()
+            .position(new Position("file:///c%3A/workspace/.copybooks/NESTED.cpy", 0, 0, 1, 12))
+            .suggestion("NESTED: Copybook not found")
+            .severity(1)
+            .errorCode(ErrorCode.MISSING_COPYBOOK)
+            .build();
+    when(engine.run(URI, TEXT, "DID_OPEN", CancellationToken.NONE))
+        .thenReturn(
+            new ResultWithErrors<>(new SemanticContext(emptyList()), singletonList(error)));
+
+    facade.analyze(URI, TEXT, DID_OPEN);
+    facade.analyze(URI, TEXT, DID_OPEN);
+
+    verify(engine, times(2)).run(URI, TEXT, "DID_OPEN", CancellationToken.NONE);
+  }
+}
@@ -41,6 +41,7 @@ import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.TimeUnit;
 
+import static com.google.inject.name.Names.named;
 import static java.util.Collections.emptyList;
 import static java.util.stream.Collectors.toList;
 
@@ -190,7 +191,11 @@ public class UseCaseUtils {
    */
   @SuppressWarnings("unchecked")
   public static AnalysisResult analyze(String text, List<CobolText> copybooks) {
-    Injector injector = Guice.createInjector(new EngineModule(), new DatabusModule());
+    Injector injector =
+        Guice.createInjector(
+            new EngineModule(),
+            new DatabusModule(),
+            binder -> binder.bindConstant().annotatedWith(named("ANALYSIS-CACHE-MAX-SIZE")).to(0));
 
     DataBusBroker<FetchedCopybookEvent, RequiredCopybookEvent> broker =
         injector.getInstance(DataBusBroker.class);
@@ -24,11 +24,15 @@ import com.broadcom.lsp.domain.common.model.Position;
 import com.ca.lsp.cobol.positive.CobolText;
 import com.ca.lsp.cobol.service.mocks.MockCopybookService;
 import com.ca.lsp.cobol.service.mocks.MockCopybookServiceImpl;
+import com.ca.lsp.core.cobol.engine.CancellationToken;
+import com.ca.lsp.core.cobol.engine.ParsingStatistics;
 import com.ca.lsp.core.cobol.model.CopybookUsage;
 import com.ca.lsp.core.cobol.model.PreprocessedInput;
 import com.ca.lsp.core.cobol.model.ResultWithErrors;
 import com.ca.lsp.core.cobol.preprocessor.CobolPreprocessor;
 import com.ca.lsp.core.cobol.preprocessor.sub.copybook.AnalyseCopybookTask;
+import com.ca.lsp.core.cobol.preprocessor.sub.copybook.CopybookResolution;
+import com.ca.lsp.core.cobol.preprocessor.sub.copybook.PreprocessedCopybookCache;
 import com.ca.lsp.core.cobol.preprocessor.sub.util.impl.MultiMapSerializableHelper;
 import com.ca.lsp.core.cobol.semantics.SemanticContext;
 import com.google.common.collect.HashMultimap;
@@ -73,7 +77,11 @@ public class AnalyzeCopybookCaching {
     predefineCache();
     initWorkspaceService();
     when(preprocessor.process(
-            any(), any(String.class), any(SemanticContext.class), any(String.class)))
+            any(),
+            any(String.class),
+            any(SemanticContext.class),
+            any(String.class),
+            any(CancellationToken.class)))
         .thenReturn(
             new ResultWithErrors<>(new PreprocessedInput(COPYBOOK_CONTENT, null), emptyList()));
   }
@@ -180,10 +188,15 @@ public class AnalyzeCopybookCaching {
         new AnalyseCopybookTask(
             databus,
             preprocessor,
+            mock(PreprocessedCopybookCache.class),
+            new CopybookResolution(databus),
+            new ParsingStatistics(),
+            30000,
             null,
             new CopybookUsage(COPYBOOK_NAME, null, null),
             emptyList(),
-            "DID_CHANGE");
+            "DID_CHANGE",
+            CancellationToken.NONE);
     analyseCopybookTask.compute();
   }
 
@@ -192,10 +205,15 @@ public class AnalyzeCopybookCaching {
         new AnalyseCopybookTask(
             databus,
             preprocessor,
+            mock(PreprocessedCopybookCache.class),
+            new CopybookResolution(databus),
+            new ParsingStatistics(),
+            30000,
             null,
             new CopybookUsage(COPYBOOK_NAME, null, null),
             emptyList(),
-            "DID_OPEN");
+            "DID_OPEN",
+            CancellationToken.NONE);
     analyseCopybookTask.compute();
   }
 }
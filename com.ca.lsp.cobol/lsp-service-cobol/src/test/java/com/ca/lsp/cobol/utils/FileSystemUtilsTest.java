@@ -15,14 +15,22 @@
 package com.ca.lsp.cobol.utils;
 
 import com.ca.lsp.cobol.service.utils.FileSystemUtils;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
+import java.io.IOException;
 import java.io.UnsupportedEncodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 
 import static org.junit.Assert.assertEquals;
 
 /** This class contains unit test about utility methods provided for other components */
 public class FileSystemUtilsTest {
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
 
   /**
    * This unit test verify that for a given URI with encoded special character, the decode operation
@@ -35,4 +43,43 @@ public class FileSystemUtilsTest {
         decodedURI,
         FileSystemUtils.decodeURI("file:///user/COBOL/HLQ0001.DEMO.COBOL%28MEMBFILE%29.cbl"));
   }
+
+  /**
+   * This unit test verifies that a copybook is decoded using the charset specified for its dataset
+   * folder, and the line breaks of the content are normalized to CRLF without the final one.
+   */
+  @Test
+  public void copybookContentDecodingTest() throws IOException {
+    String content = "       01 \u00c4REA PIC X.\u0085       01 B PIC 9.\u0085";
+    Path dataset = temporaryFolder.newFolder(".copybooks", "PRF11", "HLQ.DSN").toPath();
+    Files.write(dataset.resolve(".encoding"), "Cp1047".getBytes());
+    Path copybook = Files.write(dataset.resolve("CPY.cpy"), content.getBytes("Cp1047"));
+    Path utf8Copybook = Files.write(dataset.resolveSibling("CPY.cpy"), content.getBytes("UTF-8"));
+
+    String expected = "       01 \u00c4REA PIC X.\r\n       01 B PIC 9.";
+    assertEquals(Charset.forName("Cp1047"), FileSystemUtils.getCharset(copybook));
+    assertEquals(expected, FileSystemUtils.getContentByPath(copybook));
+    assertEquals(expected, FileSystemUtils.getContentByPath(utf8Copybook));
+
+    Path mixedBreaks = Files.write(dataset.resolveSibling("MIXED.cpy"), "A\rB\nC\r\n\n".getBytes());
+    assertEquals("A\r\nB\r\nC\r\n", FileSystemUtils.getContentByPath(mixedBreaks));
+  }
+
+  /**
+   * This unit test verifies that only the encoding files inside the copybooks folder apply, and the
+   * charset of a folder is cached until the encoding files change.
+   */
+  @Test
+  public void copybookCharsetLookupTest() throws IOException {
+    Files.write(temporaryFolder.getRoot().toPath().resolve(".encoding"), "Cp1047".getBytes());
+    Path dataset = temporaryFolder.newFolder(".copybooks", "PRF11", "HLQ.DSN").toPath();
+    Path copybook = dataset.resolve("CPY.cpy");
+    assertEquals(StandardCharsets.UTF_8, FileSystemUtils.getCharset(copybook));
+
+    Files.write(dataset.resolve(".encoding"), "Cp1047".getBytes());
+    assertEquals(StandardCharsets.UTF_8, FileSystemUtils.getCharset(copybook));
+
+    FileSystemUtils.forgetCharsets();
+    assertEquals(Charset.forName("Cp1047"), FileSystemUtils.getCharset(copybook));
+  }
 }